@@ -784,7 +784,12 @@ public class CpEntityManager implements EntityManager {
 
     @Override
     public long getApplicationCollectionSize( String collectionName ) throws Exception {
-        throw new UnsupportedOperationException( "Not supported yet." );
+
+        final GraphManager gm = graphManagerFactory.createEdgeManager( applicationScope );
+
+        //maintained by the graph as edges are written and removed, so we don't need to read the collection
+        return gm.countEdgesFromSource( applicationScope.getApplication(),
+            CpNamingUtils.getEdgeTypeFromCollectionName( collectionName ) ).toBlocking().last();
     }
 
 
@@ -1578,6 +1583,46 @@ public class CpEntityManager implements EntityManager {
     }
 
 
+    @Override
+    public List<ConnectionRef> createConnections( EntityRef connectingEntity, String connectionType,
+                                                  Collection<EntityRef> connectedEntityRefs ) throws Exception {
+
+        // connections are often known only by the uuid of the target, look up their types in one batch
+        final List<String> untyped = new ArrayList<>();
+        for ( EntityRef connectedEntityRef : connectedEntityRefs ) {
+            if ( connectedEntityRef.getType() == null ) {
+                untyped.add( connectedEntityRef.getUuid().toString() );
+            }
+        }
+
+        if ( untyped.isEmpty() ) {
+            return getRelationManager( connectingEntity ).createConnections( connectionType, connectedEntityRefs );
+        }
+
+        final Map<String, String> types = getMapManagerForTypes().getStrings( untyped );
+
+        final List<EntityRef> typedRefs = new ArrayList<>( connectedEntityRefs.size() );
+        for ( EntityRef connectedEntityRef : connectedEntityRefs ) {
+            if ( connectedEntityRef.getType() != null ) {
+                typedRefs.add( connectedEntityRef );
+                continue;
+            }
+
+            final String type = types.get( connectedEntityRef.getUuid().toString() );
+
+            if ( type == null ) {
+                logger.warn( "Could not find type for connection target {}, not connecting",
+                    connectedEntityRef.getUuid() );
+                continue;
+            }
+
+            typedRefs.add( new SimpleEntityRef( type, connectedEntityRef.getUuid() ) );
+        }
+
+        return getRelationManager( connectingEntity ).createConnections( connectionType, typedRefs );
+    }
+
+
     @Override
     public ConnectionRef createConnection( EntityRef connectingEntity, String pairedConnectionType,
             EntityRef pairedEntity, String connectionType, EntityRef connectedEntityRef )
@@ -35,6 +35,8 @@ import org.apache.usergrid.corepersistence.util.CpNamingUtils;
 import org.apache.usergrid.persistence.*;
 import org.apache.usergrid.persistence.Query.Level;
 import org.apache.usergrid.persistence.cassandra.ConnectionRefImpl;
+import org.apache.usergrid.persistence.collection.EntitySet;
+import org.apache.usergrid.persistence.collection.MvccEntity;
 import org.apache.usergrid.persistence.core.scope.ApplicationScope;
 import org.apache.usergrid.persistence.entities.Group;
 import org.apache.usergrid.persistence.entities.User;
@@ -382,38 +384,33 @@ public class CpRelationManager implements RelationManager {
 
         GraphManager gm = managerCache.getGraphManager( applicationScope );
 
-        gm.writeEdge( edge ).doOnNext( writtenEdge -> {
+        final Edge reverseEdge = linkedCollection == null ? null :
+            createCollectionEdge( memberEntityId, InflectionUtils.pluralize( cpHeadEntity.getId().getType() ),
+                cpHeadEntity.getId() );
+
+        //write the edge and its linked reverse edge in a single round trip
+        final List<Edge> toWrite = reverseEdge == null ? Collections.singletonList( edge ) :
+            Arrays.asList( edge, reverseEdge );
+
+        gm.writeEdges( toWrite ).doOnNext( writtenEdge -> {
             if ( logger.isDebugEnabled() ) {
                 logger.debug( "Wrote edge {}", writtenEdge );
             }
-        } ).filter( writtenEdge -> linkedCollection != null ).flatMap( writtenEdge -> {
-            final String pluralType = InflectionUtils.pluralize( cpHeadEntity.getId().getType() );
-            final Edge reverseEdge = createCollectionEdge( memberEntityId, pluralType, cpHeadEntity.getId() );
-
-            //reverse
-            return gm.writeEdge( reverseEdge ).doOnNext( reverseEdgeWritten -> {
-
-                String entityType = cpHeadEntity.getId().getType();
-                if ( !skipIndexingForType( entityType) ) {
-                    QueueIndexingStrategy queueIndexingStrategy = getIndexingStrategyForType(entityType);
-                    indexService.queueNewEdge(applicationScope, cpHeadEntity.getId(), reverseEdge, queueIndexingStrategy);
-                }
-
-            } );
-        } ).doOnCompleted( () -> {
+        } ).toBlocking().lastOrDefault( null );
 
-            String entityType = memberEntity.getId().getType();
-            if ( !skipIndexingForType( entityType ) ) {
-                QueueIndexingStrategy queueIndexingStrategy = getIndexingStrategyForType(entityType);
-                indexService.queueNewEdge(applicationScope, memberEntityId, edge, queueIndexingStrategy);
+        if ( reverseEdge != null ) {
+            String headEntityType = cpHeadEntity.getId().getType();
+            if ( !skipIndexingForType( headEntityType ) ) {
+                QueueIndexingStrategy queueIndexingStrategy = getIndexingStrategyForType(headEntityType);
+                indexService.queueNewEdge(applicationScope, cpHeadEntity.getId(), reverseEdge, queueIndexingStrategy);
             }
+        }
 
-
-            if ( logger.isDebugEnabled() ) {
-                logger.debug( "Added entity {}:{} to collection {}",
-                    itemRef.getUuid().toString(), itemRef.getType(), collectionName );
-            }
-        } ).toBlocking().lastOrDefault( null );
+        String entityType = memberEntity.getId().getType();
+        if ( !skipIndexingForType( entityType ) ) {
+            QueueIndexingStrategy queueIndexingStrategy = getIndexingStrategyForType(entityType);
+            indexService.queueNewEdge(applicationScope, memberEntityId, edge, queueIndexingStrategy);
+        }
 
 
         // remove any duplicate edges (keeps the duplicate edge with same timestamp)
@@ -754,6 +751,77 @@ public class CpRelationManager implements RelationManager {
     }
 
 
+    @Override
+    public List<ConnectionRef> createConnections( String connectionType, Collection<EntityRef> connectedEntityRefs )
+        throws Exception {
+
+        headEntity = em.validate( headEntity );
+
+        if ( logger.isTraceEnabled() ) {
+            logger.trace( "createConnections(): Creating {} connections of type '{}' from source {}:{} app {}",
+                connectedEntityRefs.size(), connectionType, headEntity.getType(), headEntity.getUuid(),
+                applicationScope );
+        }
+
+        final List<Id> targetIds = new ArrayList<>( connectedEntityRefs.size() );
+        for ( EntityRef connectedEntityRef : connectedEntityRefs ) {
+            targetIds.add( new SimpleId( connectedEntityRef.getUuid(), connectedEntityRef.getType() ) );
+        }
+
+        // load all the targets in one batch, rather than one load per connection
+        final EntitySet targets = managerCache.getEntityCollectionManager( applicationScope ).load( targetIds )
+            .toBlocking().lastOrDefault( null );
+
+        final List<Edge> edges = new ArrayList<>( targetIds.size() );
+        // grouped by the indexing strategy of the target's type, as createConnection indexes each one
+        final Map<QueueIndexingStrategy, List<Edge>> edgesToIndex = new LinkedHashMap<>();
+        final List<ConnectionRef> connections = new ArrayList<>( targetIds.size() );
+
+        for ( EntityRef connectedEntityRef : connectedEntityRefs ) {
+
+            final Id targetId = new SimpleId( connectedEntityRef.getUuid(), connectedEntityRef.getType() );
+            final MvccEntity target = targets == null ? null : targets.getEntity( targetId );
+
+            if ( target == null || !target.getEntity().isPresent() ) {
+                logger.warn( "Target {} of connection type '{}' from {}:{} does not exist, not connecting", targetId,
+                    connectionType, headEntity.getType(), headEntity.getUuid() );
+                continue;
+            }
+
+            final Edge edge = createConnectionEdge( cpHeadEntity.getId(), connectionType, targetId );
+
+            edges.add( edge );
+            connections.add( new ConnectionRefImpl( headEntity, connectionType, connectedEntityRef ) );
+
+            if ( !skipIndexingForType( targetId.getType() ) ) {
+                edgesToIndex.computeIfAbsent( getIndexingStrategyForType( targetId.getType() ),
+                    strategy -> new ArrayList<>() ).add( edge );
+            }
+        }
+
+        if ( edges.isEmpty() ) {
+            return connections;
+        }
+
+        final GraphManager gm = managerCache.getGraphManager( applicationScope );
+
+        //write the new edges as a single batch
+        gm.writeEdges( edges ).toBlocking().lastOrDefault( null ); //throw an exception if this fails
+
+        //index the targets with a single batch of events per strategy
+        for ( Map.Entry<QueueIndexingStrategy, List<Edge>> strategyEdges : edgesToIndex.entrySet() ) {
+            indexService.queueNewEdges( applicationScope, strategyEdges.getValue(), strategyEdges.getKey() );
+        }
+
+        // remove any duplicate edges (keeps the duplicate edge with same timestamp)
+        for ( Edge edge : edges ) {
+            removeDuplicateEdgesAsync( gm, edge );
+        }
+
+        return connections;
+    }
+
+
     @Override
     public ConnectionRef createConnection( String pairedConnectionType, EntityRef pairedEntity, String connectionType,
                                            EntityRef connectedEntityRef ) throws Exception {
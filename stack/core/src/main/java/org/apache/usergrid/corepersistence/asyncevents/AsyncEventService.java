@@ -29,6 +29,7 @@ import org.apache.usergrid.persistence.model.entity.Entity;
 import org.apache.usergrid.persistence.model.entity.Id;
 import org.apache.usergrid.persistence.queue.settings.QueueIndexingStrategy;
 
+import java.util.List;
 import java.util.UUID;
 
 
@@ -70,6 +71,17 @@ public interface AsyncEventService extends ReIndexAction, CollectionDeleteAction
      */
     void queueNewEdge(final ApplicationScope applicationScope, final Id entityId, final Edge newEdge, QueueIndexingStrategy queueIndexingStrategy);
 
+    /**
+     * Fired when many new edges are added at once, such as a bulk import of connections.  The target of each edge is
+     * indexed, and the events are sent to the queue as a single batch
+     *
+     * @param applicationScope
+     * @param newEdges
+     * @param queueIndexingStrategy The strategy of every edge's target type
+     */
+    void queueNewEdges(final ApplicationScope applicationScope, final List<Edge> newEdges,
+                       QueueIndexingStrategy queueIndexingStrategy);
+
     /**
      * Queue the deletion of an edge
      * @param applicationScope
@@ -34,6 +34,7 @@ import org.apache.usergrid.corepersistence.index.*;
 import org.apache.usergrid.corepersistence.rx.impl.EdgeScope;
 import org.apache.usergrid.corepersistence.util.CpNamingUtils;
 import org.apache.usergrid.corepersistence.util.ObjectJsonSerializer;
+import org.apache.usergrid.corepersistence.util.ObjectSmileSerializer;
 import org.apache.usergrid.persistence.collection.EntityCollectionManager;
 import org.apache.usergrid.persistence.collection.EntityCollectionManagerFactory;
 import org.apache.usergrid.persistence.collection.serialization.impl.migration.EntityIdScope;
@@ -338,6 +339,27 @@ public class AsyncEventServiceImpl implements AsyncEventService {
     }
 
 
+    /**
+     * Offer the operations to SQS as a single batch
+     */
+    protected void offerBatch(final List operations, AsyncEventQueueType queueType,
+                              QueueIndexingStrategy queueIndexingStrategy){
+        final Timer.Context timer = this.writeTimer.time();
+        try {
+            //signal to SQS
+            if (queueIndexingStrategy == QueueIndexingStrategy.ASYNC) {
+                getQueue(queueType).sendMessagesAsync(operations);
+            } else {
+                getQueue(queueType).sendMessages(operations);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to queue message", e);
+        } finally {
+            timer.stop();
+        }
+    }
+
+
     /**
      * Take message
      */
@@ -607,6 +629,26 @@ public class AsyncEventServiceImpl implements AsyncEventService {
 
     }
 
+
+    @Override
+    public void queueNewEdges(final ApplicationScope applicationScope, final List<Edge> newEdges,
+                              QueueIndexingStrategy queueIndexingStrategy) {
+
+        if ( newEdges.isEmpty() ) {
+            return;
+        }
+
+        final List<EdgeIndexEvent> batch = new ArrayList<>( newEdges.size() );
+        newEdges.forEach( newEdge -> batch.add(
+            new EdgeIndexEvent( queueFig.getPrimaryRegion(), applicationScope, newEdge.getTargetNode(), newEdge ) ) );
+
+        if (logger.isTraceEnabled()) {
+            logger.trace("Offering batch of EdgeIndexEvent of size {}", batch.size());
+        }
+
+        offerBatch( batch, AsyncEventQueueType.REGULAR, queueIndexingStrategy );
+    }
+
     private IndexOperationMessage handleEdgeIndex(final LegacyQueueMessage message) {
 
         Preconditions.checkNotNull( message, "Queue Message cannot be null for handleEdgeIndex" );
@@ -683,25 +725,12 @@ public class AsyncEventServiceImpl implements AsyncEventService {
             return;
         }
 
-        final String jsonValue = ObjectJsonSerializer.INSTANCE.toString( indexOperationMessage );
-
-        final UUID newMessageId = UUIDGenerator.newTimeUUID();
-
-        final int expirationTimeInSeconds =
-            ( int ) TimeUnit.MILLISECONDS.toSeconds( indexProcessorFig.getIndexMessageTtl() );
-
-        //write to the map in ES
-        esMapPersistence.putString( newMessageId.toString(), jsonValue, expirationTimeInSeconds );
-
-        //now queue up the index message
-
-        final ElasticsearchIndexEvent elasticsearchIndexEvent =
-            new ElasticsearchIndexEvent(queueFig.getPrimaryRegion(), newMessageId );
+        final ElasticsearchIndexEvent elasticsearchIndexEvent = getESIndexEvent( indexOperationMessage );
 
         //send to the topic so all regions index the batch
 
         if (logger.isTraceEnabled()) {
-            logger.trace("Offering ElasticsearchIndexEvent for message {}", newMessageId);
+            logger.trace("Offering ElasticsearchIndexEvent for message {}", elasticsearchIndexEvent.getIndexBatchId());
         }
 
         offerTopic( elasticsearchIndexEvent, queueType );
@@ -709,6 +738,18 @@ public class AsyncEventServiceImpl implements AsyncEventService {
 
     protected ElasticsearchIndexEvent getESIndexEvent(final IndexOperationMessage indexOperationMessage) {
 
+        final int inlineMaxBytes = indexProcessorFig.getIndexMessageInlineMaxBytes();
+
+        // small batches travel with the event, saving the map write, the map read and waiting for it to be visible
+        if ( inlineMaxBytes > 0 ) {
+
+            final String inlineValue = ObjectSmileSerializer.INSTANCE.toString( indexOperationMessage );
+
+            if ( inlineValue.length() <= inlineMaxBytes ) {
+                return new ElasticsearchIndexEvent( queueFig.getPrimaryRegion(), inlineValue );
+            }
+        }
+
         final String jsonValue = ObjectJsonSerializer.INSTANCE.toString( indexOperationMessage );
 
         final UUID newMessageId = UUIDGenerator.newTimeUUID();
@@ -729,6 +770,15 @@ public class AsyncEventServiceImpl implements AsyncEventService {
 
         Preconditions.checkNotNull( elasticsearchIndexEvent, "elasticsearchIndexEvent cannot be null" );
 
+        if ( elasticsearchIndexEvent.getInlineBatch() != null ) {
+
+            final IndexOperationMessage indexOperationMessage = ObjectSmileSerializer.INSTANCE
+                .fromString( elasticsearchIndexEvent.getInlineBatch(), IndexOperationMessage.class );
+
+            sendIndexOperationMessage( indexOperationMessage );
+            return;
+        }
+
         final UUID messageId = elasticsearchIndexEvent.getIndexBatchId();
         Preconditions.checkNotNull( messageId, "messageId must not be null" );
 
@@ -772,10 +822,20 @@ public class AsyncEventServiceImpl implements AsyncEventService {
         }
 
 
+        sendIndexOperationMessage( indexOperationMessage );
+
+    }
+
+
+    /**
+     * Send the index operations of an ElasticsearchIndexEvent to Elasticsearch
+     */
+    private void sendIndexOperationMessage( final IndexOperationMessage indexOperationMessage ) {
+
         // don't let this continue if there's nothing to index
         if (indexOperationMessage == null ||  indexOperationMessage.isEmpty()){
             throw new RuntimeException(
-                "IndexOperationMessage cannot be null or empty after retrieving from map persistence");
+                "IndexOperationMessage cannot be null or empty after decoding or retrieving from map persistence");
         }
 
 
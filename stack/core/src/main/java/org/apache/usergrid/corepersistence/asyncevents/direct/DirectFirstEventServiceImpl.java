@@ -18,6 +18,7 @@
  */
 package org.apache.usergrid.corepersistence.asyncevents.direct;
 
+import org.apache.usergrid.corepersistence.asyncevents.AsyncEventQueueType;
 import org.apache.usergrid.corepersistence.asyncevents.AsyncEventServiceImpl;
 import org.apache.usergrid.corepersistence.asyncevents.EventBuilder;
 import org.apache.usergrid.corepersistence.asyncevents.model.ElasticsearchIndexEvent;
@@ -142,6 +143,24 @@ public class DirectFirstEventServiceImpl extends AsyncEventServiceImpl {
     }
 
 
+    protected void offerBatch(final List operations, AsyncEventQueueType queueType,
+                              QueueIndexingStrategy queueIndexingStrategy) {
+        queueIndexingStrategy = resolveIndexingStrategy(queueIndexingStrategy);
+        if  (queueIndexingStrategy.shouldSendDirectToES()) {
+            List<LegacyQueueMessage> messages = new ArrayList<>(operations.size());
+            for (Object operation : operations) {
+                messages.addAll(getMessageArray((Serializable) operation));
+            }
+            List<IndexEventResult> result = callEventHandlers(messages);
+            submitToIndex( result, false );
+        }
+
+        if (queueIndexingStrategy.shouldSendToAWS()) {
+            super.offerBatch(operations, queueType, queueIndexingStrategy);
+        }
+    }
+
+
     protected List<LegacyQueueMessage> submitToIndex(List<IndexEventResult> indexEventResults, boolean forUtilityQueue) {
 
         // if nothing came back then return empty list
@@ -24,7 +24,8 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 
 
 /**
- * An index event for publishing operations (index and de-index) to Elasticsearch
+ * An index event for publishing operations (index and de-index) to Elasticsearch.  Small batches are carried inline
+ * in the event, larger ones are stored in map persistence and referenced by their batch id.
  */
 public final class ElasticsearchIndexEvent extends AsyncEvent {
 
@@ -32,6 +33,9 @@ public final class ElasticsearchIndexEvent extends AsyncEvent {
     @JsonProperty
     protected UUID indexBatchId;
 
+    @JsonProperty
+    protected String inlineBatch;
+
     public ElasticsearchIndexEvent() {
     }
 
@@ -40,6 +44,11 @@ public final class ElasticsearchIndexEvent extends AsyncEvent {
         this.indexBatchId = indexBatchId;
     }
 
+    public ElasticsearchIndexEvent(String sourceRegion, String inlineBatch) {
+        super(sourceRegion);
+        this.inlineBatch = inlineBatch;
+    }
+
 
     /**
      * Get the unique message id of the
@@ -48,4 +57,13 @@ public final class ElasticsearchIndexEvent extends AsyncEvent {
     public UUID getIndexBatchId() {
         return indexBatchId;
     }
+
+
+    /**
+     * Get the encoded batch carried in this event, null when the batch is in map persistence
+     * @return
+     */
+    public String getInlineBatch() {
+        return inlineBatch;
+    }
 }
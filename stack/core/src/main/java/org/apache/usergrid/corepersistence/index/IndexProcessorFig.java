@@ -182,4 +182,12 @@ public interface IndexProcessorFig extends GuicyFig {
     @Default("86400000")
     @Key( "elasticsearch.message.ttl" )
     int getIndexMessageTtl();
+
+    /**
+     * Index batches whose encoded size (in bytes) is at most this are carried inline in the queue message rather than
+     * written to map persistence.  Set to 0 to always use map persistence.
+     */
+    @Default("32768")
+    @Key( "elasticsearch.message.inline.max_bytes" )
+    int getIndexMessageInlineMaxBytes();
 }
@@ -29,7 +29,7 @@ import org.apache.usergrid.persistence.core.scope.ApplicationScope;
 
 import com.google.common.base.Optional;
 import org.apache.usergrid.persistence.index.query.ParsedQuery;
-import org.apache.usergrid.persistence.index.query.ParsedQueryBuilder;
+import org.apache.usergrid.persistence.index.query.ParsedQueryCache;
 
 import static org.apache.usergrid.persistence.Query.MAX_LIMIT;
 
@@ -50,13 +50,14 @@ public class PipelineContext {
     private ParsedQuery parsedQuery;
 
 
-    public PipelineContext( final ApplicationScope applicationScope, final RequestCursor requestCursor, final int limit, final int id, boolean keepStaleEntries, String query ) {
+    public PipelineContext( final ApplicationScope applicationScope, final RequestCursor requestCursor, final int limit, final int id, boolean keepStaleEntries, String query,
+                            final ParsedQueryCache parsedQueryCache ) {
 
         this.applicationScope = applicationScope;
         this.id = id;
         this.keepStaleEntries = keepStaleEntries;
         this.query = query;
-        this.parsedQuery = ParsedQueryBuilder.build(query);
+        this.parsedQuery = parsedQueryCache.build(query);
         if (parsedQuery != null && parsedQuery.isDirectQuery()) {
             // for direct query, use no limit or cursor
             this.limit = MAX_LIMIT + 1;
@@ -29,6 +29,7 @@ import org.apache.usergrid.persistence.index.*;
 import org.apache.usergrid.persistence.index.impl.IndexProducer;
 import org.apache.usergrid.persistence.index.query.ParsedQuery;
 import org.apache.usergrid.persistence.model.entity.SimpleId;
+import org.apache.usergrid.persistence.model.field.AbstractField;
 import org.apache.usergrid.persistence.model.field.DistanceField;
 import org.apache.usergrid.persistence.model.field.EntityObjectField;
 import org.apache.usergrid.persistence.model.field.Field;
@@ -127,6 +128,8 @@ public class CandidateEntityFilter extends AbstractFilter<FilterResult<Candidate
                 final Observable<FilterResult<Entity>> entitySetObservable =
                     candidates.flatMap(candidatesList -> {
                         Collection<SelectFieldMapping> mappings = candidatesList.get(0).getFields();
+                        //resolve the selected fields once for the page rather than per entity
+                        final FieldProjection projection = mappings.size() > 0 ? new FieldProjection( mappings ) : null;
                         Observable<EntitySet> entitySets = Observable.from(candidatesList)
                             .map(candidateEntry -> candidateEntry.getCandidateResult().getId()).toList()
                             .flatMap(idList -> entityCollectionManager.load(idList));
@@ -139,31 +142,8 @@ public class CandidateEntityFilter extends AbstractFilter<FilterResult<Candidate
                                 isDirectQuery))
                             .flatMap(entityCollector -> Observable.from(entityCollector.getResults()))
                             .map(entityFilterResult -> {
-                                final Entity entity = entityFilterResult.getValue();
-                                if (mappings.size() > 0) {
-                                    Map<String,Field> fieldMap = new HashMap<String, Field>(mappings.size());
-                                    rx.Observable.from(mappings)
-
-                                        .filter(mapping -> {
-                                            if ( entity.getFieldMap().containsKey(mapping.getSourceFieldName())) {
-                                                return true;
-                                            }
-                                            String[] parts = mapping.getSourceFieldName().split("\\.");
-                                            return nestedFieldCheck( parts, entity.getFieldMap() );
-                                        })
-
-                                        .doOnNext(mapping -> {
-                                            Field field = entity.getField(mapping.getSourceFieldName());
-                                            if ( field != null ) {
-                                                field.setName( mapping.getTargetFieldName() );
-                                                fieldMap.put( mapping.getTargetFieldName(), field );
-                                            } else {
-                                                String[] parts = mapping.getSourceFieldName().split("\\.");
-                                                nestedFieldSet( fieldMap, parts, entity.getFieldMap() );
-                                            }
-                                        }).toBlocking().lastOrDefault(null);
-
-                                    entity.setFieldMap(fieldMap);
+                                if ( projection != null ) {
+                                    projection.apply( entityFilterResult.getValue() );
                                 }
                                 return entityFilterResult;
                             });
@@ -179,58 +159,103 @@ public class CandidateEntityFilter extends AbstractFilter<FilterResult<Candidate
 
 
     /**
-     * Sets field in result map with support for nested fields via recursion.
-     *
-     * @param result The result map of filtered fields
-     * @param parts The parts of the field name (more than one if field is nested)
-     * @param fieldMap Map of fields of the object
+     * Applies the select field mappings of a query to loaded entities in a single pass.  Field names are split once
+     * up front, and renamed fields are copied so the loaded entity's fields (which may be cached) are never modified.
      */
-    private void nestedFieldSet( Map<String, Field> result, String[] parts, Map<String, Field> fieldMap) {
-        if ( parts.length > 0 ) {
+    private static final class FieldProjection {
 
-            if ( fieldMap.containsKey( parts[0] )) {
-                Field field = fieldMap.get( parts[0] );
-                if ( field instanceof EntityObjectField ) {
-                    EntityObjectField eof = (EntityObjectField)field;
-                    result.putIfAbsent( parts[0], new EntityObjectField( parts[0], new EntityObject() ) );
+        private final SelectFieldMapping[] mappings;
 
-                    // recursion
-                    nestedFieldSet(
-                        ((EntityObjectField)result.get( parts[0] )).getValue().getFieldMap(),
-                        Arrays.copyOfRange(parts, 1, parts.length),
-                        eof.getValue().getFieldMap());
+        /**
+         * The parts of each source field name, null when the field isn't nested
+         */
+        private final String[][] nestedParts;
 
-                } else {
-                    result.put( parts[0], field );
+
+        private FieldProjection( final Collection<SelectFieldMapping> selectFieldMappings ) {
+            this.mappings = selectFieldMappings.toArray( new SelectFieldMapping[selectFieldMappings.size()] );
+            this.nestedParts = new String[mappings.length][];
+
+            for ( int i = 0; i < mappings.length; i++ ) {
+                final String sourceFieldName = mappings[i].getSourceFieldName();
+                if ( sourceFieldName.indexOf( '.' ) > -1 ) {
+                    nestedParts[i] = sourceFieldName.split( "\\." );
                 }
             }
         }
-    }
 
 
-    /**
-     * Check to see if field should be included in filtered result with support for nested fields via recursion.
-     *
-     * @param parts The parts of the field name (more than one if field is nested)
-     * @param fieldMap Map of fields of the object
-     */
-    private boolean nestedFieldCheck( String[] parts, Map<String, Field> fieldMap) {
-        if ( parts.length > 0 ) {
+        /**
+         * Replace the entity's fields with only the selected fields
+         */
+        private void apply( final Entity entity ) {
 
-            if ( fieldMap.containsKey( parts[0] )) {
-                Field field = fieldMap.get( parts[0] );
-                if ( field instanceof EntityObjectField ) {
-                    EntityObjectField eof = (EntityObjectField)field;
+            final Map<String, Field> entityFields = entity.getFieldMap();
+            final Map<String, Field> selected = new HashMap<>( mappings.length );
 
-                    // recursion
-                    return nestedFieldCheck( Arrays.copyOfRange(parts, 1, parts.length), eof.getValue().getFieldMap());
+            for ( int i = 0; i < mappings.length; i++ ) {
+                final SelectFieldMapping mapping = mappings[i];
+                final Field field = entityFields.get( mapping.getSourceFieldName() );
 
-                } else {
-                    return true;
+                if ( field != null ) {
+                    selected.put( mapping.getTargetFieldName(), rename( field, mapping.getTargetFieldName() ) );
+                }
+                else if ( nestedParts[i] != null ) {
+                    nestedFieldSet( selected, nestedParts[i], 0, entityFields );
                 }
             }
+
+            entity.setFieldMap( selected );
+        }
+
+
+        private static Field rename( final Field field, final String name ) {
+            if ( name.equals( field.getName() ) ) {
+                return field;
+            }
+
+            if ( field instanceof AbstractField ) {
+                return ( ( AbstractField<?> ) field ).copy( name );
+            }
+
+            field.setName( name );
+            return field;
+        }
+
+
+        /**
+         * Sets field in result map with support for nested fields via recursion.
+         *
+         * @param result The result map of filtered fields
+         * @param parts The parts of the field name (more than one if field is nested)
+         * @param index The part to set at this level of nesting
+         * @param fieldMap Map of fields of the object
+         */
+        private static void nestedFieldSet( final Map<String, Field> result, final String[] parts, final int index,
+                                            final Map<String, Field> fieldMap ) {
+
+            if ( index >= parts.length ) {
+                return;
+            }
+
+            final Field field = fieldMap.get( parts[index] );
+
+            if ( field == null ) {
+                return;
+            }
+
+            if ( field instanceof EntityObjectField ) {
+                final EntityObjectField eof = ( EntityObjectField ) field;
+                result.putIfAbsent( parts[index], new EntityObjectField( parts[index], new EntityObject() ) );
+
+                // recursion
+                nestedFieldSet( ( ( EntityObjectField ) result.get( parts[index] ) ).getValue().getFieldMap(), parts,
+                    index + 1, eof.getValue().getFieldMap() );
+            }
+            else {
+                result.put( parts[index], field );
+            }
         }
-        return false;
     }
 
 
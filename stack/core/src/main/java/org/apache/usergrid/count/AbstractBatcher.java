@@ -58,7 +58,7 @@ public abstract class AbstractBatcher implements Batcher {
     // TODO add batchCount, remove shouldSubmit, impl submit, change simpleBatcher to just be an extension
     protected int batchSize = 500;
     protected int batchIntervalSeconds = 10;
-    private final AtomicLong batchSubmissionCount = new AtomicLong();
+    protected final AtomicLong batchSubmissionCount = new AtomicLong();
 
     /**
      * Create our scheduler to fire our execution
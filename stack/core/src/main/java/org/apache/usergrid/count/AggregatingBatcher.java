@@ -0,0 +1,276 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.usergrid.count;
+
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.usergrid.count.common.Count;
+import com.yammer.metrics.Metrics;
+import com.yammer.metrics.core.Counter;
+
+
+/**
+ * A Batcher that merges increments to the same counter in memory before submitting them.  Every {@link Count} for the
+ * same table, key and column is folded into one striped accumulator, and the merged deltas are submitted when the
+ * number of distinct counters reaches the batch size or when the batch interval elapses.  Adding a count never blocks
+ * and never drops it.  A submission is waited for, and if it fails its deltas are logged and dropped.  Counter writes
+ * aren't idempotent and a failed batch may have been partly written, so retrying it could count those deltas twice.
+ * Pending deltas are flushed on {@link #shutdown()}.
+ *
+ * A batch size of 1 submits every count immediately, as {@link SimpleBatcher} does.
+ */
+public class AggregatingBatcher extends SimpleBatcher {
+    private static final Logger log = LoggerFactory.getLogger( AggregatingBatcher.class );
+
+    /**
+     * Marks a stripe of an accumulator that has been removed from the map, adders must use the new accumulator
+     */
+    private static final long RETIRED = Long.MIN_VALUE;
+
+    private static final int STRIPES = stripeCount();
+
+    private final Map<String, Accumulator> accumulators = new ConcurrentHashMap<>();
+
+    private final AtomicLong addCount = new AtomicLong();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean( false );
+    private final AtomicBoolean started = new AtomicBoolean( false );
+
+    private final Counter mergedCounter = Metrics.newCounter( AggregatingBatcher.class, "merged_counts" );
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor( r -> {
+        final Thread thread = new Thread( r, "AggregatingBatcher" );
+        thread.setDaemon( true );
+        return thread;
+    } );
+
+
+    @Override
+    public void add( Count count ) throws CounterProcessingUnavailableException {
+
+        if ( batchSize == 1 ) {
+            super.add( count );
+            return;
+        }
+
+        invocationCounter.inc();
+        addCount.incrementAndGet();
+        start();
+
+        merge( count );
+
+        if ( accumulators.size() >= batchSize && flushScheduled.compareAndSet( false, true ) ) {
+            scheduler.execute( this::flushAll );
+        }
+    }
+
+
+    /**
+     * Each add is a single operation, regardless of how many counts it is merged with
+     */
+    @Override
+    public long getOpCount() {
+        return addCount.get();
+    }
+
+
+    /**
+     * Submit all merged deltas now
+     */
+    public void flush() {
+        flushAll();
+    }
+
+
+    /**
+     * Stop the scheduled flushes and submit all merged deltas
+     */
+    public void shutdown() {
+        scheduler.shutdown();
+        flushAll();
+    }
+
+
+    private void start() {
+        if ( started.compareAndSet( false, true ) ) {
+            scheduler.scheduleWithFixedDelay( this::flushAll, batchIntervalSeconds, batchIntervalSeconds,
+                TimeUnit.SECONDS );
+        }
+    }
+
+
+    private synchronized void flushAll() {
+
+        flushScheduled.set( false );
+
+        List<Count> merged = new ArrayList<>( Math.min( batchSize, accumulators.size() ) );
+
+        final Iterator<Map.Entry<String, Accumulator>> entries = accumulators.entrySet().iterator();
+
+        while ( entries.hasNext() ) {
+            final Map.Entry<String, Accumulator> entry = entries.next();
+            final Accumulator accumulator = entry.getValue();
+
+            final long delta = accumulator.drain();
+
+            if ( delta != 0 ) {
+                merged.add( accumulator.toCount( delta ) );
+            }
+            //idle since the last flush, stop tracking it
+            else if ( accumulator.retire() ) {
+                entries.remove();
+            }
+
+            if ( merged.size() >= batchSize ) {
+                submit( merged );
+                merged = new ArrayList<>( batchSize );
+            }
+        }
+
+        if ( !merged.isEmpty() ) {
+            submit( merged );
+        }
+    }
+
+
+    /**
+     * Fold the count into the accumulator of its counter
+     */
+    private void merge( final Count count ) {
+        final String counterName = count.getCounterName();
+
+        while ( true ) {
+            final Accumulator accumulator = accumulators.computeIfAbsent( counterName, name -> new Accumulator( count ) );
+
+            if ( accumulator.add( count.getValue() ) ) {
+                return;
+            }
+        }
+    }
+
+
+    /**
+     * Submit the merged deltas and wait for them to be written.  A failed batch is dropped rather than retried, since
+     * part of it may already have been written
+     */
+    private void submit( final List<Count> merged ) {
+        try {
+            batchSubmitter.submit( merged ).get();
+            batchSubmissionCount.incrementAndGet();
+            mergedCounter.inc( merged.size() );
+        }
+        catch ( Exception ex ) {
+            if ( ex instanceof InterruptedException ) {
+                Thread.currentThread().interrupt();
+            }
+
+            log.error( "Unable to submit {} merged counts, dropping them", merged.size(), ex );
+        }
+    }
+
+
+    private static int stripeCount() {
+        int stripes = 1;
+        while ( stripes < Runtime.getRuntime().availableProcessors() && stripes < 64 ) {
+            stripes <<= 1;
+        }
+        return stripes;
+    }
+
+
+    /**
+     * Striped sum for a single counter.  Threads add to the stripe picked by their id to avoid contending on one
+     * value.  Stripes are drained with an atomic swap so no increment is lost to a concurrent flush.
+     */
+    private static final class Accumulator {
+
+        private final Count prototype;
+        private final AtomicLongArray stripes = new AtomicLongArray( STRIPES );
+
+
+        private Accumulator( final Count prototype ) {
+            this.prototype = prototype;
+        }
+
+
+        /**
+         * Add the value, returns false if this accumulator has been retired and the caller must use a new one
+         */
+        private boolean add( final long value ) {
+            final int stripe = ( int ) Thread.currentThread().getId() & ( STRIPES - 1 );
+
+            while ( true ) {
+                final long current = stripes.get( stripe );
+
+                if ( current == RETIRED ) {
+                    return false;
+                }
+
+                if ( stripes.compareAndSet( stripe, current, current + value ) ) {
+                    return true;
+                }
+            }
+        }
+
+
+        private long drain() {
+            long sum = 0;
+
+            for ( int i = 0; i < STRIPES; i++ ) {
+                sum += stripes.getAndSet( i, 0 );
+            }
+
+            return sum;
+        }
+
+
+        /**
+         * Retire the accumulator if every stripe is still empty.  If a stripe was added to, restore the ones already
+         * retired and keep it.
+         */
+        private boolean retire() {
+            for ( int i = 0; i < STRIPES; i++ ) {
+                if ( !stripes.compareAndSet( i, 0, RETIRED ) ) {
+                    for ( int j = 0; j < i; j++ ) {
+                        stripes.set( j, 0 );
+                    }
+                    return false;
+                }
+            }
+
+            return true;
+        }
+
+
+        private Count toCount( final long delta ) {
+            return new Count( prototype.getTableName(), prototype.getKeyName(), prototype.getColumnName(), delta );
+        }
+    }
+}
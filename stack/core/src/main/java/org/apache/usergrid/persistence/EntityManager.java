@@ -444,6 +444,16 @@ public interface EntityManager {
     public ConnectionRef createConnection( EntityRef sourceEntity, String connectionType,
                                            EntityRef targetEntityRef ) throws Exception;
 
+    /**
+     * Connect the source entity to each of the target entities with the connection type. The edges are written as a
+     * single batch and their index events are queued as a single batch, so this is preferred for bulk loads.
+     * Targets that don't exist are skipped.
+     *
+     * @return The connections that were created
+     */
+    public List<ConnectionRef> createConnections( EntityRef sourceEntity, String connectionType,
+                                                  Collection<EntityRef> targetEntityRefs ) throws Exception;
+
     public ConnectionRef createConnection( EntityRef sourceEntity, String pairedConnectionType,
                                            EntityRef pairedEntity, String connectionType,
                                            EntityRef targetEntityRef ) throws Exception;
@@ -19,6 +19,7 @@ package org.apache.usergrid.persistence;
 
 import java.nio.ByteBuffer;
 import org.apache.usergrid.persistence.Query;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -80,6 +81,15 @@ public interface RelationManager {
 
     public ConnectionRef createConnection( String connectionType, EntityRef connectedEntityRef ) throws Exception;
 
+    /**
+     * Connect this entity to each of the connected entities with the connection type.  The edges are written as a
+     * single batch, and targets that don't exist are skipped.
+     *
+     * @return The connections that were created
+     */
+    public List<ConnectionRef> createConnections( String connectionType, Collection<EntityRef> connectedEntityRefs )
+        throws Exception;
+
     public ConnectionRef createConnection( String pairedConnectionType, EntityRef pairedEntity, String connectionType,
                                            EntityRef connectedEntityRef ) throws Exception;
 
@@ -51,6 +51,12 @@ public class Export extends TypedEntity {
     @EntityProperty
     protected String errorMessage;
 
+    /**
+     * Number of entities exported so far
+     */
+    @EntityProperty
+    protected Long exportedEntityCount;
+
 
     public Export() {
     }
@@ -85,4 +91,14 @@ public class Export extends TypedEntity {
         this.errorMessage = errorMessage;
     }
 
+
+    public Long getExportedEntityCount() {
+        return exportedEntityCount;
+    }
+
+
+    public void setExportedEntityCount( final Long exportedEntityCount ) {
+        this.exportedEntityCount = exportedEntityCount;
+    }
+
 }
@@ -0,0 +1,56 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.usergrid.corepersistence.util;
+
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import org.apache.usergrid.persistence.index.impl.DeIndexOperation;
+import org.apache.usergrid.persistence.index.impl.IndexOperation;
+import org.apache.usergrid.persistence.index.impl.IndexOperationMessage;
+
+import static org.junit.Assert.assertEquals;
+
+
+public class ObjectSmileSerializerTest {
+
+
+    @Test
+    public void indexOperationMessageRoundTrip() {
+
+        final Map<String, Object> data = new HashMap<>();
+        data.put( "entityId", "4e8b4c2a-7e7e-11e6-8b77-86f30ca893d3" );
+        data.put( "entitySize", 12 );
+
+        final IndexOperationMessage message = new IndexOperationMessage();
+        message.addIndexRequest( new IndexOperation( "write_alias", "doc1", data ) );
+        message.addDeIndexRequest( new DeIndexOperation( new String[] { "index1", "index2" }, "doc2" ) );
+
+        final String encoded = ObjectSmileSerializer.INSTANCE.toString( message );
+
+        final IndexOperationMessage decoded =
+            ObjectSmileSerializer.INSTANCE.fromString( encoded, IndexOperationMessage.class );
+
+        assertEquals( message.getIndexRequests(), decoded.getIndexRequests() );
+        assertEquals( message.getDeIndexRequests(), decoded.getDeIndexRequests() );
+        assertEquals( message.getCreationTime(), decoded.getCreationTime() );
+    }
+}
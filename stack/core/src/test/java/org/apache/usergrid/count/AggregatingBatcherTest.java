@@ -0,0 +1,193 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.usergrid.count;
+
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import org.apache.usergrid.count.common.Count;
+
+import com.google.common.util.concurrent.Futures;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+
+/** Unit test for AggregatingBatcher. */
+public class AggregatingBatcherTest {
+
+
+    @Test
+    public void testMergesSameCounter() {
+        final CollectingSubmitter submitter = new CollectingSubmitter();
+
+        AggregatingBatcher batcher = new AggregatingBatcher();
+        batcher.setBatchSubmitter( submitter );
+        batcher.setBatchSize( 100 );
+
+        for ( int i = 0; i < 1000; i++ ) {
+            batcher.add( new Count( "Counter", "k1", "c1", 1 ) );
+        }
+        batcher.add( new Count( "Counter", "k1", "c2", 5 ) );
+
+        batcher.flush();
+
+        assertEquals( 1, batcher.getBatchSubmissionCount() );
+        assertEquals( 1001, batcher.getOpCount() );
+        assertEquals( 2, submitter.submitted.size() );
+        assertEquals( 1000L, submitter.totals().get( "c1" ).longValue() );
+        assertEquals( 5L, submitter.totals().get( "c2" ).longValue() );
+
+        //nothing new, nothing submitted
+        batcher.flush();
+        assertEquals( 1, batcher.getBatchSubmissionCount() );
+    }
+
+
+    @Test
+    public void testConcurrentAddsAreNotLost() throws Exception {
+        final CollectingSubmitter submitter = new CollectingSubmitter();
+
+        final AggregatingBatcher batcher = new AggregatingBatcher();
+        batcher.setBatchSubmitter( submitter );
+        batcher.setBatchSize( 2 );
+
+        final ExecutorService exec = Executors.newFixedThreadPool( 8 );
+        final List<Future<?>> futures = new ArrayList<>();
+
+        for ( int x = 0; x < 8; x++ ) {
+            futures.add( exec.submit( () -> {
+                for ( int y = 0; y < 10000; y++ ) {
+                    batcher.add( new Count( "Counter", "k1", "c" + ( y % 3 ), 1 ) );
+
+                    if ( y % 1000 == 0 ) {
+                        batcher.flush();
+                    }
+                }
+            } ) );
+        }
+
+        for ( Future<?> future : futures ) {
+            future.get();
+        }
+
+        exec.shutdown();
+        exec.awaitTermination( 10, TimeUnit.SECONDS );
+
+        batcher.flush();
+
+        long total = 0;
+        for ( Long value : submitter.totals().values() ) {
+            total += value;
+        }
+
+        assertEquals( 80000L, total );
+    }
+
+
+    @Test
+    public void testFailedSubmitIsDropped() {
+        final CollectingSubmitter submitter = new CollectingSubmitter();
+        submitter.failures = 1;
+
+        AggregatingBatcher batcher = new AggregatingBatcher();
+        batcher.setBatchSubmitter( submitter );
+        batcher.setBatchSize( 100 );
+
+        for ( int i = 0; i < 10; i++ ) {
+            batcher.add( new Count( "Counter", "k1", "c1", 1 ) );
+        }
+
+        batcher.flush();
+
+        assertEquals( 0, batcher.getBatchSubmissionCount() );
+        assertTrue( submitter.submitted.isEmpty() );
+
+        //the failed deltas may have been partly written, so they aren't submitted again
+        batcher.add( new Count( "Counter", "k1", "c1", 5 ) );
+
+        batcher.flush();
+
+        assertEquals( 1, batcher.getBatchSubmissionCount() );
+        assertEquals( 1, submitter.submitted.size() );
+        assertEquals( 5L, submitter.totals().get( "c1" ).longValue() );
+    }
+
+
+    @Test
+    public void testShutdownFlushes() {
+        final CollectingSubmitter submitter = new CollectingSubmitter();
+
+        AggregatingBatcher batcher = new AggregatingBatcher();
+        batcher.setBatchSubmitter( submitter );
+        batcher.setBatchSize( 100 );
+
+        batcher.add( new Count( "Counter", "k1", "c1", 3 ) );
+
+        batcher.shutdown();
+
+        assertEquals( 1, batcher.getBatchSubmissionCount() );
+        assertEquals( 3L, submitter.totals().get( "c1" ).longValue() );
+    }
+
+
+    private static final class CollectingSubmitter implements BatchSubmitter {
+
+        private final List<Count> submitted = new ArrayList<>();
+
+        private int failures = 0;
+
+
+        @Override
+        public synchronized Future<?> submit( final Collection<Count> counts ) {
+            if ( failures > 0 ) {
+                failures--;
+                return Futures.immediateFailedFuture( new RuntimeException( "Unable to write counts" ) );
+            }
+
+            submitted.addAll( counts );
+            return Futures.immediateFuture( true );
+        }
+
+
+        private synchronized Map<String, Long> totals() {
+            final Map<String, Long> totals = new HashMap<>();
+
+            for ( Count count : submitted ) {
+                totals.merge( ( String ) count.getColumnName(), count.getValue(), Long::sum );
+            }
+
+            return totals;
+        }
+
+
+        @Override
+        public void shutdown() {
+
+        }
+    }
+}
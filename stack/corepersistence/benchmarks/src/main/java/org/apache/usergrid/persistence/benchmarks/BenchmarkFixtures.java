@@ -0,0 +1,126 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.usergrid.persistence.benchmarks;
+
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.safehaus.guicyfig.GuicyFigModule;
+
+import org.apache.usergrid.persistence.collection.serialization.SerializationFig;
+import org.apache.usergrid.persistence.core.metrics.MetricsFactory;
+import org.apache.usergrid.persistence.core.metrics.MetricsFactoryImpl;
+import org.apache.usergrid.persistence.core.metrics.MetricsFig;
+import org.apache.usergrid.persistence.model.entity.Entity;
+import org.apache.usergrid.persistence.model.entity.SimpleId;
+import org.apache.usergrid.persistence.model.field.BooleanField;
+import org.apache.usergrid.persistence.model.field.DoubleField;
+import org.apache.usergrid.persistence.model.field.EntityObjectField;
+import org.apache.usergrid.persistence.model.field.IntegerField;
+import org.apache.usergrid.persistence.model.field.ListField;
+import org.apache.usergrid.persistence.model.field.LocationField;
+import org.apache.usergrid.persistence.model.field.LongField;
+import org.apache.usergrid.persistence.model.field.StringField;
+import org.apache.usergrid.persistence.model.field.UUIDField;
+import org.apache.usergrid.persistence.model.field.value.EntityObject;
+import org.apache.usergrid.persistence.model.field.value.Location;
+import org.apache.usergrid.persistence.model.util.UUIDGenerator;
+
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+
+
+/**
+ * Shared data and configuration for the benchmarks.  Figs are resolved through GuicyFig, so they have the same
+ * defaults as a running system and can be overridden with system properties.
+ */
+public final class BenchmarkFixtures {
+
+    private static final Injector INJECTOR =
+        Guice.createInjector( new GuicyFigModule( SerializationFig.class, MetricsFig.class ) );
+
+
+    private BenchmarkFixtures() {}
+
+
+    public static SerializationFig getSerializationFig() {
+        return INJECTOR.getInstance( SerializationFig.class );
+    }
+
+
+    /**
+     * A metrics factory that doesn't report anywhere, unless the graphite host is set
+     */
+    public static MetricsFactory getMetricsFactory() {
+        return new MetricsFactoryImpl( INJECTOR.getInstance( MetricsFig.class ) );
+    }
+
+
+    /**
+     * Create an entity with the field types and sizes of a typical application entity
+     */
+    public static Entity createEntity() {
+
+        final Entity entity = new Entity( new SimpleId( "benchmark" ) );
+
+        entity.setField( new StringField( "name", "benchmark-" + entity.getId().getUuid(), true ) );
+        entity.setField( new StringField( "description",
+            "A description long enough to be representative of free text that users store on their entities" ) );
+        entity.setField( new BooleanField( "active", true ) );
+        entity.setField( new IntegerField( "count", 42 ) );
+        entity.setField( new LongField( "created", System.currentTimeMillis() ) );
+        entity.setField( new DoubleField( "rating", 4.5d ) );
+        entity.setField( new UUIDField( "owner", UUIDGenerator.newTimeUUID() ) );
+        entity.setField( new LocationField( "location", new Location( 37.774929d, -122.419416d ) ) );
+
+        final List<String> tags = new ArrayList<>();
+        for ( int i = 0; i < 10; i++ ) {
+            tags.add( "tag" + i );
+        }
+
+        entity.setField( new ListField<>( "tags", tags ) );
+
+        final EntityObject address = new EntityObject();
+        address.setField( new StringField( "street", "1 Market St" ) );
+        address.setField( new StringField( "city", "San Francisco" ) );
+        address.setField( new IntegerField( "zip", 94105 ) );
+
+        entity.setField( new EntityObjectField( "address", address ) );
+
+        return entity;
+    }
+
+
+    /**
+     * Queries of the shapes our clients send most
+     */
+    public static Map<String, String> getQueries() {
+        final Map<String, String> queries = new HashMap<>();
+
+        queries.put( "equality", "select * where name = 'benchmark'" );
+        queries.put( "range", "select * where created > 1000 and created <= 2000 order by created desc" );
+        queries.put( "compound",
+            "select * where (name = 'benchmark' or description contains 'free text') and not active = false "
+                + "and rating >= 4.0 order by created desc" );
+        queries.put( "location", "select * where location within 1000 of 37.774929, -122.419416" );
+
+        return queries;
+    }
+}
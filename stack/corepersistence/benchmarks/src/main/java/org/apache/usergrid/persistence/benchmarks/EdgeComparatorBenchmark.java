@@ -0,0 +1,137 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.usergrid.persistence.benchmarks;
+
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.apache.usergrid.persistence.graph.MarkedEdge;
+import org.apache.usergrid.persistence.graph.SearchByEdgeType;
+import org.apache.usergrid.persistence.graph.impl.SimpleMarkedEdge;
+import org.apache.usergrid.persistence.graph.serialization.impl.shard.impl.comparators.DescendingTimestampComparator;
+import org.apache.usergrid.persistence.graph.serialization.impl.shard.impl.comparators.OrderedComparator;
+import org.apache.usergrid.persistence.graph.serialization.impl.shard.impl.comparators.SourceDirectedEdgeDescendingComparator;
+import org.apache.usergrid.persistence.graph.serialization.impl.shard.impl.comparators.TargetDirectedEdgeDescendingComparator;
+import org.apache.usergrid.persistence.model.entity.Id;
+import org.apache.usergrid.persistence.model.entity.SimpleId;
+
+
+/**
+ * Sorting a page of edges with the comparators used to merge edges across shards.  Timestamps collide in batches, so
+ * the id comparisons are exercised as well.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class EdgeComparatorBenchmark {
+
+    /**
+     * The number of edges, the default graph page size
+     */
+    private static final int SIZE = 1000;
+
+    /**
+     * The number of edges that share a timestamp
+     */
+    private static final int SAME_TIMESTAMP = 10;
+
+    @Param( { "source", "target", "timestamp", "ascending" } )
+    public String comparatorName;
+
+    private Comparator<MarkedEdge> comparator;
+
+    private MarkedEdge[] edges;
+
+
+    @Setup
+    public void setup() {
+        switch ( comparatorName ) {
+            case "source":
+                comparator = SourceDirectedEdgeDescendingComparator.INSTANCE;
+                break;
+            case "target":
+                comparator = TargetDirectedEdgeDescendingComparator.INSTANCE;
+                break;
+            case "timestamp":
+                comparator = DescendingTimestampComparator.INSTANCE;
+                break;
+            case "ascending":
+                comparator = new OrderedComparator<>( SourceDirectedEdgeDescendingComparator.INSTANCE,
+                    SearchByEdgeType.Order.ASCENDING );
+                break;
+            default:
+                throw new IllegalArgumentException( "Unknown comparator " + comparatorName );
+        }
+
+        edges = createEdges( SIZE, SAME_TIMESTAMP );
+    }
+
+
+    @Benchmark
+    public MarkedEdge[] sort() {
+        final MarkedEdge[] toSort = Arrays.copyOf( edges, edges.length );
+
+        Arrays.sort( toSort, comparator );
+
+        return toSort;
+    }
+
+
+    /**
+     * Create edges between random nodes in no particular order
+     *
+     * @param size The number of edges
+     * @param sameTimestamp The number of edges written with each timestamp
+     */
+    static MarkedEdge[] createEdges( final int size, final int sameTimestamp ) {
+
+        final MarkedEdge[] edges = new MarkedEdge[size];
+
+        final long now = System.currentTimeMillis();
+
+        for ( int i = 0; i < size; i++ ) {
+            final Id source = new SimpleId( "source" );
+            final Id target = new SimpleId( "target" );
+
+            edges[i] = new SimpleMarkedEdge( source, "test", target, now - ( i / sameTimestamp ), false );
+        }
+
+        //shuffle in place so the sort isn't handed sorted input
+        Collections.shuffle( Arrays.asList( edges ), new Random( 42 ) );
+
+        return edges;
+    }
+}
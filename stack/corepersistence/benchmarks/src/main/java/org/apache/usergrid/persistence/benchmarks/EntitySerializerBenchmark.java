@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.usergrid.persistence.benchmarks;
+
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.apache.usergrid.persistence.collection.MvccEntity;
+import org.apache.usergrid.persistence.collection.serialization.SerializationFig;
+import org.apache.usergrid.persistence.collection.serialization.impl.MvccEntitySerializationStrategyV3Impl;
+import org.apache.usergrid.persistence.collection.serialization.impl.MvccEntitySerializationStrategyV3Impl.EntityWrapper;
+import org.apache.usergrid.persistence.collection.serialization.impl.MvccEntitySerializationStrategyV4Impl;
+import org.apache.usergrid.persistence.core.metrics.MetricsFactory;
+import org.apache.usergrid.persistence.model.entity.Entity;
+import org.apache.usergrid.persistence.model.entity.EntityMap;
+import org.apache.usergrid.persistence.model.util.UUIDGenerator;
+
+
+/**
+ * Serialization of entity versions to and from the bytes stored in Cassandra, V3 JSON against V4 binary
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class EntitySerializerBenchmark {
+
+    private MvccEntitySerializationStrategyV3Impl.EntitySerializer v3Serializer;
+    private MvccEntitySerializationStrategyV4Impl.EntitySerializer v4Serializer;
+
+    private Entity entity;
+    private EntityWrapper wrapper;
+
+    private ByteBuffer v3Bytes;
+    private ByteBuffer v4Bytes;
+
+
+    @Setup
+    public void setup() {
+        final SerializationFig serializationFig = BenchmarkFixtures.getSerializationFig();
+        final MetricsFactory metricsFactory = BenchmarkFixtures.getMetricsFactory();
+
+        //the serializer is an inner class, the strategy is only its owner and never touches cassandra here
+        final MvccEntitySerializationStrategyV3Impl v3Impl =
+            new MvccEntitySerializationStrategyV3Impl( null, serializationFig, null, metricsFactory );
+
+        v3Serializer = v3Impl.new EntitySerializer( serializationFig, metricsFactory );
+        v4Serializer = new MvccEntitySerializationStrategyV4Impl.EntitySerializer( serializationFig, metricsFactory );
+
+        entity = BenchmarkFixtures.createEntity();
+        wrapper = new EntityWrapper( entity.getId(), UUIDGenerator.newTimeUUID(), MvccEntity.Status.COMPLETE,
+            EntityMap.fromEntity( entity ), 0 );
+
+        v3Bytes = v3Serializer.toByteBuffer( wrapper );
+        v4Bytes = v4Serializer.toByteBuffer( wrapper );
+    }
+
+
+    @Benchmark
+    public ByteBuffer v3Write() {
+        return v3Serializer.toByteBuffer( wrapper );
+    }
+
+
+    @Benchmark
+    public EntityWrapper v3Read() {
+        return v3Serializer.fromByteBuffer( v3Bytes.duplicate() );
+    }
+
+
+    @Benchmark
+    public ByteBuffer v4Write() {
+        return v4Serializer.toByteBuffer( wrapper );
+    }
+
+
+    @Benchmark
+    public EntityWrapper v4Read() {
+        return v4Serializer.fromByteBuffer( entity.getId(), v4Bytes );
+    }
+}
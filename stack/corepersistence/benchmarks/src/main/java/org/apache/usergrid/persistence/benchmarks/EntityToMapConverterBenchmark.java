@@ -0,0 +1,95 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.usergrid.persistence.benchmarks;
+
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.apache.usergrid.persistence.core.scope.ApplicationScope;
+import org.apache.usergrid.persistence.core.scope.ApplicationScopeImpl;
+import org.apache.usergrid.persistence.index.IndexEdge;
+import org.apache.usergrid.persistence.index.SearchEdge;
+import org.apache.usergrid.persistence.index.impl.IndexEdgeImpl;
+import org.apache.usergrid.persistence.model.entity.Entity;
+import org.apache.usergrid.persistence.model.entity.EntityMap;
+import org.apache.usergrid.persistence.model.entity.EntityToMapConverter;
+import org.apache.usergrid.persistence.model.entity.SimpleId;
+
+
+/**
+ * Conversion of entities to maps, both the storage map of the model and the document we index in ElasticSearch
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class EntityToMapConverterBenchmark {
+
+    private final EntityToMapConverter entityToMapConverter = new EntityToMapConverter();
+
+    private ApplicationScope applicationScope;
+    private IndexEdge indexEdge;
+
+    private Entity entity;
+    private EntityMap entityMap;
+
+
+    @Setup
+    public void setup() {
+        final SimpleId applicationId = new SimpleId( "application" );
+
+        applicationScope = new ApplicationScopeImpl( applicationId );
+        indexEdge = new IndexEdgeImpl( applicationId, "benchmarks", SearchEdge.NodeType.SOURCE,
+            System.currentTimeMillis() );
+
+        entity = BenchmarkFixtures.createEntity();
+        entityMap = entityToMapConverter.toMap( entity );
+    }
+
+
+    @Benchmark
+    public EntityMap toMap() {
+        return entityToMapConverter.toMap( entity );
+    }
+
+
+    @Benchmark
+    public Entity fromMap() {
+        return Entity.fromMap( entityMap );
+    }
+
+
+    @Benchmark
+    public Map<String, Object> toIndexDocument() {
+        return org.apache.usergrid.persistence.index.impl.EntityToMapConverter
+            .convert( applicationScope, indexEdge, entity );
+    }
+}
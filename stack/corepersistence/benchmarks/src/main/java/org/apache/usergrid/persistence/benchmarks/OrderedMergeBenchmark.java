@@ -0,0 +1,88 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.usergrid.persistence.benchmarks;
+
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.apache.usergrid.persistence.core.rx.OrderedMerge;
+import org.apache.usergrid.persistence.graph.MarkedEdge;
+import org.apache.usergrid.persistence.graph.serialization.impl.shard.impl.comparators.SourceDirectedEdgeDescendingComparator;
+
+import rx.Observable;
+
+
+/**
+ * Merging sorted edge streams from several shards into a single ordered stream, the way multi-shard edge reads
+ * are combined.  Everything runs on the calling thread.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class OrderedMergeBenchmark {
+
+    /**
+     * The total number of edges across all the shards
+     */
+    private static final int SIZE = 1000;
+
+    @Param( { "1", "2", "8" } )
+    public int shards;
+
+    private Observable<MarkedEdge>[] sources;
+
+
+    @SuppressWarnings( "unchecked" )
+    @Setup
+    public void setup() {
+        sources = new Observable[shards];
+
+        final int perShard = SIZE / shards;
+
+        for ( int i = 0; i < shards; i++ ) {
+            final MarkedEdge[] edges = EdgeComparatorBenchmark.createEdges( perShard, 10 );
+
+            //each shard is read in order
+            Arrays.sort( edges, SourceDirectedEdgeDescendingComparator.INSTANCE );
+
+            sources[i] = Observable.from( edges );
+        }
+    }
+
+
+    @Benchmark
+    public int merge() {
+        return OrderedMerge.orderedMerge( SourceDirectedEdgeDescendingComparator.INSTANCE, SIZE, sources ).count()
+                           .toBlocking().single();
+    }
+}
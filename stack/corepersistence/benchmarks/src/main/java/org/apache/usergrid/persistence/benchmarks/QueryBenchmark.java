@@ -0,0 +1,96 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.usergrid.persistence.benchmarks;
+
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.apache.usergrid.persistence.index.exceptions.IndexException;
+import org.apache.usergrid.persistence.index.impl.EsQueryVistor;
+import org.apache.usergrid.persistence.index.query.ParsedQuery;
+import org.apache.usergrid.persistence.index.query.ParsedQueryCache;
+import org.apache.usergrid.persistence.index.query.tree.QueryVisitor;
+
+
+/**
+ * Query planning, from the query string through to the ElasticSearch query builders.  Parsed queries are cached, so
+ * parsing is measured both for a repeated query and for one the cache has never seen.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class QueryBenchmark {
+
+    @Param( { "equality", "range", "compound", "location" } )
+    public String queryName;
+
+    private String query;
+
+    private ParsedQuery parsedQuery;
+
+    private ParsedQueryCache parsedQueryCache;
+
+    /**
+     * Appended to the query to make each uncached parse unique
+     */
+    private long counter;
+
+
+    @Setup
+    public void setup() {
+        query = BenchmarkFixtures.getQueries().get( queryName );
+        parsedQueryCache = new ParsedQueryCache( 5000 );
+        parsedQuery = parsedQueryCache.build( query );
+    }
+
+
+    @Benchmark
+    public ParsedQuery parseCached() {
+        return parsedQueryCache.build( query );
+    }
+
+
+    @Benchmark
+    public ParsedQuery parseUncached() {
+        return parsedQueryCache.build( query.replace( "select * where ", "select * where counter = " + counter++ + " and " ) );
+    }
+
+
+    @Benchmark
+    public QueryVisitor visit() throws IndexException {
+        final QueryVisitor visitor = new EsQueryVistor();
+
+        parsedQuery.getRootOperand().visit( visitor );
+
+        return visitor;
+    }
+}
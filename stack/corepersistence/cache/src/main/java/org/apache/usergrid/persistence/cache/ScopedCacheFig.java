@@ -0,0 +1,53 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.usergrid.persistence.cache;
+
+
+import org.safehaus.guicyfig.Default;
+import org.safehaus.guicyfig.FigSingleton;
+import org.safehaus.guicyfig.GuicyFig;
+import org.safehaus.guicyfig.Key;
+
+
+/**
+ * Configuration for the scoped cache and its local, in memory tier.
+ */
+@FigSingleton
+public interface ScopedCacheFig extends GuicyFig {
+
+    /**
+     * When enabled, values are kept in memory on this node in front of the Cassandra backed cache.
+     */
+    @Key( "usergrid.scoped_cache.local.enabled" )
+    @Default( "true" )
+    boolean getLocalCacheEnabled();
+
+    /**
+     * The maximum number of values held in memory on this node, shared by every cache scope
+     */
+    @Key( "usergrid.scoped_cache.local.max_entries" )
+    @Default( "10000" )
+    int getLocalCacheMaxEntries();
+
+    /**
+     * The longest time a value is served from memory.  Values never outlive their Cassandra TTL, but other nodes
+     * cannot invalidate this tier so this bounds how long they may be stale.
+     */
+    @Key( "usergrid.scoped_cache.local.max_ttl_ms" )
+    @Default( "10000" )
+    long getLocalCacheMaxTtl();
+}
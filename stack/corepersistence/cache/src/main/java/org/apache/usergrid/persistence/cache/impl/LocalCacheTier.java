@@ -0,0 +1,238 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.usergrid.persistence.cache.impl;
+
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.codahale.metrics.Counter;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.google.common.base.Objects;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import org.apache.usergrid.persistence.cache.CacheScope;
+import org.apache.usergrid.persistence.cache.ScopedCacheFig;
+import org.apache.usergrid.persistence.core.metrics.MetricsFactory;
+
+
+/**
+ * The in memory tier of every scoped cache on this node.  Its size bounds the values of all scopes together.
+ *
+ * Entries and scope generations are keyed by {@link CacheScope}, and there is one instance per injector, so a scope
+ * invalidated through any {@link org.apache.usergrid.persistence.cache.CacheFactory} is invalidated for all of them,
+ * whatever their key and value types.  Entries are tagged with the scope generation at the time they were read or
+ * written, invalidating the scope bumps the generation so any older entry, including one filled by a read racing
+ * with the invalidate, is treated as a miss.  Generations are taken from a single sequence, so a scope whose
+ * generation expired from memory never reuses a generation its older entries were tagged with.
+ */
+@Singleton
+public class LocalCacheTier {
+
+    private final Cache<EntryKey, LocalEntry> entries;
+    private final LoadingCache<CacheScope, AtomicLong> generations;
+    private final AtomicLong generationSequence = new AtomicLong();
+    private final long maxTtlMillis;
+
+    private final Counter hitCounter;
+    private final Counter missCounter;
+
+
+    @Inject
+    public LocalCacheTier( final ScopedCacheFig scopedCacheFig, final MetricsFactory metricsFactory ) {
+        this( scopedCacheFig.getLocalCacheEnabled() ? scopedCacheFig.getLocalCacheMaxEntries() : 0,
+            scopedCacheFig.getLocalCacheMaxTtl(),
+            metricsFactory.getCounter( ScopedCacheImpl.class, "scopedcache.local.hit" ),
+            metricsFactory.getCounter( ScopedCacheImpl.class, "scopedcache.local.miss" ) );
+    }
+
+
+    /**
+     * @param size The max number of values of all scopes kept in memory, 0 disables the tier
+     * @param maxTtlMillis The max time a value is kept in memory
+     */
+    public LocalCacheTier( final int size, final long maxTtlMillis, final Counter hitCounter,
+                           final Counter missCounter ) {
+        this.maxTtlMillis = maxTtlMillis;
+        this.hitCounter = hitCounter;
+        this.missCounter = missCounter;
+
+        // no entry outlives the max ttl, so neither does the generation it was tagged with
+        this.generations = CacheBuilder.newBuilder()
+            .expireAfterAccess( Math.max( maxTtlMillis, 0 ), TimeUnit.MILLISECONDS )
+            .build( new CacheLoader<CacheScope, AtomicLong>() {
+                @Override
+                public AtomicLong load( final CacheScope scope ) {
+                    return new AtomicLong( generationSequence.incrementAndGet() );
+                }
+            } );
+
+        if ( size > 0 && maxTtlMillis > 0 ) {
+            this.entries = CacheBuilder.newBuilder()
+                .maximumSize( size )
+                .expireAfterWrite( maxTtlMillis, TimeUnit.MILLISECONDS )
+                .build();
+        }
+        else {
+            this.entries = null;
+        }
+    }
+
+
+    public boolean isEnabled() {
+        return entries != null;
+    }
+
+
+    /**
+     * The current generation of the scope, read before going to the serializer
+     */
+    public long getGeneration( final CacheScope scope ) {
+        return generations.getUnchecked( scope ).get();
+    }
+
+
+    /**
+     * Get a value of the scope, null if it's missing, expired, from an older generation or not of the type asked for
+     */
+    public <V> V get( final CacheScope scope, final Object key, final TypeReference typeRef ) {
+
+        final long generation = getGeneration( scope );
+        final LocalEntry entry = entries.getIfPresent( new EntryKey( scope, key ) );
+
+        if ( entry != null && entry.generation == generation && entry.expiresAt > System.currentTimeMillis()
+            && isInstance( typeRef, entry.value ) ) {
+            inc( hitCounter );
+            return ( V ) entry.value;
+        }
+
+        inc( missCounter );
+        return null;
+    }
+
+
+    /**
+     * Keep a value for at most ttlMillis, and no longer than the tier allows.  Dropped if the scope was invalidated
+     * since entryGeneration was read.
+     */
+    public void put( final CacheScope scope, final Object key, final Object value, final long ttlMillis,
+                     final long entryGeneration ) {
+
+        if ( ttlMillis <= 0 || value == null ) {
+            return;
+        }
+
+        final long expiresAt = System.currentTimeMillis() + Math.min( ttlMillis, maxTtlMillis );
+
+        entries.put( new EntryKey( scope, key ), new LocalEntry( value, entryGeneration, expiresAt ) );
+
+        // a racing invalidate may have missed the entry, if so drop it now
+        if ( getGeneration( scope ) != entryGeneration ) {
+            entries.invalidate( new EntryKey( scope, key ) );
+        }
+    }
+
+
+    public void remove( final CacheScope scope, final Object key ) {
+        entries.invalidate( new EntryKey( scope, key ) );
+    }
+
+
+    /**
+     * Invalidate every entry of the scope
+     */
+    public void invalidate( final CacheScope scope ) {
+        generations.getUnchecked( scope ).set( generationSequence.incrementAndGet() );
+    }
+
+
+    private static void inc( final Counter counter ) {
+        if ( counter != null ) {
+            counter.inc();
+        }
+    }
+
+
+    /**
+     * Scopes share the tier, so make sure a value cached for one type is not handed out as another
+     */
+    private static boolean isInstance( final TypeReference typeRef, final Object value ) {
+        if ( typeRef == null ) {
+            return true;
+        }
+
+        Type type = typeRef.getType();
+        if ( type instanceof ParameterizedType ) {
+            type = ( ( ParameterizedType ) type ).getRawType();
+        }
+
+        return !( type instanceof Class ) || ( ( Class<?> ) type ).isInstance( value );
+    }
+
+
+    private static final class EntryKey {
+        private final CacheScope scope;
+        private final Object key;
+
+
+        private EntryKey( final CacheScope scope, final Object key ) {
+            this.scope = scope;
+            this.key = key;
+        }
+
+
+        @Override
+        public boolean equals( final Object o ) {
+            if ( this == o ) {
+                return true;
+            }
+            if ( !( o instanceof EntryKey ) ) {
+                return false;
+            }
+            final EntryKey other = ( EntryKey ) o;
+            return scope.equals( other.scope ) && key.equals( other.key );
+        }
+
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode( scope, key );
+        }
+    }
+
+
+    /**
+     * A value held in memory, with the generation of the scope it was read in and when it expires
+     */
+    private static final class LocalEntry {
+        private final Object value;
+        private final long generation;
+        private final long expiresAt;
+
+
+        private LocalEntry( final Object value, final long generation, final long expiresAt ) {
+            this.value = value;
+            this.generation = generation;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
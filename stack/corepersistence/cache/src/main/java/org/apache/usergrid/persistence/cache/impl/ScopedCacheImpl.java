@@ -16,14 +16,18 @@
  */
 package org.apache.usergrid.persistence.cache.impl;
 
+import java.util.concurrent.TimeUnit;
+
 import com.fasterxml.jackson.core.type.TypeReference;
-import com.google.inject.Inject;
 import org.apache.usergrid.persistence.cache.CacheScope;
 import org.apache.usergrid.persistence.cache.ScopedCache;
 
 
 /**
  * Cache divided into scopes which can be individually invalidated.
+ *
+ * Optionally keeps values in the node's {@link LocalCacheTier} in front of the serializer.  A value is kept in
+ * memory no longer than its remaining TTL, so it never outlives the serialized entry.
  */
 public class ScopedCacheImpl<K,V> implements ScopedCache<K,V> {
 
@@ -31,27 +35,83 @@ public class ScopedCacheImpl<K,V> implements ScopedCache<K,V> {
 
     ScopedCacheSerialization<K,V> serializer;
 
+    private final LocalCacheTier localTier;
+
+
     public ScopedCacheImpl( CacheScope scope, ScopedCacheSerialization<K,V> serializer ) {
+        this( scope, serializer, null );
+    }
+
+
+    /**
+     * @param localTier The in memory tier, null or disabled to always go to the serializer
+     */
+    public ScopedCacheImpl( CacheScope scope, ScopedCacheSerialization<K,V> serializer, LocalCacheTier localTier ) {
         this.scope = scope;
         this.serializer = serializer;
+        this.localTier = localTier != null && localTier.isEnabled() ? localTier : null;
     }
 
     @Override
     public V put(K key, V value, Integer ttl) {
-        return serializer.writeValue( scope, key, value, ttl );
+
+        if ( localTier == null ) {
+            return serializer.writeValue( scope, key, value, ttl );
+        }
+
+        final long generation = localTier.getGeneration( scope );
+
+        final V written = serializer.writeValue( scope, key, value, ttl );
+
+        final long ttlMillis = ttl == null ? Long.MAX_VALUE : TimeUnit.SECONDS.toMillis( ttl );
+        localTier.put( scope, key, value, ttlMillis, generation );
+
+        return written;
     }
 
     @Override
     public V get(K key, TypeReference typeRef ) {
-        return serializer.readValue( scope, key, typeRef );
+
+        if ( localTier == null ) {
+            return serializer.readValue( scope, key, typeRef );
+        }
+
+        final long generation = localTier.getGeneration( scope );
+
+        final V local = localTier.get( scope, key, typeRef );
+        if ( local != null ) {
+            return local;
+        }
+
+        final ScopedCacheSerialization.TimedValue<V> timedValue = serializer.readTimedValue( scope, key, typeRef );
+
+        if ( timedValue == null ) {
+            return null;
+        }
+
+        // hold it no longer than the serialized entry lives
+        final long ttlMillis = timedValue.getTtl() == null ? Long.MAX_VALUE
+            : TimeUnit.SECONDS.toMillis( timedValue.getTtl() );
+
+        localTier.put( scope, key, timedValue.getValue(), ttlMillis, generation );
+
+        return timedValue.getValue();
     }
 
     public void remove( K key ) {
         serializer.removeValue( scope, key );
+
+        if ( localTier != null ) {
+            localTier.remove( scope, key );
+        }
     }
 
     @Override
     public void invalidate() {
+        if ( localTier != null ) {
+            localTier.invalidate( scope );
+        }
+
         serializer.invalidate(scope);
     }
 }
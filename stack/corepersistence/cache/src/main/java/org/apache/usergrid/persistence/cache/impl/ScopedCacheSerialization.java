@@ -29,9 +29,42 @@ public interface ScopedCacheSerialization<K,V> extends Migration {
 
     V readValue( CacheScope scope, K key, TypeReference typeRef );
 
+    /**
+     * Read a value along with the seconds left before it expires, null if not found.
+     */
+    TimedValue<V> readTimedValue( CacheScope scope, K key, TypeReference typeRef );
+
     V writeValue( CacheScope scope, K key, V value, Integer ttl );
 
     void removeValue( CacheScope scope, K key );
 
     void invalidate( CacheScope scope );
+
+
+    /**
+     * A cached value and its remaining TTL
+     */
+    final class TimedValue<V> {
+        private final V value;
+        private final Integer ttl;
+
+
+        public TimedValue( final V value, final Integer ttl ) {
+            this.value = value;
+            this.ttl = ttl;
+        }
+
+
+        public V getValue() {
+            return value;
+        }
+
+
+        /**
+         * Seconds left before the value expires, null if it never does
+         */
+        public Integer getTtl() {
+            return ttl;
+        }
+    }
 }
@@ -102,12 +102,22 @@ public class ScopedCacheSerializationImpl<K,V> implements ScopedCacheSerializati
     @Override
     public V readValue(CacheScope scope, K key, TypeReference typeRef ) {
 
+        final TimedValue<V> timedValue = readValueCQL( scope, key, typeRef);
+
+        return timedValue == null ? null : timedValue.getValue();
+
+    }
+
+
+    @Override
+    public TimedValue<V> readTimedValue(CacheScope scope, K key, TypeReference typeRef ) {
+
         return readValueCQL( scope, key, typeRef);
 
     }
 
 
-    private V readValueCQL(CacheScope scope, K key, TypeReference typeRef){
+    private TimedValue<V> readValueCQL(CacheScope scope, K key, TypeReference typeRef){
 
         Preconditions.checkNotNull(scope, "scope is required");
         Preconditions.checkNotNull(key, "key is required");
@@ -121,7 +131,7 @@ public class ScopedCacheSerializationImpl<K,V> implements ScopedCacheSerializati
         final Clause inKey = QueryBuilder.eq("key", getPartitionKey(scope, rowKeyString, bucket) );
         final Clause inColumn = QueryBuilder.eq("column1", DataType.text().serialize(columnName, ProtocolVersion.NEWEST_SUPPORTED) );
 
-        final Statement statement = QueryBuilder.select().all().from(SCOPED_CACHE_TABLE)
+        final Statement statement = QueryBuilder.select().column("value").ttl("value").from(SCOPED_CACHE_TABLE)
             .where(inKey)
             .and(inColumn)
             .setConsistencyLevel(cassandraConfig.getDataStaxReadCl());
@@ -141,7 +151,10 @@ public class ScopedCacheSerializationImpl<K,V> implements ScopedCacheSerializati
 
         try {
 
-            return MAPPER.readValue(row.getBytes("value").array(), typeRef);
+            final V value = MAPPER.readValue(row.getBytes(0).array(), typeRef);
+            final Integer ttl = row.isNull(1) ? null : row.getInt(1);
+
+            return new TimedValue<>(value, ttl);
 
         } catch (IOException ioe) {
             logger.error("Unable to read cached value", ioe);
@@ -0,0 +1,245 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.usergrid.persistence.cache.impl;
+
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.codahale.metrics.Counter;
+import com.fasterxml.jackson.core.type.TypeReference;
+
+import org.apache.usergrid.persistence.cache.CacheScope;
+import org.apache.usergrid.persistence.cache.ScopedCache;
+import org.apache.usergrid.persistence.core.astyanax.MultiTenantColumnFamilyDefinition;
+import org.apache.usergrid.persistence.core.datastax.TableDefinition;
+import org.apache.usergrid.persistence.model.entity.SimpleId;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+
+
+/**
+ * Tests the local tier of the scoped cache against an in memory serializer
+ */
+public class ScopedCacheImplTest {
+
+    private static final TypeReference<String> STRING_TYPE = new TypeReference<String>() {};
+
+    private FakeSerialization<String, String> serialization;
+    private LocalCacheTier localTier;
+    private CacheScope scope;
+
+
+    @Before
+    public void setup() {
+        serialization = new FakeSerialization<>();
+        localTier = new LocalCacheTier( 100, 10000, new Counter(), new Counter() );
+        scope = new CacheScope( new SimpleId( "application" ) );
+    }
+
+
+    @Test
+    public void localTierServesReads() {
+
+        final ScopedCache<String, String> cache = new ScopedCacheImpl<>( scope, serialization, localTier );
+
+        cache.put( "key", "value", 60 );
+        serialization.reads = 0;
+
+        assertEquals( "value", cache.get( "key", STRING_TYPE ) );
+        assertEquals( "value", cache.get( "key", STRING_TYPE ) );
+        assertEquals( "read from memory", 0, serialization.reads );
+    }
+
+
+    @Test
+    public void invalidateReachesEveryFactory() {
+
+        // two factories of different types, as the typed shiro caches are, sharing the node's tier
+        final CacheFactoryImpl<String, String> factory = new CacheFactoryImpl<>( serialization, localTier );
+        final CacheFactoryImpl<String, String> otherFactory = new CacheFactoryImpl<>( serialization, localTier );
+
+        final ScopedCache<String, String> cache = factory.getScopedCache( scope );
+        cache.put( "key", "granted", 60 );
+        assertEquals( "granted", cache.get( "key", STRING_TYPE ) );
+
+        otherFactory.getScopedCache( scope ).invalidate();
+
+        assertNull( "invalidated through the other factory", cache.get( "key", STRING_TYPE ) );
+    }
+
+
+    @Test
+    public void readRacingInvalidateIsNotCached() {
+
+        final ScopedCache<String, String> cache = new ScopedCacheImpl<>( scope, serialization, localTier );
+
+        serialization.writeValue( scope, "key", "stale", 60 );
+
+        // the scope is invalidated while the read is at the serializer
+        serialization.duringRead = () -> localTier.invalidate( scope );
+        assertEquals( "stale", cache.get( "key", STRING_TYPE ) );
+        serialization.duringRead = null;
+
+        serialization.writeValue( scope, "key", "fresh", 60 );
+        assertEquals( "fresh", cache.get( "key", STRING_TYPE ) );
+    }
+
+
+    @Test
+    public void localExpiryCappedAtRemoteTtl() throws InterruptedException {
+
+        final ScopedCache<String, String> cache = new ScopedCacheImpl<>( scope, serialization, localTier );
+
+        // one second left remotely, less than the tier's 10 seconds
+        serialization.writeValue( scope, "key", "value", 1 );
+        assertEquals( "value", cache.get( "key", STRING_TYPE ) );
+
+        Thread.sleep( 1100 );
+
+        assertNull( "expired with the remote entry", cache.get( "key", STRING_TYPE ) );
+    }
+
+
+    @Test
+    public void otherTypeIsAMiss() {
+
+        final ScopedCache<String, String> cache = new ScopedCacheImpl<>( scope, serialization, localTier );
+        cache.put( "key", "value", 60 );
+
+        assertNull( localTier.get( scope, "key", new TypeReference<HashMap<String, Object>>() {} ) );
+    }
+
+
+    @Test
+    public void disabledTierReadsThrough() {
+
+        final LocalCacheTier disabled = new LocalCacheTier( 0, 10000, new Counter(), new Counter() );
+        final ScopedCache<String, String> cache = new ScopedCacheImpl<>( scope, serialization, disabled );
+
+        cache.put( "key", "value", 60 );
+        cache.get( "key", STRING_TYPE );
+        cache.get( "key", STRING_TYPE );
+
+        assertEquals( 2, serialization.reads );
+    }
+
+
+    @Test
+    public void expiredGenerationNotReused() throws InterruptedException {
+
+        final LocalCacheTier shortTier = new LocalCacheTier( 100, 50, new Counter(), new Counter() );
+
+        final long generation = shortTier.getGeneration( scope );
+        shortTier.invalidate( scope );
+
+        Thread.sleep( 100 );
+
+        assertNotEquals( "Expired generation restarted from an old one", generation, shortTier.getGeneration( scope ) );
+    }
+
+
+    /**
+     * Keeps values in a map and expires them like the TTL on the column would
+     */
+    private static class FakeSerialization<K, V> implements ScopedCacheSerialization<K, V> {
+
+        private final Map<Object, TimedEntry<V>> values = new HashMap<>();
+        private int reads;
+        private Runnable duringRead;
+
+
+        @Override
+        public synchronized V readValue( final CacheScope scope, final K key, final TypeReference typeRef ) {
+            final TimedValue<V> timedValue = readTimedValue( scope, key, typeRef );
+            return timedValue == null ? null : timedValue.getValue();
+        }
+
+
+        @Override
+        public synchronized TimedValue<V> readTimedValue( final CacheScope scope, final K key,
+                                                          final TypeReference typeRef ) {
+            reads++;
+
+            final TimedEntry<V> entry = values.get( key );
+
+            if ( duringRead != null ) {
+                duringRead.run();
+            }
+
+            final long now = System.currentTimeMillis();
+            if ( entry == null || entry.expiresAt <= now ) {
+                return null;
+            }
+
+            return new TimedValue<>( entry.value, ( int ) Math.ceil( ( entry.expiresAt - now ) / 1000.0 ) );
+        }
+
+
+        @Override
+        public synchronized V writeValue( final CacheScope scope, final K key, final V value, final Integer ttl ) {
+            values.put( key, new TimedEntry<>( value, System.currentTimeMillis() + ttl * 1000L ) );
+            return value;
+        }
+
+
+        @Override
+        public synchronized void removeValue( final CacheScope scope, final K key ) {
+            values.remove( key );
+        }
+
+
+        @Override
+        public synchronized void invalidate( final CacheScope scope ) {
+            values.clear();
+        }
+
+
+        @Override
+        public Collection<MultiTenantColumnFamilyDefinition> getColumnFamilies() {
+            return Collections.emptyList();
+        }
+
+
+        @Override
+        public Collection<TableDefinition> getTables() {
+            return Collections.emptyList();
+        }
+    }
+
+
+    private static class TimedEntry<V> {
+        private final V value;
+        private final long expiresAt;
+
+
+        private TimedEntry( final V value, final long expiresAt ) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
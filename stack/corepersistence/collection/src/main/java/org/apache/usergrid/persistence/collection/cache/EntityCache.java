@@ -0,0 +1,65 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.usergrid.persistence.collection.cache;
+
+
+import java.util.Collection;
+import java.util.Map;
+
+import org.apache.usergrid.persistence.collection.MvccEntity;
+import org.apache.usergrid.persistence.core.scope.ApplicationScope;
+import org.apache.usergrid.persistence.model.entity.Id;
+
+
+/**
+ * A node local cache of the latest version of an entity.  Entries are short lived, and are invalidated by
+ * writes and marks that go through this node.
+ */
+public interface EntityCache {
+
+
+    /**
+     * Get all the entities present in the cache for the ids given.  Ids that are not cached are not present in the
+     * returned map.  Returned entities are copies and are safe to mutate.
+     */
+    Map<Id, MvccEntity> getAll( final ApplicationScope applicationScope, final Collection<Id> entityIds );
+
+    /**
+     * Get the entity's generation, which every invalidation of it advances.  Read it before reading an entity to put.
+     */
+    long getGeneration( final ApplicationScope applicationScope, final Id entityId );
+
+    /**
+     * Cache the latest version of the entity, unless it was invalidated since its generation was read
+     *
+     * @param generation The entity's generation from before it was read
+     */
+    void put( final ApplicationScope applicationScope, final MvccEntity entity, final long generation );
+
+    /**
+     * Remove the entity from the cache and advance its generation, so reads that began before don't cache it
+     */
+    void invalidate( final ApplicationScope applicationScope, final Id entityId );
+
+    /**
+     * Remove all entries from the cache
+     */
+    void invalidateAll();
+}
@@ -41,6 +41,10 @@ public interface EntityCacheFig extends GuicyFig {
     @Default( "500" )
     int getCacheTimeout();
 
+    @Key( "usergrid.entity_load_coalescing_enabled" )
+    @Default( "true" )
+    boolean isLoadCoalescingEnabled();
+
 
 
 }
@@ -0,0 +1,233 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.usergrid.persistence.collection.cache;
+
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.apache.usergrid.persistence.collection.MvccEntity;
+import org.apache.usergrid.persistence.collection.mvcc.entity.impl.MvccEntityImpl;
+import org.apache.usergrid.persistence.core.metrics.MetricsFactory;
+import org.apache.usergrid.persistence.core.scope.ApplicationScope;
+import org.apache.usergrid.persistence.model.entity.Entity;
+import org.apache.usergrid.persistence.model.entity.Id;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.google.common.base.Optional;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+
+/**
+ * Guava backed entity cache.  Bounded by {@link EntityCacheFig#getCacheSize()} and expired after
+ * {@link EntityCacheFig#getCacheTimeout()} milliseconds.  A size or timeout of 0 disables the cache.
+ *
+ * Generations are striped by key so they take fixed memory.  Invalidating an entity also advances the generation of
+ * the other keys in its stripe, which at worst drops one of their puts.
+ */
+@Singleton
+public class EntityCacheImpl implements EntityCache {
+
+    private static final int GENERATION_STRIPES = 4096;
+
+    private final boolean enabled;
+    private final Cache<CacheKey, MvccEntity> cache;
+    private final AtomicLongArray generations = new AtomicLongArray( GENERATION_STRIPES );
+
+    private final Counter hitCounter;
+    private final Counter missCounter;
+    private final Counter evictionCounter;
+
+
+    @Inject
+    public EntityCacheImpl( final EntityCacheFig entityCacheFig, final MetricsFactory metricsFactory ) {
+
+        this.enabled = entityCacheFig.getCacheSize() > 0 && entityCacheFig.getCacheTimeout() > 0;
+
+        this.hitCounter = metricsFactory.getCounter( EntityCacheImpl.class, "entity.cache.hit" );
+        this.missCounter = metricsFactory.getCounter( EntityCacheImpl.class, "entity.cache.miss" );
+        this.evictionCounter = metricsFactory.getCounter( EntityCacheImpl.class, "entity.cache.eviction" );
+
+        this.cache = CacheBuilder.newBuilder()
+            .maximumSize( Math.max( 0, entityCacheFig.getCacheSize() ) )
+            .expireAfterWrite( Math.max( 0, entityCacheFig.getCacheTimeout() ), TimeUnit.MILLISECONDS )
+            .removalListener( notification -> {
+                if ( notification.wasEvicted() ) {
+                    evictionCounter.inc();
+                }
+            } )
+            .build();
+
+        metricsFactory.addGauge( EntityCacheImpl.class, "entity.cache.size", ( Gauge<Long> ) cache::size );
+    }
+
+
+    @Override
+    public Map<Id, MvccEntity> getAll( final ApplicationScope applicationScope, final Collection<Id> entityIds ) {
+
+        final Map<Id, MvccEntity> results = new HashMap<>( entityIds.size() );
+
+        if ( !enabled ) {
+            return results;
+        }
+
+        for ( final Id entityId : entityIds ) {
+            final MvccEntity cached = cache.getIfPresent( new CacheKey( applicationScope, entityId ) );
+
+            if ( cached == null ) {
+                missCounter.inc();
+                continue;
+            }
+
+            hitCounter.inc();
+            results.put( entityId, copy( cached ) );
+        }
+
+        return results;
+    }
+
+
+    @Override
+    public long getGeneration( final ApplicationScope applicationScope, final Id entityId ) {
+        return generations.get( stripe( new CacheKey( applicationScope, entityId ) ) );
+    }
+
+
+    @Override
+    public void put( final ApplicationScope applicationScope, final MvccEntity entity, final long generation ) {
+        if ( !enabled ) {
+            return;
+        }
+
+        final CacheKey key = new CacheKey( applicationScope, entity.getId() );
+        final int stripe = stripe( key );
+
+        if ( generations.get( stripe ) != generation ) {
+            return;
+        }
+
+        final MvccEntity cached = copy( entity );
+        cache.put( key, cached );
+
+        // invalidated while we put, it may have removed the previous entry instead of ours
+        if ( generations.get( stripe ) != generation ) {
+            cache.asMap().remove( key, cached );
+        }
+    }
+
+
+    @Override
+    public void invalidate( final ApplicationScope applicationScope, final Id entityId ) {
+        final CacheKey key = new CacheKey( applicationScope, entityId );
+
+        // advance before removing, so a put either sees the new generation or is removed here
+        generations.incrementAndGet( stripe( key ) );
+
+        if ( !enabled ) {
+            return;
+        }
+
+        cache.invalidate( key );
+    }
+
+
+    @Override
+    public void invalidateAll() {
+        for ( int i = 0; i < GENERATION_STRIPES; i++ ) {
+            generations.incrementAndGet( i );
+        }
+
+        cache.invalidateAll();
+    }
+
+
+    private static int stripe( final CacheKey key ) {
+        return ( key.hashCode() & Integer.MAX_VALUE ) % GENERATION_STRIPES;
+    }
+
+
+    /**
+     * Callers mutate the fields of loaded entities before writing them back, so we never hand out or retain the
+     * instance we were given.  Field instances are shared, only the field map is copied.
+     */
+    static MvccEntity copy( final MvccEntity mvccEntity ) {
+
+        final Optional<Entity> entity = mvccEntity.getEntity();
+
+        if ( !entity.isPresent() ) {
+            return new MvccEntityImpl( mvccEntity.getId(), mvccEntity.getVersion(), mvccEntity.getStatus(),
+                Optional.absent(), mvccEntity.getSize() );
+        }
+
+        final Entity source = entity.get();
+        final Entity copy = new Entity( source.getId(), source.getVersion() );
+        copy.setFieldMap( source.getFieldMap() );
+        copy.setSize( source.getSize() );
+
+        return new MvccEntityImpl( mvccEntity.getId(), mvccEntity.getVersion(), mvccEntity.getStatus(),
+            Optional.of( copy ), mvccEntity.getSize() );
+    }
+
+
+    /**
+     * Key of application scope and entity id
+     */
+    static final class CacheKey {
+
+        private final ApplicationScope applicationScope;
+        private final Id entityId;
+
+
+        CacheKey( final ApplicationScope applicationScope, final Id entityId ) {
+            this.applicationScope = applicationScope;
+            this.entityId = entityId;
+        }
+
+
+        @Override
+        public boolean equals( final Object o ) {
+            if ( this == o ) {
+                return true;
+            }
+            if ( !( o instanceof CacheKey ) ) {
+                return false;
+            }
+
+            final CacheKey cacheKey = ( CacheKey ) o;
+
+            return applicationScope.equals( cacheKey.applicationScope ) && entityId.equals( cacheKey.entityId );
+        }
+
+
+        @Override
+        public int hashCode() {
+            int result = applicationScope.hashCode();
+            result = 31 * result + entityId.hashCode();
+            return result;
+        }
+    }
+}
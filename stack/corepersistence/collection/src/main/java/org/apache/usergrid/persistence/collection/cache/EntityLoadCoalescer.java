@@ -0,0 +1,57 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.usergrid.persistence.collection.cache;
+
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.function.Function;
+
+import org.apache.usergrid.persistence.collection.EntitySet;
+import org.apache.usergrid.persistence.collection.MvccEntity;
+import org.apache.usergrid.persistence.core.scope.ApplicationScope;
+import org.apache.usergrid.persistence.model.entity.Id;
+
+
+/**
+ * Collapses concurrent loads of the same entities into a single read.  The first load of an id reads it, and loads of
+ * that id that arrive while the read is in flight wait for it and share its result.
+ */
+public interface EntityLoadCoalescer {
+
+
+    /**
+     * Load the entities.  Ids no other load is reading are read with the loader, in a single call, the rest are
+     * waited for.  Returned entities are safe to mutate.
+     *
+     * @param applicationScope The scope of the entities
+     * @param entityIds The ids to load
+     * @param loader Reads the latest version of the ids given to it
+     *
+     * @return The entities that were found, keyed by id
+     */
+    Map<Id, MvccEntity> load( final ApplicationScope applicationScope, final Collection<Id> entityIds,
+                              final Function<Collection<Id>, EntitySet> loader );
+
+    /**
+     * Stop sharing the read in flight of the entity, loads that arrive after a write read it again
+     */
+    void invalidate( final ApplicationScope applicationScope, final Id entityId );
+}
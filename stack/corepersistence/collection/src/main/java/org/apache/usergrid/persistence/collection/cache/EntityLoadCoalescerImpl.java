@@ -0,0 +1,194 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.usergrid.persistence.collection.cache;
+
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Function;
+
+import org.apache.usergrid.persistence.collection.EntitySet;
+import org.apache.usergrid.persistence.collection.MvccEntity;
+import org.apache.usergrid.persistence.core.metrics.MetricsFactory;
+import org.apache.usergrid.persistence.core.scope.ApplicationScope;
+import org.apache.usergrid.persistence.model.entity.Id;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+
+/**
+ * Tracks the reads in flight on this node by application scope and entity id.  Disabled by
+ * {@link EntityCacheFig#isLoadCoalescingEnabled()}, in which case every load reads all of its ids.
+ */
+@Singleton
+public class EntityLoadCoalescerImpl implements EntityLoadCoalescer {
+
+
+    private final boolean enabled;
+    private final ConcurrentMap<EntityCacheImpl.CacheKey, CompletableFuture<MvccEntity>> inFlight =
+        new ConcurrentHashMap<>();
+
+    private final Counter readCounter;
+    private final Counter collapsedCounter;
+
+
+    @Inject
+    public EntityLoadCoalescerImpl( final EntityCacheFig entityCacheFig, final MetricsFactory metricsFactory ) {
+
+        this.enabled = entityCacheFig.isLoadCoalescingEnabled();
+
+        this.readCounter = metricsFactory.getCounter( EntityLoadCoalescerImpl.class, "entity.load.read" );
+        this.collapsedCounter = metricsFactory.getCounter( EntityLoadCoalescerImpl.class, "entity.load.collapsed" );
+
+        metricsFactory.addGauge( EntityLoadCoalescerImpl.class, "entity.load.inflight",
+            ( Gauge<Integer> ) inFlight::size );
+        metricsFactory.addGauge( EntityLoadCoalescerImpl.class, "entity.load.collapse.ratio",
+            ( Gauge<Double> ) this::getCollapseRatio );
+    }
+
+
+    @Override
+    public Map<Id, MvccEntity> load( final ApplicationScope applicationScope, final Collection<Id> entityIds,
+                                     final Function<Collection<Id>, EntitySet> loader ) {
+
+        if ( !enabled ) {
+            readCounter.inc( entityIds.size() );
+            return toMap( entityIds, loader.apply( entityIds ) );
+        }
+
+        final Map<Id, CompletableFuture<MvccEntity>> reading = new LinkedHashMap<>();
+        final Map<Id, CompletableFuture<MvccEntity>> waiting = new HashMap<>();
+
+        for ( final Id entityId : entityIds ) {
+            if ( reading.containsKey( entityId ) || waiting.containsKey( entityId ) ) {
+                continue;
+            }
+
+            final CompletableFuture<MvccEntity> read = new CompletableFuture<>();
+            final CompletableFuture<MvccEntity> inFlightRead =
+                inFlight.putIfAbsent( new EntityCacheImpl.CacheKey( applicationScope, entityId ), read );
+
+            if ( inFlightRead == null ) {
+                reading.put( entityId, read );
+            }
+            else {
+                waiting.put( entityId, inFlightRead );
+            }
+        }
+
+        readCounter.inc( reading.size() );
+        collapsedCounter.inc( waiting.size() );
+
+        final Map<Id, MvccEntity> results = new HashMap<>( entityIds.size() );
+
+        // finish our own read before waiting on any other, so two loads can never wait on each other
+        if ( !reading.isEmpty() ) {
+            try {
+                final EntitySet loaded = loader.apply( new ArrayList<>( reading.keySet() ) );
+
+                for ( final Map.Entry<Id, CompletableFuture<MvccEntity>> entry : reading.entrySet() ) {
+                    final MvccEntity entity = loaded.getEntity( entry.getKey() );
+
+                    if ( entity != null ) {
+                        results.put( entry.getKey(), entity );
+                    }
+
+                    // our caller may mutate the entity, the waiters copy one nobody else holds
+                    entry.getValue().complete( entity == null ? null : EntityCacheImpl.copy( entity ) );
+                }
+            }
+            catch ( Throwable t ) {
+                reading.values().forEach( read -> read.completeExceptionally( t ) );
+                throw t;
+            }
+            finally {
+                reading.forEach( ( entityId, read ) -> inFlight
+                    .remove( new EntityCacheImpl.CacheKey( applicationScope, entityId ), read ) );
+            }
+        }
+
+        for ( final Map.Entry<Id, CompletableFuture<MvccEntity>> entry : waiting.entrySet() ) {
+            final MvccEntity entity = await( entry.getValue() );
+
+            if ( entity != null ) {
+                results.put( entry.getKey(), EntityCacheImpl.copy( entity ) );
+            }
+        }
+
+        return results;
+    }
+
+
+    @Override
+    public void invalidate( final ApplicationScope applicationScope, final Id entityId ) {
+        // the reader still completes its waiters, it only removes its own entry
+        inFlight.remove( new EntityCacheImpl.CacheKey( applicationScope, entityId ) );
+    }
+
+
+    /**
+     * The fraction of ids loaded that were served by another load's read
+     */
+    private double getCollapseRatio() {
+        final long collapsed = collapsedCounter.getCount();
+        final long total = collapsed + readCounter.getCount();
+
+        return total == 0 ? 0 : ( double ) collapsed / total;
+    }
+
+
+    private static MvccEntity await( final CompletableFuture<MvccEntity> read ) {
+        try {
+            return read.get();
+        }
+        catch ( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException( "Interrupted waiting for an in flight entity load", e );
+        }
+        catch ( ExecutionException e ) {
+            throw new RuntimeException( "In flight entity load failed", e.getCause() );
+        }
+    }
+
+
+    private static Map<Id, MvccEntity> toMap( final Collection<Id> entityIds, final EntitySet loaded ) {
+        final Map<Id, MvccEntity> results = new HashMap<>( entityIds.size() );
+
+        for ( final Id entityId : entityIds ) {
+            final MvccEntity entity = loaded.getEntity( entityId );
+
+            if ( entity != null ) {
+                results.put( entityId, entity );
+            }
+        }
+
+        return results;
+    }
+}
@@ -31,6 +31,8 @@ import com.netflix.astyanax.Keyspace;
 import org.apache.usergrid.persistence.actorsystem.ActorSystemManager;
 import org.apache.usergrid.persistence.collection.EntityCollectionManager;
 import org.apache.usergrid.persistence.collection.EntityCollectionManagerFactory;
+import org.apache.usergrid.persistence.collection.cache.EntityCache;
+import org.apache.usergrid.persistence.collection.cache.EntityLoadCoalescer;
 import org.apache.usergrid.persistence.collection.mvcc.stage.delete.MarkCommit;
 import org.apache.usergrid.persistence.collection.mvcc.stage.delete.MarkStart;
 import org.apache.usergrid.persistence.collection.mvcc.stage.delete.UniqueCleanup;
@@ -78,6 +80,8 @@ public class EntityCollectionManagerFactoryImpl implements EntityCollectionManag
     private final RxTaskScheduler rxTaskScheduler;
     private final ActorSystemManager actorSystemManager;
     private final UniqueValuesService uniqueValuesService;
+    private final EntityCache entityCache;
+    private final EntityLoadCoalescer entityLoadCoalescer;
 
     private final CassandraConfig cassandraConfig;
 
@@ -109,6 +113,8 @@ public class EntityCollectionManagerFactoryImpl implements EntityCollectionManag
                                 actorSystemManager,
                                 uniqueValuesService,
                                 cassandraConfig,
+                                entityCache,
+                                entityLoadCoalescer,
                                 scope,
                                 session);
 
@@ -139,6 +145,8 @@ public class EntityCollectionManagerFactoryImpl implements EntityCollectionManag
             final ActorSystemManager    actorSystemManager,
             final UniqueValuesService   uniqueValuesService,
             final CassandraConfig       cassandraConfig,
+            final EntityCache           entityCache,
+            final EntityLoadCoalescer   entityLoadCoalescer,
             final Session session ) {
 
         this.writeStart =               writeStart;
@@ -160,6 +168,8 @@ public class EntityCollectionManagerFactoryImpl implements EntityCollectionManag
         this.actorSystemManager =       actorSystemManager;
         this.uniqueValuesService =      uniqueValuesService;
         this.cassandraConfig =          cassandraConfig;
+        this.entityCache =              entityCache;
+        this.entityLoadCoalescer =      entityLoadCoalescer;
         this.session = session;
 
     }
@@ -178,5 +188,6 @@ public class EntityCollectionManagerFactoryImpl implements EntityCollectionManag
     @Override
     public void invalidate() {
         ecmCache.invalidateAll();
+        entityCache.invalidateAll();
     }
 }
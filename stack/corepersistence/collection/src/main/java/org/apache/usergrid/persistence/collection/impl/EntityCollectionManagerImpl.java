@@ -36,6 +36,8 @@ import com.netflix.astyanax.model.CqlResult;
 import com.netflix.astyanax.serializers.StringSerializer;
 import org.apache.usergrid.persistence.actorsystem.ActorSystemManager;
 import org.apache.usergrid.persistence.collection.*;
+import org.apache.usergrid.persistence.collection.cache.EntityCache;
+import org.apache.usergrid.persistence.collection.cache.EntityLoadCoalescer;
 import org.apache.usergrid.persistence.collection.mvcc.stage.CollectionIoEvent;
 import org.apache.usergrid.persistence.collection.mvcc.stage.delete.MarkCommit;
 import org.apache.usergrid.persistence.collection.mvcc.stage.delete.MarkStart;
@@ -43,6 +45,7 @@ import org.apache.usergrid.persistence.collection.mvcc.stage.delete.UniqueCleanu
 import org.apache.usergrid.persistence.collection.mvcc.stage.delete.VersionCompact;
 import org.apache.usergrid.persistence.collection.mvcc.stage.write.*;
 import org.apache.usergrid.persistence.collection.serialization.*;
+import org.apache.usergrid.persistence.collection.serialization.impl.EntitySetImpl;
 import org.apache.usergrid.persistence.collection.serialization.impl.LogEntryIterator;
 import org.apache.usergrid.persistence.collection.serialization.impl.MinMaxLogEntryIterator;
 import org.apache.usergrid.persistence.collection.serialization.impl.MutableFieldSet;
@@ -93,6 +96,9 @@ public class EntityCollectionManagerImpl implements EntityCollectionManager {
     private final MvccEntitySerializationStrategy entitySerializationStrategy;
     private final UniqueValueSerializationStrategy uniqueValueSerializationStrategy;
 
+    private final EntityCache entityCache;
+    private final EntityLoadCoalescer entityLoadCoalescer;
+
     private final SerializationFig serializationFig;
     private final CassandraConfig cassandraConfig;
 
@@ -136,6 +142,8 @@ public class EntityCollectionManagerImpl implements EntityCollectionManager {
         final ActorSystemManager    actorSystemManager,
         final UniqueValuesService   uniqueValuesService,
         final CassandraConfig       cassandraConfig,
+        final EntityCache           entityCache,
+        final EntityLoadCoalescer   entityLoadCoalescer,
         @Assisted final ApplicationScope applicationScope,
         final Session session ) {
 
@@ -175,6 +183,8 @@ public class EntityCollectionManagerImpl implements EntityCollectionManager {
         this.getLatestTimer = metricsFactory.getTimer(EntityCollectionManagerImpl.class, "base.latest");
 
         this.cassandraConfig = cassandraConfig;
+        this.entityCache = entityCache;
+        this.entityLoadCoalescer = entityLoadCoalescer;
     }
 
 
@@ -197,6 +207,9 @@ public class EntityCollectionManagerImpl implements EntityCollectionManager {
 
         final Observable<Entity> write = observable.map( writeCommit ).map(ioEvent -> {
 
+            // the cached version is now stale
+            invalidate( entityId );
+
             // fire this in the background so we don't block writes
             Observable.just( ioEvent ).compose( uniqueCleanup )
                 .subscribeOn( rxTaskScheduler.getAsyncIOScheduler() ).subscribe();
@@ -217,7 +230,9 @@ public class EntityCollectionManagerImpl implements EntityCollectionManager {
         Preconditions.checkNotNull( entityId.getType(), "Entity type is required in this stage" );
 
         Observable<Id> o = Observable.just( new CollectionIoEvent<>( applicationScope, entityId, region ) )
-            .map( markStart ).doOnNext( markCommit ).compose( uniqueCleanup ).map(
+            .map( markStart ).doOnNext( markCommit )
+            .doOnNext( markEvent -> invalidate( entityId ) )
+            .compose( uniqueCleanup ).map(
                 entityEvent -> entityEvent.getEvent().getId() );
 
         return ObservableTimer.time( o, deleteTimer );
@@ -257,8 +272,18 @@ public class EntityCollectionManagerImpl implements EntityCollectionManager {
             @Override
             public void call( final Subscriber<? super EntitySet> subscriber ) {
                 try {
-                    final EntitySet results =
-                        entitySerializationStrategy.load( applicationScope, entityIds, UUIDGenerator.newTimeUUID() );
+                    final Map<Id, MvccEntity> cached = entityCache.getAll( applicationScope, entityIds );
+
+                    final EntitySet results;
+
+                    if ( cached.size() == entityIds.size() ) {
+                        final EntitySetImpl cachedResults = new EntitySetImpl( cached.size() );
+                        cached.values().forEach( cachedResults::addEntity );
+                        results = cachedResults;
+                    }
+                    else {
+                        results = loadUncached( entityIds, cached );
+                    }
 
                     subscriber.onNext( results );
                     subscriber.onCompleted();
@@ -274,6 +299,68 @@ public class EntityCollectionManagerImpl implements EntityCollectionManager {
     }
 
 
+    /**
+     * Load the ids that were not found in the entity cache from cassandra.  Ids another load is already reading share
+     * its read instead of starting their own
+     */
+    private EntitySet loadUncached( final Collection<Id> entityIds, final Map<Id, MvccEntity> cached ) {
+
+        final Collection<Id> missing;
+
+        if ( cached.isEmpty() ) {
+            missing = entityIds;
+        }
+        else {
+            missing = new ArrayList<>( entityIds.size() - cached.size() );
+
+            for ( final Id entityId : entityIds ) {
+                if ( !cached.containsKey( entityId ) ) {
+                    missing.add( entityId );
+                }
+            }
+        }
+
+        final Map<Id, MvccEntity> loaded = entityLoadCoalescer.load( applicationScope, missing, this::readAndCache );
+
+        final EntitySetImpl results = new EntitySetImpl( entityIds.size() );
+
+        cached.values().forEach( results::addEntity );
+        loaded.values().forEach( results::addEntity );
+
+        return results;
+    }
+
+
+    /**
+     * Read the latest version of the entities from cassandra, and cache what we read
+     */
+    private EntitySet readAndCache( final Collection<Id> entityIds ) {
+
+        // an entity written while we read must not be cached
+        final Map<Id, Long> generations = new HashMap<>( entityIds.size() );
+        for ( final Id entityId : entityIds ) {
+            generations.put( entityId, entityCache.getGeneration( applicationScope, entityId ) );
+        }
+
+        final EntitySet loaded =
+            entitySerializationStrategy.load( applicationScope, entityIds, UUIDGenerator.newTimeUUID() );
+
+        loaded.getEntities().forEach(
+            entity -> entityCache.put( applicationScope, entity, generations.get( entity.getId() ) ) );
+
+        return loaded;
+    }
+
+
+    /**
+     * The cached version and any read in flight of the entity are stale
+     */
+    private void invalidate( final Id entityId ) {
+        entityCache.invalidate( applicationScope, entityId );
+        entityLoadCoalescer.invalidate( applicationScope, entityId );
+    }
+
+
     @Override
     public Observable<MvccLogEntry> getVersions( final Id entityId ) {
         ValidationUtils.verifyIdentity( entityId );
@@ -307,7 +394,9 @@ public class EntityCollectionManagerImpl implements EntityCollectionManager {
 
 
         return Observable.from( entries ).map( logEntry -> new CollectionIoEvent<>( applicationScope, logEntry ) )
-            .compose( versionCompact ).map( event -> event.getEvent() );
+            .compose( versionCompact )
+            .doOnNext( event -> invalidate( event.getEvent().getEntityId() ) )
+            .map( event -> event.getEvent() );
     }
 
 
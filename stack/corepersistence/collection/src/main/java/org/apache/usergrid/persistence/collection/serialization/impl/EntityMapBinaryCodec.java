@@ -0,0 +1,418 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.usergrid.persistence.collection.serialization.impl;
+
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.UUID;
+
+import org.apache.usergrid.persistence.model.entity.EntityMap;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+
+/**
+ * Compact, schema-less binary encoding of an {@link EntityMap}.  Every value is written as a one byte tag followed by
+ * its data, so no class names or field metadata are stored.  Lengths and integral numbers are variable length, with
+ * zig-zag encoding for signed values.
+ *
+ * <pre>
+ *   map    := varint(size) (string value)*
+ *   list   := varint(size) value*
+ *   set    := varint(size) value*
+ *   string := varint(length) utf8 bytes
+ *   value  := tag data
+ * </pre>
+ *
+ * Values that are not one of the types an entity map is built from (see the tags below) are written as their class
+ * name and JSON, the same way the previous JSON serialization stored them, so nothing is lost.  Lists and sets are
+ * read back as an {@link ArrayList} and a {@link LinkedHashSet}, any other collection is written as an object.
+ */
+public final class EntityMapBinaryCodec {
+
+    private static final byte NULL = 0;
+    private static final byte STRING = 1;
+    private static final byte TRUE = 2;
+    private static final byte FALSE = 3;
+    private static final byte INTEGER = 4;
+    private static final byte LONG = 5;
+    private static final byte DOUBLE = 6;
+    private static final byte FLOAT = 7;
+    private static final byte UUID_VALUE = 8;
+    private static final byte MAP = 9;
+    private static final byte LIST = 10;
+    private static final byte BYTES = 11;
+    private static final byte OBJECT = 12;
+    private static final byte SET = 13;
+
+    private static final ObjectMapper MAPPER = new ObjectMapper( new JsonFactory() );
+
+    static {
+        //match the typing of the JSON serialization for anything nested in an object value
+        MAPPER.enableDefaultTypingAsProperty( ObjectMapper.DefaultTyping.JAVA_LANG_OBJECT, "@class" );
+    }
+
+
+    private EntityMapBinaryCodec() {}
+
+
+    /**
+     * Write the entity map to the output
+     */
+    public static void writeEntityMap( final Output output, final EntityMap entityMap ) {
+        writeMapBody( output, entityMap );
+    }
+
+
+    /**
+     * Read an entity map written with {@link #writeEntityMap(Output, EntityMap)}
+     */
+    public static EntityMap readEntityMap( final ByteBuffer input ) {
+        final int size = readVarInt( input );
+        final EntityMap entityMap = new EntityMap();
+
+        for ( int i = 0; i < size; i++ ) {
+            final String key = readString( input );
+            entityMap.put( key, readValue( input ) );
+        }
+
+        return entityMap;
+    }
+
+
+    @SuppressWarnings( "unchecked" )
+    private static void writeValue( final Output output, final Object value ) {
+
+        if ( value == null ) {
+            output.writeByte( NULL );
+        }
+        else if ( value instanceof String ) {
+            output.writeByte( STRING );
+            writeString( output, ( String ) value );
+        }
+        else if ( value instanceof Boolean ) {
+            output.writeByte( ( Boolean ) value ? TRUE : FALSE );
+        }
+        else if ( value instanceof Integer ) {
+            output.writeByte( INTEGER );
+            output.writeVarLong( zigZag( ( Integer ) value ) );
+        }
+        else if ( value instanceof Long ) {
+            output.writeByte( LONG );
+            output.writeVarLong( zigZag( ( Long ) value ) );
+        }
+        else if ( value instanceof Double ) {
+            output.writeByte( DOUBLE );
+            output.writeLong( Double.doubleToLongBits( ( Double ) value ) );
+        }
+        else if ( value instanceof Float ) {
+            output.writeByte( FLOAT );
+            output.writeInt( Float.floatToIntBits( ( Float ) value ) );
+        }
+        else if ( value instanceof UUID ) {
+            final UUID uuid = ( UUID ) value;
+            output.writeByte( UUID_VALUE );
+            output.writeLong( uuid.getMostSignificantBits() );
+            output.writeLong( uuid.getLeastSignificantBits() );
+        }
+        else if ( value instanceof Map && hasStringKeys( ( Map<?, ?> ) value ) ) {
+            output.writeByte( MAP );
+            writeMapBody( output, ( Map<String, Object> ) value );
+        }
+        else if ( value instanceof List ) {
+            output.writeByte( LIST );
+            writeCollectionBody( output, ( List<?> ) value );
+        }
+        else if ( value instanceof Set && !( value instanceof SortedSet ) ) {
+            output.writeByte( SET );
+            writeCollectionBody( output, ( Set<?> ) value );
+        }
+        else if ( value instanceof byte[] ) {
+            final byte[] bytes = ( byte[] ) value;
+            output.writeByte( BYTES );
+            output.writeVarLong( bytes.length );
+            output.write( bytes, 0, bytes.length );
+        }
+        else {
+            final byte[] json;
+            try {
+                json = MAPPER.writeValueAsBytes( value );
+            }
+            catch ( IOException e ) {
+                throw new RuntimeException( "Unable to serialize value of type " + value.getClass().getName(), e );
+            }
+            output.writeByte( OBJECT );
+            writeString( output, value.getClass().getName() );
+            output.writeVarLong( json.length );
+            output.write( json, 0, json.length );
+        }
+    }
+
+
+    private static Object readValue( final ByteBuffer input ) {
+
+        final byte tag = input.get();
+
+        switch ( tag ) {
+            case NULL:
+                return null;
+            case STRING:
+                return readString( input );
+            case TRUE:
+                return Boolean.TRUE;
+            case FALSE:
+                return Boolean.FALSE;
+            case INTEGER:
+                return ( int ) unZigZag( readVarLong( input ) );
+            case LONG:
+                return unZigZag( readVarLong( input ) );
+            case DOUBLE:
+                return Double.longBitsToDouble( input.getLong() );
+            case FLOAT:
+                return Float.intBitsToFloat( input.getInt() );
+            case UUID_VALUE:
+                return new UUID( input.getLong(), input.getLong() );
+            case MAP: {
+                final int size = readVarInt( input );
+                final Map<String, Object> map = new HashMap<>( capacity( size ) );
+                for ( int i = 0; i < size; i++ ) {
+                    final String key = readString( input );
+                    map.put( key, readValue( input ) );
+                }
+                return map;
+            }
+            case LIST: {
+                final int size = readVarInt( input );
+                final List<Object> list = new ArrayList<>( size );
+                for ( int i = 0; i < size; i++ ) {
+                    list.add( readValue( input ) );
+                }
+                return list;
+            }
+            case SET: {
+                final int size = readVarInt( input );
+                final Set<Object> set = new LinkedHashSet<>( capacity( size ) );
+                for ( int i = 0; i < size; i++ ) {
+                    set.add( readValue( input ) );
+                }
+                return set;
+            }
+            case BYTES: {
+                final byte[] bytes = new byte[readVarInt( input )];
+                input.get( bytes );
+                return bytes;
+            }
+            case OBJECT: {
+                final String className = readString( input );
+                final byte[] json = new byte[readVarInt( input )];
+                input.get( json );
+                try {
+                    return MAPPER.readValue( json, Class.forName( className ) );
+                }
+                catch ( IOException | ClassNotFoundException e ) {
+                    throw new RuntimeException( "Unable to deserialize value of type " + className, e );
+                }
+            }
+            default:
+                throw new IllegalArgumentException( "Unknown value tag " + tag );
+        }
+    }
+
+
+    private static void writeMapBody( final Output output, final Map<String, Object> map ) {
+        output.writeVarLong( map.size() );
+        for ( final Map.Entry<String, Object> entry : map.entrySet() ) {
+            writeString( output, entry.getKey() );
+            writeValue( output, entry.getValue() );
+        }
+    }
+
+
+    private static void writeCollectionBody( final Output output, final Collection<?> collection ) {
+        output.writeVarLong( collection.size() );
+        for ( final Object element : collection ) {
+            writeValue( output, element );
+        }
+    }
+
+
+    private static boolean hasStringKeys( final Map<?, ?> map ) {
+        for ( final Object key : map.keySet() ) {
+            if ( !( key instanceof String ) ) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    private static void writeString( final Output output, final String value ) {
+        final byte[] bytes = value.getBytes( StandardCharsets.UTF_8 );
+        output.writeVarLong( bytes.length );
+        output.write( bytes, 0, bytes.length );
+    }
+
+
+    private static String readString( final ByteBuffer input ) {
+        final int length = readVarInt( input );
+
+        final String value;
+
+        if ( input.hasArray() ) {
+            value = new String( input.array(), input.arrayOffset() + input.position(), length, StandardCharsets.UTF_8 );
+            input.position( input.position() + length );
+        }
+        else {
+            final byte[] bytes = new byte[length];
+            input.get( bytes );
+            value = new String( bytes, StandardCharsets.UTF_8 );
+        }
+
+        return value;
+    }
+
+
+    /**
+     * Read a variable length int, see {@link Output#writeVarLong(long)}
+     */
+    public static int readVarInt( final ByteBuffer input ) {
+        final long value = readVarLong( input );
+
+        if ( value < 0 || value > Integer.MAX_VALUE ) {
+            throw new IllegalArgumentException( "Length " + value + " is out of range" );
+        }
+
+        return ( int ) value;
+    }
+
+
+    private static long readVarLong( final ByteBuffer input ) {
+        long value = 0;
+        int shift = 0;
+
+        while ( shift < 64 ) {
+            final byte b = input.get();
+            value |= ( long ) ( b & 0x7F ) << shift;
+
+            if ( ( b & 0x80 ) == 0 ) {
+                return value;
+            }
+
+            shift += 7;
+        }
+
+        throw new IllegalArgumentException( "Malformed variable length number" );
+    }
+
+
+    private static long zigZag( final long value ) {
+        return ( value << 1 ) ^ ( value >> 63 );
+    }
+
+
+    private static long unZigZag( final long value ) {
+        return ( value >>> 1 ) ^ -( value & 1 );
+    }
+
+
+    private static int capacity( final int size ) {
+        return size < 3 ? size + 1 : ( int ) ( size / 0.75f + 1.0f );
+    }
+
+
+    /**
+     * A growable byte array to write into.  Not thread safe, use one per serialization.
+     */
+    public static final class Output {
+
+        private byte[] buffer;
+        private int position;
+
+
+        public Output( final int initialSize ) {
+            this.buffer = new byte[Math.max( 16, initialSize )];
+        }
+
+
+        public void writeByte( final int value ) {
+            ensureCapacity( 1 );
+            buffer[position++] = ( byte ) value;
+        }
+
+
+        public void writeInt( final int value ) {
+            ensureCapacity( 4 );
+            buffer[position++] = ( byte ) ( value >>> 24 );
+            buffer[position++] = ( byte ) ( value >>> 16 );
+            buffer[position++] = ( byte ) ( value >>> 8 );
+            buffer[position++] = ( byte ) value;
+        }
+
+
+        public void writeLong( final long value ) {
+            writeInt( ( int ) ( value >>> 32 ) );
+            writeInt( ( int ) value );
+        }
+
+
+        /**
+         * Write an unsigned variable length number, 7 bits per byte with the high bit set on all but the last byte
+         */
+        public void writeVarLong( long value ) {
+            ensureCapacity( 10 );
+            while ( ( value & ~0x7FL ) != 0 ) {
+                buffer[position++] = ( byte ) ( ( value & 0x7F ) | 0x80 );
+                value >>>= 7;
+            }
+            buffer[position++] = ( byte ) value;
+        }
+
+
+        public void write( final byte[] bytes, final int offset, final int length ) {
+            ensureCapacity( length );
+            System.arraycopy( bytes, offset, buffer, position, length );
+            position += length;
+        }
+
+
+        /**
+         * Get the bytes written so far
+         */
+        public byte[] toByteArray() {
+            return Arrays.copyOf( buffer, position );
+        }
+
+
+        private void ensureCapacity( final int length ) {
+            if ( position + length > buffer.length ) {
+                buffer = Arrays.copyOf( buffer, Math.max( buffer.length * 2, position + length ) );
+            }
+        }
+    }
+}
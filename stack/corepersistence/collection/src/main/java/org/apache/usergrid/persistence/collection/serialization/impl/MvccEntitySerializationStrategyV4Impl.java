@@ -0,0 +1,524 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.usergrid.persistence.collection.serialization.impl;
+
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Timer;
+import org.apache.usergrid.persistence.core.datastax.TableDefinition;
+import org.apache.usergrid.persistence.core.metrics.MetricsFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.cassandra.db.marshal.BooleanType;
+import org.apache.cassandra.db.marshal.BytesType;
+
+import org.apache.usergrid.persistence.collection.EntitySet;
+import org.apache.usergrid.persistence.collection.MvccEntity;
+import org.apache.usergrid.persistence.collection.exception.CollectionRuntimeException;
+import org.apache.usergrid.persistence.collection.exception.DataCorruptionException;
+import org.apache.usergrid.persistence.collection.exception.EntityTooLargeException;
+import org.apache.usergrid.persistence.collection.mvcc.entity.impl.MvccEntityImpl;
+import org.apache.usergrid.persistence.collection.serialization.MvccEntitySerializationStrategy;
+import org.apache.usergrid.persistence.collection.serialization.SerializationFig;
+import org.apache.usergrid.persistence.collection.serialization.impl.MvccEntitySerializationStrategyV3Impl.EntityWrapper;
+import org.apache.usergrid.persistence.core.CassandraFig;
+import org.apache.usergrid.persistence.core.astyanax.ColumnParser;
+import org.apache.usergrid.persistence.core.astyanax.IdRowCompositeSerializer;
+import org.apache.usergrid.persistence.core.astyanax.MultiTenantColumnFamily;
+import org.apache.usergrid.persistence.core.astyanax.MultiTenantColumnFamilyDefinition;
+import org.apache.usergrid.persistence.core.astyanax.ScopedRowKey;
+import org.apache.usergrid.persistence.core.astyanax.ScopedRowKeySerializer;
+import org.apache.usergrid.persistence.core.scope.ApplicationScope;
+import org.apache.usergrid.persistence.model.entity.Entity;
+import org.apache.usergrid.persistence.model.entity.EntityMap;
+import org.apache.usergrid.persistence.model.entity.Id;
+import org.apache.usergrid.persistence.model.util.UUIDGenerator;
+
+import com.google.common.base.Optional;
+import com.google.common.base.Preconditions;
+import com.google.inject.Inject;
+import com.netflix.astyanax.ColumnListMutation;
+import com.netflix.astyanax.Keyspace;
+import com.netflix.astyanax.MutationBatch;
+import com.netflix.astyanax.connectionpool.exceptions.ConnectionException;
+import com.netflix.astyanax.model.Column;
+import com.netflix.astyanax.model.ColumnList;
+import com.netflix.astyanax.model.Row;
+import com.netflix.astyanax.serializers.BooleanSerializer;
+
+import rx.Observable;
+import rx.Scheduler;
+import rx.schedulers.Schedulers;
+
+
+/**
+ * V4 Serialization Implementation.  Same storage layout as V3, a single column holding the latest version of the
+ * entity, but the entity is written in the compact binary form of {@link EntityMapBinaryCodec} rather than as typed
+ * JSON.
+ */
+public class MvccEntitySerializationStrategyV4Impl implements MvccEntitySerializationStrategy {
+
+    private static final IdRowCompositeSerializer ID_SER = IdRowCompositeSerializer.get();
+
+    private static final ScopedRowKeySerializer<Id> ROW_KEY_SER =  new ScopedRowKeySerializer<>( ID_SER );
+
+
+    private static final MultiTenantColumnFamily<ScopedRowKey<Id>, Boolean> CF_ENTITY_DATA =
+            new MultiTenantColumnFamily<>( "Entity_Version_Data_V4", ROW_KEY_SER, BooleanSerializer.get() );
+
+
+    private static final Boolean COL_VALUE = Boolean.TRUE;
+
+
+    private final EntitySerializer entitySerializer;
+
+    private static final Logger log = LoggerFactory.getLogger( MvccEntitySerializationStrategyV4Impl.class );
+
+
+    protected final Keyspace keyspace;
+    protected final SerializationFig serializationFig;
+    protected final CassandraFig cassandraFig;
+
+
+    @Inject
+    public MvccEntitySerializationStrategyV4Impl( final Keyspace keyspace, final SerializationFig serializationFig,
+                                                  final CassandraFig cassandraFig, final MetricsFactory metricsFactory ) {
+        this.keyspace = keyspace;
+        this.serializationFig = serializationFig;
+        this.cassandraFig = cassandraFig;
+        this.entitySerializer = new EntitySerializer( serializationFig, metricsFactory );
+    }
+
+
+    @Override
+    public MutationBatch write( final ApplicationScope applicationScope, final MvccEntity entity ) {
+        Preconditions.checkNotNull( applicationScope, "applicationScope is required" );
+        Preconditions.checkNotNull( entity, "entity is required" );
+
+        final Id entityId = entity.getId();
+        final UUID version = entity.getVersion();
+
+        Optional<EntityMap> map =  EntityMap.fromEntity(entity.getEntity());
+        ByteBuffer byteBuffer = entitySerializer.toByteBuffer(
+            new EntityWrapper(entityId,entity.getVersion(), entity.getStatus(), map.isPresent() ? map.get() : null, 0 )
+        );
+
+        entity.setSize(byteBuffer.array().length);
+
+        return doWrite( applicationScope, entityId, version, colMutation -> colMutation.putColumn( COL_VALUE, byteBuffer ) );
+    }
+
+
+    @Override
+    public EntitySet load( final ApplicationScope applicationScope, final Collection<Id> entityIds,
+                           final UUID maxVersion ) {
+
+
+        Preconditions.checkNotNull( applicationScope, "applicationScope is required" );
+        Preconditions.checkNotNull( entityIds, "entityIds is required" );
+        Preconditions.checkArgument( entityIds.size() > 0, "entityIds is required" );
+        Preconditions.checkNotNull( maxVersion, "version is required" );
+
+
+        if ( entityIds.size() > serializationFig.getMaxLoadSize() ) {
+            throw new IllegalArgumentException(
+                    "requested load size cannot be over configured maximum of " + serializationFig.getMaxLoadSize() );
+        }
+
+
+        final Id applicationId = applicationScope.getApplication();
+
+        final List<ScopedRowKey<Id>> rowKeys = new ArrayList<>( entityIds.size() );
+
+
+        for ( final Id entityId : entityIds ) {
+
+            if ( entityId != null ) { // the size of entityIds is checked as preconditions, but the values are not
+                final ScopedRowKey<Id> rowKey =
+                    ScopedRowKey.fromKey(applicationId, entityId);
+
+
+                rowKeys.add(rowKey);
+            }
+        }
+
+        /**
+         * Our settings may mean we exceed our maximum thrift buffer size. If we do, we have to make multiple
+         * requests, not just one.
+         * Perform the calculations and the appropriate request patterns
+         *
+         */
+
+        // convert getMaxEntitySize to a long avoid a numeric overflow and use a double for the result precision
+        final double maxEntityResultSizeInBytes = (double)( (long)serializationFig.getMaxEntitySize() * (long)entityIds.size() );
+
+        // if we're less than 1, set the number of requests to 1
+        final double numberRequests = Math.max( 1, maxEntityResultSizeInBytes / cassandraFig.getThriftBufferSize() );
+
+        // don't overflow the buffer because of the remainder
+        final double entitiesPerRequest = Math.floor(entityIds.size() / numberRequests);
+
+
+        final Scheduler scheduler;
+
+        //if it's a single request, run it on the same thread
+        if ( numberRequests == 1 ) {
+            scheduler = Schedulers.immediate();
+        }
+        //if it's more than 1 request, run them on the I/O scheduler
+        else {
+            scheduler = Schedulers.io();
+        }
+
+
+        final EntitySetImpl entitySetResults = Observable.from( rowKeys )
+            //buffer our entities per request, then for that buffer, execute the query in parallel (if neccessary)
+            .buffer( (int)entitiesPerRequest ).flatMap( listObservable -> {
+
+
+                // here, we execute our query then emit the items either in parallel, or on the current thread
+                // if we have more than 1 request
+                return Observable.just( listObservable ).map( scopedRowKeys -> {
+
+
+                    try {
+                        return keyspace.prepareQuery( CF_ENTITY_DATA ).getKeySlice( scopedRowKeys )
+                            .withColumnSlice( COL_VALUE ).execute().getResult();
+                    }
+                    catch ( ConnectionException e ) {
+                        throw new CollectionRuntimeException( null, applicationScope,
+                            "An error occurred connecting to cassandra", e );
+                    }
+                } ).subscribeOn( scheduler );
+            }, 10 ).collect( () -> new EntitySetImpl( entityIds.size() ), ( ( entitySet, rows ) -> {
+                final Iterator<Row<ScopedRowKey<Id>, Boolean>> latestEntityColumns = rows.iterator();
+
+                while ( latestEntityColumns.hasNext() ) {
+                    final Row<ScopedRowKey<Id>, Boolean> row = latestEntityColumns.next();
+
+                    final ColumnList<Boolean> columns = row.getColumns();
+
+                    if ( columns.size() == 0 ) {
+                        continue;
+                    }
+
+                    final Id entityId = row.getKey().getKey();
+
+                    final Column<Boolean> column = columns.getColumnByIndex( 0 );
+
+                    final MvccEntity parsedEntity =
+                        new MvccColumnParser( entityId, entitySerializer ).parseColumn( column );
+
+
+                    entitySet.addEntity( parsedEntity );
+                }
+               } ) ).toBlocking().last();
+
+
+
+        return entitySetResults;
+    }
+
+
+    @Override
+    public Iterator<MvccEntity> loadDescendingHistory( final ApplicationScope applicationScope, final Id entityId,
+                                                       final UUID version, final int fetchSize ) {
+
+        Preconditions.checkNotNull( applicationScope, "applicationScope is required" );
+        Preconditions.checkNotNull( entityId, "entity id is required" );
+        Preconditions.checkNotNull( version, "version is required" );
+        Preconditions.checkArgument( fetchSize > 0, "max Size must be greater than 0" );
+
+
+
+        throw new UnsupportedOperationException( "This version does not support loading history" );
+    }
+
+
+    @Override
+    public Iterator<MvccEntity> loadAscendingHistory( final ApplicationScope applicationScope, final Id entityId,
+                                                      final UUID version, final int fetchSize ) {
+
+        Preconditions.checkNotNull( applicationScope, "applicationScope is required" );
+        Preconditions.checkNotNull( entityId, "entity id is required" );
+        Preconditions.checkNotNull( version, "version is required" );
+        Preconditions.checkArgument( fetchSize > 0, "max Size must be greater than 0" );
+
+        throw new UnsupportedOperationException( "This version does not support loading history" );
+    }
+
+
+    @Override
+    public Optional<MvccEntity> load( final ApplicationScope scope, final Id entityId ) {
+        final EntitySet results = load( scope, Collections.singleton( entityId ), UUIDGenerator.newTimeUUID() );
+
+        return Optional.fromNullable( results.getEntity( entityId ));
+    }
+
+
+    @Override
+    public MutationBatch mark( final ApplicationScope applicationScope, final Id entityId, final UUID version ) {
+        Preconditions.checkNotNull(applicationScope, "applicationScope is required");
+        Preconditions.checkNotNull(entityId, "entity id is required");
+        Preconditions.checkNotNull(version, "version is required");
+
+
+        return doWrite(applicationScope, entityId, version, colMutation ->
+                colMutation.putColumn(COL_VALUE,
+                    entitySerializer.toByteBuffer(new EntityWrapper(entityId, version, MvccEntity.Status.DELETED, null, 0))
+                )
+        );
+    }
+
+
+    @Override
+    public MutationBatch delete( final ApplicationScope applicationScope, final Id entityId, final UUID version ) {
+        Preconditions.checkNotNull( applicationScope, "applicationScope is required" );
+        Preconditions.checkNotNull( entityId, "entity id is required" );
+        Preconditions.checkNotNull( version, "version is required" );
+
+
+        return doWrite( applicationScope, entityId, version, colMutation -> colMutation.deleteColumn( Boolean.TRUE ) );
+    }
+
+
+    @Override
+    public java.util.Collection getColumnFamilies() {
+
+        //create the CF entity data.  We want it reversed b/c we want the most recent version at the top of the
+        //row for fast seeks
+        MultiTenantColumnFamilyDefinition cf =
+                new MultiTenantColumnFamilyDefinition( CF_ENTITY_DATA, BytesType.class.getSimpleName(),
+                        BooleanType.class.getSimpleName() ,
+                        BytesType.class.getSimpleName(), MultiTenantColumnFamilyDefinition.CacheOption.KEYS );
+
+
+        return Collections.singleton( cf );
+    }
+
+    @Override
+    public Collection<TableDefinition> getTables() {
+
+        return Collections.emptyList();
+    }
+
+
+    /**
+     * Do the write on the correct row for the entity id with the operation
+     */
+    private MutationBatch doWrite( final ApplicationScope applicationScope, final Id entityId, final UUID version, final RowOp op ) {
+        final MutationBatch batch = keyspace.prepareMutationBatch();
+
+        final Id applicationId = applicationScope.getApplication();
+
+        final ScopedRowKey<Id> rowKey =
+                ScopedRowKey.fromKey( applicationId, entityId );
+
+        final long timestamp = version.timestamp();
+
+        op.doOp( batch.withRow( CF_ENTITY_DATA, rowKey ).setTimestamp( timestamp  ) );
+
+        return batch;
+    }
+
+
+    @Override
+    public int getImplementationVersion() {
+        return CollectionDataVersions.BINARY_ENTITY.getVersion();
+    }
+
+
+    /**
+     * Converts raw columns the to MvccEntity representation
+     */
+    private static final class MvccColumnParser implements ColumnParser<Boolean, MvccEntity> {
+
+        private final Id id;
+        private final EntitySerializer entitySerializer;
+
+
+        private MvccColumnParser( final Id id, final EntitySerializer entitySerializer ) {
+            this.id = id;
+            this.entitySerializer = entitySerializer;
+        }
+
+
+        @Override
+        public MvccEntity parseColumn( Column<Boolean> column ) {
+
+            final EntityWrapper deSerialized;
+
+            try {
+                deSerialized = entitySerializer.fromByteBuffer( id, column.getByteBufferValue() );
+            }
+            catch ( DataCorruptionException e ) {
+                log.error(
+                        "DATA CORRUPTION DETECTED when de-serializing entity with Id {}.  This means the"
+                                + " write was truncated.", id, e );
+                //return an empty entity, we can never load this one, and we don't want it to bring the system
+                //to a grinding halt
+                return new MvccEntityImpl( id, UUIDGenerator.newTimeUUID(), MvccEntity.Status.DELETED, Optional.<Entity>absent() );
+            }
+            Optional<Entity> entity = deSerialized.getOptionalEntity() ;
+            return new MvccEntityImpl( id, deSerialized.getVersion(), deSerialized.getStatus(), entity, deSerialized.getSize());
+        }
+    }
+
+
+    /**
+     * Writes and reads the binary form of an entity version.  The layout is
+     *
+     * <pre>
+     *   byte    format, currently 1
+     *   long    version most significant bits
+     *   long    version least significant bits
+     *   byte    1 if an entity map follows, 0 if this version is deleted
+     *   ...     the entity map, see {@link EntityMapBinaryCodec}
+     * </pre>
+     *
+     * The entity id is the row key, so unlike V3 it isn't repeated in the value.  We should only ever create this
+     * once, since this impl is a singleton
+     */
+    public static final class EntitySerializer {
+
+        private static final byte FORMAT = 1;
+
+        /**
+         * Large enough for a typical entity that most writes never grow the buffer
+         */
+        private static final int INITIAL_BUFFER_SIZE = 512;
+
+        private final Histogram bytesInHistorgram;
+        private final Histogram bytesOutHistorgram;
+        private final Timer bytesOutTimer;
+
+        private final SerializationFig serializationFig;
+
+
+        public EntitySerializer( final SerializationFig serializationFig, final MetricsFactory metricsFactory ) {
+            this.serializationFig = serializationFig;
+            this.bytesOutHistorgram = metricsFactory.getHistogram(MvccEntitySerializationStrategyV4Impl.class, "bytes.out");
+            this.bytesOutTimer = metricsFactory.getTimer(MvccEntitySerializationStrategyV4Impl.class, "bytes.out");
+            this.bytesInHistorgram = metricsFactory.getHistogram(MvccEntitySerializationStrategyV4Impl.class, "bytes.in");
+        }
+
+
+        public ByteBuffer toByteBuffer( final EntityWrapper wrapper ) {
+            if ( wrapper == null ) {
+                return null;
+            }
+
+            final EntityMap entityMap = wrapper.getEntityMap();
+
+            //we have an entity but status is not complete don't allow it
+            if ( entityMap != null && wrapper.getStatus() != MvccEntity.Status.COMPLETE ) {
+                throw new UnsupportedOperationException("Only states " + MvccEntity.Status.DELETED + " and " + MvccEntity.Status.COMPLETE + " are supported");
+            }
+
+            final EntityMapBinaryCodec.Output output = new EntityMapBinaryCodec.Output( INITIAL_BUFFER_SIZE );
+
+            output.writeByte( FORMAT );
+            output.writeLong( wrapper.getVersion().getMostSignificantBits() );
+            output.writeLong( wrapper.getVersion().getLeastSignificantBits() );
+
+            //mark this version as empty
+            if ( entityMap == null ) {
+                output.writeByte( 0 );
+                return ByteBuffer.wrap( output.toByteArray() );
+            }
+
+            output.writeByte( 1 );
+            EntityMapBinaryCodec.writeEntityMap( output, entityMap );
+
+            final byte[] wrapperBytes = output.toByteArray();
+
+            final int maxEntrySize = serializationFig.getMaxEntitySize();
+
+            bytesInHistorgram.update( wrapperBytes.length );
+            if ( wrapperBytes.length > maxEntrySize ) {
+                throw new EntityTooLargeException( Entity.fromMap( entityMap ), maxEntrySize, wrapperBytes.length,
+                    "Your entity cannot exceed " + maxEntrySize + " bytes. The entity you tried to save was "
+                        + wrapperBytes.length + " bytes" );
+            }
+
+            return ByteBuffer.wrap( wrapperBytes );
+        }
+
+
+        public EntityWrapper fromByteBuffer( final Id id, final ByteBuffer byteBuffer ) {
+
+            /**
+             * We intentionally turn data corruption exceptions when we're unable to de-serialize
+             * the data in cassandra.  If this occurs, we'll never be able to de-serialize it
+             * and it should be considered lost.
+             */
+
+            final Timer.Context time = bytesOutTimer.time();
+
+            try {
+                final ByteBuffer input = byteBuffer.duplicate();
+                final int size = input.remaining();
+
+                bytesOutHistorgram.update( size );
+
+                final byte format = input.get();
+
+                if ( format != FORMAT ) {
+                    throw new IllegalArgumentException( "Unknown entity format " + format );
+                }
+
+                final UUID version = new UUID( input.getLong(), input.getLong() );
+
+                // it's been deleted
+                if ( input.get() == 0 ) {
+                    return new EntityWrapper( id, version, MvccEntity.Status.DELETED, null, 0 );
+                }
+
+                final EntityMap entityMap = EntityMapBinaryCodec.readEntityMap( input );
+
+                return new EntityWrapper( id, version, MvccEntity.Status.COMPLETE, entityMap, size );
+            }
+            catch ( Exception e ) {
+                throw new DataCorruptionException( "Unable to read entity data", e );
+            }
+            finally {
+                time.stop();
+            }
+        }
+    }
+
+
+    /**
+     * Simple callback to perform puts and deletes with a common row setup code
+     */
+    private static interface RowOp {
+
+        /**
+         * The operation to perform on the row
+         */
+        void doOp( ColumnListMutation<Boolean> colMutation );
+    }
+}
@@ -24,6 +24,7 @@ import org.apache.usergrid.persistence.collection.serialization.UniqueValueSeria
 import org.apache.usergrid.persistence.collection.serialization.impl.migration.CollectionMigration;
 import org.apache.usergrid.persistence.collection.serialization.impl.migration.CollectionMigrationPlugin;
 import org.apache.usergrid.persistence.collection.serialization.impl.migration.EntityIdScope;
+import org.apache.usergrid.persistence.collection.serialization.impl.migration.MvccEntityBinaryDataMigrationImpl;
 import org.apache.usergrid.persistence.collection.serialization.impl.migration.MvccEntityDataMigrationImpl;
 import org.apache.usergrid.persistence.core.migration.data.DataMigration;
 import org.apache.usergrid.persistence.core.migration.data.MigrationPlugin;
@@ -52,10 +53,11 @@ public class SerializationModule extends AbstractModule {
         // bind the serialization strategies
 
 
-        //bind all 3 implementations
+        //bind all 4 implementations
         bind( MvccEntitySerializationStrategyV1Impl.class );
         bind( MvccEntitySerializationStrategyV2Impl.class );
         bind( MvccEntitySerializationStrategyV3Impl.class );
+        bind( MvccEntitySerializationStrategyV4Impl.class );
         //We've migrated this one, so we need to set up the previous, current, and proxy
 
 
@@ -81,6 +83,7 @@ public class SerializationModule extends AbstractModule {
         migrationBinder.addBinding().to( Key.get( MvccEntitySerializationStrategyV1Impl.class ) );
         migrationBinder.addBinding().to( Key.get( MvccEntitySerializationStrategyV2Impl.class ) );
         migrationBinder.addBinding().to( Key.get( MvccEntitySerializationStrategyV3Impl.class ) );
+        migrationBinder.addBinding().to( Key.get( MvccEntitySerializationStrategyV4Impl.class ) );
 
         //log serialization versions
         migrationBinder.addBinding().to( Key.get( MvccLogEntrySerializationStrategyV1Impl.class ) );
@@ -101,6 +104,7 @@ public class SerializationModule extends AbstractModule {
 
 
         dataMigrationMultibinder.addBinding().to( MvccEntityDataMigrationImpl.class );
+        dataMigrationMultibinder.addBinding().to( MvccEntityBinaryDataMigrationImpl.class );
 
 
         //wire up the collection migration plugin
@@ -116,7 +120,7 @@ public class SerializationModule extends AbstractModule {
     @Provides
     public VersionedMigrationSet<MvccEntitySerializationStrategy> getVersions(
         final MvccEntitySerializationStrategyV1Impl v1, final MvccEntitySerializationStrategyV2Impl v2,
-        final MvccEntitySerializationStrategyV3Impl v3 ) {
+        final MvccEntitySerializationStrategyV3Impl v3, final MvccEntitySerializationStrategyV4Impl v4 ) {
 
 
         //we must perform a migration from v1 to v3 in order to maintain consistency
@@ -127,15 +131,19 @@ public class SerializationModule extends AbstractModule {
         MigrationRelationship<MvccEntitySerializationStrategy> v2Tov3 = new MigrationRelationship<>( v2, v3 );
 
 
-        //note that we MUST migrate to v3 before our next migration, if v4 and v5 is implemented we will need a
-        // v3->v5 and a v4->v5 set
+        //note that we MUST migrate to v3 before our next migration, v3 only stores the latest version so it's the
+        //only source the binary format can be copied from
+        MigrationRelationship<MvccEntitySerializationStrategy> v3Tov4 = new MigrationRelationship<>( v3, v4 );
+
+
+        //if a v5 is implemented we will need a v4->v5 set
         MigrationRelationship<MvccEntitySerializationStrategy> current =
-            new MigrationRelationship<>( v3, v3 );
+            new MigrationRelationship<>( v4, v4 );
 
 
         //now create our set of versions
         VersionedMigrationSet<MvccEntitySerializationStrategy> set =
-            new VersionedMigrationSet<>( v1Tov3, v2Tov3, current );
+            new VersionedMigrationSet<>( v1Tov3, v2Tov3, v3Tov4, current );
 
         return set;
     }
@@ -157,8 +165,9 @@ public class SerializationModule extends AbstractModule {
 
         //note that we MUST migrate to v3 before our next migration, if v4 and v5 is implemented we will need a
         // v3->v5 and a v4->v5 set
+        //the binary entity migration doesn't change this data, so v2 remains current through that version
         MigrationRelationship<MvccLogEntrySerializationStrategy> current =
-            new MigrationRelationship<>( v2, v2 );
+            MigrationRelationship.currentThrough( v2, CollectionDataVersions.BINARY_ENTITY.getVersion() );
 
 
         //now create our set of versions
@@ -186,8 +195,9 @@ public class SerializationModule extends AbstractModule {
 
         //note that we MUST migrate to v3 before our next migration, if v4 and v5 is implemented we will need a
         // v3->v5 and a v4->v5 set
+        //the binary entity migration doesn't change this data, so v2 remains current through that version
         MigrationRelationship<UniqueValueSerializationStrategy> current =
-            new MigrationRelationship<>( v2, v2 );
+            MigrationRelationship.currentThrough( v2, CollectionDataVersions.BINARY_ENTITY.getVersion() );
 
 
         //now create our set of versions
@@ -0,0 +1,176 @@
+/*
+ *
+ *  * Licensed to the Apache Software Foundation (ASF) under one or more
+ *  *  contributor license agreements.  The ASF licenses this file to You
+ *  * under the Apache License, Version 2.0 (the "License"); you may not
+ *  * use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *     http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.  For additional information regarding
+ *  * copyright in this work, please see the NOTICE file in the top level
+ *  * directory of this distribution.
+ *
+ */
+package org.apache.usergrid.persistence.collection.serialization.impl.migration;
+
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.usergrid.persistence.collection.EntitySet;
+import org.apache.usergrid.persistence.collection.MvccEntity;
+import org.apache.usergrid.persistence.collection.serialization.MvccEntitySerializationStrategy;
+import org.apache.usergrid.persistence.collection.serialization.impl.CollectionDataVersions;
+import org.apache.usergrid.persistence.collection.serialization.impl.MvccEntitySerializationStrategyV4Impl;
+import org.apache.usergrid.persistence.core.migration.data.DataMigration;
+import org.apache.usergrid.persistence.core.migration.data.DataMigrationException;
+import org.apache.usergrid.persistence.core.migration.data.MigrationDataProvider;
+import org.apache.usergrid.persistence.core.migration.data.MigrationRelationship;
+import org.apache.usergrid.persistence.core.migration.data.ProgressObserver;
+import org.apache.usergrid.persistence.core.migration.data.VersionedMigrationSet;
+import org.apache.usergrid.persistence.core.scope.ApplicationScope;
+import org.apache.usergrid.persistence.model.entity.Id;
+import org.apache.usergrid.persistence.model.util.UUIDGenerator;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.netflix.astyanax.Keyspace;
+import com.netflix.astyanax.MutationBatch;
+import com.netflix.astyanax.connectionpool.exceptions.ConnectionException;
+
+import rx.Observable;
+import rx.schedulers.Schedulers;
+
+
+/**
+ * Data migration that copies the latest version of every entity from the V3 JSON format into the V4 binary format.
+ * V3 only stores the latest version, so unlike {@link MvccEntityDataMigrationImpl} there is no history to walk, and
+ * entities are read back in multi-key loads.  Unique values and log entries are unchanged by this format, so they
+ * aren't rewritten.
+ */
+@Singleton
+public class MvccEntityBinaryDataMigrationImpl implements DataMigration {
+
+
+    private static final Logger logger = LoggerFactory.getLogger( MvccEntityBinaryDataMigrationImpl.class );
+
+    /**
+     * The number of entity ids we load and write in a single batch
+     */
+    private static final int BATCH_SIZE = 100;
+
+    private final Keyspace keyspace;
+    private final VersionedMigrationSet<MvccEntitySerializationStrategy> allVersions;
+    private final MvccEntitySerializationStrategyV4Impl mvccEntitySerializationStrategyV4;
+    private final MigrationDataProvider<EntityIdScope> migrationDataProvider;
+
+
+    @Inject
+    public MvccEntityBinaryDataMigrationImpl( final Keyspace keyspace,
+                                              final VersionedMigrationSet<MvccEntitySerializationStrategy> allVersions,
+                                              final MvccEntitySerializationStrategyV4Impl mvccEntitySerializationStrategyV4,
+                                              final MigrationDataProvider<EntityIdScope> migrationDataProvider ) {
+        this.keyspace = keyspace;
+        this.allVersions = allVersions;
+        this.mvccEntitySerializationStrategyV4 = mvccEntitySerializationStrategyV4;
+        this.migrationDataProvider = migrationDataProvider;
+    }
+
+
+    @Override
+    public boolean supports( final int currentVersion ) {
+        //we can only migrate from v3, anything older must first be moved to v3 by MvccEntityDataMigrationImpl
+        return currentVersion >= CollectionDataVersions.LOG_REMOVAL.getVersion()
+            && currentVersion < mvccEntitySerializationStrategyV4.getImplementationVersion();
+    }
+
+
+    @Override
+    public int getMaxVersion() {
+        return mvccEntitySerializationStrategyV4.getImplementationVersion();
+    }
+
+
+    @Override
+    public int migrate( final int currentVersion, final ProgressObserver observer ) {
+
+        final AtomicLong atomicLong = new AtomicLong();
+
+        //capture the time the migration starts, anything written after this is already dual written by the proxy
+        final UUID startTime = UUIDGenerator.newTimeUUID();
+
+        final MigrationRelationship<MvccEntitySerializationStrategy> migration =
+            allVersions.getMigrationRelationship( currentVersion );
+
+        final int targetVersion = migration.to.getImplementationVersion();
+
+        migrationDataProvider.getData().buffer( BATCH_SIZE ).flatMap( entityIdScopes -> Observable.just( entityIdScopes )
+            .doOnNext( idScopes -> {
+
+                //the load is per application, so group the buffered ids by their scope
+                final Map<ApplicationScope, List<Id>> idsByScope = new HashMap<>();
+
+                for ( final EntityIdScope entityIdScope : idScopes ) {
+                    idsByScope.computeIfAbsent( entityIdScope.getApplicationScope(), scope -> new ArrayList<>() )
+                              .add( entityIdScope.getId() );
+                }
+
+                final MutationBatch totalBatch = keyspace.prepareMutationBatch();
+
+                for ( final Map.Entry<ApplicationScope, List<Id>> entry : idsByScope.entrySet() ) {
+
+                    final ApplicationScope scope = entry.getKey();
+
+                    final EntitySet entitySet = migration.from.load( scope, entry.getValue(), startTime );
+
+                    for ( final MvccEntity entity : entitySet.getEntities() ) {
+                        try {
+                            totalBatch.mergeShallow( migration.to.write( scope, entity ) );
+                        }
+                        catch ( Exception e ) {
+                            logger.error( "Failed to migrate entity {} :: {}", entity.getId().getUuid(),
+                                entity.getId().getType(), e );
+
+                            //an entity left in v3 would be unreadable once v4 is the only version read, so don't
+                            //advance the version
+                            observer.failed( targetVersion, "Failed to migrate entity " + entity.getId(), e );
+                            throw new DataMigrationException( "Unable to migrate entity " + entity.getId(), e );
+                        }
+                    }
+                }
+
+                atomicLong.addAndGet( idScopes.size() );
+
+                executeBatch( targetVersion, totalBatch, observer, atomicLong );
+            } ).subscribeOn( Schedulers.io() ), 10 ).toBlocking().lastOrDefault( null );
+
+        return targetVersion;
+    }
+
+
+    protected void executeBatch( final int targetVersion, final MutationBatch batch, final ProgressObserver po,
+                                 final AtomicLong count ) {
+        try {
+            batch.execute();
+
+            po.update( targetVersion, "Finished copying " + count + " entities to the binary format" );
+        }
+        catch ( ConnectionException e ) {
+            po.failed( targetVersion, "Failed to execute mutation in cassandra" );
+            throw new DataMigrationException( "Unable to migrate batches ", e );
+        }
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.usergrid.persistence.collection.cache;
+
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.apache.usergrid.persistence.collection.MvccEntity;
+import org.apache.usergrid.persistence.collection.mvcc.entity.impl.MvccEntityImpl;
+import org.apache.usergrid.persistence.core.metrics.MetricsFactory;
+import org.apache.usergrid.persistence.core.scope.ApplicationScope;
+import org.apache.usergrid.persistence.core.scope.ApplicationScopeImpl;
+import org.apache.usergrid.persistence.model.entity.Entity;
+import org.apache.usergrid.persistence.model.entity.Id;
+import org.apache.usergrid.persistence.model.entity.SimpleId;
+import org.apache.usergrid.persistence.model.field.StringField;
+import org.apache.usergrid.persistence.model.util.UUIDGenerator;
+
+import com.codahale.metrics.Counter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+
+public class EntityCacheImplTest {
+
+    private MetricsFactory metricsFactory;
+    private EntityCacheFig entityCacheFig;
+
+
+    @Before
+    public void setup() {
+        metricsFactory = mock( MetricsFactory.class );
+        when( metricsFactory.getCounter( any( Class.class ), anyString() ) ).thenAnswer( invocation -> new Counter() );
+
+        entityCacheFig = mock( EntityCacheFig.class );
+        when( entityCacheFig.getCacheSize() ).thenReturn( 100 );
+        when( entityCacheFig.getCacheTimeout() ).thenReturn( 60000 );
+    }
+
+
+    @Test
+    public void putGetInvalidate() {
+
+        final EntityCache cache = new EntityCacheImpl( entityCacheFig, metricsFactory );
+
+        final ApplicationScope scope = new ApplicationScopeImpl( new SimpleId( "application" ) );
+        final MvccEntity mvccEntity = createEntity();
+        final Id entityId = mvccEntity.getId();
+
+        cache.put( scope, mvccEntity, cache.getGeneration( scope, mvccEntity.getId() ) );
+
+        Map<Id, MvccEntity> results = cache.getAll( scope, Arrays.asList( entityId, new SimpleId( "test" ) ) );
+
+        assertEquals( 1, results.size() );
+        assertEquals( mvccEntity.getVersion(), results.get( entityId ).getVersion() );
+
+        //a different application never sees the entry
+        final ApplicationScope otherScope = new ApplicationScopeImpl( new SimpleId( "application" ) );
+        assertTrue( cache.getAll( otherScope, Collections.singleton( entityId ) ).isEmpty() );
+
+        cache.invalidate( scope, entityId );
+
+        assertTrue( cache.getAll( scope, Collections.singleton( entityId ) ).isEmpty() );
+    }
+
+
+    @Test
+    public void mutationsAreNotShared() {
+
+        final EntityCache cache = new EntityCacheImpl( entityCacheFig, metricsFactory );
+
+        final ApplicationScope scope = new ApplicationScopeImpl( new SimpleId( "application" ) );
+        final MvccEntity mvccEntity = createEntity();
+        final Id entityId = mvccEntity.getId();
+
+        cache.put( scope, mvccEntity, cache.getGeneration( scope, mvccEntity.getId() ) );
+
+        final Entity first = cache.getAll( scope, Collections.singleton( entityId ) ).get( entityId ).getEntity().get();
+
+        assertNotSame( mvccEntity.getEntity().get(), first );
+
+        first.removeField( "name" );
+
+        final Entity second =
+            cache.getAll( scope, Collections.singleton( entityId ) ).get( entityId ).getEntity().get();
+
+        assertEquals( "value", second.getField( "name" ).getValue() );
+    }
+
+
+    @Test
+    public void invalidatedReadNotCached() {
+
+        final EntityCache cache = new EntityCacheImpl( entityCacheFig, metricsFactory );
+
+        final ApplicationScope scope = new ApplicationScopeImpl( new SimpleId( "application" ) );
+        final MvccEntity mvccEntity = createEntity();
+        final Id entityId = mvccEntity.getId();
+
+        // read before a write invalidated the entity, and put after
+        final long generation = cache.getGeneration( scope, entityId );
+
+        cache.invalidate( scope, entityId );
+
+        cache.put( scope, mvccEntity, generation );
+
+        assertTrue( cache.getAll( scope, Collections.singleton( entityId ) ).isEmpty() );
+
+        // a read that began after the write is cached
+        cache.put( scope, mvccEntity, cache.getGeneration( scope, entityId ) );
+
+        assertEquals( 1, cache.getAll( scope, Collections.singleton( entityId ) ).size() );
+    }
+
+
+    @Test
+    public void disabled() {
+
+        when( entityCacheFig.getCacheSize() ).thenReturn( 0 );
+
+        final EntityCache cache = new EntityCacheImpl( entityCacheFig, metricsFactory );
+
+        final ApplicationScope scope = new ApplicationScopeImpl( new SimpleId( "application" ) );
+        final MvccEntity mvccEntity = createEntity();
+
+        cache.put( scope, mvccEntity, cache.getGeneration( scope, mvccEntity.getId() ) );
+
+        assertNull( cache.getAll( scope, Collections.singleton( mvccEntity.getId() ) ).get( mvccEntity.getId() ) );
+    }
+
+
+    private MvccEntity createEntity() {
+        final Id entityId = new SimpleId( "test" );
+        final Entity entity = new Entity( entityId, UUIDGenerator.newTimeUUID() );
+        entity.setField( new StringField( "name", "value" ) );
+
+        return new MvccEntityImpl( entityId, entity.getVersion(), MvccEntity.Status.COMPLETE, entity );
+    }
+}
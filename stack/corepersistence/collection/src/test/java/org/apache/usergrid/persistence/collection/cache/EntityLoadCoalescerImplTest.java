@@ -0,0 +1,278 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.usergrid.persistence.collection.cache;
+
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.apache.usergrid.persistence.collection.EntitySet;
+import org.apache.usergrid.persistence.collection.MvccEntity;
+import org.apache.usergrid.persistence.collection.mvcc.entity.impl.MvccEntityImpl;
+import org.apache.usergrid.persistence.collection.serialization.impl.EntitySetImpl;
+import org.apache.usergrid.persistence.core.metrics.MetricsFactory;
+import org.apache.usergrid.persistence.core.scope.ApplicationScope;
+import org.apache.usergrid.persistence.core.scope.ApplicationScopeImpl;
+import org.apache.usergrid.persistence.model.entity.Entity;
+import org.apache.usergrid.persistence.model.entity.Id;
+import org.apache.usergrid.persistence.model.entity.SimpleId;
+import org.apache.usergrid.persistence.model.field.StringField;
+import org.apache.usergrid.persistence.model.util.UUIDGenerator;
+
+import com.codahale.metrics.Counter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+
+public class EntityLoadCoalescerImplTest {
+
+    private final ApplicationScope scope = new ApplicationScopeImpl( new SimpleId( "application" ) );
+
+    private MetricsFactory metricsFactory;
+    private EntityCacheFig entityCacheFig;
+    private Map<String, Counter> counters;
+    private ExecutorService executor;
+
+
+    @Before
+    public void setup() {
+        counters = new HashMap<>();
+
+        metricsFactory = mock( MetricsFactory.class );
+        when( metricsFactory.getCounter( any( Class.class ), anyString() ) ).thenAnswer( invocation -> {
+            final Counter counter = new Counter();
+            counters.put( ( String ) invocation.getArguments()[1], counter );
+            return counter;
+        } );
+
+        entityCacheFig = mock( EntityCacheFig.class );
+        when( entityCacheFig.isLoadCoalescingEnabled() ).thenReturn( true );
+
+        executor = Executors.newFixedThreadPool( 2 );
+    }
+
+
+    @After
+    public void shutDown() {
+        executor.shutdownNow();
+    }
+
+
+    @Test
+    public void concurrentLoadsShareRead() throws Exception {
+
+        final EntityLoadCoalescer coalescer = new EntityLoadCoalescerImpl( entityCacheFig, metricsFactory );
+
+        final MvccEntity mvccEntity = createEntity();
+        final Id entityId = mvccEntity.getId();
+
+        final CountDownLatch readStarted = new CountDownLatch( 1 );
+        final CountDownLatch release = new CountDownLatch( 1 );
+        final AtomicInteger reads = new AtomicInteger();
+
+        final Function<Collection<Id>, EntitySet> loader = ids -> {
+            reads.incrementAndGet();
+            readStarted.countDown();
+            try {
+                release.await();
+            }
+            catch ( InterruptedException e ) {
+                throw new RuntimeException( e );
+            }
+            return entitySet( mvccEntity );
+        };
+
+        final Future<Map<Id, MvccEntity>> first =
+            executor.submit( () -> coalescer.load( scope, Collections.singleton( entityId ), loader ) );
+
+        assertTrue( readStarted.await( 10, TimeUnit.SECONDS ) );
+
+        final Future<Map<Id, MvccEntity>> second =
+            executor.submit( () -> coalescer.load( scope, Collections.singleton( entityId ), loader ) );
+
+        // wait for the second load to join the read in flight
+        final Counter collapsed = counters.get( "entity.load.collapsed" );
+        for ( int i = 0; i < 1000 && collapsed.getCount() == 0; i++ ) {
+            Thread.sleep( 10 );
+        }
+
+        release.countDown();
+
+        final MvccEntity firstLoaded = first.get( 10, TimeUnit.SECONDS ).get( entityId );
+        final MvccEntity secondLoaded = second.get( 10, TimeUnit.SECONDS ).get( entityId );
+
+        assertEquals( 1, reads.get() );
+        assertEquals( 1, collapsed.getCount() );
+
+        assertNotNull( secondLoaded );
+        assertEquals( mvccEntity.getVersion(), secondLoaded.getVersion() );
+
+        // callers mutate what they load, they never share an instance
+        assertNotSame( firstLoaded.getEntity().get(), secondLoaded.getEntity().get() );
+    }
+
+
+    @Test
+    public void loadsAfterReadCompletesReadAgain() {
+
+        final EntityLoadCoalescer coalescer = new EntityLoadCoalescerImpl( entityCacheFig, metricsFactory );
+
+        final MvccEntity mvccEntity = createEntity();
+        final AtomicInteger reads = new AtomicInteger();
+
+        final Function<Collection<Id>, EntitySet> loader = ids -> {
+            reads.incrementAndGet();
+            return entitySet( mvccEntity );
+        };
+
+        coalescer.load( scope, Collections.singleton( mvccEntity.getId() ), loader );
+        coalescer.load( scope, Collections.singleton( mvccEntity.getId() ), loader );
+
+        assertEquals( 2, reads.get() );
+        assertEquals( 0, counters.get( "entity.load.collapsed" ).getCount() );
+    }
+
+
+    @Test
+    public void invalidatedReadNotShared() throws Exception {
+
+        final EntityLoadCoalescer coalescer = new EntityLoadCoalescerImpl( entityCacheFig, metricsFactory );
+
+        final MvccEntity mvccEntity = createEntity();
+        final Id entityId = mvccEntity.getId();
+
+        final CountDownLatch readStarted = new CountDownLatch( 1 );
+        final CountDownLatch release = new CountDownLatch( 1 );
+        final AtomicInteger reads = new AtomicInteger();
+
+        final Function<Collection<Id>, EntitySet> blockingLoader = ids -> {
+            reads.incrementAndGet();
+            readStarted.countDown();
+            try {
+                release.await();
+            }
+            catch ( InterruptedException e ) {
+                throw new RuntimeException( e );
+            }
+            return entitySet( mvccEntity );
+        };
+
+        final Future<Map<Id, MvccEntity>> first =
+            executor.submit( () -> coalescer.load( scope, Collections.singleton( entityId ), blockingLoader ) );
+
+        assertTrue( readStarted.await( 10, TimeUnit.SECONDS ) );
+
+        // written while the first read is in flight, the next load reads the entity itself
+        coalescer.invalidate( scope, entityId );
+
+        final Map<Id, MvccEntity> second = coalescer.load( scope, Collections.singleton( entityId ), ids -> {
+            reads.incrementAndGet();
+            return entitySet( mvccEntity );
+        } );
+
+        release.countDown();
+
+        assertEquals( 1, first.get( 10, TimeUnit.SECONDS ).size() );
+        assertEquals( 1, second.size() );
+        assertEquals( 2, reads.get() );
+        assertEquals( 0, counters.get( "entity.load.collapsed" ).getCount() );
+    }
+
+
+    @Test
+    public void missingEntitiesAbsent() {
+
+        final EntityLoadCoalescer coalescer = new EntityLoadCoalescerImpl( entityCacheFig, metricsFactory );
+
+        final MvccEntity mvccEntity = createEntity();
+        final Id missing = new SimpleId( "test" );
+
+        final Map<Id, MvccEntity> loaded =
+            coalescer.load( scope, Arrays.asList( mvccEntity.getId(), missing ), ids -> entitySet( mvccEntity ) );
+
+        assertEquals( 1, loaded.size() );
+        assertTrue( loaded.containsKey( mvccEntity.getId() ) );
+    }
+
+
+    @Test
+    public void failedReadReleasesIds() {
+
+        final EntityLoadCoalescer coalescer = new EntityLoadCoalescerImpl( entityCacheFig, metricsFactory );
+
+        final MvccEntity mvccEntity = createEntity();
+
+        try {
+            coalescer.load( scope, Collections.singleton( mvccEntity.getId() ), ids -> {
+                throw new IllegalStateException( "Unable to read" );
+            } );
+            fail( "The read failure should be thrown" );
+        }
+        catch ( IllegalStateException ise ) {
+            assertEquals( "Unable to read", ise.getMessage() );
+        }
+
+        // the failed read is no longer in flight
+        final Map<Id, MvccEntity> loaded =
+            coalescer.load( scope, Collections.singleton( mvccEntity.getId() ), ids -> entitySet( mvccEntity ) );
+
+        assertEquals( 1, loaded.size() );
+    }
+
+
+    private static EntitySet entitySet( final MvccEntity... entities ) {
+        final EntitySetImpl entitySet = new EntitySetImpl( entities.length );
+        for ( MvccEntity entity : entities ) {
+            entitySet.addEntity( entity );
+        }
+        return entitySet;
+    }
+
+
+    private MvccEntity createEntity() {
+        final Id entityId = new SimpleId( "test" );
+        final Entity entity = new Entity( entityId, UUIDGenerator.newTimeUUID() );
+        entity.setField( new StringField( "name", "value" ) );
+
+        return new MvccEntityImpl( entityId, entity.getVersion(), MvccEntity.Status.COMPLETE, entity );
+    }
+}
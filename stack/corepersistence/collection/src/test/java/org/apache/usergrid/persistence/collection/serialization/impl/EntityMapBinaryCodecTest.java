@@ -0,0 +1,156 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.usergrid.persistence.collection.serialization.impl;
+
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+import org.apache.usergrid.persistence.model.entity.EntityMap;
+import org.apache.usergrid.persistence.model.util.UUIDGenerator;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+
+/**
+ * Round trips entity maps through the binary codec
+ */
+public class EntityMapBinaryCodecTest {
+
+
+    @Test
+    public void roundTripValues() {
+
+        final EntityMap entityMap = new EntityMap();
+
+        entityMap.put( "string", "value" );
+        entityMap.put( "unicode", "été 東京" );
+        entityMap.put( "empty", "" );
+        entityMap.put( "true", true );
+        entityMap.put( "false", false );
+        entityMap.put( "int", 10 );
+        entityMap.put( "negativeInt", -10 );
+        entityMap.put( "maxInt", Integer.MAX_VALUE );
+        entityMap.put( "minInt", Integer.MIN_VALUE );
+        entityMap.put( "long", 1234567890123L );
+        entityMap.put( "minLong", Long.MIN_VALUE );
+        entityMap.put( "double", 1.5d );
+        entityMap.put( "float", 2.5f );
+        entityMap.put( "uuid", UUIDGenerator.newTimeUUID() );
+        entityMap.put( "null", null );
+
+        final Map<String, Object> nested = new HashMap<>();
+        nested.put( "lat", 37.7d );
+        nested.put( "list", Arrays.asList( 1, "two", 3L, null ) );
+
+        entityMap.put( "map", nested );
+        entityMap.put( "list", Arrays.asList( nested, Arrays.asList( true, false ) ) );
+
+        final EntityMap returned = roundTrip( entityMap );
+
+        assertEquals( entityMap, returned );
+        assertEquals( Integer.class, returned.get( "int" ).getClass() );
+        assertEquals( Long.class, returned.get( "long" ).getClass() );
+        assertEquals( Float.class, returned.get( "float" ).getClass() );
+    }
+
+
+    @Test
+    public void roundTripCollectionKinds() {
+
+        final Set<Object> set = new HashSet<>( Arrays.asList( "one", 2, 3L ) );
+        final TreeSet<String> sortedSet = new TreeSet<>( Arrays.asList( "b", "a" ) );
+
+        final EntityMap entityMap = new EntityMap();
+        entityMap.put( "set", set );
+        entityMap.put( "sortedSet", sortedSet );
+        entityMap.put( "list", new ArrayList<>( Arrays.asList( "b", "a", "b" ) ) );
+
+        final EntityMap returned = roundTrip( entityMap );
+
+        assertEquals( entityMap, returned );
+        assertTrue( returned.get( "set" ) instanceof Set );
+        assertEquals( TreeSet.class, returned.get( "sortedSet" ).getClass() );
+    }
+
+
+    @Test
+    public void roundTripBytes() {
+
+        final byte[] bytes = new byte[] { 0, 1, 2, ( byte ) 0xff };
+
+        final EntityMap entityMap = new EntityMap();
+        entityMap.put( "bytes", bytes );
+
+        assertArrayEquals( bytes, ( byte[] ) roundTrip( entityMap ).get( "bytes" ) );
+    }
+
+
+    @Test
+    public void roundTripEmpty() {
+        final EntityMap returned = roundTrip( new EntityMap() );
+
+        assertFalse( returned == null );
+        assertEquals( 0, returned.size() );
+    }
+
+
+    @Test
+    public void readFromOffset() {
+        final EntityMap entityMap = new EntityMap();
+        entityMap.put( "name", "offset" );
+
+        final EntityMapBinaryCodec.Output output = new EntityMapBinaryCodec.Output( 0 );
+        output.writeByte( 42 );
+        EntityMapBinaryCodec.writeEntityMap( output, entityMap );
+
+        final ByteBuffer buffer = ByteBuffer.wrap( output.toByteArray() );
+        buffer.get();
+
+        //wrap a slice so the array offset isn't 0
+        assertEquals( entityMap, EntityMapBinaryCodec.readEntityMap( buffer.slice() ) );
+    }
+
+
+    @Test( expected = IllegalArgumentException.class )
+    public void unknownTag() {
+        EntityMapBinaryCodec.readEntityMap( ByteBuffer.wrap( new byte[] { 1, 1, 'a', 127 } ) );
+    }
+
+
+    private EntityMap roundTrip( final EntityMap entityMap ) {
+        final EntityMapBinaryCodec.Output output = new EntityMapBinaryCodec.Output( 16 );
+
+        EntityMapBinaryCodec.writeEntityMap( output, entityMap );
+
+        return EntityMapBinaryCodec.readEntityMap( ByteBuffer.wrap( output.toByteArray() ) );
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.usergrid.persistence.collection.serialization.impl;
+
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.apache.usergrid.StressTest;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.usergrid.persistence.collection.MvccEntity;
+import org.apache.usergrid.persistence.collection.serialization.SerializationFig;
+import org.apache.usergrid.persistence.collection.serialization.impl.MvccEntitySerializationStrategyV3Impl.EntityWrapper;
+import org.apache.usergrid.persistence.core.metrics.MetricsFactory;
+import org.apache.usergrid.persistence.model.entity.Entity;
+import org.apache.usergrid.persistence.model.entity.EntityMap;
+import org.apache.usergrid.persistence.model.entity.SimpleId;
+import org.apache.usergrid.persistence.model.field.BooleanField;
+import org.apache.usergrid.persistence.model.field.DoubleField;
+import org.apache.usergrid.persistence.model.field.IntegerField;
+import org.apache.usergrid.persistence.model.field.ListField;
+import org.apache.usergrid.persistence.model.field.LongField;
+import org.apache.usergrid.persistence.model.field.StringField;
+import org.apache.usergrid.persistence.model.field.UUIDField;
+import org.apache.usergrid.persistence.model.util.UUIDGenerator;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Timer;
+import com.codahale.metrics.UniformReservoir;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+
+/**
+ * Compares the size and speed of the V3 JSON entity serialization with the V4 binary serialization
+ */
+@Category(StressTest.class)
+public class EntitySerializerComparison {
+
+    private static final Logger logger = LoggerFactory.getLogger( EntitySerializerComparison.class );
+
+    private static final int count = 100000;
+
+    private static final int warmup = 10000;
+
+    private MvccEntitySerializationStrategyV3Impl.EntitySerializer v3Serializer;
+
+    private MvccEntitySerializationStrategyV4Impl.EntitySerializer v4Serializer;
+
+
+    @Before
+    public void setup() {
+        final MetricsFactory metricsFactory = mock( MetricsFactory.class );
+        when( metricsFactory.getHistogram( any( Class.class ), anyString() ) )
+            .thenAnswer( invocation -> new Histogram( new UniformReservoir() ) );
+        when( metricsFactory.getTimer( any( Class.class ), anyString() ) ).thenAnswer( invocation -> new Timer() );
+
+        final SerializationFig serializationFig = mock( SerializationFig.class );
+        when( serializationFig.getMaxEntitySize() ).thenReturn( 15000000 );
+
+        final MvccEntitySerializationStrategyV3Impl v3Impl =
+            new MvccEntitySerializationStrategyV3Impl( null, serializationFig, null, metricsFactory );
+
+        v3Serializer = v3Impl.new EntitySerializer( serializationFig, metricsFactory );
+        v4Serializer = new MvccEntitySerializationStrategyV4Impl.EntitySerializer( serializationFig, metricsFactory );
+    }
+
+
+    @Test
+    public void compare() {
+
+        final Entity entity = createEntity();
+        final EntityWrapper wrapper =
+            new EntityWrapper( entity.getId(), UUIDGenerator.newTimeUUID(), MvccEntity.Status.COMPLETE,
+                EntityMap.fromEntity( entity ), 0 );
+
+        final ByteBuffer v3Bytes = v3Serializer.toByteBuffer( wrapper );
+        final ByteBuffer v4Bytes = v4Serializer.toByteBuffer( wrapper );
+
+        //make sure the binary form is lossless before we time anything
+        assertEquals( wrapper.getEntityMap(), v4Serializer.fromByteBuffer( entity.getId(), v4Bytes ).getEntityMap() );
+
+        logger.info( "V3 serialized size {} bytes, V4 serialized size {} bytes", v3Bytes.remaining(),
+            v4Bytes.remaining() );
+
+        for ( int i = 0; i < warmup; i++ ) {
+            v3Serializer.fromByteBuffer( v3Serializer.toByteBuffer( wrapper ) );
+            v4Serializer.fromByteBuffer( entity.getId(), v4Serializer.toByteBuffer( wrapper ) );
+        }
+
+        long v3WriteTime = 0;
+        long v3ReadTime = 0;
+        long v4WriteTime = 0;
+        long v4ReadTime = 0;
+
+        for ( int i = 0; i < count; i++ ) {
+
+            long start = System.nanoTime();
+            final ByteBuffer v3 = v3Serializer.toByteBuffer( wrapper );
+            v3WriteTime += System.nanoTime() - start;
+
+            start = System.nanoTime();
+            v3Serializer.fromByteBuffer( v3 );
+            v3ReadTime += System.nanoTime() - start;
+
+            start = System.nanoTime();
+            final ByteBuffer v4 = v4Serializer.toByteBuffer( wrapper );
+            v4WriteTime += System.nanoTime() - start;
+
+            start = System.nanoTime();
+            v4Serializer.fromByteBuffer( entity.getId(), v4 );
+            v4ReadTime += System.nanoTime() - start;
+        }
+
+        logger.info( "V3 took {} nanos for writing {} entities", v3WriteTime, count );
+        logger.info( "V3 took {} nanos for reading {} entities", v3ReadTime, count );
+        logger.info( "V4 took {} nanos for writing {} entities", v4WriteTime, count );
+        logger.info( "V4 took {} nanos for reading {} entities", v4ReadTime, count );
+    }
+
+
+    private Entity createEntity() {
+
+        final UUID version = UUIDGenerator.newTimeUUID();
+
+        Entity entity = new Entity( new SimpleId( "test" ) );
+
+        entity.setField( new BooleanField( "boolean", false ) );
+        entity.setField( new DoubleField( "double", 1d ) );
+        entity.setField( new IntegerField( "int", 1 ) );
+        entity.setField( new LongField( "long", 1l ) );
+        entity.setField( new StringField( "name", "test" ) );
+        entity.setField( new StringField( "description", "a somewhat longer string value for the entity" ) );
+        entity.setField( new UUIDField( "uuid", version ) );
+
+        final List<String> tags = new ArrayList<>();
+        for ( int i = 0; i < 10; i++ ) {
+            tags.add( "tag" + i );
+        }
+
+        entity.setField( new ListField<>( "tags", tags ) );
+
+        return entity;
+    }
+}
@@ -0,0 +1,198 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.usergrid.persistence.collection.serialization.impl.migration;
+
+
+import java.util.UUID;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import org.apache.usergrid.persistence.collection.MvccEntity;
+import org.apache.usergrid.persistence.collection.guice.TestCollectionModule;
+import org.apache.usergrid.persistence.collection.mvcc.entity.impl.MvccEntityImpl;
+import org.apache.usergrid.persistence.collection.serialization.MvccEntitySerializationStrategy;
+import org.apache.usergrid.persistence.collection.serialization.impl.CollectionDataVersions;
+import org.apache.usergrid.persistence.collection.serialization.impl.MvccEntitySerializationStrategyV3Impl;
+import org.apache.usergrid.persistence.collection.serialization.impl.MvccEntitySerializationStrategyV4Impl;
+import org.apache.usergrid.persistence.core.guice.DataMigrationResetRule;
+import org.apache.usergrid.persistence.core.guice.MigrationManagerRule;
+import org.apache.usergrid.persistence.core.migration.data.DataMigrationManager;
+import org.apache.usergrid.persistence.core.migration.data.MigrationDataProvider;
+import org.apache.usergrid.persistence.core.migration.data.MigrationRelationship;
+import org.apache.usergrid.persistence.core.migration.data.TestProgressObserver;
+import org.apache.usergrid.persistence.core.migration.data.VersionedMigrationSet;
+import org.apache.usergrid.persistence.core.scope.ApplicationScope;
+import org.apache.usergrid.persistence.core.scope.ApplicationScopeImpl;
+import org.apache.usergrid.persistence.core.test.ITRunner;
+import org.apache.usergrid.persistence.core.test.UseModules;
+import org.apache.usergrid.persistence.model.entity.Entity;
+import org.apache.usergrid.persistence.model.entity.Id;
+import org.apache.usergrid.persistence.model.entity.SimpleId;
+import org.apache.usergrid.persistence.model.field.IntegerField;
+import org.apache.usergrid.persistence.model.field.StringField;
+import org.apache.usergrid.persistence.model.util.UUIDGenerator;
+
+import com.google.inject.Inject;
+import com.netflix.astyanax.Keyspace;
+import com.netflix.astyanax.connectionpool.exceptions.ConnectionException;
+
+import net.jcip.annotations.NotThreadSafe;
+
+import rx.Observable;
+
+import static org.apache.usergrid.persistence.core.util.IdGenerator.createId;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+
+/**
+ * Tests copying entities from the V3 JSON format to the V4 binary format
+ */
+@NotThreadSafe
+@RunWith( ITRunner.class )
+@UseModules( { TestCollectionModule.class } )
+public class MvccEntityBinaryDataMigrationImplTest implements DataMigrationResetRule.DataMigrationManagerProvider {
+
+
+    @Inject
+    @Rule
+    public MigrationManagerRule migrationManagerRule;
+
+
+    @Inject
+    public DataMigrationManager dataMigrationManager;
+
+
+    @Inject
+    public VersionedMigrationSet<MvccEntitySerializationStrategy> versions;
+
+
+    @Inject
+    public Keyspace keyspace;
+
+    @Inject
+    public MvccEntitySerializationStrategyV3Impl v3Impl;
+
+    @Inject
+    public MvccEntitySerializationStrategyV4Impl v4Impl;
+
+    /**
+     * Rule to do the resets we need
+     */
+    @Rule
+    public DataMigrationResetRule migrationTestRule =
+        new DataMigrationResetRule( this, CollectionMigrationPlugin.PLUGIN_NAME,
+            CollectionDataVersions.LOG_REMOVAL.getVersion() );
+
+
+    @Test
+    public void testMigration() throws ConnectionException {
+
+        final Id applicationId = createId( "application" );
+
+        ApplicationScope scope = new ApplicationScopeImpl( applicationId );
+
+        final MvccEntity entity1 = getEntity( "thing" );
+        final MvccEntity entity2 = getEntity( "thing" );
+
+
+        v3Impl.write( scope, entity1 ).execute();
+        v3Impl.write( scope, entity2 ).execute();
+
+
+        assertEquals( "Same entity", entity1, v3Impl.load( scope, entity1.getId() ).get() );
+        assertEquals( "Same entity", entity2, v3Impl.load( scope, entity2.getId() ).get() );
+
+        assertFalse( "Not in v4 yet", v4Impl.load( scope, entity1.getId() ).isPresent() );
+
+        final Observable<EntityIdScope> entityIdScope =
+            Observable.just( new EntityIdScope( scope, entity1.getId() ), new EntityIdScope( scope, entity2.getId() ) );
+
+
+        final MigrationDataProvider<EntityIdScope> migrationProvider = () -> entityIdScope;
+
+        final TestProgressObserver progressObserver = new TestProgressObserver();
+
+        final int startVersion = CollectionDataVersions.LOG_REMOVAL.getVersion();
+
+        final MigrationRelationship<MvccEntitySerializationStrategy> tuple =
+            versions.getMigrationRelationship( startVersion );
+
+
+        assertEquals( "Same instance for from", v3Impl.getClass(), tuple.from.getClass() );
+        assertEquals( "Same instance for to", v4Impl.getClass(), tuple.to.getClass() );
+
+
+        final MvccEntityBinaryDataMigrationImpl migration =
+            new MvccEntityBinaryDataMigrationImpl( keyspace, versions, v4Impl, migrationProvider );
+
+        assertTrue( "Supports v3", migration.supports( startVersion ) );
+        assertFalse( "Doesn't support v2", migration.supports( CollectionDataVersions.BUFFER_SHORT_FIX.getVersion() ) );
+        assertFalse( "Doesn't support v4", migration.supports( v4Impl.getImplementationVersion() ) );
+
+
+        //now migration
+        final int newVersion = migration.migrate( startVersion, progressObserver );
+
+
+        assertEquals( "Correct version returned", CollectionDataVersions.BINARY_ENTITY.getVersion(), newVersion );
+        assertFalse( "Progress observer should not have failed", progressObserver.isFailed() );
+        assertTrue( "Progress observer should have update messages", progressObserver.getUpdates().size() > 0 );
+
+
+        //now verify we can read the data correctly in the new version
+        final MvccEntity returned1 = v4Impl.load( scope, entity1.getId() ).get();
+        final MvccEntity returned2 = v4Impl.load( scope, entity2.getId() ).get();
+
+        assertEquals( "Same entity", entity1, returned1 );
+        assertEquals( "Same entity", entity2, returned2 );
+
+        //verify the tuple is correct
+
+        final MigrationRelationship<MvccEntitySerializationStrategy> newTuple =
+            versions.getMigrationRelationship( newVersion );
+
+
+        assertEquals( "Same instance for from", v4Impl.getClass(), newTuple.from.getClass() );
+        assertEquals( "Same instance for to", v4Impl.getClass(), newTuple.to.getClass() );
+    }
+
+
+    private MvccEntity getEntity( final String type ) {
+
+        final SimpleId entityId = new SimpleId( type );
+        final UUID version = UUIDGenerator.newTimeUUID();
+        final Entity entity = new Entity( entityId );
+
+        entity.setField( new StringField( "name", "name" + entityId.getUuid() ) );
+        entity.setField( new IntegerField( "count", 10 ) );
+
+        return new MvccEntityImpl( entityId, version, MvccEntity.Status.COMPLETE, entity );
+    }
+
+
+    @Override
+    public DataMigrationManager getDataMigrationManager() {
+        return dataMigrationManager;
+    }
+}
@@ -0,0 +1,235 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.usergrid.persistence.core.astyanax;
+
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.google.common.base.Preconditions;
+
+
+/**
+ * Reads ahead of the consumer of a column iterator.  The source is advanced on the executor, so the page query for the
+ * next page is in flight while the consumer is still working through the current one.  Elements are returned in the
+ * order of the source, so any merge the source performs with its comparator is unchanged.
+ *
+ * At most capacity elements are buffered.  The source is only advanced while there's room, and no thread is held
+ * waiting on the consumer, so an abandoned iterator costs nothing more than its buffer.  Nothing is read until the
+ * first call to hasNext, so an iterator that's never consumed never reads.
+ *
+ * When the executor rejects the read, the consumer advances the source itself only as far as the next element, the
+ * same as it would without read ahead, and tries the executor again the next time it runs out.
+ *
+ * @param <T> The parsed return type
+ */
+public class ReadAheadIterator<T> implements Iterator<T> {
+
+    /**
+     * Marks the end of the source
+     */
+    private static final Object END = new Object();
+
+    private final Iterator<T> source;
+    private final Executor executor;
+    private final int capacity;
+
+    /**
+     * Holds elements, the end marker, or a failure.  One larger than capacity so the end marker always fits
+     */
+    private final BlockingQueue<Object> buffer;
+
+    /**
+     * True while a task is advancing the source.  Only one task may touch the source at a time
+     */
+    private final AtomicBoolean reading = new AtomicBoolean();
+
+    /**
+     * True once the source has been exhausted or failed
+     */
+    private volatile boolean complete;
+
+    private Object next;
+
+
+    /**
+     * @param source The iterator to read ahead of
+     * @param executor The executor to advance the source on.  If it rejects the read, the consumer reads the next
+     * element itself.  It should reject rather than run the read in the calling thread
+     * @param capacity The max number of elements to buffer
+     */
+    public ReadAheadIterator( final Iterator<T> source, final Executor executor, final int capacity ) {
+        Preconditions.checkNotNull( source, "source is required" );
+        Preconditions.checkNotNull( executor, "executor is required" );
+        Preconditions.checkArgument( capacity > 0, "capacity must be greater than 0" );
+
+        this.source = source;
+        this.executor = executor;
+        this.capacity = capacity;
+        this.buffer = new LinkedBlockingQueue<>( capacity + 1 );
+    }
+
+
+    @Override
+    public boolean hasNext() {
+        if ( next == null ) {
+            next = take();
+        }
+
+        if ( next instanceof Failure ) {
+            throw ( ( Failure ) next ).cause;
+        }
+
+        return next != END;
+    }
+
+
+    @Override
+    @SuppressWarnings( "unchecked" )
+    public T next() {
+        if ( !hasNext() ) {
+            throw new NoSuchElementException( "No new element exists" );
+        }
+
+        final T element = ( T ) next;
+
+        next = null;
+
+        return element;
+    }
+
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException( "Remove is unsupported this is a read only iterator" );
+    }
+
+
+    /**
+     * Take the next element from the buffer, waiting for the reader if the buffer is empty
+     */
+    private Object take() {
+        Object element = buffer.poll();
+
+        if ( element == null ) {
+            //a reader is either running, or we start one or read the next element.  Either way something will be put
+            //in the buffer
+            readAhead( true );
+
+            try {
+                element = buffer.take();
+            }
+            catch ( InterruptedException e ) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException( "Interrupted waiting for the next page", e );
+            }
+        }
+
+        //keep the reader going once we've drained half the buffer
+        if ( buffer.size() <= capacity / 2 ) {
+            readAhead( false );
+        }
+
+        return element;
+    }
+
+
+    /**
+     * Start advancing the source on the executor, unless it's already being advanced or is complete
+     *
+     * @param waiting True if the consumer is waiting on an empty buffer
+     */
+    private void readAhead( final boolean waiting ) {
+        if ( complete || !reading.compareAndSet( false, true ) ) {
+            return;
+        }
+
+        try {
+            executor.execute( this::read );
+        }
+        catch ( RejectedExecutionException ree ) {
+            //no capacity to read ahead.  Read only what the consumer is waiting for in the calling thread, not the
+            //whole buffer
+            if ( waiting ) {
+                fill( 1 );
+            }
+
+            reading.set( false );
+        }
+    }
+
+
+    /**
+     * Advance the source until the buffer is full or the source is exhausted
+     */
+    private void read() {
+        do {
+            fill( capacity );
+
+            reading.set( false );
+
+            //the consumer may have drained the buffer after we saw it full, and before we cleared the flag.  If so
+            //it saw us reading and didn't start a reader, so we need to keep going
+        }
+        while ( !complete && buffer.size() < capacity && reading.compareAndSet( false, true ) );
+    }
+
+
+    /**
+     * Advance the source until the buffer holds limit elements or the source is exhausted
+     */
+    private void fill( final int limit ) {
+        try {
+            while ( !complete && buffer.size() < limit ) {
+                if ( !source.hasNext() ) {
+                    complete = true;
+                    buffer.add( END );
+                    return;
+                }
+
+                buffer.add( source.next() );
+            }
+        }
+        catch ( Throwable t ) {
+            //never leave the consumer waiting on a reader that died
+            complete = true;
+            buffer.add(
+                new Failure( t instanceof RuntimeException ? ( RuntimeException ) t : new RuntimeException( t ) ) );
+        }
+    }
+
+
+    /**
+     * A failure advancing the source, rethrown to the consumer in order
+     */
+    private static final class Failure {
+        private final RuntimeException cause;
+
+
+        private Failure( final RuntimeException cause ) {
+            this.cause = cause;
+        }
+    }
+}
@@ -20,6 +20,8 @@
 package org.apache.usergrid.persistence.core.datastax;
 
 
+import java.util.Map;
+
 import org.apache.usergrid.persistence.core.CassandraFig;
 
 public interface TableDefinition {
@@ -33,4 +35,10 @@ public interface TableDefinition {
     String getTableName();
 
     String getTableCQL( CassandraFig cassandraFig, ACTION tableAction ) throws Exception;
+
+    /**
+     * Columns added after the table was first created, by name with their CQL type.  The schema migration adds any of
+     * these missing from an existing table
+     */
+    Map<String, String> getAddedColumns();
 }
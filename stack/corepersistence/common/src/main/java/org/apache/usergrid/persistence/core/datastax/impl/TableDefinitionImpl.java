@@ -27,6 +27,7 @@ import org.apache.usergrid.persistence.core.datastax.TableDefinition;
 import org.apache.usergrid.persistence.core.util.StringUtils;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.StringJoiner;
@@ -171,6 +172,12 @@ public class TableDefinitionImpl implements TableDefinition {
     }
 
 
+    @Override
+    public Map<String, String> getAddedColumns() {
+        return Collections.emptyMap();
+    }
+
+
 
     public Collection<String> getPartitionKeys() {
         return partitionKeys;
@@ -19,6 +19,9 @@
 
 package org.apache.usergrid.persistence.core.datastax.impl;
 
+import java.util.Collections;
+import java.util.Map;
+
 import org.apache.usergrid.persistence.core.CassandraFig;
 import org.apache.usergrid.persistence.core.datastax.TableDefinition;
 
@@ -28,12 +31,20 @@ public class TableDefinitionStringImpl implements TableDefinition {
     private String keyspace;
     private String tableName;
     private String cql;
+    private Map<String, String> addedColumns;
 
 
     public TableDefinitionStringImpl( String keyspace, String tableName, String cql ) {
+        this( keyspace, tableName, cql, Collections.emptyMap() );
+    }
+
+
+    public TableDefinitionStringImpl( String keyspace, String tableName, String cql,
+                                      Map<String, String> addedColumns ) {
         this.keyspace = keyspace;
         this.tableName = tableName;
         this.cql = cql;
+        this.addedColumns = addedColumns;
     }
 
 
@@ -52,4 +63,10 @@ public class TableDefinitionStringImpl implements TableDefinition {
     public String getTableCQL(CassandraFig cassandraFig, ACTION tableAction) throws Exception {
         return cql;
     }
+
+
+    @Override
+    public Map<String, String> getAddedColumns() {
+        return addedColumns;
+    }
 }
@@ -24,6 +24,8 @@
 package org.apache.usergrid.persistence.core.migration.data;
 
 
+import com.google.common.base.Preconditions;
+
 /**
  * Simple relationship that defines the current state of the source and destination data versions.  Note that
  * ina current system, the from and then to will be the same instance
@@ -38,6 +40,7 @@ public class MigrationRelationship<T extends VersionedData> {
 
     private final int fromVersion;
     private final int toVersion;
+    private final boolean needsMigration;
 
 
     public MigrationRelationship( T from, T to ) {
@@ -46,6 +49,34 @@ public class MigrationRelationship<T extends VersionedData> {
 
         fromVersion = from.getImplementationVersion();
         toVersion = to.getImplementationVersion();
+        needsMigration = fromVersion != toVersion;
+    }
+
+
+    private MigrationRelationship( final T current, final int toVersion ) {
+        this.from = current;
+        this.to = current;
+
+        this.fromVersion = current.getImplementationVersion();
+        this.toVersion = toVersion;
+        this.needsMigration = false;
+    }
+
+
+    /**
+     * Create a current relationship for data that is left unchanged while other data in the same plugin migrates
+     * up to the given system version.  The current implementation is used for every version in that range, and no
+     * dual writes are performed
+     *
+     * @param current The implementation that remains current
+     * @param toVersion The highest system version the implementation remains current through
+     */
+    public static <T extends VersionedData> MigrationRelationship<T> currentThrough( final T current,
+                                                                                   final int toVersion ) {
+        Preconditions.checkArgument( toVersion >= current.getImplementationVersion(),
+            "toVersion must be >= the implementation version" );
+
+        return new MigrationRelationship<>( current, toVersion );
     }
 
 
@@ -54,7 +85,7 @@ public class MigrationRelationship<T extends VersionedData> {
      * @return
      */
     public boolean needsMigration(){
-        return fromVersion != toVersion;
+        return needsMigration;
     }
 
 
@@ -21,6 +21,8 @@ package org.apache.usergrid.persistence.core.migration.schema;
 
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
+import com.datastax.driver.core.Session;
+import com.datastax.driver.core.TableMetadata;
 import com.netflix.astyanax.Keyspace;
 import com.netflix.astyanax.connectionpool.exceptions.ConnectionException;
 import com.netflix.astyanax.ddl.ColumnFamilyDefinition;
@@ -159,6 +161,7 @@ public class MigrationManagerImpl implements MigrationManager {
 
         if( exists ){
             logger.info("Not creating table {}, it already exists.", tableDefinition.getTableName());
+            addColumns(tableDefinition, forceCheckSchema);
             return;
         }
 
@@ -167,17 +170,60 @@ public class MigrationManagerImpl implements MigrationManager {
             logger.debug(CQL);
         }
 
-        if ( tableDefinition.getKeyspace().equals( cassandraFig.getApplicationKeyspace() )) {
-            dataStaxCluster.getApplicationSession().execute( CQL );
-        } else {
-            dataStaxCluster.getApplicationLocalSession().execute( CQL );
-        }
+        getSession( tableDefinition ).execute( CQL );
 
         logger.info("Created table: {} in keyspace {}",
             tableDefinition.getTableName(), tableDefinition.getKeyspace());
 
     }
 
+    /**
+     * Add the columns added to the table since it was created, which CREATE TABLE IF NOT EXISTS never adds to a table
+     * created by an earlier version
+     */
+    private void addColumns(TableDefinition tableDefinition, boolean forceCheckSchema) {
+
+        final String tableName = CQLUtils.unquote( tableDefinition.getTableName() );
+
+        for ( Map.Entry<String, String> column : tableDefinition.getAddedColumns().entrySet() ) {
+
+            final boolean exists;
+            if(!forceCheckSchema){
+                final TableMetadata table = dataStaxCluster.getClusterSession().getCluster()
+                    .getMetadata()
+                    .getKeyspace(CQLUtils.quote( tableDefinition.getKeyspace() ) )
+                    .getTable( tableDefinition.getTableName() );
+                exists = table.getColumn( column.getKey() ) != null;
+            }else{
+                exists = dataStaxCluster.getClusterSession()
+                    .execute("select * from system.schema_columns where keyspace_name='"+tableDefinition.getKeyspace()
+                        +"' and columnfamily_name='"+tableName+"' and column_name='"+column.getKey()+"'").one() != null;
+            }
+
+            if ( exists ) {
+                continue;
+            }
+
+            final String CQL = "ALTER TABLE " + tableName + " ADD " + column.getKey() + " " + column.getValue();
+            if (logger.isDebugEnabled()) {
+                logger.debug(CQL);
+            }
+
+            getSession( tableDefinition ).execute( CQL );
+
+            logger.info("Added column {} to table {} in keyspace {}", column.getKey(), tableName,
+                tableDefinition.getKeyspace());
+        }
+    }
+
+    private Session getSession(TableDefinition tableDefinition) {
+        if ( tableDefinition.getKeyspace().equals( cassandraFig.getApplicationKeyspace() )) {
+            return dataStaxCluster.getApplicationSession();
+        }
+
+        return dataStaxCluster.getApplicationLocalSession();
+    }
+
     private void astyanaxWaitForSchemaAgreement() throws ConnectionException {
 
         while ( true ) {
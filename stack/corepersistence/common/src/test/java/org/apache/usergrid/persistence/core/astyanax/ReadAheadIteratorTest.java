@@ -0,0 +1,211 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.usergrid.persistence.core.astyanax;
+
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+
+public class ReadAheadIteratorTest {
+
+    private ExecutorService executor;
+
+
+    @Before
+    public void setup() {
+        executor = Executors.newFixedThreadPool( 2 );
+    }
+
+
+    @After
+    public void shutDown() {
+        executor.shutdownNow();
+    }
+
+
+    @Test
+    public void preservesOrder() {
+
+        final int size = 10000;
+
+        final Iterator<Integer> iterator = new ReadAheadIterator<>( new CountingIterator( size ), executor, 100 );
+
+        for ( int i = 0; i < size; i++ ) {
+            assertTrue( "Element present", iterator.hasNext() );
+            assertEquals( "Elements in source order", i, iterator.next().intValue() );
+        }
+
+        assertFalse( "Source exhausted", iterator.hasNext() );
+        assertFalse( "Still exhausted", iterator.hasNext() );
+    }
+
+
+    @Test
+    public void emptySource() {
+
+        final Iterator<Integer> iterator =
+            new ReadAheadIterator<>( Collections.<Integer>emptyIterator(), executor, 10 );
+
+        assertFalse( "Nothing to return", iterator.hasNext() );
+
+        try {
+            iterator.next();
+            fail( "next should fail on an exhausted iterator" );
+        }
+        catch ( NoSuchElementException nse ) {
+            //expected
+        }
+    }
+
+
+    @Test
+    public void boundedReadAhead() throws InterruptedException {
+
+        final int capacity = 10;
+
+        final CountingIterator source = new CountingIterator( 1000 );
+
+        final Iterator<Integer> iterator = new ReadAheadIterator<>( source, executor, capacity );
+
+        assertEquals( 0, iterator.next().intValue() );
+
+        //give the reader time to fill the buffer
+        Thread.sleep( 500 );
+
+        //we've consumed 1, we should never read more than the buffer ahead of that
+        assertTrue( "Read ahead is bounded", source.read.get() <= capacity + 1 );
+    }
+
+
+    @Test
+    public void readsOnFirstUse() throws InterruptedException {
+
+        final CountingIterator source = new CountingIterator( 1000 );
+
+        final Iterator<Integer> iterator = new ReadAheadIterator<>( source, executor, 10 );
+
+        Thread.sleep( 100 );
+
+        assertEquals( "Nothing read before the first hasNext", 0, source.read.get() );
+
+        assertEquals( 0, iterator.next().intValue() );
+    }
+
+
+    @Test
+    public void rejectedReadsOnlyNext() {
+
+        final CountingIterator source = new CountingIterator( 100 );
+
+        final Executor rejecting = command -> {
+            throw new RejectedExecutionException( "No capacity" );
+        };
+
+        final Iterator<Integer> iterator = new ReadAheadIterator<>( source, rejecting, 10 );
+
+        for ( int i = 0; i < 100; i++ ) {
+            assertEquals( "Elements in source order", i, iterator.next().intValue() );
+            assertEquals( "Only what the consumer needs is read inline", i + 1, source.read.get() );
+        }
+
+        assertFalse( "Source exhausted", iterator.hasNext() );
+    }
+
+
+    @Test
+    public void failurePropagated() {
+
+        final Iterator<Integer> source = new CountingIterator( 100 ) {
+            @Override
+            public Integer next() {
+                final Integer next = super.next();
+
+                if ( next == 5 ) {
+                    throw new IllegalStateException( "Unable to read page" );
+                }
+
+                return next;
+            }
+        };
+
+        final Iterator<Integer> iterator = new ReadAheadIterator<>( source, executor, 3 );
+
+        for ( int i = 0; i < 5; i++ ) {
+            assertEquals( "Elements before the failure returned", i, iterator.next().intValue() );
+        }
+
+        try {
+            iterator.hasNext();
+            fail( "Failure should be thrown to the consumer" );
+        }
+        catch ( IllegalStateException ise ) {
+            assertEquals( "Unable to read page", ise.getMessage() );
+        }
+    }
+
+
+    /**
+     * Returns the integers from 0 to size, counting how many were read
+     */
+    private static class CountingIterator implements Iterator<Integer> {
+
+        private final int size;
+        private final AtomicInteger read = new AtomicInteger();
+
+
+        private CountingIterator( final int size ) {
+            this.size = size;
+        }
+
+
+        @Override
+        public boolean hasNext() {
+            return read.get() < size;
+        }
+
+
+        @Override
+        public Integer next() {
+            return read.getAndIncrement();
+        }
+
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException( "Remove is unsupported" );
+        }
+    }
+}
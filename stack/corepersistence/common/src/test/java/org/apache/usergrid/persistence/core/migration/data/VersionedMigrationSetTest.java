@@ -31,6 +31,8 @@ import org.apache.usergrid.persistence.core.migration.data.VersionedData;
 import org.apache.usergrid.persistence.core.migration.data.VersionedMigrationSet;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 
@@ -169,6 +171,40 @@ public class VersionedMigrationSetTest {
     }
 
 
+    /**
+     * Data that migrated from 1 to 2, then remains current while other data in the same plugin migrates to 3.  2 and
+     * 3 should both resolve to the current relationship, without dual writes
+     */
+    @Test
+    public void currentThrough() {
+        final TestVersionImpl v2 = new TestVersionImpl( 2 );
+
+        final MigrationRelationship<TestVersionImpl> relationship1_2 =
+                new MigrationRelationship<>( new TestVersionImpl( 1 ), v2 );
+
+        final MigrationRelationship<TestVersionImpl> current = MigrationRelationship.currentThrough( v2, 3 );
+
+        final VersionedMigrationSet<TestVersionImpl> set = new VersionedMigrationSet<>( relationship1_2, current );
+
+        assertEquals( relationship1_2, set.getMigrationRelationship( 1 ) );
+        assertTrue( set.getMigrationRelationship( 1 ).needsMigration() );
+
+        assertEquals( current, set.getMigrationRelationship( 2 ) );
+        assertFalse( set.getMigrationRelationship( 2 ).needsMigration() );
+
+        assertEquals( current, set.getMigrationRelationship( 3 ) );
+        assertFalse( set.getMigrationRelationship( 3 ).needsMigration() );
+
+        try {
+            set.getMigrationRelationship( 4 );
+            fail( "I should throw an exception" );
+        }
+        catch ( IllegalArgumentException iae ) {
+            //swallow, it's outside the range
+        }
+    }
+
+
     @Test( expected = IllegalArgumentException.class )
     public void testNoInput() {
         new VersionedMigrationSet<TestVersionImpl>();
@@ -90,14 +90,68 @@ public interface GraphFig extends GuicyFig {
     String SHARD_MIN_DELTA = "usergrid.graph.shard.min.delta";
 
 
+    /**
+     * The number of shard count increments buffered before they're flushed
+     */
     String COUNTER_WRITE_FLUSH_COUNT = "usergrid.graph.shard.counter.beginFlush.count";
 
+    /**
+     * The max time (in millis) shard count increments are buffered before they're flushed
+     */
     String COUNTER_WRITE_FLUSH_INTERVAL = "usergrid.graph.shard.counter.beginFlush.interval";
 
     String COUNTER_WRITE_FLUSH_QUEUE_SIZE = "usergrid.graph.shard.counter.queue.size";
 
     String SMART_SHARD_SEEK_ENABLED = "usergrid.graph.smartshard.seek.enabled";
 
+    /**
+     * The max number of edges merged into a single mutation when edges are written in bulk
+     */
+    String WRITE_BATCH_SIZE = "usergrid.graph.write.batch.size";
+
+    /**
+     * The number of bulk edge mutations that can execute concurrently
+     */
+    String WRITE_CONCURRENCY = "usergrid.graph.write.concurrency";
+
+    /**
+     * Enable the local cache of edge meta data already written, so repeated edge types aren't re-written
+     */
+    String EDGE_META_CACHE_ENABLED = "usergrid.graph.edge.meta.cache.enabled";
+
+    /**
+     * The max number of nodes to cache written edge meta data for
+     */
+    String EDGE_META_CACHE_SIZE = "usergrid.graph.edge.meta.cache.size";
+
+    /**
+     * The max time (in millis) written edge meta data is cached.  Meta data repaired on another node is only seen
+     * here once the entry expires, so keep this short
+     */
+    String EDGE_META_CACHE_TIMEOUT = "usergrid.graph.edge.meta.cache.timeout";
+
+    /**
+     * The chance a shard audit of a node's edges also recounts them exactly and repairs the node's edge count.  The
+     * recount reads every edge of the node and type, so keep this low
+     */
+    String EDGE_COUNT_REPAIR_CHANCE = "usergrid.graph.edge.count.repair.chance";
+
+    /**
+     * The number of pages to read ahead of the consumer when iterating edges.  0 disables read ahead, and pages are
+     * only read once the previous page has been consumed
+     */
+    String READ_AHEAD_PAGES = "usergrid.graph.read.ahead.pages";
+
+    /**
+     * The max number of edges buffered by a single read ahead iterator, regardless of the page count
+     */
+    String READ_AHEAD_MAX_EDGES = "usergrid.graph.read.ahead.max.edges";
+
+    /**
+     * The number of threads reading ahead.  When all are busy, iterators read their own pages
+     */
+    String READ_AHEAD_WORKERS = "usergrid.graph.read.ahead.worker.count";
+
 
 
 
@@ -171,5 +225,49 @@ public interface GraphFig extends GuicyFig {
     boolean getSmartShardSeekEnabled();
 
 
-}
+    @Default("100")
+    @Key(WRITE_BATCH_SIZE)
+    int getWriteBatchSize();
+
+
+    @Default("4")
+    @Key(WRITE_CONCURRENCY)
+    int getWriteConcurrency();
+
+
+    @Default("true")
+    @Key(EDGE_META_CACHE_ENABLED)
+    boolean getEdgeMetaCacheEnabled();
+
+
+    @Default("10000")
+    @Key(EDGE_META_CACHE_SIZE)
+    long getEdgeMetaCacheSize();
 
+
+    @Default("30000")
+    @Key(EDGE_META_CACHE_TIMEOUT)
+    long getEdgeMetaCacheTimeout();
+
+
+    @Default(".01")
+    @Key(EDGE_COUNT_REPAIR_CHANCE)
+    double getEdgeCountRepairChance();
+
+
+    @Default("0")
+    @Key(READ_AHEAD_PAGES)
+    int getReadAheadPages();
+
+
+    @Default("5000")
+    @Key(READ_AHEAD_MAX_EDGES)
+    int getReadAheadMaxEdges();
+
+
+    @Default("20")
+    @Key(READ_AHEAD_WORKERS)
+    int getReadAheadWorkerCount();
+
+
+}
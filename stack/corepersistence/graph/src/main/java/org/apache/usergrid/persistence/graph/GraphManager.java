@@ -20,6 +20,8 @@
 package org.apache.usergrid.persistence.graph;
 
 
+import java.util.Collection;
+
 import org.apache.usergrid.persistence.core.CPManager;
 import org.apache.usergrid.persistence.model.entity.Id;
 
@@ -62,6 +64,27 @@ public interface GraphManager extends CPManager {
     Observable<MarkedEdge> writeEdge( Edge edge );
 
 
+    /**
+     * Create or update many edges.  Edges are merged into bounded mutations, and those mutations are executed
+     * concurrently, so this costs far fewer round trips than calling {@link #writeEdge(Edge)} for each edge.  Edges
+     * are emitted once written, in no particular order.
+     *
+     * @param edges The edges to write
+     */
+    Observable<MarkedEdge> writeEdges( Observable<Edge> edges );
+
+
+    /**
+     * Create or update many edges.  Edges with the same source node and type are written together, so their
+     * mutations touch as few rows as possible.
+     *
+     * @param edges The edges to write
+     *
+     * @see #writeEdges(Observable)
+     */
+    Observable<MarkedEdge> writeEdges( Collection<Edge> edges );
+
+
     /**
      * @param edge Mark the edge as deleted in the graph
      *
@@ -142,6 +165,34 @@ public interface GraphManager extends CPManager {
      */
     Observable<MarkedEdge> loadEdgesToTargetByType( SearchByIdType search );
 
+
+    /**
+     * Count the edges of the type where the specified node is the source node.  The count is maintained as edges are
+     * written, marked and removed, so this is a single read regardless of how many edges the node has.  Counts are
+     * not transactional with edge writes, and are periodically recounted, so they may briefly drift from the edges
+     * emitted by {@link #loadEdgesFromSource(SearchByEdgeType)}.  A node and type never counted before emits 0 while
+     * its count is seeded in the background
+     *
+     * @param sourceNode The source node
+     * @param edgeType The type of the edges
+     *
+     * @return An observable that emits the count of unmarked edges
+     */
+    Observable<Long> countEdgesFromSource( Id sourceNode, String edgeType );
+
+
+    /**
+     * Count the edges of the type where the specified node is the target node.
+     *
+     * @param targetNode The target node
+     * @param edgeType The type of the edges
+     *
+     * @return An observable that emits the count of unmarked edges
+     *
+     * @see #countEdgesFromSource(Id, String)
+     */
+    Observable<Long> countEdgesToTarget( Id targetNode, String edgeType );
+
     /**
      * Get all edge types to this node.  The node provided by search is the target node.
      *
@@ -20,9 +20,15 @@
 package org.apache.usergrid.persistence.graph.impl;
 
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 import org.slf4j.Logger;
@@ -44,13 +50,18 @@ import org.apache.usergrid.persistence.graph.SearchEdgeType;
 import org.apache.usergrid.persistence.graph.SearchIdType;
 import org.apache.usergrid.persistence.graph.impl.stage.EdgeDeleteListener;
 import org.apache.usergrid.persistence.graph.impl.stage.NodeDeleteListener;
+import org.apache.usergrid.persistence.graph.serialization.EdgeCountSerialization;
+import org.apache.usergrid.persistence.graph.serialization.EdgeMetadataCache;
 import org.apache.usergrid.persistence.graph.serialization.EdgeMetadataSerialization;
 import org.apache.usergrid.persistence.graph.serialization.EdgeSerialization;
 import org.apache.usergrid.persistence.graph.serialization.NodeSerialization;
+import org.apache.usergrid.persistence.graph.serialization.impl.shard.DirectedEdgeMeta;
+import org.apache.usergrid.persistence.graph.serialization.impl.shard.ShardGroupCompaction;
 import org.apache.usergrid.persistence.graph.serialization.util.GraphValidation;
 import org.apache.usergrid.persistence.model.entity.Id;
 import org.apache.usergrid.persistence.model.util.UUIDGenerator;
 
+import com.codahale.metrics.Histogram;
 import com.codahale.metrics.Timer;
 import com.google.common.base.Optional;
 import com.google.common.base.Preconditions;
@@ -59,6 +70,7 @@ import com.netflix.astyanax.MutationBatch;
 import com.netflix.astyanax.connectionpool.exceptions.ConnectionException;
 
 import rx.Observable;
+import rx.schedulers.Schedulers;
 
 
 /**
@@ -68,10 +80,21 @@ public class GraphManagerImpl implements GraphManager {
 
     private static final Logger logger = LoggerFactory.getLogger( GraphManagerImpl.class );
 
+    /**
+     * Orders edges by the rows they are written to, source node then edge type
+     */
+    private static final Comparator<Edge> EDGE_ROW_ORDER =
+        Comparator.comparing( ( Edge edge ) -> edge.getSourceNode().getUuid() )
+                  .thenComparing( edge -> edge.getSourceNode().getType() ).thenComparing( Edge::getType );
+
     private final ApplicationScope scope;
 
     private final EdgeMetadataSerialization edgeMetadataSerialization;
 
+    private final EdgeMetadataCache edgeMetadataCache;
+
+    private final EdgeCountSerialization edgeCountSerialization;
+    private final ShardGroupCompaction shardGroupCompaction;
 
     private final EdgeSerialization storageEdgeSerialization;
 
@@ -80,6 +103,8 @@ public class GraphManagerImpl implements GraphManager {
     private final EdgeDeleteListener edgeDeleteListener;
     private final NodeDeleteListener nodeDeleteListener;
     private final Timer writeEdgeTimer;
+    private final Timer writeEdgesTimer;
+    private final Histogram writeEdgesBatchSize;
     private final Timer markEdgeTimer;
     private final Timer markNodeTimer;
     private final Timer loadEdgesFromSourceTimer;
@@ -87,6 +112,8 @@ public class GraphManagerImpl implements GraphManager {
     private final Timer loadEdgesVersionsTimer;
     private final Timer loadEdgesFromSourceByTypeTimer;
     private final Timer loadEdgesToTargetByTypeTimer;
+    private final Timer countEdgesFromSourceTimer;
+    private final Timer countEdgesToTargetTimer;
     private final Timer getEdgeTypesFromSourceTimer;
     private final Timer getIdTypesFromSourceTimer;
     private final Timer getEdgeTypesToTargetTimer;
@@ -100,6 +127,9 @@ public class GraphManagerImpl implements GraphManager {
 
     @Inject
     public GraphManagerImpl( final EdgeMetadataSerialization edgeMetadataSerialization,
+                             final EdgeMetadataCache edgeMetadataCache,
+                             final EdgeCountSerialization edgeCountSerialization,
+                             final ShardGroupCompaction shardGroupCompaction,
                              final EdgeSerialization storageEdgeSerialization,
                              final NodeSerialization nodeSerialization, final GraphFig graphFig,
                              final EdgeDeleteListener edgeDeleteListener, final NodeDeleteListener nodeDeleteListener,
@@ -108,6 +138,9 @@ public class GraphManagerImpl implements GraphManager {
 
         ValidationUtils.validateApplicationScope( scope );
         Preconditions.checkNotNull( edgeMetadataSerialization, "edgeMetadataSerialization must not be null" );
+        Preconditions.checkNotNull( edgeMetadataCache, "edgeMetadataCache must not be null" );
+        Preconditions.checkNotNull( edgeCountSerialization, "edgeCountSerialization must not be null" );
+        Preconditions.checkNotNull( shardGroupCompaction, "shardGroupCompaction must not be null" );
         Preconditions.checkNotNull( storageEdgeSerialization, "storageEdgeSerialization must not be null" );
         Preconditions.checkNotNull( nodeSerialization, "nodeSerialization must not be null" );
         Preconditions.checkNotNull( graphFig, "consistencyFig must not be null" );
@@ -116,6 +149,9 @@ public class GraphManagerImpl implements GraphManager {
 
         this.scope = scope;
         this.edgeMetadataSerialization = edgeMetadataSerialization;
+        this.edgeMetadataCache = edgeMetadataCache;
+        this.edgeCountSerialization = edgeCountSerialization;
+        this.shardGroupCompaction = shardGroupCompaction;
         this.storageEdgeSerialization = storageEdgeSerialization;
         this.nodeSerialization = nodeSerialization;
         this.graphFig = graphFig;
@@ -125,6 +161,8 @@ public class GraphManagerImpl implements GraphManager {
         this.markNodeTimer = metricsFactory.getTimer( GraphManagerImpl.class, "node.mark" );
         this.deleteNodeTimer = metricsFactory.getTimer( GraphManagerImpl.class, "node.delete" );
         this.writeEdgeTimer = metricsFactory.getTimer( GraphManagerImpl.class, "edge.write" );
+        this.writeEdgesTimer = metricsFactory.getTimer( GraphManagerImpl.class, "edge.write_bulk" );
+        this.writeEdgesBatchSize = metricsFactory.getHistogram( GraphManagerImpl.class, "edge.write_bulk.batch_size" );
 
         this.markEdgeTimer = metricsFactory.getTimer( GraphManagerImpl.class, "edge.mark" );
         this.deleteEdgeTimer = metricsFactory.getTimer( GraphManagerImpl.class, "edge.delete" );
@@ -133,6 +171,8 @@ public class GraphManagerImpl implements GraphManager {
         this.loadEdgesVersionsTimer = metricsFactory.getTimer( GraphManagerImpl.class, "edge.load_versions" );
         this.loadEdgesFromSourceByTypeTimer = metricsFactory.getTimer( GraphManagerImpl.class, "edge.load_from_type" );
         this.loadEdgesToTargetByTypeTimer = metricsFactory.getTimer( GraphManagerImpl.class, "edge.load_to_type" );
+        this.countEdgesFromSourceTimer = metricsFactory.getTimer( GraphManagerImpl.class, "edge.count_from" );
+        this.countEdgesToTargetTimer = metricsFactory.getTimer( GraphManagerImpl.class, "edge.count_to" );
         this.getEdgeTypesFromSourceTimer = metricsFactory.getTimer( GraphManagerImpl.class, "edge.get_edge_from" );
         this.getEdgeTypesToTargetTimer = metricsFactory.getTimer( GraphManagerImpl.class, "edge.get_to" );
 
@@ -153,12 +193,14 @@ public class GraphManagerImpl implements GraphManager {
 
             final UUID timestamp = UUIDGenerator.newTimeUUID();
 
+            final MutationBatch mutation = storageEdgeSerialization.writeEdge( scope, edge1, timestamp );
 
-            final MutationBatch mutation = edgeMetadataSerialization.writeEdge( scope, edge1 );
-
-            final MutationBatch edgeMutation = storageEdgeSerialization.writeEdge( scope, edge1, timestamp );
+            //only write the meta data if we haven't already written these types for both nodes
+            final boolean metaWritten = edgeMetadataCache.isWritten( scope, edge1 );
 
-            mutation.mergeShallow( edgeMutation );
+            if ( !metaWritten ) {
+                mutation.mergeShallow( edgeMetadataSerialization.writeEdge( scope, edge1 ) );
+            }
 
             try {
                 mutation.execute();
@@ -167,6 +209,14 @@ public class GraphManagerImpl implements GraphManager {
                 throw new RuntimeException( "Unable to execute mutation", e );
             }
 
+            if ( !metaWritten ) {
+                edgeMetadataCache.markWritten( scope, edge1 );
+            }
+
+            storageEdgeSerialization.countEdge( scope, edge1 );
+
+            incrementCounts( Collections.singletonList( edge1 ), 1 );
+
             return edge1;
         } );
 
@@ -174,6 +224,102 @@ public class GraphManagerImpl implements GraphManager {
     }
 
 
+    @Override
+    public Observable<MarkedEdge> writeEdges( final Observable<Edge> edges ) {
+        Preconditions.checkNotNull( edges, "edges must not be null" );
+
+        final int batchSize = graphFig.getWriteBatchSize();
+        final int concurrency = graphFig.getWriteConcurrency();
+
+        final Observable<MarkedEdge> observable = edges.map( edge -> {
+            GraphValidation.validateEdge( edge );
+
+            return ( MarkedEdge ) new SimpleMarkedEdge( edge, false );
+        } ).buffer( batchSize ).flatMap( batch -> Observable.just( batch ).map( this::writeEdgeBatch )
+            .flatMap( Observable::from ).subscribeOn( Schedulers.io() ), concurrency );
+
+        return ObservableTimer.time( observable, writeEdgesTimer );
+    }
+
+
+    @Override
+    public Observable<MarkedEdge> writeEdges( final Collection<Edge> edges ) {
+        Preconditions.checkNotNull( edges, "edges must not be null" );
+
+        //order the edges so each batch holds edges from the same source rows
+        final List<Edge> ordered = new ArrayList<>( edges );
+        ordered.sort( EDGE_ROW_ORDER );
+
+        return writeEdges( Observable.from( ordered ) );
+    }
+
+
+    /**
+     * Write the batch of edges in a single mutation.  Mutations to the same row key are merged, so edges that share a
+     * source or target node and type cost a single row write.  Meta data already written is skipped
+     */
+    private List<MarkedEdge> writeEdgeBatch( final List<MarkedEdge> edges ) {
+
+        final MutationBatch mutation =
+            storageEdgeSerialization.writeEdge( scope, edges.get( 0 ), UUIDGenerator.newTimeUUID() );
+
+        final List<MarkedEdge> metaEdges = new ArrayList<>( edges.size() );
+
+        //the same edge twice in the batch is only counted once
+        final Set<MarkedEdge> countedEdges = new LinkedHashSet<>( edges );
+
+        for ( int i = 0; i < edges.size(); i++ ) {
+            final MarkedEdge edge = edges.get( i );
+
+            if ( i > 0 ) {
+                mutation.mergeShallow( storageEdgeSerialization.writeEdge( scope, edge, UUIDGenerator.newTimeUUID() ) );
+            }
+
+            if ( !edgeMetadataCache.isWritten( scope, edge ) ) {
+                mutation.mergeShallow( edgeMetadataSerialization.writeEdge( scope, edge ) );
+                metaEdges.add( edge );
+            }
+        }
+
+        try {
+            mutation.execute();
+        }
+        catch ( ConnectionException e ) {
+            throw new RuntimeException( "Unable to execute mutation", e );
+        }
+
+        for ( final MarkedEdge edge : metaEdges ) {
+            edgeMetadataCache.markWritten( scope, edge );
+        }
+
+        for ( final MarkedEdge edge : edges ) {
+            storageEdgeSerialization.countEdge( scope, edge );
+        }
+
+        incrementCounts( countedEdges, 1 );
+
+        writeEdgesBatchSize.update( edges.size() );
+
+        return edges;
+    }
+
+
+    /**
+     * Add the delta to the edge counts of the edges.  Counters aren't idempotent, so they're written only once the
+     * edges have been written, and never retried with them.  Rewrites of unmarked edges and re-marks are counted
+     * again rather than reading every edge first.  That drift, and any failure logged here, is repaired by the next
+     * recount in shard compaction
+     */
+    private void incrementCounts( final Collection<? extends Edge> edges, final long delta ) {
+        try {
+            edgeCountSerialization.incrementCounts( scope, edges, delta ).execute();
+        }
+        catch ( ConnectionException e ) {
+            logger.warn( "Unable to update edge counts for {} edges", edges.size(), e );
+        }
+    }
+
+
     @Override
     public Observable<MarkedEdge> markEdge( final Edge edge ) {
         GraphValidation.validateEdge( edge );
@@ -184,7 +330,6 @@ public class GraphManagerImpl implements GraphManager {
 
             final UUID timestamp = UUIDGenerator.newTimeUUID();
 
-
             final MutationBatch edgeMutation = storageEdgeSerialization.writeEdge( scope, edge1, timestamp );
 
 
@@ -198,6 +343,8 @@ public class GraphManagerImpl implements GraphManager {
                 throw new RuntimeException( "Unable to execute mutation", e );
             }
 
+            incrementCounts( Collections.singletonList( edge1 ), -1 );
+
 
             return edge1;
         } );
@@ -355,6 +502,47 @@ public class GraphManagerImpl implements GraphManager {
     }
 
 
+    @Override
+    public Observable<Long> countEdgesFromSource( final Id sourceNode, final String edgeType ) {
+        ValidationUtils.verifyIdentity( sourceNode );
+        ValidationUtils.verifyString( edgeType, "edgeType" );
+
+        final Observable<Long> count = Observable.just( DirectedEdgeMeta.fromSourceNode( sourceNode, edgeType ) )
+                                                 .map( this::getCount );
+
+        return ObservableTimer.time( count, countEdgesFromSourceTimer );
+    }
+
+
+    @Override
+    public Observable<Long> countEdgesToTarget( final Id targetNode, final String edgeType ) {
+        ValidationUtils.verifyIdentity( targetNode );
+        ValidationUtils.verifyString( edgeType, "edgeType" );
+
+        final Observable<Long> count = Observable.just( DirectedEdgeMeta.fromTargetNode( targetNode, edgeType ) )
+                                                 .map( this::getCount );
+
+        return ObservableTimer.time( count, countEdgesToTargetTimer );
+    }
+
+
+    /**
+     * Get the maintained count.  A count that has never been recounted doesn't include edges written before counts
+     * were kept, so it's seeded by a recount in the background, and 0 is returned until that completes
+     */
+    private long getCount( final DirectedEdgeMeta meta ) {
+        final Optional<Long> count = edgeCountSerialization.getCount( scope, meta );
+
+        if ( count.isPresent() ) {
+            return count.get();
+        }
+
+        shardGroupCompaction.recountEdges( scope, meta );
+
+        return 0;
+    }
+
+
     @Override
     public Observable<String> getEdgeTypesFromSource( final SearchEdgeType search ) {
         final Observable<String> edgeTypes =
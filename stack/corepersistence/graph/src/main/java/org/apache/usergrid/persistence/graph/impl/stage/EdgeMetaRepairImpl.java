@@ -37,6 +37,7 @@ import org.apache.usergrid.persistence.graph.MarkedEdge;
 import org.apache.usergrid.persistence.graph.SearchByEdgeType;
 import org.apache.usergrid.persistence.graph.impl.SimpleSearchByIdType;
 import org.apache.usergrid.persistence.graph.impl.SimpleSearchIdType;
+import org.apache.usergrid.persistence.graph.serialization.EdgeMetadataCache;
 import org.apache.usergrid.persistence.graph.serialization.EdgeMetadataSerialization;
 import org.apache.usergrid.persistence.graph.serialization.EdgeSerialization;
 import org.apache.usergrid.persistence.graph.serialization.util.GraphValidation;
@@ -65,23 +66,27 @@ public class EdgeMetaRepairImpl implements EdgeMetaRepair {
     private static final Log RX_LOG = new Log();
 
     private final EdgeMetadataSerialization edgeMetadataSerialization;
+    private final EdgeMetadataCache edgeMetadataCache;
     private final EdgeSerialization storageEdgeSerialization;
     private final Keyspace keyspace;
     private final GraphFig graphFig;
 
 
     @Inject
-    public EdgeMetaRepairImpl( final EdgeMetadataSerialization edgeMetadataSerialization, final Keyspace keyspace,
+    public EdgeMetaRepairImpl( final EdgeMetadataSerialization edgeMetadataSerialization,
+                               final EdgeMetadataCache edgeMetadataCache, final Keyspace keyspace,
                                final GraphFig graphFig, final EdgeSerialization storageEdgeSerialization ) {
 
 
         Preconditions.checkNotNull( "edgeMetadataSerialization is required", edgeMetadataSerialization );
+        Preconditions.checkNotNull( "edgeMetadataCache is required", edgeMetadataCache );
         Preconditions.checkNotNull( "storageEdgeSerialization is required", storageEdgeSerialization );
         Preconditions.checkNotNull( "consistencyFig is required", graphFig );
         Preconditions.checkNotNull( "cassandraConfig is required", graphFig );
         Preconditions.checkNotNull( "keyspace is required", keyspace );
 
         this.edgeMetadataSerialization = edgeMetadataSerialization;
+        this.edgeMetadataCache = edgeMetadataCache;
         this.keyspace = keyspace;
         this.graphFig = graphFig;
         this.storageEdgeSerialization = storageEdgeSerialization;
@@ -184,6 +189,8 @@ public class EdgeMetaRepairImpl implements EdgeMetaRepair {
                                                          edgeType, batch.getRowCount());
                                              }
 
+                                             final boolean removed = !batch.isEmpty();
+
                                              try {
                                                  batch.execute();
                                              }
@@ -191,6 +198,11 @@ public class EdgeMetaRepairImpl implements EdgeMetaRepair {
                                                  throw new RuntimeException(
                                                      "Unable to connect to casandra", e );
                                              }
+
+                                             //sub types were removed, writes must re-write them
+                                             if ( removed ) {
+                                                 edgeMetadataCache.invalidate( scope, node );
+                                             }
                                          }
 
 
@@ -226,6 +238,8 @@ public class EdgeMetaRepairImpl implements EdgeMetaRepair {
             catch ( ConnectionException e ) {
                 throw new RuntimeException( "Unable to connect to casandra", e );
             }
+
+            edgeMetadataCache.invalidate( scope, node );
         } );
     }
 
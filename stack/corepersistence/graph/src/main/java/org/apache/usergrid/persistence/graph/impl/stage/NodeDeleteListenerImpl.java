@@ -19,7 +19,9 @@
 package org.apache.usergrid.persistence.graph.impl.stage;
 
 
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Iterator;
 import java.util.Set;
 import java.util.UUID;
@@ -36,6 +38,8 @@ import org.apache.usergrid.persistence.graph.SearchByEdgeType;
 import org.apache.usergrid.persistence.graph.SearchEdgeType;
 import org.apache.usergrid.persistence.graph.impl.SimpleSearchByEdgeType;
 import org.apache.usergrid.persistence.graph.impl.SimpleSearchEdgeType;
+import org.apache.usergrid.persistence.graph.serialization.EdgeCountSerialization;
+import org.apache.usergrid.persistence.graph.serialization.EdgeMetadataCache;
 import org.apache.usergrid.persistence.graph.serialization.EdgeMetadataSerialization;
 import org.apache.usergrid.persistence.graph.serialization.EdgeSerialization;
 import org.apache.usergrid.persistence.graph.serialization.NodeSerialization;
@@ -63,6 +67,8 @@ public class NodeDeleteListenerImpl implements NodeDeleteListener {
     private final NodeSerialization nodeSerialization;
     private final EdgeSerialization storageSerialization;
     private final EdgeMetadataSerialization edgeMetadataSerialization;
+    private final EdgeMetadataCache edgeMetadataCache;
+    private final EdgeCountSerialization edgeCountSerialization;
     private final EdgeMetaRepair edgeMetaRepair;
     private final GraphFig graphFig;
     protected final Keyspace keyspace;
@@ -74,6 +80,8 @@ public class NodeDeleteListenerImpl implements NodeDeleteListener {
     @Inject
     public NodeDeleteListenerImpl( final NodeSerialization nodeSerialization,
                                    final EdgeMetadataSerialization edgeMetadataSerialization,
+                                   final EdgeMetadataCache edgeMetadataCache,
+                                   final EdgeCountSerialization edgeCountSerialization,
                                    final EdgeMetaRepair edgeMetaRepair, final GraphFig graphFig,
                                    final EdgeSerialization storageSerialization,
                                    final Keyspace keyspace ) {
@@ -82,6 +90,8 @@ public class NodeDeleteListenerImpl implements NodeDeleteListener {
         this.nodeSerialization = nodeSerialization;
         this.storageSerialization = storageSerialization;
         this.edgeMetadataSerialization = edgeMetadataSerialization;
+        this.edgeMetadataCache = edgeMetadataCache;
+        this.edgeCountSerialization = edgeCountSerialization;
         this.edgeMetaRepair = edgeMetaRepair;
         this.graphFig = graphFig;
         this.keyspace = keyspace;
@@ -115,6 +125,9 @@ public class NodeDeleteListenerImpl implements NodeDeleteListener {
                         return Observable.empty();
                     }
 
+                    //the node's meta data is about to be removed, don't let writes skip re-writing it
+                    edgeMetadataCache.invalidate( scope, node );
+
                     // do all the edge deletes and then remove the marked node, return all edges just deleted
                     return
                         doDeletes( node, scope, maxVersion.get(), timestamp ).doOnCompleted( () -> {
@@ -123,6 +136,8 @@ public class NodeDeleteListenerImpl implements NodeDeleteListener {
                             } catch ( ConnectionException e ) {
                                 throw new RuntimeException( "Unable to connect to cassandra", e );
                             }
+
+                            edgeMetadataCache.invalidate( scope, node );
                         });
                 });
     }
@@ -177,6 +192,9 @@ public class NodeDeleteListenerImpl implements NodeDeleteListener {
                     Set<TargetPair> sourceNodes = new HashSet<>( markedEdges.size() );
                     Set<TargetPair> targetNodes = new HashSet<>( markedEdges.size() );
 
+                    //marked edges were already removed from the counts when they were marked
+                    List<MarkedEdge> countedEdges = new ArrayList<>( markedEdges.size() );
+
                     for ( MarkedEdge edge : markedEdges ) {
 
                         //delete the newest edge <= the version on the node delete
@@ -187,6 +205,10 @@ public class NodeDeleteListenerImpl implements NodeDeleteListener {
 
                         sourceNodes.add( new TargetPair( edge.getSourceNode(), edge.getType() ) );
                         targetNodes.add( new TargetPair( edge.getTargetNode(), edge.getType() ) );
+
+                        if ( !edge.isDeleted() ) {
+                            countedEdges.add( edge );
+                        }
                     }
 
                     try {
@@ -196,6 +218,16 @@ public class NodeDeleteListenerImpl implements NodeDeleteListener {
                         throw new RuntimeException( "Unable to connect to casandra", e );
                     }
 
+                    if ( !countedEdges.isEmpty() ) {
+                        try {
+                            edgeCountSerialization.incrementCounts( scope, countedEdges, -1 ).execute();
+                        }
+                        catch ( ConnectionException e ) {
+                            //the edges are gone, the count is repaired by the next recount
+                            logger.warn( "Unable to update edge counts for node {}", node, e );
+                        }
+                    }
+
                     //now  delete meta data
 
 
@@ -0,0 +1,70 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.usergrid.persistence.graph.serialization;
+
+
+import java.util.Collection;
+
+import org.apache.usergrid.persistence.core.migration.schema.Migration;
+import org.apache.usergrid.persistence.core.scope.ApplicationScope;
+import org.apache.usergrid.persistence.graph.Edge;
+import org.apache.usergrid.persistence.graph.serialization.impl.shard.DirectedEdgeMeta;
+
+import com.google.common.base.Optional;
+import com.netflix.astyanax.MutationBatch;
+
+
+/**
+ * Maintains the number of unmarked edges from a source node and to a target node by edge type.  Counts are kept in
+ * counter columns, so they are not idempotent.  A failed or retried write can leave a count off, which the exact
+ * recount in shard compaction repairs.  Edges written before a node and type was counted aren't in its count, so a
+ * count is only read once a recount has seeded it.
+ */
+public interface EdgeCountSerialization extends Migration {
+
+    /**
+     * Add the delta to the count of edges from the source and to the target of every edge
+     *
+     * @param scope The scope of the application
+     * @param edges The edges written or removed
+     * @param delta 1 when the edges are written, -1 when they are marked or removed
+     */
+    MutationBatch incrementCounts( ApplicationScope scope, Collection<? extends Edge> edges, long delta );
+
+    /**
+     * Set the count of a single node and edge type to an exact count, and mark it seeded.  Reads the current count
+     * and adds the difference
+     *
+     * @param scope The scope of the application
+     * @param directedEdgeMeta The meta of a single node and edge type, as created by {@link
+     * DirectedEdgeMeta#fromSourceNode(org.apache.usergrid.persistence.model.entity.Id, String)} or {@link
+     * DirectedEdgeMeta#fromTargetNode(org.apache.usergrid.persistence.model.entity.Id, String)}
+     * @param count The exact count
+     */
+    MutationBatch setCount( ApplicationScope scope, DirectedEdgeMeta directedEdgeMeta, long count );
+
+    /**
+     * Get the count of the node and edge type, never negative.  Absent if the count hasn't been seeded by a recount
+     *
+     * @param scope The scope of the application
+     * @param directedEdgeMeta The meta of a single node and edge type
+     */
+    Optional<Long> getCount( ApplicationScope scope, DirectedEdgeMeta directedEdgeMeta );
+}
@@ -0,0 +1,61 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.usergrid.persistence.graph.serialization;
+
+
+import org.apache.usergrid.persistence.core.scope.ApplicationScope;
+import org.apache.usergrid.persistence.graph.Edge;
+import org.apache.usergrid.persistence.model.entity.Id;
+
+
+/**
+ * Local cache of the edge meta data this node has already written.  Writes of an edge whose source and target edge
+ * types and id types are cached, at the edge's timestamp or a newer one, can skip writing the meta data again.  Entries are held per node, so a node can be
+ * invalidated once its meta data is removed.
+ */
+public interface EdgeMetadataCache {
+
+    /**
+     * Return true if the meta data of the edge has been written for both the source and target node, by an edge at least
+     * as new as this one
+     *
+     * @param scope The scope of the application
+     * @param edge The edge to check
+     */
+    boolean isWritten( final ApplicationScope scope, final Edge edge );
+
+
+    /**
+     * Record the meta data of the edge as written.  Only invoke once the meta data mutation has executed
+     *
+     * @param scope The scope of the application
+     * @param edge The edge that was written
+     */
+    void markWritten( final ApplicationScope scope, final Edge edge );
+
+
+    /**
+     * Remove everything cached for the node.  Must be invoked whenever meta data of the node is removed
+     *
+     * @param scope The scope of the application
+     * @param node The node whose meta data was removed
+     */
+    void invalidate( final ApplicationScope scope, final Id node );
+}
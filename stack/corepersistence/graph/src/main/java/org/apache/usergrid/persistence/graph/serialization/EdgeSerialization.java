@@ -46,6 +46,15 @@ public interface EdgeSerialization {
      */
     MutationBatch writeEdge( ApplicationScope scope, MarkedEdge edge, UUID timestamp );
 
+    /**
+     * Count the edge in the shards it was written to, so audits don't need to scan them.  Call only once the mutation
+     * from {@link #writeEdge(ApplicationScope, MarkedEdge, UUID)} has executed
+     *
+     * @param scope The org scope of the graph
+     * @param edge The edge written
+     */
+    void countEdge( ApplicationScope scope, MarkedEdge edge );
+
     /**
      * EdgeWrite both the source -->target edge and the target<--- source edge into the mutation
      *
@@ -0,0 +1,191 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.usergrid.persistence.graph.serialization.impl;
+
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.cassandra.db.marshal.BytesType;
+import org.apache.cassandra.db.marshal.CounterColumnType;
+import org.apache.cassandra.db.marshal.UTF8Type;
+
+import org.apache.usergrid.persistence.core.CassandraConfig;
+import org.apache.usergrid.persistence.core.astyanax.MultiTenantColumnFamily;
+import org.apache.usergrid.persistence.core.astyanax.MultiTenantColumnFamilyDefinition;
+import org.apache.usergrid.persistence.core.astyanax.ScopedRowKey;
+import org.apache.usergrid.persistence.core.astyanax.ScopedRowKeySerializer;
+import org.apache.usergrid.persistence.core.datastax.TableDefinition;
+import org.apache.usergrid.persistence.core.scope.ApplicationScope;
+import org.apache.usergrid.persistence.core.util.ValidationUtils;
+import org.apache.usergrid.persistence.graph.Edge;
+import org.apache.usergrid.persistence.graph.serialization.EdgeCountSerialization;
+import org.apache.usergrid.persistence.graph.serialization.impl.shard.DirectedEdgeMeta;
+import org.apache.usergrid.persistence.graph.serialization.impl.shard.impl.serialize.EdgeShardRowKeySerializer;
+import org.apache.usergrid.persistence.graph.serialization.util.GraphValidation;
+
+import com.google.common.base.Optional;
+import com.google.common.base.Preconditions;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.netflix.astyanax.Keyspace;
+import com.netflix.astyanax.MutationBatch;
+import com.netflix.astyanax.connectionpool.exceptions.ConnectionException;
+import com.netflix.astyanax.model.Column;
+import com.netflix.astyanax.model.ColumnList;
+import com.netflix.astyanax.serializers.StringSerializer;
+
+
+/**
+ * Stores edge counts in a counter column family.  The row is the node and edge type, with a count column and a
+ * column marking the count seeded
+ */
+@Singleton
+public class EdgeCountSerializationImpl implements EdgeCountSerialization {
+
+
+    /**
+     * Edge counts by node and type
+     */
+    private static final MultiTenantColumnFamily<ScopedRowKey<DirectedEdgeMeta>, String> GRAPH_EDGE_COUNTS =
+            new MultiTenantColumnFamily<>( "Graph_Edge_Counts",
+                    new ScopedRowKeySerializer<>( EdgeShardRowKeySerializer.INSTANCE ), StringSerializer.get() );
+
+    private static final String COUNT_COLUMN = "count";
+
+    /**
+     * Positive once a recount has seeded the count
+     */
+    private static final String COUNTED_COLUMN = "counted";
+
+
+    protected final Keyspace keyspace;
+    protected final CassandraConfig cassandraConfig;
+
+
+    @Inject
+    public EdgeCountSerializationImpl( final Keyspace keyspace, final CassandraConfig cassandraConfig ) {
+        this.keyspace = keyspace;
+        this.cassandraConfig = cassandraConfig;
+    }
+
+
+    @Override
+    public MutationBatch incrementCounts( final ApplicationScope scope, final Collection<? extends Edge> edges,
+                                          final long delta ) {
+
+        ValidationUtils.validateApplicationScope( scope );
+        Preconditions.checkNotNull( edges, "edges must not be null" );
+
+        //sum the deltas first, so edges sharing a node and type cost a single counter write
+        final Map<DirectedEdgeMeta, Long> counts = new HashMap<>();
+
+        for ( final Edge edge : edges ) {
+            GraphValidation.validateEdge( edge );
+
+            counts.merge( DirectedEdgeMeta.fromSourceNode( edge.getSourceNode(), edge.getType() ), delta, Long::sum );
+            counts.merge( DirectedEdgeMeta.fromTargetNode( edge.getTargetNode(), edge.getType() ), delta, Long::sum );
+        }
+
+        final MutationBatch batch =
+                keyspace.prepareMutationBatch().withConsistencyLevel( cassandraConfig.getWriteCL() );
+
+        for ( final Map.Entry<DirectedEdgeMeta, Long> count : counts.entrySet() ) {
+            batch.withRow( GRAPH_EDGE_COUNTS, ScopedRowKey.fromKey( scope.getApplication(), count.getKey() ) )
+                 .incrementCounterColumn( COUNT_COLUMN, count.getValue() );
+        }
+
+        return batch;
+    }
+
+
+    @Override
+    public MutationBatch setCount( final ApplicationScope scope, final DirectedEdgeMeta directedEdgeMeta,
+                                   final long count ) {
+
+        ValidationUtils.validateApplicationScope( scope );
+        GraphValidation.validateDirectedEdgeMeta( directedEdgeMeta );
+
+        final ScopedRowKey<DirectedEdgeMeta> rowKey = ScopedRowKey.fromKey( scope.getApplication(), directedEdgeMeta );
+
+        final long current = getColumn( readCounts( rowKey ), COUNT_COLUMN );
+
+        final MutationBatch batch =
+                keyspace.prepareMutationBatch().withConsistencyLevel( cassandraConfig.getWriteCL() );
+
+        batch.withRow( GRAPH_EDGE_COUNTS, rowKey ).incrementCounterColumn( COUNT_COLUMN, count - current )
+             .incrementCounterColumn( COUNTED_COLUMN, 1 );
+
+        return batch;
+    }
+
+
+    @Override
+    public Optional<Long> getCount( final ApplicationScope scope, final DirectedEdgeMeta directedEdgeMeta ) {
+
+        ValidationUtils.validateApplicationScope( scope );
+        GraphValidation.validateDirectedEdgeMeta( directedEdgeMeta );
+
+        final ColumnList<String> columns =
+                readCounts( ScopedRowKey.fromKey( scope.getApplication(), directedEdgeMeta ) );
+
+        if ( getColumn( columns, COUNTED_COLUMN ) <= 0 ) {
+            return Optional.absent();
+        }
+
+        //decrements of edges counted more than once can take a count below the edges left
+        return Optional.of( Math.max( 0L, getColumn( columns, COUNT_COLUMN ) ) );
+    }
+
+
+    private ColumnList<String> readCounts( final ScopedRowKey<DirectedEdgeMeta> rowKey ) {
+        try {
+            return keyspace.prepareQuery( GRAPH_EDGE_COUNTS ).setConsistencyLevel( cassandraConfig.getReadCL() )
+                           .getKey( rowKey ).execute().getResult();
+        }
+        catch ( ConnectionException e ) {
+            throw new RuntimeException( "Unable to connect to casandra", e );
+        }
+    }
+
+
+    private static long getColumn( final ColumnList<String> columns, final String name ) {
+        final Column<String> column = columns.getColumnByName( name );
+
+        return column == null ? 0 : column.getLongValue();
+    }
+
+
+    @Override
+    public Collection<MultiTenantColumnFamilyDefinition> getColumnFamilies() {
+        return Collections.singleton(
+                new MultiTenantColumnFamilyDefinition( GRAPH_EDGE_COUNTS, BytesType.class.getSimpleName(),
+                        UTF8Type.class.getSimpleName(), CounterColumnType.class.getSimpleName(),
+                        MultiTenantColumnFamilyDefinition.CacheOption.KEYS ) );
+    }
+
+
+    @Override
+    public Collection<TableDefinition> getTables() {
+        return Collections.emptyList();
+    }
+}
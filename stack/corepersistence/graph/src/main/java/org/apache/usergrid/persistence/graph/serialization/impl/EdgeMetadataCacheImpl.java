@@ -0,0 +1,173 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.usergrid.persistence.graph.serialization.impl;
+
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.usergrid.persistence.core.scope.ApplicationScope;
+import org.apache.usergrid.persistence.graph.Edge;
+import org.apache.usergrid.persistence.graph.GraphFig;
+import org.apache.usergrid.persistence.graph.serialization.EdgeMetadataCache;
+import org.apache.usergrid.persistence.model.entity.Id;
+
+import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+
+/**
+ * Caches the written edge type and id type pairs of each node, with the newest edge timestamp they were written at.
+ * Meta data columns are timestamped with the edge, so a newer edge is always written again, and its columns outlive a
+ * repair that removed the types at an older timestamp, on this node or any other.  Entries expire after the configured
+ * timeout so meta data removed by another node is eventually re-written from this one.
+ */
+@Singleton
+public class EdgeMetadataCacheImpl implements EdgeMetadataCache {
+
+    private final boolean enabled;
+
+    private final Cache<CacheKey, ConcurrentMap<String, Long>> written;
+
+
+    @Inject
+    public EdgeMetadataCacheImpl( final GraphFig graphFig ) {
+
+        Preconditions.checkNotNull( graphFig, "graphFig is required" );
+
+        this.enabled = graphFig.getEdgeMetaCacheEnabled();
+
+        this.written = CacheBuilder.newBuilder()
+
+            //expire from the time we wrote, not the time we read, so a stale entry can't live forever on a hot node
+            .expireAfterWrite( graphFig.getEdgeMetaCacheTimeout(), TimeUnit.MILLISECONDS )
+
+            .maximumSize( graphFig.getEdgeMetaCacheSize() ).build();
+    }
+
+
+    @Override
+    public boolean isWritten( final ApplicationScope scope, final Edge edge ) {
+
+        if ( !enabled ) {
+            return false;
+        }
+
+        return isWritten( scope, edge.getSourceNode(), sourceType( edge ), edge.getTimestamp() )
+            && isWritten( scope, edge.getTargetNode(), targetType( edge ), edge.getTimestamp() );
+    }
+
+
+    @Override
+    public void markWritten( final ApplicationScope scope, final Edge edge ) {
+
+        if ( !enabled ) {
+            return;
+        }
+
+        getTypes( scope, edge.getSourceNode() ).merge( sourceType( edge ), edge.getTimestamp(), Math::max );
+        getTypes( scope, edge.getTargetNode() ).merge( targetType( edge ), edge.getTimestamp(), Math::max );
+    }
+
+
+    @Override
+    public void invalidate( final ApplicationScope scope, final Id node ) {
+        written.invalidate( new CacheKey( scope, node ) );
+    }
+
+
+    /**
+     * True if the type was written for the node at or after the timestamp
+     */
+    private boolean isWritten( final ApplicationScope scope, final Id node, final String type, final long timestamp ) {
+        final ConcurrentMap<String, Long> types = written.getIfPresent( new CacheKey( scope, node ) );
+
+        if ( types == null ) {
+            return false;
+        }
+
+        final Long writtenTimestamp = types.get( type );
+
+        return writtenTimestamp != null && writtenTimestamp >= timestamp;
+    }
+
+
+    private ConcurrentMap<String, Long> getTypes( final ApplicationScope scope, final Id node ) {
+        return written.asMap().computeIfAbsent( new CacheKey( scope, node ), key -> new ConcurrentHashMap<>() );
+    }
+
+
+    /**
+     * The edge type and target id type written from the source node
+     */
+    private static String sourceType( final Edge edge ) {
+        return "s:" + edge.getType() + ":" + edge.getTargetNode().getType();
+    }
+
+
+    /**
+     * The edge type and source id type written to the target node
+     */
+    private static String targetType( final Edge edge ) {
+        return "t:" + edge.getType() + ":" + edge.getSourceNode().getType();
+    }
+
+
+    /**
+     * Cache key of a node within an application
+     */
+    private static final class CacheKey {
+        private final ApplicationScope scope;
+        private final Id node;
+
+
+        private CacheKey( final ApplicationScope scope, final Id node ) {
+            this.scope = scope;
+            this.node = node;
+        }
+
+
+        @Override
+        public boolean equals( final Object o ) {
+            if ( this == o ) {
+                return true;
+            }
+            if ( o == null || getClass() != o.getClass() ) {
+                return false;
+            }
+
+            final CacheKey cacheKey = ( CacheKey ) o;
+
+            return scope.equals( cacheKey.scope ) && node.equals( cacheKey.node );
+        }
+
+
+        @Override
+        public int hashCode() {
+            int result = scope.hashCode();
+            result = 31 * result + node.hashCode();
+            return result;
+        }
+    }
+}
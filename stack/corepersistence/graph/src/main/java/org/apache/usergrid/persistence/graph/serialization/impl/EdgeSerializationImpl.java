@@ -39,6 +39,7 @@ import org.apache.usergrid.persistence.graph.serialization.EdgeSerialization;
 import org.apache.usergrid.persistence.graph.serialization.impl.shard.DirectedEdgeMeta;
 import org.apache.usergrid.persistence.graph.serialization.impl.shard.EdgeColumnFamilies;
 import org.apache.usergrid.persistence.graph.serialization.impl.shard.EdgeShardStrategy;
+import org.apache.usergrid.persistence.graph.serialization.impl.shard.NodeShardApproximation;
 import org.apache.usergrid.persistence.graph.serialization.impl.shard.Shard;
 import org.apache.usergrid.persistence.graph.serialization.impl.shard.ShardEntryGroup;
 import org.apache.usergrid.persistence.graph.serialization.impl.shard.ShardGroupDeletion;
@@ -69,6 +70,7 @@ public class EdgeSerializationImpl implements EdgeSerialization {
     protected final ShardedEdgeSerialization shardedEdgeSerialization;
     protected final TimeService timeService;
     protected final ShardGroupDeletion shardGroupDeletion;
+    protected final NodeShardApproximation nodeShardApproximation;
 
 
     @Inject
@@ -76,7 +78,8 @@ public class EdgeSerializationImpl implements EdgeSerialization {
                                   final GraphFig graphFig, final EdgeShardStrategy edgeShardStrategy,
                                   final EdgeColumnFamilies edgeColumnFamilies,
                                   final ShardedEdgeSerialization shardedEdgeSerialization,
-                                  final TimeService timeService, final ShardGroupDeletion shardGroupDeletion ) {
+                                  final TimeService timeService, final ShardGroupDeletion shardGroupDeletion,
+                                  final NodeShardApproximation nodeShardApproximation ) {
 
 
 
@@ -87,6 +90,7 @@ public class EdgeSerializationImpl implements EdgeSerialization {
         checkNotNull( shardedEdgeSerialization, "shardedEdgeSerialization required" );
         checkNotNull( timeService, "timeService required" );
         checkNotNull( shardGroupDeletion, "shardGroupDeletion require");
+        checkNotNull( nodeShardApproximation, "nodeShardApproximation required" );
 
 
         this.keyspace = keyspace;
@@ -97,6 +101,7 @@ public class EdgeSerializationImpl implements EdgeSerialization {
         this.shardedEdgeSerialization = shardedEdgeSerialization;
         this.timeService = timeService;
         this.shardGroupDeletion = shardGroupDeletion;
+        this.nodeShardApproximation = nodeShardApproximation;
     }
 
 
@@ -185,11 +190,50 @@ public class EdgeSerializationImpl implements EdgeSerialization {
                 .writeEdgeVersions( edgeColumnFamilies, scope, markedEdge, edgeVersionsShards,
                         edgeVersionsMeta, timestamp ) );
 
-
         return batch;
     }
 
 
+    @Override
+    public void countEdge( final ApplicationScope scope, final MarkedEdge markedEdge ) {
+
+        ValidationUtils.validateApplicationScope( scope );
+        GraphValidation.validateEdge( markedEdge );
+
+        //marked edges don't add to the shard
+        if ( markedEdge.isDeleted() ) {
+            return;
+        }
+
+        final long now = timeService.getCurrentTime();
+        final Id sourceNode = markedEdge.getSourceNode();
+        final Id targetNode = markedEdge.getTargetNode();
+        final String edgeType = markedEdge.getType();
+
+        countEdge( scope, markedEdge, now, DirectedEdgeMeta.fromSourceNode( sourceNode, edgeType ) );
+        countEdge( scope, markedEdge, now,
+            DirectedEdgeMeta.fromSourceNodeTargetType( sourceNode, edgeType, targetNode.getType() ) );
+        countEdge( scope, markedEdge, now, DirectedEdgeMeta.fromTargetNode( targetNode, edgeType ) );
+        countEdge( scope, markedEdge, now,
+            DirectedEdgeMeta.fromTargetNodeSourceType( targetNode, edgeType, sourceNode.getType() ) );
+        countEdge( scope, markedEdge, now, DirectedEdgeMeta.fromEdge( sourceNode, targetNode, edgeType ) );
+    }
+
+
+    /**
+     * Count the edge in the write shards of the edge meta data
+     */
+    private void countEdge( final ApplicationScope scope, final MarkedEdge markedEdge, final long now,
+                            final DirectedEdgeMeta directedEdgeMeta ) {
+
+        final Collection<Shard> writeShards =
+                edgeShardStrategy.getWriteShards( scope, markedEdge.getTimestamp(), directedEdgeMeta )
+                                 .getWriteShards( now );
+
+        nodeShardApproximation.increment( scope, writeShards, 1, directedEdgeMeta );
+    }
+
+
     @Override
     public MutationBatch deleteEdge( final ApplicationScope scope, final MarkedEdge markedEdge, final UUID timestamp ) {
         ValidationUtils.validateApplicationScope( scope );
@@ -35,9 +35,12 @@ import org.apache.usergrid.persistence.graph.GraphManagerFactory;
 import org.apache.usergrid.persistence.graph.impl.GraphManagerImpl;
 import org.apache.usergrid.persistence.graph.impl.stage.EdgeDeleteListener;
 import org.apache.usergrid.persistence.graph.impl.stage.NodeDeleteListener;
+import org.apache.usergrid.persistence.graph.serialization.EdgeCountSerialization;
+import org.apache.usergrid.persistence.graph.serialization.EdgeMetadataCache;
 import org.apache.usergrid.persistence.graph.serialization.EdgeMetadataSerialization;
 import org.apache.usergrid.persistence.graph.serialization.EdgeSerialization;
 import org.apache.usergrid.persistence.graph.serialization.NodeSerialization;
+import org.apache.usergrid.persistence.graph.serialization.impl.shard.ShardGroupCompaction;
 
 import java.util.concurrent.ExecutionException;
 
@@ -48,6 +51,9 @@ import java.util.concurrent.ExecutionException;
 public class GraphManagerFactoryImpl implements GraphManagerFactory {
 
     private final EdgeMetadataSerialization edgeMetadataSerialization;
+    private final EdgeMetadataCache edgeMetadataCache;
+    private final EdgeCountSerialization edgeCountSerialization;
+    private final ShardGroupCompaction shardGroupCompaction;
     private final EdgeSerialization edgeSerialization;
     private final NodeSerialization nodeSerialization;
     private final GraphFig graphFig;
@@ -59,16 +65,22 @@ public class GraphManagerFactoryImpl implements GraphManagerFactory {
         CacheBuilder.newBuilder().maximumSize( 1000 ).build( new CacheLoader<ApplicationScope, GraphManager>() {
             public GraphManager load(
                 ApplicationScope scope ) {
-                return new GraphManagerImpl(edgeMetadataSerialization,edgeSerialization,nodeSerialization,graphFig,edgeDeleteListener,nodeDeleteListener,scope, metricsFactory);
+                return new GraphManagerImpl(edgeMetadataSerialization,edgeMetadataCache,edgeCountSerialization,shardGroupCompaction,edgeSerialization,nodeSerialization,graphFig,edgeDeleteListener,nodeDeleteListener,scope, metricsFactory);
             }
         } );
 
     @Inject
-    public GraphManagerFactoryImpl( final EdgeMetadataSerialization edgeMetadataSerialization, final
+    public GraphManagerFactoryImpl( final EdgeMetadataSerialization edgeMetadataSerialization,
+                                    final EdgeMetadataCache edgeMetadataCache,
+                                    final EdgeCountSerialization edgeCountSerialization,
+                                    final ShardGroupCompaction shardGroupCompaction, final
     EdgeSerialization edgeSerialization,
                                     final NodeSerialization nodeSerialization, final GraphFig graphFig, final EdgeDeleteListener edgeDeleteListener,
                                     final NodeDeleteListener nodeDeleteListener, final MetricsFactory metricsFactory ){
         this.edgeMetadataSerialization = edgeMetadataSerialization;
+        this.edgeMetadataCache = edgeMetadataCache;
+        this.edgeCountSerialization = edgeCountSerialization;
+        this.shardGroupCompaction = shardGroupCompaction;
         this.edgeSerialization = edgeSerialization;
         this.nodeSerialization = nodeSerialization;
         this.graphFig = graphFig;
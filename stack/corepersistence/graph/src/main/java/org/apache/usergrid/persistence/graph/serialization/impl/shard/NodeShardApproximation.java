@@ -0,0 +1,86 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.usergrid.persistence.graph.serialization.impl.shard;
+
+
+import java.util.Collection;
+
+import org.apache.usergrid.persistence.core.scope.ApplicationScope;
+
+import com.google.common.base.Optional;
+
+
+/**
+ * Keeps an approximate count of the edges in each shard so shard audits don't need to scan the shard.  Counts are
+ * buffered locally and flushed periodically, so they may lag and are lost on shutdown.  Deletes are not counted, so
+ * counts only ever over estimate.
+ */
+public interface NodeShardApproximation {
+
+    /**
+     * Add the count to each of the shards
+     *
+     * @param scope The scope of the application
+     * @param shards The shards written to
+     * @param count The count to add.  May be negative when edges are moved out of a shard
+     * @param directedEdgeMeta The edge meta data of the shards
+     */
+    void increment( ApplicationScope scope, Collection<Shard> shards, long count, DirectedEdgeMeta directedEdgeMeta );
+
+
+    /**
+     * Set the count of the shard from a scan of every edge in it, and mark the shard as counted.  Written immediately
+     *
+     * @param scope The scope of the application
+     * @param shard The shard
+     * @param count The number of edges found in the shard
+     * @param directedEdgeMeta The edge meta data of the shard
+     */
+    void setCount( ApplicationScope scope, Shard shard, long count, DirectedEdgeMeta directedEdgeMeta );
+
+
+    /**
+     * Mark a shard as counted without changing its count.  Used for new shards, which start empty so every edge
+     * written to them is counted.  Written immediately
+     *
+     * @param scope The scope of the application
+     * @param shard The shard
+     * @param directedEdgeMeta The edge meta data of the shard
+     */
+    void markCounted( ApplicationScope scope, Shard shard, DirectedEdgeMeta directedEdgeMeta );
+
+
+    /**
+     * Get the approximate count of the shard, including counts not yet flushed.  Absent if the shard has never been
+     * counted from a scan or marked as counted, since increments alone miss every edge written before counting
+     * began
+     *
+     * @param scope The scope of the application
+     * @param shard The shard
+     * @param directedEdgeMeta The edge meta data of the shard
+     */
+    Optional<Long> getCount( ApplicationScope scope, Shard shard, DirectedEdgeMeta directedEdgeMeta );
+
+
+    /**
+     * Flush all buffered counts and wait for them to be written
+     */
+    void flush();
+}
@@ -0,0 +1,73 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.usergrid.persistence.graph.serialization.impl.shard;
+
+
+import org.apache.usergrid.persistence.core.migration.schema.Migration;
+import org.apache.usergrid.persistence.core.scope.ApplicationScope;
+
+import com.google.common.base.Optional;
+import com.netflix.astyanax.MutationBatch;
+
+
+/**
+ * Persists the approximate number of edges written to each shard
+ */
+public interface NodeShardCounterSerialization extends Migration {
+
+    /**
+     * Add the count to the counter of the shard.  The count may be negative
+     *
+     * @param scope The scope of the application
+     * @param shardIndex The index of the shard
+     * @param directedEdgeMeta The edge meta data of the shard
+     * @param count The count to add
+     */
+    MutationBatch incrementCount( ApplicationScope scope, long shardIndex, DirectedEdgeMeta directedEdgeMeta,
+                                  long count );
+
+    /**
+     * Mark the shard as counted, meaning its counter holds every edge in it, not only those written since the
+     * counter was introduced
+     *
+     * @param scope The scope of the application
+     * @param shardIndex The index of the shard
+     * @param directedEdgeMeta The edge meta data of the shard
+     */
+    MutationBatch markCounted( ApplicationScope scope, long shardIndex, DirectedEdgeMeta directedEdgeMeta );
+
+    /**
+     * True if the shard has been marked as counted
+     *
+     * @param scope The scope of the application
+     * @param shardIndex The index of the shard
+     * @param directedEdgeMeta The edge meta data of the shard
+     */
+    boolean isCounted( ApplicationScope scope, long shardIndex, DirectedEdgeMeta directedEdgeMeta );
+
+    /**
+     * Get the count of the shard.  Absent if nothing has ever been counted for the shard
+     *
+     * @param scope The scope of the application
+     * @param shardIndex The index of the shard
+     * @param directedEdgeMeta The edge meta data of the shard
+     */
+    Optional<Long> getCount( ApplicationScope scope, long shardIndex, DirectedEdgeMeta directedEdgeMeta );
+}
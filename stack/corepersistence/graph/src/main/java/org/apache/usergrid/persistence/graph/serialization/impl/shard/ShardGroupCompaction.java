@@ -24,6 +24,7 @@ package org.apache.usergrid.persistence.graph.serialization.impl.shard;
 
 import org.apache.usergrid.persistence.core.scope.ApplicationScope;
 
+import com.google.common.base.Optional;
 import com.google.common.util.concurrent.ListenableFuture;
 
 
@@ -43,6 +44,32 @@ public interface ShardGroupCompaction {
                                                              final ShardEntryGroup group );
 
 
+    /**
+     * Recount the edges of a single node and edge type by reading every shard, and repair the maintained edge count
+     * to match.  This is asynchronous, and the recount is skipped if it can't be scheduled or one is already running
+     * for the node and type.
+     *
+     * @param scope The scope of the application
+     * @param edgeMeta The meta of a single node and edge type.  Either a source or target meta
+     *
+     * @return A ListenableFuture with the exact count, or absent if the recount was skipped
+     */
+    public ListenableFuture<Optional<Long>> recountEdges( final ApplicationScope scope,
+                                                         final DirectedEdgeMeta edgeMeta );
+
+
+    /**
+     * Recount the edges of a single node and edge type now, and set the maintained edge count to match.  Used to
+     * seed a count that has never been recounted
+     *
+     * @param scope The scope of the application
+     * @param edgeMeta The meta of a single node and edge type.  Either a source or target meta
+     *
+     * @return The exact count
+     */
+    public long recount( final ApplicationScope scope, final DirectedEdgeMeta edgeMeta );
+
+
     public enum AuditResult {
         /**
          * We didn't check this shard
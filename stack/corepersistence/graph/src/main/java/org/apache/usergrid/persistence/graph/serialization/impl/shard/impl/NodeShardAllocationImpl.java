@@ -59,6 +59,7 @@ public class NodeShardAllocationImpl implements NodeShardAllocation {
     private final GraphFig graphFig;
     private final ShardGroupCompaction shardGroupCompaction;
     private final NodeShardCache nodeShardCache;
+    private final NodeShardApproximation nodeShardApproximation;
 
 
     @Inject
@@ -66,7 +67,8 @@ public class NodeShardAllocationImpl implements NodeShardAllocation {
                                     final EdgeColumnFamilies edgeColumnFamilies,
                                     final ShardedEdgeSerialization shardedEdgeSerialization, final TimeService timeService,
                                     final GraphFig graphFig, final ShardGroupCompaction shardGroupCompaction,
-                                    final NodeShardCache nodeShardCache) {
+                                    final NodeShardCache nodeShardCache,
+                                    final NodeShardApproximation nodeShardApproximation ) {
         this.edgeShardSerialization = edgeShardSerialization;
         this.edgeColumnFamilies = edgeColumnFamilies;
         this.shardedEdgeSerialization = shardedEdgeSerialization;
@@ -74,6 +76,7 @@ public class NodeShardAllocationImpl implements NodeShardAllocation {
         this.graphFig = graphFig;
         this.shardGroupCompaction = shardGroupCompaction;
         this.nodeShardCache = nodeShardCache;
+        this.nodeShardApproximation = nodeShardApproximation;
     }
 
 
@@ -156,16 +159,6 @@ public class NodeShardAllocationImpl implements NodeShardAllocation {
         }
 
 
-        /**
-         * Check out if we have a count for our shard allocation
-         */
-
-
-
-        final long shardSize = graphFig.getShardSize();
-
-
-
         /**
          * We want to allocate a new shard as close to the max value as possible.  This way if we're filling up a
          * shard rapidly, we split it near the head of the values.
@@ -183,42 +176,13 @@ public class NodeShardAllocationImpl implements NodeShardAllocation {
 
 
         /**
-         * Allocate the shard
+         * Check out if we have a count for our shard allocation.  If the shard has never been counted, including
+         * shards that filled up before counting began, fall back to counting every edge in it
          */
+        final Optional<Long> count = nodeShardApproximation.getCount( scope, shard, directedEdgeMeta );
 
-        final Iterator<MarkedEdge> edges = directedEdgeMeta
-            .loadEdges( shardedEdgeSerialization, edgeColumnFamilies, scope, Collections.singletonList(shard),0,
-                SearchByEdgeType.Order.ASCENDING );
-
-
-        if ( !edges.hasNext() ) {
-            if (logger.isTraceEnabled()) logger.trace(
-                "Tried to allocate a new shard for edge meta data {}, but no max value could be found in that row",
-                directedEdgeMeta );
-            return false;
-        }
-
-
-        MarkedEdge marked = null;
-
-        /**
-         * Advance to the pivot point we should use.  Once it's compacted, we can split again.
-         * We either want to take the first one (unlikely) or we take our total count - the shard size.
-         * If this is a negative number, we're approaching our max count for this shard, so the first
-         * element will suffice.
-         */
-
-        long edgeCount = 0;
-        for ( long i = 1; edges.hasNext(); i++ ) {
-            //we hit a pivot shard, set it since it could be the last one we encounter
-            if ( i % shardSize == 0 ) {
-                marked = edges.next();
-            }
-            else {
-                edges.next();
-            }
-            edgeCount++;
-        }
+        final MarkedEdge marked = count.isPresent() ? seekPivot( scope, shard, directedEdgeMeta, count.get() ) :
+            scanPivot( scope, shard, directedEdgeMeta );
 
 
         /**
@@ -226,8 +190,7 @@ public class NodeShardAllocationImpl implements NodeShardAllocation {
          */
         if ( marked == null ) {
             if (logger.isTraceEnabled()){
-                logger.trace( "Shard {} in shard group {} not full, " +
-                    "not splitting. Edge count: {}",  shard, shardEntryGroup, edgeCount );
+                logger.trace( "Shard {} in shard group {} not full, not splitting", shard, shardEntryGroup );
             }
             return false;
         }
@@ -256,11 +219,123 @@ public class NodeShardAllocationImpl implements NodeShardAllocation {
             throw new RuntimeException( "Unable to connect to casandra", e );
         }
 
+        //the new shard starts empty, every edge it gets is counted by writes or moved in by compaction
+        nodeShardApproximation.markCounted( scope, newShard, directedEdgeMeta );
+
 
         return true;
     }
 
 
+    /**
+     * Find the pivot from the approximate count of the shard.  The pivot is the edge at the greatest multiple of the
+     * shard size in ascending order.  That's count % shardSize edges from the head of the shard, so we read
+     * descending from the head and stop there instead of reading the whole shard.
+     *
+     * @return The pivot edge, or null if the shard isn't full
+     */
+    private MarkedEdge seekPivot( final ApplicationScope scope, final Shard shard,
+                                  final DirectedEdgeMeta directedEdgeMeta, final long count ) {
+
+        final long shardSize = graphFig.getShardSize();
+
+        if ( count < shardSize ) {
+            if ( logger.isTraceEnabled() ) {
+                logger.trace( "Shard {} has an approximate count of {}, not splitting", shard, count );
+            }
+            return null;
+        }
+
+        final long toSkip = count % shardSize;
+
+        final Iterator<MarkedEdge> edges = directedEdgeMeta
+            .loadEdges( shardedEdgeSerialization, edgeColumnFamilies, scope, Collections.singletonList( shard ),
+                Long.MAX_VALUE, SearchByEdgeType.Order.DESCENDING );
+
+        MarkedEdge marked = null;
+        long seen = 0;
+
+        while ( seen <= toSkip && edges.hasNext() ) {
+            marked = edges.next();
+            seen++;
+        }
+
+        /**
+         * The count is approximate.  If the shard ran out before the pivot the count is too high, and we've read
+         * every edge in it, so reset the count to what we found and let the next audit decide
+         */
+        if ( seen <= toSkip ) {
+            if ( logger.isTraceEnabled() ) {
+                logger.trace( "Shard {} has an approximate count of {} but only {} edges, resetting the count", shard,
+                    count, seen );
+            }
+
+            nodeShardApproximation.setCount( scope, shard, seen, directedEdgeMeta );
+
+            return null;
+        }
+
+        return marked;
+    }
+
+
+    /**
+     * Find the pivot by iterating every edge in the shard, and seed the shard's count with what we found
+     *
+     * @return The pivot edge, or null if the shard isn't full
+     */
+    private MarkedEdge scanPivot( final ApplicationScope scope, final Shard shard,
+                                  final DirectedEdgeMeta directedEdgeMeta ) {
+
+        final long shardSize = graphFig.getShardSize();
+
+        final Iterator<MarkedEdge> edges = directedEdgeMeta
+            .loadEdges( shardedEdgeSerialization, edgeColumnFamilies, scope, Collections.singletonList(shard),0,
+                SearchByEdgeType.Order.ASCENDING );
+
+
+        if ( !edges.hasNext() ) {
+            if (logger.isTraceEnabled()) logger.trace(
+                "Tried to allocate a new shard for edge meta data {}, but no max value could be found in that row",
+                directedEdgeMeta );
+
+            nodeShardApproximation.setCount( scope, shard, 0, directedEdgeMeta );
+            return null;
+        }
+
+
+        MarkedEdge marked = null;
+
+        /**
+         * Advance to the pivot point we should use.  Once it's compacted, we can split again.
+         * We either want to take the first one (unlikely) or we take our total count - the shard size.
+         * If this is a negative number, we're approaching our max count for this shard, so the first
+         * element will suffice.
+         */
+
+        long edgeCount = 0;
+        for ( long i = 1; edges.hasNext(); i++ ) {
+            //we hit a pivot shard, set it since it could be the last one we encounter
+            if ( i % shardSize == 0 ) {
+                marked = edges.next();
+            }
+            else {
+                edges.next();
+            }
+            edgeCount++;
+        }
+
+        if (logger.isTraceEnabled()){
+            logger.trace( "Counted {} edges in shard {}", edgeCount, shard );
+        }
+
+        //we've paid for the scan, later audits can use the count
+        nodeShardApproximation.setCount( scope, shard, edgeCount, directedEdgeMeta );
+
+        return marked;
+    }
+
+
     @Override
     public long getMinTime() {
 
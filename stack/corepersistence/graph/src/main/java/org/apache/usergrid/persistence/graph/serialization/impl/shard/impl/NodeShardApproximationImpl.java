@@ -0,0 +1,309 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.usergrid.persistence.graph.serialization.impl.shard.impl;
+
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.usergrid.persistence.core.consistency.TimeService;
+import org.apache.usergrid.persistence.core.executor.TaskExecutorFactory;
+import org.apache.usergrid.persistence.core.scope.ApplicationScope;
+import org.apache.usergrid.persistence.graph.GraphFig;
+import org.apache.usergrid.persistence.graph.serialization.impl.shard.DirectedEdgeMeta;
+import org.apache.usergrid.persistence.graph.serialization.impl.shard.NodeShardApproximation;
+import org.apache.usergrid.persistence.graph.serialization.impl.shard.NodeShardCounterSerialization;
+import org.apache.usergrid.persistence.graph.serialization.impl.shard.Shard;
+
+import com.google.common.base.Optional;
+import com.google.common.base.Preconditions;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.netflix.astyanax.MutationBatch;
+import com.netflix.astyanax.connectionpool.exceptions.ConnectionException;
+
+
+/**
+ * Buffers shard counts in memory and flushes them to the counter serialization once enough increments have been
+ * made, or the flush interval has passed.  Counts for the same shard are summed, so a flush costs a single counter
+ * write per shard regardless of how many edges were written to it.
+ */
+@Singleton
+public class NodeShardApproximationImpl implements NodeShardApproximation {
+
+    private static final Logger logger = LoggerFactory.getLogger( NodeShardApproximationImpl.class );
+
+    private final NodeShardCounterSerialization nodeShardCounterSerialization;
+    private final GraphFig graphFig;
+    private final TimeService timeService;
+
+    /**
+     * Counts not yet flushed
+     */
+    private final ConcurrentHashMap<ShardKey, Long> pending = new ConcurrentHashMap<>();
+
+    private final AtomicLong invocations = new AtomicLong();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final ExecutorService flushExecutor;
+
+    private volatile long lastFlush;
+
+
+    @Inject
+    public NodeShardApproximationImpl( final NodeShardCounterSerialization nodeShardCounterSerialization,
+                                       final GraphFig graphFig, final TimeService timeService ) {
+
+        Preconditions.checkNotNull( nodeShardCounterSerialization, "nodeShardCounterSerialization is required" );
+        Preconditions.checkNotNull( graphFig, "graphFig is required" );
+        Preconditions.checkNotNull( timeService, "timeService is required" );
+
+        this.nodeShardCounterSerialization = nodeShardCounterSerialization;
+        this.graphFig = graphFig;
+        this.timeService = timeService;
+
+        //any flush drains every pending count, so there's no harm in dropping flushes when we're behind
+        this.flushExecutor = TaskExecutorFactory
+            .createTaskExecutor( "ShardCounterFlush", 1, graphFig.getCounterFlushQueueSize(),
+                TaskExecutorFactory.RejectionAction.DROP );
+
+        this.lastFlush = timeService.getCurrentTime();
+    }
+
+
+    @Override
+    public void increment( final ApplicationScope scope, final Collection<Shard> shards, final long count,
+                           final DirectedEdgeMeta directedEdgeMeta ) {
+
+        for ( final Shard shard : shards ) {
+            pending.merge( new ShardKey( scope, shard.getShardIndex(), directedEdgeMeta ), count, Long::sum );
+        }
+
+        final long invoked = invocations.incrementAndGet();
+
+        if ( invoked >= graphFig.getCounterFlushCount()
+            || timeService.getCurrentTime() - lastFlush >= graphFig.getCounterFlushInterval() ) {
+            beginFlush();
+        }
+    }
+
+
+    @Override
+    public void setCount( final ApplicationScope scope, final Shard shard, final long count,
+                          final DirectedEdgeMeta directedEdgeMeta ) {
+
+        //counters can only be incremented, so add the difference to what we'd otherwise report
+        final long current = getCurrentCount( scope, shard, directedEdgeMeta ).or( 0L );
+
+        final MutationBatch batch =
+            nodeShardCounterSerialization.markCounted( scope, shard.getShardIndex(), directedEdgeMeta );
+
+        if ( count != current ) {
+            batch.mergeShallow( nodeShardCounterSerialization
+                .incrementCount( scope, shard.getShardIndex(), directedEdgeMeta, count - current ) );
+        }
+
+        execute( batch );
+    }
+
+
+    @Override
+    public void markCounted( final ApplicationScope scope, final Shard shard,
+                             final DirectedEdgeMeta directedEdgeMeta ) {
+        execute( nodeShardCounterSerialization.markCounted( scope, shard.getShardIndex(), directedEdgeMeta ) );
+    }
+
+
+    @Override
+    public Optional<Long> getCount( final ApplicationScope scope, final Shard shard,
+                                    final DirectedEdgeMeta directedEdgeMeta ) {
+
+        if ( !nodeShardCounterSerialization.isCounted( scope, shard.getShardIndex(), directedEdgeMeta ) ) {
+            return Optional.absent();
+        }
+
+        return getCurrentCount( scope, shard, directedEdgeMeta );
+    }
+
+
+    /**
+     * The flushed count plus what's pending, whether or not the shard has been marked as counted
+     */
+    private Optional<Long> getCurrentCount( final ApplicationScope scope, final Shard shard,
+                                            final DirectedEdgeMeta directedEdgeMeta ) {
+
+        final Long pendingCount = pending.get( new ShardKey( scope, shard.getShardIndex(), directedEdgeMeta ) );
+
+        final Optional<Long> count =
+            nodeShardCounterSerialization.getCount( scope, shard.getShardIndex(), directedEdgeMeta );
+
+        if ( pendingCount == null ) {
+            return count;
+        }
+
+        return Optional.of( count.or( 0L ) + pendingCount );
+    }
+
+
+    @Override
+    public void flush() {
+        invocations.set( 0 );
+        lastFlush = timeService.getCurrentTime();
+
+        final Map<ShardKey, Long> drained = drain();
+
+        if ( drained.isEmpty() ) {
+            return;
+        }
+
+        MutationBatch batch = null;
+
+        for ( final Map.Entry<ShardKey, Long> entry : drained.entrySet() ) {
+
+            final ShardKey key = entry.getKey();
+
+            final MutationBatch increment = nodeShardCounterSerialization
+                .incrementCount( key.scope, key.shardIndex, key.directedEdgeMeta, entry.getValue() );
+
+            if ( batch == null ) {
+                batch = increment;
+            }
+            else {
+                batch.mergeShallow( increment );
+            }
+        }
+
+        try {
+            execute( batch );
+        }
+        catch ( RuntimeException e ) {
+            //nothing was counted, put the counts back for the next flush
+            for ( final Map.Entry<ShardKey, Long> entry : drained.entrySet() ) {
+                pending.merge( entry.getKey(), entry.getValue(), Long::sum );
+            }
+
+            throw e;
+        }
+    }
+
+
+    private void execute( final MutationBatch batch ) {
+        try {
+            batch.execute();
+        }
+        catch ( ConnectionException e ) {
+            throw new RuntimeException( "Unable to connect to casandra", e );
+        }
+    }
+
+
+    /**
+     * Flush asynchronously, unless a flush is already waiting to run
+     */
+    private void beginFlush() {
+
+        if ( !flushScheduled.compareAndSet( false, true ) ) {
+            return;
+        }
+
+        flushExecutor.execute( () -> {
+            flushScheduled.set( false );
+
+            try {
+                flush();
+            }
+            catch ( Throwable t ) {
+                logger.error( "Unable to flush shard counts", t );
+            }
+        } );
+    }
+
+
+    /**
+     * Remove every pending count.  Counts added while draining are left for the next flush
+     */
+    private Map<ShardKey, Long> drain() {
+
+        final Map<ShardKey, Long> drained = new HashMap<>();
+
+        for ( final ShardKey key : pending.keySet() ) {
+
+            final Long count = pending.remove( key );
+
+            if ( count == null || count == 0 ) {
+                continue;
+            }
+
+            drained.put( key, count );
+        }
+
+        return drained;
+    }
+
+
+    /**
+     * Key of a single shard
+     */
+    private static final class ShardKey {
+        private final ApplicationScope scope;
+        private final long shardIndex;
+        private final DirectedEdgeMeta directedEdgeMeta;
+
+
+        private ShardKey( final ApplicationScope scope, final long shardIndex,
+                          final DirectedEdgeMeta directedEdgeMeta ) {
+            this.scope = scope;
+            this.shardIndex = shardIndex;
+            this.directedEdgeMeta = directedEdgeMeta;
+        }
+
+
+        @Override
+        public boolean equals( final Object o ) {
+            if ( this == o ) {
+                return true;
+            }
+            if ( o == null || getClass() != o.getClass() ) {
+                return false;
+            }
+
+            final ShardKey shardKey = ( ShardKey ) o;
+
+            return shardIndex == shardKey.shardIndex && scope.equals( shardKey.scope ) && directedEdgeMeta
+                .equals( shardKey.directedEdgeMeta );
+        }
+
+
+        @Override
+        public int hashCode() {
+            int result = scope.hashCode();
+            result = 31 * result + ( int ) ( shardIndex ^ ( shardIndex >>> 32 ) );
+            result = 31 * result + directedEdgeMeta.hashCode();
+            return result;
+        }
+    }
+}
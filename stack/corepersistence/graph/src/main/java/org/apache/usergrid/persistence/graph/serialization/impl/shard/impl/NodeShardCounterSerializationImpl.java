@@ -0,0 +1,182 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.usergrid.persistence.graph.serialization.impl.shard.impl;
+
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+
+import org.apache.cassandra.db.marshal.BytesType;
+import org.apache.cassandra.db.marshal.CounterColumnType;
+
+import org.apache.usergrid.persistence.core.CassandraConfig;
+import org.apache.usergrid.persistence.core.astyanax.ColumnTypes;
+import org.apache.usergrid.persistence.core.astyanax.MultiTenantColumnFamily;
+import org.apache.usergrid.persistence.core.astyanax.MultiTenantColumnFamilyDefinition;
+import org.apache.usergrid.persistence.core.astyanax.ScopedRowKey;
+import org.apache.usergrid.persistence.core.astyanax.ScopedRowKeySerializer;
+import org.apache.usergrid.persistence.core.datastax.TableDefinition;
+import org.apache.usergrid.persistence.core.scope.ApplicationScope;
+import org.apache.usergrid.persistence.core.util.ValidationUtils;
+import org.apache.usergrid.persistence.graph.serialization.impl.shard.DirectedEdgeMeta;
+import org.apache.usergrid.persistence.graph.serialization.impl.shard.NodeShardCounterSerialization;
+import org.apache.usergrid.persistence.graph.serialization.impl.shard.impl.serialize.EdgeShardRowKeySerializer;
+import org.apache.usergrid.persistence.graph.serialization.util.GraphValidation;
+
+import com.google.common.base.Optional;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.netflix.astyanax.Keyspace;
+import com.netflix.astyanax.MutationBatch;
+import com.netflix.astyanax.connectionpool.exceptions.ConnectionException;
+import com.netflix.astyanax.connectionpool.exceptions.NotFoundException;
+import com.netflix.astyanax.model.Column;
+import com.netflix.astyanax.serializers.LongSerializer;
+
+
+/**
+ * Stores shard counts in a counter column family.  The row is the edge meta data, each column is a shard index.
+ * Shards whose counter holds every edge in them are marked in a second counter column family with the same layout
+ */
+@Singleton
+public class NodeShardCounterSerializationImpl implements NodeShardCounterSerialization {
+
+
+    /**
+     * Edge shard counts
+     */
+    private static final MultiTenantColumnFamily<ScopedRowKey<DirectedEdgeMeta>, Long> EDGE_SHARD_COUNTS =
+            new MultiTenantColumnFamily<>( "Edge_Shard_Counts",
+                    new ScopedRowKeySerializer<>( EdgeShardRowKeySerializer.INSTANCE ), LongSerializer.get() );
+
+    /**
+     * Shards that have been counted.  A counter so the mark can be batched with the count
+     */
+    private static final MultiTenantColumnFamily<ScopedRowKey<DirectedEdgeMeta>, Long> EDGE_SHARD_COUNTED =
+            new MultiTenantColumnFamily<>( "Edge_Shard_Counted",
+                    new ScopedRowKeySerializer<>( EdgeShardRowKeySerializer.INSTANCE ), LongSerializer.get() );
+
+
+    protected final Keyspace keyspace;
+    protected final CassandraConfig cassandraConfig;
+
+
+    @Inject
+    public NodeShardCounterSerializationImpl( final Keyspace keyspace, final CassandraConfig cassandraConfig ) {
+        this.keyspace = keyspace;
+        this.cassandraConfig = cassandraConfig;
+    }
+
+
+    @Override
+    public MutationBatch incrementCount( final ApplicationScope scope, final long shardIndex,
+                                         final DirectedEdgeMeta directedEdgeMeta, final long count ) {
+
+        ValidationUtils.validateApplicationScope( scope );
+        GraphValidation.validateDirectedEdgeMeta( directedEdgeMeta );
+
+        final ScopedRowKey<DirectedEdgeMeta> rowKey = ScopedRowKey.fromKey( scope.getApplication(), directedEdgeMeta );
+
+        final MutationBatch batch =
+                keyspace.prepareMutationBatch().withConsistencyLevel( cassandraConfig.getWriteCL() );
+
+        batch.withRow( EDGE_SHARD_COUNTS, rowKey ).incrementCounterColumn( shardIndex, count );
+
+        return batch;
+    }
+
+
+    @Override
+    public MutationBatch markCounted( final ApplicationScope scope, final long shardIndex,
+                                      final DirectedEdgeMeta directedEdgeMeta ) {
+
+        ValidationUtils.validateApplicationScope( scope );
+        GraphValidation.validateDirectedEdgeMeta( directedEdgeMeta );
+
+        final ScopedRowKey<DirectedEdgeMeta> rowKey = ScopedRowKey.fromKey( scope.getApplication(), directedEdgeMeta );
+
+        final MutationBatch batch =
+                keyspace.prepareMutationBatch().withConsistencyLevel( cassandraConfig.getWriteCL() );
+
+        batch.withRow( EDGE_SHARD_COUNTED, rowKey ).incrementCounterColumn( shardIndex, 1 );
+
+        return batch;
+    }
+
+
+    @Override
+    public boolean isCounted( final ApplicationScope scope, final long shardIndex,
+                              final DirectedEdgeMeta directedEdgeMeta ) {
+        return readCounter( EDGE_SHARD_COUNTED, scope, shardIndex, directedEdgeMeta ).isPresent();
+    }
+
+
+    @Override
+    public Optional<Long> getCount( final ApplicationScope scope, final long shardIndex,
+                                    final DirectedEdgeMeta directedEdgeMeta ) {
+        return readCounter( EDGE_SHARD_COUNTS, scope, shardIndex, directedEdgeMeta );
+    }
+
+
+    private Optional<Long> readCounter( final MultiTenantColumnFamily<ScopedRowKey<DirectedEdgeMeta>, Long> cf,
+                                        final ApplicationScope scope, final long shardIndex,
+                                        final DirectedEdgeMeta directedEdgeMeta ) {
+
+        ValidationUtils.validateApplicationScope( scope );
+        GraphValidation.validateDirectedEdgeMeta( directedEdgeMeta );
+
+        final ScopedRowKey<DirectedEdgeMeta> rowKey = ScopedRowKey.fromKey( scope.getApplication(), directedEdgeMeta );
+
+        final Column<Long> column;
+
+        try {
+            column = keyspace.prepareQuery( cf ).setConsistencyLevel( cassandraConfig.getReadCL() )
+                             .getKey( rowKey ).getColumn( shardIndex ).execute().getResult();
+        }
+        catch ( NotFoundException nfe ) {
+            //swallow, the shard has never been counted
+            return Optional.absent();
+        }
+        catch ( ConnectionException e ) {
+            throw new RuntimeException( "Unable to connect to casandra", e );
+        }
+
+        return Optional.of( column.getLongValue() );
+    }
+
+
+    @Override
+    public Collection<MultiTenantColumnFamilyDefinition> getColumnFamilies() {
+        return Arrays.asList(
+                new MultiTenantColumnFamilyDefinition( EDGE_SHARD_COUNTS, BytesType.class.getSimpleName(),
+                        ColumnTypes.LONG_TYPE_REVERSED, CounterColumnType.class.getSimpleName(),
+                        MultiTenantColumnFamilyDefinition.CacheOption.KEYS ),
+                new MultiTenantColumnFamilyDefinition( EDGE_SHARD_COUNTED, BytesType.class.getSimpleName(),
+                        ColumnTypes.LONG_TYPE_REVERSED, CounterColumnType.class.getSimpleName(),
+                        MultiTenantColumnFamilyDefinition.CacheOption.KEYS ) );
+    }
+
+
+    @Override
+    public Collection<TableDefinition> getTables() {
+        return Collections.emptyList();
+    }
+}
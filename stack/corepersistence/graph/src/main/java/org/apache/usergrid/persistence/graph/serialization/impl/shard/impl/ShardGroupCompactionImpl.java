@@ -36,11 +36,13 @@ import org.apache.usergrid.persistence.graph.serialization.impl.shard.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import org.apache.usergrid.persistence.core.astyanax.ScopedRowKey;
 import org.apache.usergrid.persistence.core.consistency.TimeService;
 import org.apache.usergrid.persistence.core.scope.ApplicationScope;
 import org.apache.usergrid.persistence.graph.GraphFig;
 import org.apache.usergrid.persistence.graph.MarkedEdge;
 import org.apache.usergrid.persistence.graph.SearchByEdgeType;
+import org.apache.usergrid.persistence.graph.serialization.EdgeCountSerialization;
 import org.apache.usergrid.persistence.model.entity.Id;
 import org.apache.usergrid.persistence.model.util.UUIDGenerator;
 
@@ -89,6 +91,13 @@ public class ShardGroupCompactionImpl implements ShardGroupCompaction {
     private final ShardCompactionTaskTracker shardCompactionTaskTracker;
     private final ShardAuditTaskTracker shardAuditTaskTracker;
     private final NodeShardCache nodeShardCache;
+    private final NodeShardApproximation nodeShardApproximation;
+    private final EdgeCountSerialization edgeCountSerialization;
+
+    /**
+     * Node and edge types currently being recounted on this instance
+     */
+    private final Set<ScopedRowKey<DirectedEdgeMeta>> runningRecounts = ConcurrentHashMap.newKeySet();
 
 
     @Inject
@@ -98,7 +107,9 @@ public class ShardGroupCompactionImpl implements ShardGroupCompaction {
                                      final EdgeColumnFamilies edgeColumnFamilies, final Keyspace keyspace,
                                      final EdgeShardSerialization edgeShardSerialization,
                                      final AsyncTaskExecutor asyncTaskExecutor,
-                                     final NodeShardCache nodeShardCache ) {
+                                     final NodeShardCache nodeShardCache,
+                                     final NodeShardApproximation nodeShardApproximation,
+                                     final EdgeCountSerialization edgeCountSerialization ) {
 
         this.timeService = timeService;
         this.countAudits = new AtomicLong();
@@ -116,6 +127,8 @@ public class ShardGroupCompactionImpl implements ShardGroupCompaction {
 
         this.taskExecutor = asyncTaskExecutor.getExecutorService();
         this.nodeShardCache = nodeShardCache;
+        this.nodeShardApproximation = nodeShardApproximation;
+        this.edgeCountSerialization = edgeCountSerialization;
     }
 
 
@@ -174,6 +187,8 @@ public class ShardGroupCompactionImpl implements ShardGroupCompaction {
 
             long edgeCount = 0;
 
+            final long previousEdgeCount = totalEdgeCount;
+
             Iterator<MarkedEdge> edges = edgeMeta
                 .loadEdges( shardedEdgeSerialization, edgeColumnFamilies, scope, Collections.singleton( sourceShard ),
                     Long.MAX_VALUE, SearchByEdgeType.Order.DESCENDING );
@@ -293,6 +308,17 @@ public class ShardGroupCompactionImpl implements ShardGroupCompaction {
             }
 
 
+            //move the count of the edges along with them
+            final long movedEdgeCount = totalEdgeCount - previousEdgeCount;
+
+            if ( movedEdgeCount > 0 ) {
+                nodeShardApproximation
+                    .increment( scope, Collections.singleton( targetShard ), movedEdgeCount, edgeMeta );
+                nodeShardApproximation
+                    .increment( scope, Collections.singleton( sourceShard ), -movedEdgeCount, edgeMeta );
+            }
+
+
 
         }
 
@@ -385,6 +411,11 @@ public class ShardGroupCompactionImpl implements ShardGroupCompaction {
 
         countAudits.getAndIncrement();
 
+        //single node metas are the ones we keep edge counts for, occasionally recount them exactly
+        if ( isCounted( edgeMeta ) && random.nextDouble() <= graphFig.getEdgeCountRepairChance() ) {
+            recountEdges( scope, edgeMeta );
+        }
+
         if(logger.isTraceEnabled()) {
             logger.trace("Auditing shard group {}. count is {} ", group, countAudits.get());
         }
@@ -428,6 +459,120 @@ public class ShardGroupCompactionImpl implements ShardGroupCompaction {
     }
 
 
+    @Override
+    public ListenableFuture<Optional<Long>> recountEdges( final ApplicationScope scope,
+                                                         final DirectedEdgeMeta edgeMeta ) {
+
+        Preconditions.checkArgument( isCounted( edgeMeta ), "Only source and target edge meta are counted" );
+
+        final ScopedRowKey<DirectedEdgeMeta> key = ScopedRowKey.fromKey( scope.getApplication(), edgeMeta );
+
+        //already recounting, don't read every shard twice
+        if ( !runningRecounts.add( key ) ) {
+            return Futures.immediateFuture( Optional.absent() );
+        }
+
+        final ListenableFuture<Optional<Long>> future;
+
+        try {
+            future = taskExecutor.submit( () -> {
+                try {
+                    return Optional.of( recount( scope, edgeMeta ) );
+                }
+                finally {
+                    runningRecounts.remove( key );
+                }
+            } );
+        }
+        catch ( RejectedExecutionException ree ) {
+            runningRecounts.remove( key );
+
+            //same as audits, we're saturated and can recount later
+            logger.info( "Rejected edge recount of scope {} and edge meta {}", scope, edgeMeta );
+
+            return Futures.immediateFuture( Optional.absent() );
+        }
+
+        Futures.addCallback( future, new FutureCallback<Optional<Long>>() {
+            @Override
+            public void onSuccess( @Nullable final Optional<Long> result ) {
+                if ( logger.isTraceEnabled() ) {
+                    logger.trace( "Recounted {} edges for edge meta {}", result, edgeMeta );
+                }
+            }
+
+
+            @Override
+            public void onFailure( final Throwable t ) {
+                logger.error( "Unable to recount edges.  Exception is ", t );
+            }
+        } );
+
+        return future;
+    }
+
+
+    /**
+     * Count every unmarked edge of the node and edge type across all of its shards, and set the maintained count to
+     * it.  Edges written while we're counting may leave the count off by those edges until the next recount
+     *
+     * @return The exact count
+     */
+    @Override
+    public long recount( final ApplicationScope scope, final DirectedEdgeMeta edgeMeta ) {
+
+        Preconditions.checkArgument( isCounted( edgeMeta ), "Only source and target edge meta are counted" );
+
+        //read every shard at once, edges present in more than one shard during compaction are only returned once
+        final Set<Shard> shards = new HashSet<>();
+
+        final Iterator<ShardEntryGroup> groups = nodeShardAllocation.getShards( scope, edgeMeta );
+
+        while ( groups.hasNext() ) {
+            shards.addAll( groups.next().getReadShards() );
+        }
+
+        final Iterator<MarkedEdge> edges = edgeMeta
+            .loadEdges( shardedEdgeSerialization, edgeColumnFamilies, scope, shards, Long.MAX_VALUE,
+                SearchByEdgeType.Order.DESCENDING );
+
+        long count = 0;
+
+        while ( edges.hasNext() ) {
+            if ( !edges.next().isDeleted() ) {
+                count++;
+            }
+        }
+
+        final Optional<Long> current = edgeCountSerialization.getCount( scope, edgeMeta );
+
+        if ( !current.isPresent() || current.get() != count ) {
+
+            logger.info( "Setting edge count of scope {} and edge meta {} from {} to {}", scope, edgeMeta,
+                current.orNull(), count );
+
+            try {
+                edgeCountSerialization.setCount( scope, edgeMeta, count ).execute();
+            }
+            catch ( ConnectionException e ) {
+                throw new RuntimeException( "Unable to connect to cassandra", e );
+            }
+        }
+
+        return count;
+    }
+
+
+    /**
+     * True if the meta is a single node and edge type, which we maintain edge counts for
+     */
+    private static boolean isCounted( final DirectedEdgeMeta edgeMeta ) {
+        final DirectedEdgeMeta.MetaType type = edgeMeta.getType();
+
+        return type == DirectedEdgeMeta.MetaType.SOURCE || type == DirectedEdgeMeta.MetaType.TARGET;
+    }
+
+
     private final class ShardAuditTask implements Callable<AuditResult> {
 
         private final ApplicationScope scope;
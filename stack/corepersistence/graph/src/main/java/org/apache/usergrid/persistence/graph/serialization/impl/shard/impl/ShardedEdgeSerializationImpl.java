@@ -25,6 +25,7 @@ import java.nio.ByteBuffer;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.UUID;
+import java.util.concurrent.ExecutorService;
 
 import javax.annotation.Nullable;
 import javax.inject.Inject;
@@ -32,8 +33,10 @@ import javax.inject.Inject;
 import com.google.common.base.Optional;
 import org.apache.usergrid.persistence.core.CassandraConfig;
 import org.apache.usergrid.persistence.core.astyanax.MultiTenantColumnFamily;
+import org.apache.usergrid.persistence.core.astyanax.ReadAheadIterator;
 import org.apache.usergrid.persistence.core.astyanax.ScopedRowKey;
 import org.apache.usergrid.persistence.core.consistency.TimeService;
+import org.apache.usergrid.persistence.core.executor.TaskExecutorFactory;
 import org.apache.usergrid.persistence.core.scope.ApplicationScope;
 import org.apache.usergrid.persistence.core.util.ValidationUtils;
 import org.apache.usergrid.persistence.graph.Edge;
@@ -82,6 +85,11 @@ public class ShardedEdgeSerializationImpl implements ShardedEdgeSerialization {
     protected final TimeService timeService;
     protected final EdgeShardSerialization edgeShardSerialization;
 
+    /**
+     * Advances edge iterators ahead of their consumers, null when read ahead is disabled
+     */
+    private final ExecutorService readAheadExecutor;
+
 
 
     @Inject
@@ -106,6 +114,11 @@ public class ShardedEdgeSerializationImpl implements ShardedEdgeSerialization {
         this.writeEdgeShardStrategy = writeEdgeShardStrategy;
         this.timeService = timeService;
         this.edgeShardSerialization = edgeShardSerialization;
+
+        //never queue reads, if every worker is busy the consumer reads its own pages as it would without read ahead
+        this.readAheadExecutor = graphFig.getReadAheadPages() < 1 ? null : TaskExecutorFactory
+            .createTaskExecutor( "EdgeReadAhead", graphFig.getReadAheadWorkerCount(), 0,
+                TaskExecutorFactory.RejectionAction.ABORT );
     }
 
 
@@ -396,8 +409,7 @@ public class ShardedEdgeSerializationImpl implements ShardedEdgeSerialization {
 
                 };
 
-        return new ShardsColumnIterator<>( searcher, columnFamily, keyspace, cassandraConfig.getReadCL(),
-                graphFig.getScanPageSize(), graphFig.getSmartShardSeekEnabled() );
+        return createIterator( searcher, columnFamily );
     }
 
 
@@ -467,8 +479,7 @@ public class ShardedEdgeSerializationImpl implements ShardedEdgeSerialization {
                 };
 
 
-        return new ShardsColumnIterator<>( searcher, columnFamily, keyspace, cassandraConfig.getReadCL(),
-                graphFig.getScanPageSize(), graphFig.getSmartShardSeekEnabled() );
+        return createIterator( searcher, columnFamily );
     }
 
 
@@ -532,8 +543,7 @@ public class ShardedEdgeSerializationImpl implements ShardedEdgeSerialization {
                     }
                 };
 
-        return new ShardsColumnIterator( searcher, columnFamily, keyspace, cassandraConfig.getReadCL(),
-                graphFig.getScanPageSize(), graphFig.getSmartShardSeekEnabled() );
+        return createIterator( searcher, columnFamily );
     }
 
 
@@ -594,8 +604,7 @@ public class ShardedEdgeSerializationImpl implements ShardedEdgeSerialization {
                 };
 
 
-        return new ShardsColumnIterator<>( searcher, columnFamily, keyspace, cassandraConfig.getReadCL(),
-                graphFig.getScanPageSize(), graphFig.getSmartShardSeekEnabled() );
+        return createIterator( searcher, columnFamily );
     }
 
 
@@ -657,12 +666,33 @@ public class ShardedEdgeSerializationImpl implements ShardedEdgeSerialization {
                     }
                 };
 
-        return new ShardsColumnIterator<>( searcher, columnFamily, keyspace, cassandraConfig.getReadCL(),
-                graphFig.getScanPageSize(), graphFig.getSmartShardSeekEnabled() );
+        return createIterator( searcher, columnFamily );
     }
 
 
+    /**
+     * Create the iterator over the shards of the searcher.  When read ahead is enabled, pages are read ahead of the
+     * consumer up to the configured number of pages, bounded by the max buffered edges
+     */
+    private <R, C> Iterator<MarkedEdge> createIterator( final EdgeSearcher<R, C, MarkedEdge> searcher,
+                                                        final MultiTenantColumnFamily<ScopedRowKey<R>, C> columnFamily ) {
+
+        final int pageSize = graphFig.getScanPageSize();
 
+        final Iterator<MarkedEdge> columns =
+            new ShardsColumnIterator<>( searcher, columnFamily, keyspace, cassandraConfig.getReadCL(), pageSize,
+                graphFig.getSmartShardSeekEnabled() );
+
+        final int readAheadPages = graphFig.getReadAheadPages();
+
+        if ( readAheadPages < 1 || readAheadExecutor == null ) {
+            return columns;
+        }
+
+        final int capacity = ( int ) Math.min( ( long ) readAheadPages * pageSize, graphFig.getReadAheadMaxEdges() );
+
+        return new ReadAheadIterator<>( columns, readAheadExecutor, capacity );
+    }
 
 
     /**
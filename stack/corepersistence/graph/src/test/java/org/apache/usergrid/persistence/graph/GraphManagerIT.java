@@ -19,6 +19,7 @@
 package org.apache.usergrid.persistence.graph;
 
 
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.TimeoutException;
@@ -39,6 +40,8 @@ import org.apache.usergrid.persistence.graph.impl.SimpleSearchByEdge;
 import org.apache.usergrid.persistence.graph.impl.SimpleSearchByEdgeType;
 import org.apache.usergrid.persistence.graph.impl.SimpleSearchEdgeType;
 import org.apache.usergrid.persistence.graph.impl.SimpleSearchIdType;
+import org.apache.usergrid.persistence.graph.serialization.impl.shard.DirectedEdgeMeta;
+import org.apache.usergrid.persistence.graph.serialization.impl.shard.ShardGroupCompaction;
 import org.apache.usergrid.persistence.model.entity.Id;
 import org.apache.usergrid.persistence.model.entity.SimpleId;
 
@@ -73,6 +76,9 @@ public class GraphManagerIT {
     @Inject
     protected GraphManagerFactory emf;
 
+    @Inject
+    protected ShardGroupCompaction shardGroupCompaction;
+
     protected ApplicationScope scope;
 
 
@@ -114,6 +120,165 @@ public class GraphManagerIT {
     }
 
 
+    @Test
+    public void testWriteEdgesBulk() throws TimeoutException, InterruptedException {
+
+        GraphManager gm = emf.createEdgeManager( scope );
+
+        final Id source = createId( "source" );
+        final Id otherSource = createId( "source" );
+
+        //more than a single batch, interleaved across 2 source nodes
+        final int size = 250;
+
+        final List<Edge> toWrite = new ArrayList<>( size * 2 );
+
+        for ( int i = 0; i < size; i++ ) {
+            toWrite.add( createEdge( source, "test", createId( "target" ) ) );
+            toWrite.add( createEdge( otherSource, "test", createId( "target" ) ) );
+        }
+
+        final List<MarkedEdge> written = gm.writeEdges( toWrite ).toList().toBlocking().last();
+
+        assertEquals( "All edges written", size * 2, written.size() );
+
+        assertTrue( "Written edges are returned", written.containsAll( toWrite ) );
+
+
+        final long sourceCount = gm.loadEdgesFromSource(
+            createSearchByEdge( source, "test", Long.MAX_VALUE, null ) ).count().toBlocking().last();
+
+        assertEquals( "All edges from the source are readable", size, sourceCount );
+
+        final long otherSourceCount = gm.loadEdgesFromSource(
+            createSearchByEdge( otherSource, "test", Long.MAX_VALUE, null ) ).count().toBlocking().last();
+
+        assertEquals( "All edges from the other source are readable", size, otherSourceCount );
+
+
+        //and the reversed edges were written
+        final Edge edge = toWrite.get( 0 );
+
+        final Edge returned = gm.loadEdgesToTarget(
+            createSearchByEdge( edge.getTargetNode(), edge.getType(), edge.getTimestamp(), null ) ).toBlocking().last();
+
+        assertEquals( "Correct edge returned", edge, returned );
+    }
+
+
+    @Test
+    public void testWriteEdgeTypeAfterNodeCompaction() throws TimeoutException, InterruptedException {
+
+        GraphManager gm = emf.createEdgeManager( scope );
+
+        final Id sourceId = createId( "source" );
+
+        final Edge edge1 = createEdge( sourceId, "test", createId( "target" ) );
+
+        gm.writeEdge( edge1 ).toBlocking().last();
+
+        //the meta data of this edge is now cached, removing the node must remove it from the cache as well
+        gm.markNode( sourceId, edge1.getTimestamp() ).toBlocking().last();
+
+        gm.compactNode( sourceId ).toBlocking().last();
+
+        final SearchEdgeType edgeTypes = new SimpleSearchEdgeType( sourceId, null, null );
+
+        assertFalse( "Edge types removed", gm.getEdgeTypesFromSource( edgeTypes ).toBlocking().getIterator().hasNext() );
+
+
+        //write the same types again after the delete, the meta data must be written again
+        final Edge edge2 = createEdge( sourceId, "test", createId( "target" ), edge1.getTimestamp() + 1 );
+
+        gm.writeEdge( edge2 ).toBlocking().last();
+
+        final Iterator<String> results = gm.getEdgeTypesFromSource( edgeTypes ).toBlocking().getIterator();
+
+        assertEquals( "Edge type re-written", "test", results.next() );
+
+        assertFalse( "No more edge types", results.hasNext() );
+    }
+
+
+    @Test
+    public void testCountEdges() throws TimeoutException, InterruptedException {
+
+        GraphManager gm = emf.createEdgeManager( scope );
+
+        final Id sourceId = createId( "source" );
+        final Id targetId = createId( "target" );
+
+        final Edge edge1 = createEdge( sourceId, "test", targetId );
+        final Edge edge2 = createEdge( sourceId, "test", createId( "target" ) );
+        final Edge edge3 = createEdge( createId( "source" ), "test", targetId );
+
+        gm.writeEdge( edge1 ).toBlocking().last();
+        gm.writeEdges( Observable.just( edge2, edge3 ) ).toBlocking().last();
+
+        //seed the counts, writes and marks after this are added to them
+        shardGroupCompaction.recount( scope, DirectedEdgeMeta.fromSourceNode( sourceId, "test" ) );
+        shardGroupCompaction.recount( scope, DirectedEdgeMeta.fromTargetNode( targetId, "test" ) );
+        shardGroupCompaction.recount( scope, DirectedEdgeMeta.fromSourceNode( edge3.getSourceNode(), "test" ) );
+
+        assertEquals( "Edges from source counted", 2L,
+            gm.countEdgesFromSource( sourceId, "test" ).toBlocking().last().longValue() );
+
+        assertEquals( "Edges to target counted", 2L,
+            gm.countEdgesToTarget( targetId, "test" ).toBlocking().last().longValue() );
+
+        assertEquals( "Other types not counted", 0L,
+            gm.countEdgesFromSource( sourceId, "other" ).toBlocking().last().longValue() );
+
+
+        //marking removes the edge from both counts
+        gm.markEdge( edge1 ).toBlocking().last();
+
+        assertEquals( "Marked edge not counted from source", 1L,
+            gm.countEdgesFromSource( sourceId, "test" ).toBlocking().last().longValue() );
+
+        assertEquals( "Marked edge not counted to target", 1L,
+            gm.countEdgesToTarget( targetId, "test" ).toBlocking().last().longValue() );
+
+
+        //removing the node removes its remaining edges from the counts of the other nodes
+        gm.markNode( targetId, edge3.getTimestamp() ).toBlocking().last();
+
+        gm.compactNode( targetId ).toBlocking().lastOrDefault( null );
+
+        assertEquals( "Removed edge not counted", 0L,
+            gm.countEdgesFromSource( edge3.getSourceNode(), "test" ).toBlocking().last().longValue() );
+
+        assertEquals( "Unrelated edge still counted", 1L,
+            gm.countEdgesFromSource( sourceId, "test" ).toBlocking().last().longValue() );
+    }
+
+
+    @Test
+    public void testCountEdgesSeeded() throws TimeoutException, InterruptedException {
+
+        GraphManager gm = emf.createEdgeManager( scope );
+
+        final Id sourceId = createId( "source" );
+
+        gm.writeEdges( Observable.just( createEdge( sourceId, "test", createId( "target" ) ),
+            createEdge( sourceId, "test", createId( "target" ) ) ) ).toBlocking().last();
+
+        //never recounted, the first read doesn't wait for the recount that seeds it
+        final long firstCount = gm.countEdgesFromSource( sourceId, "test" ).toBlocking().last();
+
+        assertTrue( "Unseeded count not read", firstCount == 0L || firstCount == 2L );
+
+        long count = firstCount;
+
+        for ( int i = 0; i < 100 && count != 2L; i++ ) {
+            Thread.sleep( 100 );
+            count = gm.countEdgesFromSource( sourceId, "test" ).toBlocking().last();
+        }
+
+        assertEquals( "Count seeded in the background", 2L, count );
+    }
+
+
     @Test
     public void testWriteReadEdgeTypeTarget() throws TimeoutException, InterruptedException {
 
@@ -0,0 +1,155 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.usergrid.persistence.graph.serialization.impl;
+
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.apache.usergrid.persistence.core.scope.ApplicationScope;
+import org.apache.usergrid.persistence.core.scope.ApplicationScopeImpl;
+import org.apache.usergrid.persistence.graph.GraphFig;
+import org.apache.usergrid.persistence.graph.MarkedEdge;
+import org.apache.usergrid.persistence.graph.serialization.EdgeMetadataCache;
+import org.apache.usergrid.persistence.model.entity.Id;
+
+import static org.apache.usergrid.persistence.core.util.IdGenerator.createId;
+import static org.apache.usergrid.persistence.graph.test.util.EdgeTestUtils.createEdge;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+
+/**
+ * Tests the local cache of written edge meta data
+ */
+public class EdgeMetadataCacheImplTest {
+
+    private ApplicationScope scope;
+
+
+    @Before
+    public void setup() {
+        scope = new ApplicationScopeImpl( createId( "application" ) );
+    }
+
+
+    @Test
+    public void writtenEdgeTypes() {
+
+        final EdgeMetadataCache cache = new EdgeMetadataCacheImpl( getFigMock( true ) );
+
+        final Id source = createId( "source" );
+
+        final MarkedEdge edge = createEdge( source, "test", createId( "target" ) );
+
+        assertFalse( cache.isWritten( scope, edge ) );
+
+        cache.markWritten( scope, edge );
+
+        assertTrue( cache.isWritten( scope, edge ) );
+
+        //same types to a new target, the target has never been written
+        assertFalse( cache.isWritten( scope, createEdge( source, "test", createId( "target" ) ) ) );
+
+        //a different target type from the same source
+        assertFalse( cache.isWritten( scope, createEdge( source, "test", createId( "other" ) ) ) );
+
+        //a different edge type to the same target
+        assertFalse( cache.isWritten( scope, createEdge( source, "other", edge.getTargetNode() ) ) );
+
+        //the same edge in another application
+        assertFalse( cache.isWritten( new ApplicationScopeImpl( createId( "application" ) ), edge ) );
+    }
+
+
+    @Test
+    public void newerEdgeWrittenAgain() {
+
+        final EdgeMetadataCache cache = new EdgeMetadataCacheImpl( getFigMock( true ) );
+
+        final Id source = createId( "source" );
+        final Id target = createId( "target" );
+
+        cache.markWritten( scope, createEdge( source, "test", target, 1000 ) );
+
+        //older or the same timestamp, the columns we wrote are at least as new
+        assertTrue( cache.isWritten( scope, createEdge( source, "test", target, 999 ) ) );
+        assertTrue( cache.isWritten( scope, createEdge( source, "test", target, 1000 ) ) );
+
+        //newer, it must be written so it outlives any repair since
+        assertFalse( cache.isWritten( scope, createEdge( source, "test", target, 1001 ) ) );
+
+        cache.markWritten( scope, createEdge( source, "test", target, 2000 ) );
+
+        //an older write never lowers what we've written
+        cache.markWritten( scope, createEdge( source, "test", target, 1500 ) );
+
+        assertTrue( cache.isWritten( scope, createEdge( source, "test", target, 2000 ) ) );
+    }
+
+
+    @Test
+    public void invalidateNode() {
+
+        final EdgeMetadataCache cache = new EdgeMetadataCacheImpl( getFigMock( true ) );
+
+        final MarkedEdge edge = createEdge( "source", "test", "target" );
+
+        cache.markWritten( scope, edge );
+
+        assertTrue( cache.isWritten( scope, edge ) );
+
+        cache.invalidate( scope, edge.getTargetNode() );
+
+        assertFalse( cache.isWritten( scope, edge ) );
+
+        cache.markWritten( scope, edge );
+
+        assertTrue( cache.isWritten( scope, edge ) );
+
+        cache.invalidate( scope, edge.getSourceNode() );
+
+        assertFalse( cache.isWritten( scope, edge ) );
+    }
+
+
+    @Test
+    public void disabled() {
+
+        final EdgeMetadataCache cache = new EdgeMetadataCacheImpl( getFigMock( false ) );
+
+        final MarkedEdge edge = createEdge( "source", "test", "target" );
+
+        cache.markWritten( scope, edge );
+
+        assertFalse( cache.isWritten( scope, edge ) );
+    }
+
+
+    private GraphFig getFigMock( final boolean enabled ) {
+        final GraphFig graphFig = mock( GraphFig.class );
+        when( graphFig.getEdgeMetaCacheEnabled() ).thenReturn( enabled );
+        when( graphFig.getEdgeMetaCacheSize() ).thenReturn( 1000l );
+        when( graphFig.getEdgeMetaCacheTimeout() ).thenReturn( 30000l );
+
+        return graphFig;
+    }
+}
@@ -52,8 +52,11 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.fail;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Matchers.same;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 
@@ -62,6 +65,8 @@ public class NodeShardAllocationTest {
 
     private GraphFig graphFig;
 
+    private NodeShardApproximation nodeShardApproximation;
+
 
     protected ApplicationScope scope;
 
@@ -85,6 +90,12 @@ public class NodeShardAllocationTest {
         final long timeout = 30000;
         when( graphFig.getShardCacheTimeout() ).thenReturn( timeout );
         when( graphFig.getShardMinDelta() ).thenReturn( ( long ) (timeout * 2.5) );
+
+        //by default no shard has been counted, so audits scan the shard
+        nodeShardApproximation = mock( NodeShardApproximation.class );
+
+        when( nodeShardApproximation.getCount( any( ApplicationScope.class ), any( Shard.class ),
+            any( DirectedEdgeMeta.class ) ) ).thenReturn( Optional.<Long>absent() );
     }
 
 
@@ -106,7 +117,8 @@ public class NodeShardAllocationTest {
 
         NodeShardAllocation approximation =
                 new NodeShardAllocationImpl( edgeShardSerialization, edgeColumnFamilies, shardedEdgeSerialization,
-                         timeService, graphFig, shardGroupCompaction, nodeShardCache );
+                         timeService, graphFig, shardGroupCompaction, nodeShardCache,
+                        nodeShardApproximation );
 
 
         final long timeservicetime = System.currentTimeMillis();
@@ -139,7 +151,8 @@ public class NodeShardAllocationTest {
 
         NodeShardAllocation approximation =
                 new NodeShardAllocationImpl( edgeShardSerialization, edgeColumnFamilies, shardedEdgeSerialization,
-                      timeService, graphFig, shardGroupCompaction, nodeShardCache);
+                      timeService, graphFig, shardGroupCompaction, nodeShardCache,
+                        nodeShardApproximation );
 
         final Id nodeId = IdGenerator.createId( "test" );
         final String type = "type";
@@ -182,7 +195,8 @@ public class NodeShardAllocationTest {
 
         NodeShardAllocation approximation =
                 new NodeShardAllocationImpl( edgeShardSerialization, edgeColumnFamilies, shardedEdgeSerialization,
-                        timeService, graphFig, shardGroupCompaction, nodeShardCache );
+                        timeService, graphFig, shardGroupCompaction, nodeShardCache,
+                        nodeShardApproximation );
 
         final Id nodeId = IdGenerator.createId( "test" );
         final String type = "type";
@@ -229,7 +243,8 @@ public class NodeShardAllocationTest {
 
         NodeShardAllocation approximation =
                 new NodeShardAllocationImpl( edgeShardSerialization, edgeColumnFamilies, shardedEdgeSerialization,
-                        timeService, graphFig, shardGroupCompaction, nodeShardCache );
+                        timeService, graphFig, shardGroupCompaction, nodeShardCache,
+                        nodeShardApproximation );
 
         final Id nodeId = IdGenerator.createId( "test" );
         final String type = "type";
@@ -320,6 +335,223 @@ public class NodeShardAllocationTest {
         final long savedShardPivot = shardValue.getValue().getShardIndex();
 
         assertEquals( "Expected max value to be the same", keep.getTimestamp(), savedShardPivot );
+
+        //the shard was never counted, the scan seeds its count
+        verify( nodeShardApproximation ).setCount( same( scope ), same( futureShard ), eq( shardCount ),
+                same( targetEdgeMeta ) );
+    }
+
+
+    @Test
+    public void lowCountCountedShard() {
+        final ShardGroupCompaction shardGroupCompaction = mock( ShardGroupCompaction.class );
+
+        final EdgeShardSerialization edgeShardSerialization = mock( EdgeShardSerialization.class );
+
+        final EdgeColumnFamilies edgeColumnFamilies = mock( EdgeColumnFamilies.class );
+
+        final ShardedEdgeSerialization shardedEdgeSerialization = mock( ShardedEdgeSerialization.class );
+
+        final TimeService timeService = mock( TimeService.class );
+
+        final NodeShardCache nodeShardCache = mock( NodeShardCache.class);
+
+
+        NodeShardAllocation approximation =
+                new NodeShardAllocationImpl( edgeShardSerialization, edgeColumnFamilies, shardedEdgeSerialization,
+                        timeService, graphFig, shardGroupCompaction, nodeShardCache,
+                        nodeShardApproximation );
+
+        final Id nodeId = IdGenerator.createId( "test" );
+        final String type = "type";
+        final String subType = "subType";
+
+
+        final long timeservicetime = System.currentTimeMillis();
+
+        when( timeService.getCurrentTime() ).thenReturn( timeservicetime );
+
+        final Shard futureShard = new Shard( 0l, 0l, true );
+
+        final ShardEntryGroup shardEntryGroup = new ShardEntryGroup( 1000l );
+        shardEntryGroup.addShard( futureShard );
+
+        final DirectedEdgeMeta targetEdgeMeta = DirectedEdgeMeta.fromSourceNodeTargetType( nodeId, type, subType );
+
+
+        //return a count < our max by 1
+        when( nodeShardApproximation.getCount( same( scope ), same( futureShard ), same( targetEdgeMeta ) ) )
+                .thenReturn( Optional.of( graphFig.getShardSize() - 1 ) );
+
+
+        final boolean result = approximation.auditShard( scope, shardEntryGroup, targetEdgeMeta );
+
+        assertFalse( "Shard allocated", result );
+
+        //the count is enough to decide, we should never have read the shard
+        verify( shardedEdgeSerialization, never() )
+                .getEdgesFromSourceByTargetType( same( edgeColumnFamilies ), same( scope ), any( SearchByIdType.class ),
+                        any( Collection.class ) );
+    }
+
+
+    @Test
+    public void overAllocatedCountedShard() {
+        final ShardGroupCompaction shardGroupCompaction = mock( ShardGroupCompaction.class );
+
+        final EdgeShardSerialization edgeShardSerialization = mock( EdgeShardSerialization.class );
+
+        final EdgeColumnFamilies edgeColumnFamilies = mock( EdgeColumnFamilies.class );
+
+        final ShardedEdgeSerialization shardedEdgeSerialization = mock( ShardedEdgeSerialization.class );
+
+        final TimeService timeService = mock( TimeService.class );
+
+        final NodeShardCache nodeShardCache = mock( NodeShardCache.class);
+
+
+        NodeShardAllocation approximation =
+                new NodeShardAllocationImpl( edgeShardSerialization, edgeColumnFamilies, shardedEdgeSerialization,
+                        timeService, graphFig, shardGroupCompaction, nodeShardCache,
+                        nodeShardApproximation );
+
+        final Id nodeId = IdGenerator.createId( "test" );
+        final String type = "type";
+        final String subType = "subType";
+
+
+        final long timeservicetime = System.currentTimeMillis();
+
+        when( timeService.getCurrentTime() ).thenReturn( timeservicetime );
+
+        final Shard futureShard = new Shard( 0l, 0l, true );
+
+        final ShardEntryGroup shardEntryGroup = new ShardEntryGroup( 1000l );
+        shardEntryGroup.addShard( futureShard );
+
+        final DirectedEdgeMeta targetEdgeMeta = DirectedEdgeMeta.fromSourceNodeTargetType( nodeId, type, subType );
+
+
+        /**
+         * Count 2.5x what this shard should have.  We should ultimately have a split at 2x, which is 0.5x from the
+         * head of the shard
+         */
+        final long shardCount = ( long ) ( graphFig.getShardSize() * 2.5 );
+
+        when( nodeShardApproximation.getCount( same( scope ), same( futureShard ), same( targetEdgeMeta ) ) )
+                .thenReturn( Optional.of( shardCount ) );
+
+        final int numToSkip = ( int ) ( graphFig.getShardSize() / 2 );
+
+
+        SimpleMarkedEdge skipped = new SimpleMarkedEdge( nodeId, type, IdGenerator.createId( subType ), 20000, false );
+        SimpleMarkedEdge keep = new SimpleMarkedEdge( nodeId, type, IdGenerator.createId( subType ), 10000, false );
+
+        //edges are read descending from the head of the shard
+        List<MarkedEdge> edges = new ArrayList<>( numToSkip + 100 );
+
+        for ( int i = 0; i < numToSkip; i++ ) {
+            edges.add( skipped );
+        }
+
+        edges.add( keep );
+
+        //allocate some extra to ensure we stop at the pivot
+        for ( int i = 0; i < 100; i++ ) {
+            edges.add( skipped );
+        }
+
+
+        when( shardedEdgeSerialization
+                .getEdgesFromSourceByTargetType( same( edgeColumnFamilies ), same( scope ), any( SearchByIdType.class ),
+                        any( Collection.class ) ) ).thenReturn( edges.iterator() );
+
+
+        ArgumentCaptor<Shard> shardValue = ArgumentCaptor.forClass( Shard.class );
+
+        when( edgeShardSerialization.writeShardMeta( same( scope ), shardValue.capture(), same( targetEdgeMeta ) ) )
+                .thenReturn( mock( MutationBatch.class ) );
+
+
+        final boolean result = approximation.auditShard( scope, shardEntryGroup, targetEdgeMeta );
+
+        assertTrue( "Shard was split correctly", result );
+
+        assertEquals( "Expected time service time", timeservicetime, shardValue.getValue().getCreatedTime() );
+
+        assertEquals( "Expected pivot to be the edge at the count", keep.getTimestamp(),
+                shardValue.getValue().getShardIndex() );
+
+        //the new shard starts empty, so it's counted from the start
+        verify( nodeShardApproximation ).markCounted( same( scope ), same( shardValue.getValue() ),
+                same( targetEdgeMeta ) );
+    }
+
+
+    @Test
+    public void overCountedShardResetsCount() {
+        final ShardGroupCompaction shardGroupCompaction = mock( ShardGroupCompaction.class );
+
+        final EdgeShardSerialization edgeShardSerialization = mock( EdgeShardSerialization.class );
+
+        final EdgeColumnFamilies edgeColumnFamilies = mock( EdgeColumnFamilies.class );
+
+        final ShardedEdgeSerialization shardedEdgeSerialization = mock( ShardedEdgeSerialization.class );
+
+        final TimeService timeService = mock( TimeService.class );
+
+        final NodeShardCache nodeShardCache = mock( NodeShardCache.class);
+
+
+        NodeShardAllocation approximation =
+                new NodeShardAllocationImpl( edgeShardSerialization, edgeColumnFamilies, shardedEdgeSerialization,
+                        timeService, graphFig, shardGroupCompaction, nodeShardCache,
+                        nodeShardApproximation );
+
+        final Id nodeId = IdGenerator.createId( "test" );
+        final String type = "type";
+        final String subType = "subType";
+
+
+        final long timeservicetime = System.currentTimeMillis();
+
+        when( timeService.getCurrentTime() ).thenReturn( timeservicetime );
+
+        final Shard futureShard = new Shard( 0l, 0l, true );
+
+        final ShardEntryGroup shardEntryGroup = new ShardEntryGroup( 1000l );
+        shardEntryGroup.addShard( futureShard );
+
+        final DirectedEdgeMeta targetEdgeMeta = DirectedEdgeMeta.fromSourceNodeTargetType( nodeId, type, subType );
+
+
+        //count 2.5x the shard size, but the shard only holds a few edges
+        when( nodeShardApproximation.getCount( same( scope ), same( futureShard ), same( targetEdgeMeta ) ) )
+                .thenReturn( Optional.of( ( long ) ( graphFig.getShardSize() * 2.5 ) ) );
+
+        final int actualCount = 100;
+
+        List<MarkedEdge> edges = new ArrayList<>( actualCount );
+
+        for ( int i = 0; i < actualCount; i++ ) {
+            edges.add( new SimpleMarkedEdge( nodeId, type, IdGenerator.createId( subType ), 10000 + i, false ) );
+        }
+
+        when( shardedEdgeSerialization
+                .getEdgesFromSourceByTargetType( same( edgeColumnFamilies ), same( scope ), any( SearchByIdType.class ),
+                        any( Collection.class ) ) ).thenReturn( edges.iterator() );
+
+
+        final boolean result = approximation.auditShard( scope, shardEntryGroup, targetEdgeMeta );
+
+        assertFalse( "No pivot from an over counted shard", result );
+
+        verify( edgeShardSerialization, never() )
+                .writeShardMeta( same( scope ), any( Shard.class ), same( targetEdgeMeta ) );
+
+        //we read every edge, so the count is reset to what we found
+        verify( nodeShardApproximation ).setCount( same( scope ), same( futureShard ), eq( ( long ) actualCount ),
+                same( targetEdgeMeta ) );
     }
 
 
@@ -342,7 +574,8 @@ public class NodeShardAllocationTest {
 
         NodeShardAllocation approximation =
                 new NodeShardAllocationImpl( edgeShardSerialization, edgeColumnFamilies, shardedEdgeSerialization,
-                         timeService, graphFig, shardGroupCompaction, nodeShardCache );
+                         timeService, graphFig, shardGroupCompaction, nodeShardCache,
+                        nodeShardApproximation );
 
         final Id nodeId = IdGenerator.createId( "test" );
         final String type = "type";
@@ -431,7 +664,8 @@ public class NodeShardAllocationTest {
 
         NodeShardAllocation approximation =
                 new NodeShardAllocationImpl( edgeShardSerialization, edgeColumnFamilies, shardedEdgeSerialization,
-                       timeService, graphFig, shardGroupCompaction, nodeShardCache );
+                       timeService, graphFig, shardGroupCompaction, nodeShardCache,
+                        nodeShardApproximation );
 
         final Id nodeId = IdGenerator.createId( "test" );
         final String type = "type";
@@ -498,7 +732,8 @@ public class NodeShardAllocationTest {
 
         NodeShardAllocation approximation =
                 new NodeShardAllocationImpl( edgeShardSerialization, edgeColumnFamilies, shardedEdgeSerialization,
-                         timeService, graphFig, shardGroupCompaction, nodeShardCache );
+                         timeService, graphFig, shardGroupCompaction, nodeShardCache,
+                        nodeShardApproximation );
 
         final Id nodeId = IdGenerator.createId( "test" );
         final String type = "type";
@@ -638,7 +873,8 @@ public class NodeShardAllocationTest {
 
         NodeShardAllocation approximation =
                 new NodeShardAllocationImpl( edgeShardSerialization, edgeColumnFamilies, shardedEdgeSerialization,
-                       timeService, graphFig, shardGroupCompaction, nodeShardCache );
+                       timeService, graphFig, shardGroupCompaction, nodeShardCache,
+                        nodeShardApproximation );
 
         final Id nodeId = IdGenerator.createId( "test" );
         final String type = "type";
@@ -732,7 +968,8 @@ public class NodeShardAllocationTest {
 
         NodeShardAllocation approximation =
                 new NodeShardAllocationImpl( edgeShardSerialization, edgeColumnFamilies, shardedEdgeSerialization,
-                      timeService, graphFig, shardGroupCompaction, nodeShardCache );
+                      timeService, graphFig, shardGroupCompaction, nodeShardCache,
+                        nodeShardApproximation );
 
 
         /**
@@ -22,7 +22,9 @@
 package org.apache.usergrid.persistence.graph.serialization.impl.shard;
 
 
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 
 import org.hamcrest.BaseMatcher;
 import org.hamcrest.Description;
@@ -36,15 +38,25 @@ import org.apache.usergrid.persistence.core.scope.ApplicationScope;
 import org.apache.usergrid.persistence.core.scope.ApplicationScopeImpl;
 import org.apache.usergrid.persistence.core.util.IdGenerator;
 import org.apache.usergrid.persistence.graph.GraphFig;
+import org.apache.usergrid.persistence.graph.MarkedEdge;
+import org.apache.usergrid.persistence.graph.impl.SimpleMarkedEdge;
+import org.apache.usergrid.persistence.graph.serialization.EdgeCountSerialization;
 import org.apache.usergrid.persistence.graph.serialization.impl.shard.impl.ShardGroupCompactionImpl;
+import org.apache.usergrid.persistence.model.entity.Id;
 
+import com.google.common.base.Optional;
 import com.google.common.util.concurrent.ListeningExecutorService;
 import com.google.common.util.concurrent.MoreExecutors;
 import com.netflix.astyanax.Keyspace;
+import com.netflix.astyanax.MutationBatch;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.same;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 
@@ -118,7 +130,8 @@ public class ShardGroupCompactionTest {
 
         ShardGroupCompactionImpl compaction =
             new ShardGroupCompactionImpl( timeService, graphFig, nodeShardAllocation, shardedEdgeSerialization,
-                edgeColumnFamilies, keyspace, edgeShardSerialization, asyncTaskExecutor, nodeShardCache );
+                edgeColumnFamilies, keyspace, edgeShardSerialization, asyncTaskExecutor, nodeShardCache,
+                mock( NodeShardApproximation.class ), mock( EdgeCountSerialization.class ) );
 
         DirectedEdgeMeta directedEdgeMeta = DirectedEdgeMeta.fromSourceNode( IdGenerator.createId( "source" ), "test" );
 
@@ -133,6 +146,111 @@ public class ShardGroupCompactionTest {
     }
 
 
+    /**
+     * Tests the recount reads every shard, skips marked edges, and repairs the count by the difference
+     */
+    @Test
+    public void recountRepairsCount() {
+
+        final NodeShardAllocation nodeShardAllocation = mock( NodeShardAllocation.class );
+
+        final ShardedEdgeSerialization shardedEdgeSerialization = mock( ShardedEdgeSerialization.class );
+
+        final EdgeColumnFamilies edgeColumnFamilies = mock( EdgeColumnFamilies.class );
+
+        final EdgeCountSerialization edgeCountSerialization = mock( EdgeCountSerialization.class );
+
+
+        final Id sourceId = IdGenerator.createId( "source" );
+
+        final DirectedEdgeMeta directedEdgeMeta = DirectedEdgeMeta.fromSourceNode( sourceId, "test" );
+
+        ShardEntryGroup group = new ShardEntryGroup( 10000 );
+        group.addShard( new Shard( 0, 0, true ) );
+
+        when( nodeShardAllocation.getShards( same( scope ), same( directedEdgeMeta ) ) )
+            .thenReturn( Collections.singletonList( group ).iterator() );
+
+        final MarkedEdge edge1 = new SimpleMarkedEdge( sourceId, "test", IdGenerator.createId( "target" ), 3, false );
+        final MarkedEdge edge2 = new SimpleMarkedEdge( sourceId, "test", IdGenerator.createId( "target" ), 2, true );
+        final MarkedEdge edge3 = new SimpleMarkedEdge( sourceId, "test", IdGenerator.createId( "target" ), 1, false );
+
+        when( shardedEdgeSerialization.getEdgesFromSource( same( edgeColumnFamilies ), same( scope ), any(),
+            any( Collection.class ) ) ).thenReturn( Arrays.asList( edge1, edge2, edge3 ).iterator() );
+
+        //we've counted too many, we should set it back to 2
+        when( edgeCountSerialization.getCount( same( scope ), same( directedEdgeMeta ) ) )
+            .thenReturn( Optional.of( 5L ) );
+
+        final MutationBatch batch = mock( MutationBatch.class );
+
+        when( edgeCountSerialization.setCount( same( scope ), same( directedEdgeMeta ), eq( 2L ) ) )
+            .thenReturn( batch );
+
+        ShardGroupCompactionImpl compaction =
+            new ShardGroupCompactionImpl( mock( TimeService.class ), graphFig, nodeShardAllocation,
+                shardedEdgeSerialization, edgeColumnFamilies, mock( Keyspace.class ),
+                mock( EdgeShardSerialization.class ), asyncTaskExecutor, mock( NodeShardCache.class ),
+                mock( NodeShardApproximation.class ), edgeCountSerialization );
+
+        final long count = compaction.recount( scope, directedEdgeMeta );
+
+        assertEquals( "Marked edges are not counted", 2, count );
+
+        verify( edgeCountSerialization ).setCount( scope, directedEdgeMeta, 2L );
+    }
+
+
+    /**
+     * A count that has never been recounted is seeded, even when it happens to match
+     */
+    @Test
+    public void recountSeedsCount() {
+
+        final NodeShardAllocation nodeShardAllocation = mock( NodeShardAllocation.class );
+
+        final ShardedEdgeSerialization shardedEdgeSerialization = mock( ShardedEdgeSerialization.class );
+
+        final EdgeColumnFamilies edgeColumnFamilies = mock( EdgeColumnFamilies.class );
+
+        final EdgeCountSerialization edgeCountSerialization = mock( EdgeCountSerialization.class );
+
+
+        final Id targetId = IdGenerator.createId( "target" );
+
+        final DirectedEdgeMeta directedEdgeMeta = DirectedEdgeMeta.fromTargetNode( targetId, "test" );
+
+        ShardEntryGroup group = new ShardEntryGroup( 10000 );
+        group.addShard( new Shard( 0, 0, true ) );
+
+        when( nodeShardAllocation.getShards( same( scope ), same( directedEdgeMeta ) ) )
+            .thenReturn( Collections.singletonList( group ).iterator() );
+
+        final MarkedEdge edge = new SimpleMarkedEdge( IdGenerator.createId( "source" ), "test", targetId, 1, false );
+
+        when( shardedEdgeSerialization.getEdgesToTarget( same( edgeColumnFamilies ), same( scope ), any(),
+            any( Collection.class ) ) ).thenReturn( Collections.singletonList( edge ).iterator() );
+
+        when( edgeCountSerialization.getCount( same( scope ), same( directedEdgeMeta ) ) )
+            .thenReturn( Optional.absent() );
+
+        final MutationBatch batch = mock( MutationBatch.class );
+
+        when( edgeCountSerialization.setCount( same( scope ), same( directedEdgeMeta ), eq( 1L ) ) )
+            .thenReturn( batch );
+
+        ShardGroupCompactionImpl compaction =
+            new ShardGroupCompactionImpl( mock( TimeService.class ), graphFig, nodeShardAllocation,
+                shardedEdgeSerialization, edgeColumnFamilies, mock( Keyspace.class ),
+                mock( EdgeShardSerialization.class ), asyncTaskExecutor, mock( NodeShardCache.class ),
+                mock( NodeShardApproximation.class ), edgeCountSerialization );
+
+        assertEquals( 1, compaction.recount( scope, directedEdgeMeta ) );
+
+        verify( edgeCountSerialization ).setCount( scope, directedEdgeMeta, 1L );
+    }
+
+
     //    /**
     //     * Tests that when we copy edges, we do not actually run the compaction,
     // we can only run it after we get nothing
@@ -0,0 +1,151 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.usergrid.persistence.graph.serialization.impl.shard.impl;
+
+
+import java.util.Collections;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.apache.usergrid.persistence.core.consistency.TimeService;
+import org.apache.usergrid.persistence.core.scope.ApplicationScope;
+import org.apache.usergrid.persistence.core.scope.ApplicationScopeImpl;
+import org.apache.usergrid.persistence.graph.GraphFig;
+import org.apache.usergrid.persistence.graph.serialization.impl.shard.DirectedEdgeMeta;
+import org.apache.usergrid.persistence.graph.serialization.impl.shard.NodeShardApproximation;
+import org.apache.usergrid.persistence.graph.serialization.impl.shard.NodeShardCounterSerialization;
+import org.apache.usergrid.persistence.graph.serialization.impl.shard.Shard;
+
+import com.google.common.base.Optional;
+import com.netflix.astyanax.MutationBatch;
+import com.netflix.astyanax.connectionpool.exceptions.ConnectionException;
+import com.netflix.astyanax.connectionpool.exceptions.TimeoutException;
+
+import static org.apache.usergrid.persistence.core.util.IdGenerator.createId;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.same;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+
+public class NodeShardApproximationImplTest {
+
+    private NodeShardCounterSerialization serialization;
+    private NodeShardApproximation approximation;
+
+    private ApplicationScope scope;
+    private Shard shard;
+    private DirectedEdgeMeta edgeMeta;
+
+
+    @Before
+    public void setup() {
+        serialization = mock( NodeShardCounterSerialization.class );
+
+        //only flush when asked to
+        final GraphFig graphFig = mock( GraphFig.class );
+        when( graphFig.getCounterFlushCount() ).thenReturn( Long.MAX_VALUE );
+        when( graphFig.getCounterFlushInterval() ).thenReturn( Long.MAX_VALUE );
+        when( graphFig.getCounterFlushQueueSize() ).thenReturn( 10 );
+
+        approximation = new NodeShardApproximationImpl( serialization, graphFig, mock( TimeService.class ) );
+
+        scope = new ApplicationScopeImpl( createId( "application" ) );
+        shard = new Shard( 1000L, 1000L, true );
+        edgeMeta = DirectedEdgeMeta.fromSourceNode( createId( "source" ), "test" );
+
+        when( serialization.getCount( same( scope ), eq( shard.getShardIndex() ), same( edgeMeta ) ) )
+            .thenReturn( Optional.<Long>absent() );
+    }
+
+
+    @Test
+    public void failedFlushKeepsCounts() throws ConnectionException {
+
+        final MutationBatch failing = mock( MutationBatch.class );
+        when( failing.execute() ).thenThrow( new TimeoutException( "test" ) );
+
+        final MutationBatch working = mock( MutationBatch.class );
+
+        when( serialization.incrementCount( same( scope ), eq( shard.getShardIndex() ), same( edgeMeta ), eq( 3L ) ) )
+            .thenReturn( failing, working );
+
+        when( serialization.isCounted( same( scope ), eq( shard.getShardIndex() ), same( edgeMeta ) ) )
+            .thenReturn( true );
+
+        approximation.increment( scope, Collections.singleton( shard ), 3, edgeMeta );
+
+        try {
+            approximation.flush();
+            fail( "The flush should have failed" );
+        }
+        catch ( RuntimeException e ) {
+            //expected
+        }
+
+        assertEquals( "Count kept after the failed flush", 3L,
+            approximation.getCount( scope, shard, edgeMeta ).get().longValue() );
+
+        approximation.flush();
+
+        verify( working ).execute();
+    }
+
+
+    @Test
+    public void uncountedShardIsAbsent() {
+
+        when( serialization.isCounted( same( scope ), eq( shard.getShardIndex() ), same( edgeMeta ) ) )
+            .thenReturn( false );
+
+        //written since counting began, but the shard may hold edges from before it
+        approximation.increment( scope, Collections.singleton( shard ), 3, edgeMeta );
+
+        assertFalse( approximation.getCount( scope, shard, edgeMeta ).isPresent() );
+    }
+
+
+    @Test
+    public void setCountAddsDifference() throws ConnectionException {
+
+        when( serialization.getCount( same( scope ), eq( shard.getShardIndex() ), same( edgeMeta ) ) )
+            .thenReturn( Optional.of( 5L ) );
+
+        final MutationBatch mark = mock( MutationBatch.class );
+        final MutationBatch increment = mock( MutationBatch.class );
+
+        when( serialization.markCounted( same( scope ), eq( shard.getShardIndex() ), same( edgeMeta ) ) )
+            .thenReturn( mark );
+
+        //5 flushed and 2 pending, a scan found 10
+        when( serialization.incrementCount( same( scope ), eq( shard.getShardIndex() ), same( edgeMeta ), eq( 3L ) ) )
+            .thenReturn( increment );
+
+        approximation.increment( scope, Collections.singleton( shard ), 2, edgeMeta );
+
+        approximation.setCount( scope, shard, 10, edgeMeta );
+
+        verify( mark ).mergeShallow( increment );
+        verify( mark ).execute();
+    }
+}
@@ -28,7 +28,7 @@ import com.fasterxml.jackson.annotation.JsonTypeInfo;
  */
 @JsonTypeInfo( use=JsonTypeInfo.Id.CLASS, include=JsonTypeInfo.As.PROPERTY, property="@class" )
 
-public abstract class AbstractField<T> implements Field<T> {
+public abstract class AbstractField<T> implements Field<T>, Cloneable {
 
     /**
      * Set the object this field belongs to
@@ -76,6 +76,22 @@ public abstract class AbstractField<T> implements Field<T> {
     }
     public void setName(final String newName){name = newName;}
 
+    /**
+     * Create a copy of this field with a different name.  The value is shared, not copied.  Use this rather than
+     * setName when the field may belong to an entity that is shared, e.g. cached.
+     */
+    @SuppressWarnings( "unchecked" )
+    public AbstractField<T> copy( final String newName ) {
+        try {
+            final AbstractField<T> copy = ( AbstractField<T> ) super.clone();
+            copy.name = newName;
+            return copy;
+        }
+        catch ( CloneNotSupportedException e ) {
+            throw new IllegalStateException( "Unable to copy field " + name, e );
+        }
+    }
+
     public boolean isUnique() {
         return unique;
     }
@@ -124,6 +124,23 @@ public class EntityTest
     }
 
 
+    @Test
+    public void copyField() {
+
+        StringField stringField = new StringField( "name", "test", true );
+
+        AbstractField<String> copy = stringField.copy( "title" );
+
+        assertEquals( "title", copy.getName() );
+        assertEquals( "test", copy.getValue() );
+        assertTrue( copy.isUnique() );
+        assertTrue( copy instanceof StringField );
+
+        // the original is untouched
+        assertEquals( "name", stringField.getName() );
+    }
+
+
     @Test( expected = NullPointerException.class )
     public void idRequired()
     {
@@ -56,7 +56,7 @@ public class SearchRequestBuilderStrategyV2 {
     public SearchRequestBuilder getBuilder(){
         SearchRequestBuilder srb =
             esProvider.getClient().prepareSearch( alias.getReadAlias() ).setTypes( IndexingUtils.ES_ENTITY_TYPE ).setSearchType(
-                SearchType.QUERY_THEN_FETCH);
+                SearchType.QUERY_THEN_FETCH).setFetchSource( false );
 
 
         return srb;
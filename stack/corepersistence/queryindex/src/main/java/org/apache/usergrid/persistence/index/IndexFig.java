@@ -74,6 +74,18 @@ public interface IndexFig extends GuicyFig {
 
     String DIRECT_QUERY_MAX_ITEMS = "direct.query.max.items";
 
+    String ELASTICSEARCH_BULK_COALESCE = "elasticsearch.bulk.coalesce";
+
+    String ELASTICSEARCH_BULK_MAX_BYTES = "elasticsearch.bulk.max_bytes";
+
+    String ELASTICSEARCH_BULK_FLUSH_INTERVAL = "elasticsearch.bulk.flush_interval_ms";
+
+    String ELASTICSEARCH_BULK_MAX_IN_FLIGHT = "elasticsearch.bulk.max_in_flight";
+
+    String ELASTICSEARCH_BULK_MAX_PENDING = "elasticsearch.bulk.max_pending";
+
+    String USERGRID_QUERY_PARSED_CACHE_SIZE = "usergrid.query.parsed_cache.size";
+
 
 
 
@@ -244,4 +256,47 @@ public interface IndexFig extends GuicyFig {
     @Default("1000")
     @Key( DIRECT_QUERY_MAX_ITEMS )
     int directQueryMaxItems();
+
+
+    /**
+     * When true, index operations from all concurrent callers are coalesced into shared bulk requests
+     */
+    @Default("true")
+    @Key( ELASTICSEARCH_BULK_COALESCE )
+    boolean isBulkCoalescing();
+
+    /**
+     * The max estimated size of a single coalesced bulk request (in bytes)
+     */
+    @Default("5242880") // 5 MB
+    @Key( ELASTICSEARCH_BULK_MAX_BYTES )
+    long getBulkMaxBytes();
+
+    /**
+     * The longest an operation waits to be coalesced before its bulk request is sent (in milliseconds)
+     */
+    @Default("50")
+    @Key( ELASTICSEARCH_BULK_FLUSH_INTERVAL )
+    long getBulkFlushInterval();
+
+    /**
+     * The max number of coalesced bulk requests outstanding against Elasticsearch at once
+     */
+    @Default("4")
+    @Key( ELASTICSEARCH_BULK_MAX_IN_FLIGHT )
+    int getBulkMaxInFlight();
+
+    /**
+     * The max number of operations waiting to be coalesced before callers block
+     */
+    @Default("10000")
+    @Key( ELASTICSEARCH_BULK_MAX_PENDING )
+    int getBulkMaxPending();
+
+    /**
+     * The number of distinct parsed queries kept on this node
+     */
+    @Default("5000")
+    @Key( USERGRID_QUERY_PARSED_CACHE_SIZE )
+    int getParsedQueryCacheSize();
 }
@@ -0,0 +1,584 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  The ASF licenses this file to You
+ * under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.  For additional information regarding
+ * copyright in this work, please see the NOTICE file in the top level
+ * directory of this distribution.
+ */
+package org.apache.usergrid.persistence.index.impl;
+
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.WriteConsistencyLevel;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequestBuilder;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.rest.RestStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.usergrid.persistence.index.IndexFig;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Timer;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import rx.Observable;
+import rx.Subscriber;
+
+
+/**
+ * Node wide bulk pipeline.  Operations from every concurrent caller are buffered together and sent as shared bulk
+ * requests, bounded by {@link IndexFig#getIndexBatchSize()} actions and {@link IndexFig#getBulkMaxBytes()} bytes,
+ * and flushed at the latest {@link IndexFig#getBulkFlushInterval()} ms after the first buffered operation.
+ *
+ * An index operation for the same alias and document id as one still buffered replaces it.  The callers of both are
+ * acknowledged when the surviving operation is.  A caller's observable completes once all of its operations have been
+ * acknowledged by Elasticsearch, or errors if any of them failed.
+ *
+ * Callers are completed on the indexer's own callback threads, never on the flusher or Elasticsearch's transport
+ * threads, and a bulk request's slot in {@link IndexFig#getBulkMaxInFlight()} is held until its callers are completed.
+ *
+ * Bulk requests run concurrently, so all the operations of a document are kept in a single request, and a request
+ * isn't sent while another one with any of its documents is in flight.  Operations on a document are therefore
+ * applied in the order they were buffered.
+ */
+public class CoalescingBulkIndexer {
+
+    private static final Logger logger = LoggerFactory.getLogger( CoalescingBulkIndexer.class );
+
+    private final IndexFig indexFig;
+    private final EsProvider provider;
+    private final FailureMonitor failureMonitor;
+    private final Timer indexTimer;
+    private final Counter indexSizeCounter;
+    private final Histogram bulkSizeHistogram;
+    private final Counter supersededCounter;
+
+    private final Object lock = new Object();
+
+    /**
+     * Buffered operations keyed by their target, in the order they were last written
+     */
+    private final LinkedHashMap<String, PendingOperation> pending = new LinkedHashMap<>();
+
+    /**
+     * The time the first operation was buffered in the current window, 0 when empty
+     */
+    private long windowStart = 0;
+
+    /**
+     * When Elasticsearch rejects us for capacity, don't send again until this time
+     */
+    private volatile long pauseUntil = 0;
+
+    private final Semaphore inFlight;
+
+    /**
+     * Document ids of the requests in flight, a document is never in more than one
+     */
+    private final Set<String> inFlightDocuments = new HashSet<>();
+
+    /**
+     * Completes callers, so their observable chains don't run on the flusher or transport threads
+     */
+    private final ExecutorService callbackExecutor;
+
+
+    public CoalescingBulkIndexer( final IndexFig indexFig, final EsProvider provider,
+                                  final FailureMonitor failureMonitor, final Timer indexTimer,
+                                  final Counter indexSizeCounter, final Histogram bulkSizeHistogram,
+                                  final Counter supersededCounter ) {
+        this.indexFig = indexFig;
+        this.provider = provider;
+        this.failureMonitor = failureMonitor;
+        this.indexTimer = indexTimer;
+        this.indexSizeCounter = indexSizeCounter;
+        this.bulkSizeHistogram = bulkSizeHistogram;
+        this.supersededCounter = supersededCounter;
+        this.inFlight = new Semaphore( Math.max( 1, indexFig.getBulkMaxInFlight() ) );
+        this.callbackExecutor = Executors.newFixedThreadPool( Math.max( 1, indexFig.getBulkMaxInFlight() ),
+            new ThreadFactoryBuilder().setDaemon( true ).setNameFormat( "EsBulkIndexerCallback-%d" ).build() );
+
+        final Thread flusher = new Thread( this::flushLoop, "EsBulkIndexer" );
+        flusher.setDaemon( true );
+        flusher.start();
+    }
+
+
+    /**
+     * Buffer all operations in the message.  The returned observable emits the message once every operation has
+     * been written
+     */
+    public Observable<IndexOperationMessage> put( final IndexOperationMessage message ) {
+
+        return Observable.create( ( Subscriber<? super IndexOperationMessage> subscriber ) -> {
+
+            final int size = message.getIndexRequests().size() + message.getDeIndexRequests().size();
+
+            if ( size == 0 ) {
+                subscriber.onNext( message );
+                subscriber.onCompleted();
+                return;
+            }
+
+            final Ticket ticket = new Ticket( message, size, subscriber );
+
+            try {
+                enqueue( message, ticket );
+            }
+            catch ( InterruptedException e ) {
+                Thread.currentThread().interrupt();
+                ticket.fail( e );
+            }
+        } );
+    }
+
+
+    private void enqueue( final IndexOperationMessage message, final Ticket ticket ) throws InterruptedException {
+
+        synchronized ( lock ) {
+
+            //back pressure, don't let callers grow the buffer without bound
+            while ( pending.size() >= indexFig.getBulkMaxPending() ) {
+                lock.wait();
+            }
+
+            for ( final IndexOperation indexOperation : message.getIndexRequests() ) {
+                add( "i:" + indexOperation.writeAlias + ":" + indexOperation.documentId, indexOperation.documentId,
+                    indexOperation, ticket );
+            }
+
+            for ( final DeIndexOperation deIndexOperation : message.getDeIndexRequests() ) {
+                add( "d:" + Arrays.toString( deIndexOperation.indexes ) + ":" + deIndexOperation.documentId,
+                    deIndexOperation.documentId, deIndexOperation, ticket );
+            }
+
+            //wake the flusher to start the deadline of a new window, or to send a full one
+            if ( windowStart == 0 ) {
+                windowStart = System.currentTimeMillis();
+                lock.notifyAll();
+            }
+            else if ( pending.size() >= indexFig.getIndexBatchSize() ) {
+                lock.notifyAll();
+            }
+        }
+    }
+
+
+    /**
+     * Add the operation.  Must hold the lock
+     */
+    private void add( final String key, final String documentId, final BatchOperation operation,
+                      final Ticket ticket ) {
+
+        // remove so the surviving operation moves to the end, after anything buffered since the one it replaces
+        final PendingOperation existing = pending.remove( key );
+
+        final PendingOperation pendingOperation;
+
+        if ( existing == null ) {
+            pendingOperation = new PendingOperation( documentId, operation );
+        }
+        else {
+            pendingOperation = existing;
+            pendingOperation.operation = operation;
+            supersededCounter.inc();
+            indexSizeCounter.dec();
+        }
+
+        pendingOperation.tickets.add( ticket );
+        pending.put( key, pendingOperation );
+    }
+
+
+    private void flushLoop() {
+
+        while ( true ) {
+            List<PendingOperation> drained = null;
+
+            try {
+                synchronized ( lock ) {
+                    while ( true ) {
+                        if ( pending.isEmpty() ) {
+                            lock.wait();
+                            continue;
+                        }
+
+                        final long waitTime = windowStart + indexFig.getBulkFlushInterval() - System.currentTimeMillis();
+
+                        if ( pending.size() >= indexFig.getIndexBatchSize() || waitTime <= 0 ) {
+                            break;
+                        }
+
+                        lock.wait( waitTime );
+                    }
+
+                    drained = new ArrayList<>( pending.values() );
+                    pending.clear();
+                    windowStart = 0;
+
+                    //wake any callers blocked on a full buffer
+                    lock.notifyAll();
+                }
+
+                indexSizeCounter.dec( drained.size() );
+
+                send( drained );
+            }
+            catch ( InterruptedException e ) {
+                logger.warn( "Bulk index flusher interrupted, continuing" );
+                failUnsent( drained, e );
+            }
+            catch ( Throwable t ) {
+                logger.error( "Unexpected error flushing bulk index operations", t );
+                failUnsent( drained, t );
+            }
+        }
+    }
+
+
+    /**
+     * Fail the drained operations that were never handed to Elasticsearch, the rest are completed by their request
+     */
+    private void failUnsent( final List<PendingOperation> drained, final Throwable t ) {
+
+        if ( drained == null ) {
+            return;
+        }
+
+        final List<PendingOperation> unsent = new ArrayList<>();
+
+        for ( final PendingOperation pendingOperation : drained ) {
+            if ( !pendingOperation.sent ) {
+                pendingOperation.sent = true;
+                unsent.add( pendingOperation );
+            }
+        }
+
+        if ( unsent.isEmpty() ) {
+            return;
+        }
+
+        callbackExecutor.execute( () -> unsent.forEach( pendingOperation -> pendingOperation.fail( t ) ) );
+    }
+
+
+    /**
+     * Split the drained operations into bulk requests within our count and byte bounds and send them.  Requests are
+     * only split between documents
+     */
+    private void send( final List<PendingOperation> drained ) throws InterruptedException {
+
+        final Client client = provider.getClient();
+
+        //the operations of each document, in the order they were buffered
+        final Map<String, List<PendingOperation>> documents = new LinkedHashMap<>();
+
+        for ( final PendingOperation pendingOperation : drained ) {
+            documents.computeIfAbsent( pendingOperation.documentId, id -> new ArrayList<>( 1 ) )
+                     .add( pendingOperation );
+        }
+
+        BulkRequestBuilder bulkRequest = initRequest( client );
+        List<PendingOperation> itemOwners = new ArrayList<>();
+
+        for ( final List<PendingOperation> document : documents.values() ) {
+
+            for ( final PendingOperation pendingOperation : document ) {
+
+                pendingOperation.operation.doOperation( client, bulkRequest );
+
+                final int added = bulkRequest.numberOfActions() - itemOwners.size();
+
+                //nothing to send for this operation, it's done
+                if ( added == 0 ) {
+                    pendingOperation.sent = true;
+                    callbackExecutor.execute( pendingOperation::ack );
+                    continue;
+                }
+
+                for ( int i = 0; i < added; i++ ) {
+                    itemOwners.add( pendingOperation );
+                }
+            }
+
+            if ( bulkRequest.numberOfActions() >= indexFig.getIndexBatchSize()
+                || bulkRequest.request().estimatedSizeInBytes() >= indexFig.getBulkMaxBytes() ) {
+
+                execute( bulkRequest, itemOwners );
+
+                bulkRequest = initRequest( client );
+                itemOwners = new ArrayList<>();
+            }
+        }
+
+        if ( bulkRequest.numberOfActions() > 0 ) {
+            execute( bulkRequest, itemOwners );
+        }
+    }
+
+
+    private BulkRequestBuilder initRequest( final Client client ) {
+        BulkRequestBuilder bulkRequest = client.prepareBulk();
+        bulkRequest.setConsistencyLevel( WriteConsistencyLevel.fromString( indexFig.getWriteConsistencyLevel() ) );
+        bulkRequest.setRefresh( indexFig.isForcedRefresh() );
+        return bulkRequest;
+    }
+
+
+    private void execute( final BulkRequestBuilder bulkRequest, final List<PendingOperation> itemOwners )
+        throws InterruptedException {
+
+        final long pause = pauseUntil - System.currentTimeMillis();
+
+        if ( pause > 0 ) {
+            logger.warn( "Encountered Queue Capacity Exception from ElasticSearch slowing by {}", pause );
+            Thread.sleep( pause );
+        }
+
+        final Set<String> documentIds = new HashSet<>();
+
+        for ( final PendingOperation owner : itemOwners ) {
+            documentIds.add( owner.documentId );
+        }
+
+        //wait for earlier operations on the same documents, only the flusher adds documents so none can be added
+        //between the wait and our own add
+        synchronized ( inFlightDocuments ) {
+            while ( !Collections.disjoint( inFlightDocuments, documentIds ) ) {
+                inFlightDocuments.wait();
+            }
+        }
+
+        inFlight.acquire();
+
+        synchronized ( inFlightDocuments ) {
+            inFlightDocuments.addAll( documentIds );
+        }
+
+        //from here on the listener completes the owners
+        for ( final PendingOperation owner : itemOwners ) {
+            owner.sent = true;
+        }
+
+        bulkSizeHistogram.update( bulkRequest.numberOfActions() );
+
+        final Timer.Context timer = indexTimer.time();
+
+        final ActionListener<BulkResponse> listener = new ActionListener<BulkResponse>() {
+            @Override
+            public void onResponse( final BulkResponse responses ) {
+                timer.stop();
+                failureMonitor.success();
+
+                complete( () -> handleResponse( responses, itemOwners ), documentIds );
+            }
+
+
+            @Override
+            public void onFailure( final Throwable t ) {
+                timer.stop();
+
+                logger.error( "Unable to communicate with elasticsearch", t );
+                failureMonitor.fail( "Unable to execute batch", t );
+
+                complete( () -> {
+                    for ( final PendingOperation owner : distinct( itemOwners ) ) {
+                        owner.fail( t );
+                    }
+                }, documentIds );
+            }
+        };
+
+        try {
+            bulkRequest.execute( listener );
+        }
+        catch ( Throwable t ) {
+            listener.onFailure( t );
+        }
+    }
+
+
+    /**
+     * Complete a request's owners on the callback executor, then free its in flight slot and documents
+     */
+    private void complete( final Runnable completion, final Set<String> documentIds ) {
+        try {
+            callbackExecutor.execute( () -> {
+                try {
+                    completion.run();
+                }
+                catch ( Throwable t ) {
+                    logger.error( "Unexpected error completing bulk index operations", t );
+                }
+                finally {
+                    release( documentIds );
+                }
+            } );
+        }
+        catch ( Throwable t ) {
+            release( documentIds );
+            throw t;
+        }
+    }
+
+
+    private void release( final Set<String> documentIds ) {
+        synchronized ( inFlightDocuments ) {
+            inFlightDocuments.removeAll( documentIds );
+            inFlightDocuments.notifyAll();
+        }
+
+        inFlight.release();
+    }
+
+
+    private void handleResponse( final BulkResponse responses, final List<PendingOperation> itemOwners ) {
+
+        final Map<PendingOperation, StringBuilder> errors = new IdentityHashMap<>();
+
+        for ( final BulkItemResponse response : responses ) {
+
+            if ( !response.isFailed() ) {
+                continue;
+            }
+
+            logger.error( "Unable to index id={}, type={}, index={}, failureMessage={} ", response.getId(),
+                response.getType(), response.getIndex(), response.getFailureMessage() );
+
+            //if index is overloaded on the queue, slow down our next sends
+            if ( response.getFailure() != null && response.getFailure().getStatus() == RestStatus.TOO_MANY_REQUESTS ) {
+                pauseUntil = System.currentTimeMillis() + indexFig.getSleepTimeForQueueError();
+            }
+
+            final PendingOperation owner = itemOwners.get( response.getItemId() );
+
+            errors.computeIfAbsent( owner, o -> new StringBuilder() ).append( response.getFailureMessage() )
+                  .append( "\n" );
+        }
+
+        for ( final PendingOperation owner : distinct( itemOwners ) ) {
+            final StringBuilder error = errors.get( owner );
+
+            if ( error == null ) {
+                owner.ack();
+            }
+            else {
+                owner.fail( new RuntimeException(
+                    "Error during processing of bulk index operations one of the responses failed. \n" + error ) );
+            }
+        }
+    }
+
+
+    /**
+     * Owners appear once per bulk item, return each once in order
+     */
+    private static List<PendingOperation> distinct( final List<PendingOperation> itemOwners ) {
+        final List<PendingOperation> distinct = new ArrayList<>( itemOwners.size() );
+        final Map<PendingOperation, Boolean> seen = new IdentityHashMap<>();
+
+        for ( final PendingOperation owner : itemOwners ) {
+            if ( seen.put( owner, Boolean.TRUE ) == null ) {
+                distinct.add( owner );
+            }
+        }
+
+        return distinct;
+    }
+
+
+    /**
+     * A buffered operation and every caller waiting on it
+     */
+    private static final class PendingOperation {
+
+        private final String documentId;
+        private BatchOperation operation;
+        private final List<Ticket> tickets = new ArrayList<>( 1 );
+
+        /**
+         * True once handed to Elasticsearch or completed, only touched by the flusher
+         */
+        private boolean sent = false;
+
+
+        private PendingOperation( final String documentId, final BatchOperation operation ) {
+            this.documentId = documentId;
+            this.operation = operation;
+        }
+
+
+        private void ack() {
+            tickets.forEach( Ticket::ack );
+        }
+
+
+        private void fail( final Throwable t ) {
+            tickets.forEach( ticket -> ticket.fail( t ) );
+        }
+    }
+
+
+    /**
+     * Tracks the outstanding operations of a single put
+     */
+    private static final class Ticket {
+
+        private final IndexOperationMessage message;
+        private final AtomicInteger remaining;
+        private final AtomicBoolean done = new AtomicBoolean( false );
+        private final Subscriber<? super IndexOperationMessage> subscriber;
+
+
+        private Ticket( final IndexOperationMessage message, final int operationCount,
+                        final Subscriber<? super IndexOperationMessage> subscriber ) {
+            this.message = message;
+            this.remaining = new AtomicInteger( operationCount );
+            this.subscriber = subscriber;
+        }
+
+
+        private void ack() {
+            if ( remaining.decrementAndGet() == 0 && done.compareAndSet( false, true ) ) {
+                subscriber.onNext( message );
+                subscriber.onCompleted();
+            }
+        }
+
+
+        private void fail( final Throwable t ) {
+            if ( done.compareAndSet( false, true ) ) {
+                subscriber.onError( t );
+            }
+        }
+    }
+}
@@ -18,6 +18,7 @@
 package org.apache.usergrid.persistence.index.impl;
 
 
+import com.codahale.metrics.Counter;
 import com.codahale.metrics.Meter;
 import com.codahale.metrics.Timer;
 import com.google.common.base.*;
@@ -40,7 +41,7 @@ import org.apache.usergrid.persistence.index.exceptions.*;
 import org.apache.usergrid.persistence.index.migration.IndexDataVersions;
 import org.apache.usergrid.persistence.index.query.Identifier;
 import org.apache.usergrid.persistence.index.query.ParsedQuery;
-import org.apache.usergrid.persistence.index.query.ParsedQueryBuilder;
+import org.apache.usergrid.persistence.index.query.ParsedQueryCache;
 import org.apache.usergrid.persistence.index.query.SortPredicate;
 import org.apache.usergrid.persistence.index.query.tree.QueryVisitor;
 import org.apache.usergrid.persistence.index.utils.IndexValidationUtils;
@@ -129,6 +130,9 @@ public class EsEntityIndexImpl implements EntityIndex,VersionedData {
     private final FailureMonitorImpl failureMonitor;
     private final Timer aggregationTimer;
     private final Timer refreshTimer;
+    private final Counter visitorHitCounter;
+    private final Counter visitorMissCounter;
+    private final ParsedQueryCache parsedQueryCache;
 
     private IndexCache aliasCache;
     private Timer mappingTimer;
@@ -144,10 +148,12 @@ public class EsEntityIndexImpl implements EntityIndex,VersionedData {
                               final IndexCache indexCache,
                               final IndexFig indexFig,
                               final MetricsFactory metricsFactory,
+                              final ParsedQueryCache parsedQueryCache,
                               final IndexLocationStrategy indexLocationStrategy
     ) {
 
         this.indexFig = indexFig;
+        this.parsedQueryCache = parsedQueryCache;
         this.indexLocationStrategy = indexLocationStrategy;
         this.failureMonitor = new FailureMonitorImpl( indexFig, provider );
         this.esProvider = provider;
@@ -167,6 +173,8 @@ public class EsEntityIndexImpl implements EntityIndex,VersionedData {
         this.searchTimer = metricsFactory.getTimer(EsEntityIndexImpl.class, "search");
         this.aggregationTimer = metricsFactory.getTimer( EsEntityIndexImpl.class, "aggregations" );
         this.refreshTimer = metricsFactory.getTimer( EsEntityIndexImpl.class, "index.refresh" );
+        this.visitorHitCounter = metricsFactory.getCounter( EsEntityIndexImpl.class, "query.visitor.hit" );
+        this.visitorMissCounter = metricsFactory.getCounter( EsEntityIndexImpl.class, "query.visitor.miss" );
 
     }
 
@@ -436,7 +444,7 @@ public class EsEntityIndexImpl implements EntityIndex,VersionedData {
                                     final int limit, final int offset, final Map<String, Class> fieldsWithType,
                                     final boolean analyzeOnly, final boolean returnQuery ) {
         Preconditions.checkNotNull( query, "query cannot be null" );
-        final ParsedQuery parsedQuery = ParsedQueryBuilder.build(query);
+        final ParsedQuery parsedQuery = parsedQueryCache.build(query);
 
         return search(searchEdge, searchTypes, parsedQuery, limit, offset, fieldsWithType, analyzeOnly, returnQuery);
     }
@@ -796,6 +804,17 @@ public class EsEntityIndexImpl implements EntityIndex,VersionedData {
      * Perform our visit of the query once for efficiency
      */
     private QueryVisitor visitParsedQuery( final ParsedQuery parsedQuery ) {
+
+        //parsed queries are cached, so the same query may already have been visited
+        final QueryVisitor visited = parsedQuery.getVisitor();
+
+        if ( visited != null ) {
+            visitorHitCounter.inc();
+            return visited;
+        }
+
+        visitorMissCounter.inc();
+
         QueryVisitor v = new EsQueryVistor();
 
         if ( parsedQuery.getRootOperand() != null ) {
@@ -808,7 +827,7 @@ public class EsEntityIndexImpl implements EntityIndex,VersionedData {
             }
         }
 
-        return v;
+        return parsedQuery.setVisitor( v );
     }
 
 
@@ -61,6 +61,7 @@ public class EsIndexProducerImpl implements IndexProducer {
     private final Counter indexSizeCounter;
     private final Histogram roundtripTimer;
     private final Timer indexTimer;
+    private final CoalescingBulkIndexer bulkIndexer;
 
 
     private AtomicLong inFlight = new AtomicLong();
@@ -85,6 +86,14 @@ public class EsIndexProducerImpl implements IndexProducer {
 
 
         //batch up sets of some size and send them in batch
+        if ( indexFig.isBulkCoalescing() ) {
+            this.bulkIndexer = new CoalescingBulkIndexer( indexFig, provider, failureMonitor, indexTimer,
+                indexSizeCounter, metricsFactory.getHistogram( EsIndexProducerImpl.class, "index_buffer.bulk_size" ),
+                metricsFactory.getCounter( EsIndexProducerImpl.class, "index_buffer.superseded" ) );
+        }
+        else {
+            this.bulkIndexer = null;
+        }
 
     }
 
@@ -97,6 +106,12 @@ public class EsIndexProducerImpl implements IndexProducer {
         Preconditions.checkNotNull(message, "Message cannot be null");
         indexSizeCounter.inc(message.getDeIndexRequests().size());
         indexSizeCounter.inc(message.getIndexRequests().size());
+
+        if ( bulkIndexer != null ) {
+            return bulkIndexer.put( message ).doOnNext( processedIndexOp ->
+                roundtripTimer.update( System.currentTimeMillis() - processedIndexOp.getCreationTime() ) );
+        }
+
         return  processBatch(message);
     }
 
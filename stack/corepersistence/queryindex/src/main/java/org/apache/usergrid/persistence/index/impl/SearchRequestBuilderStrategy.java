@@ -93,7 +93,10 @@ public class SearchRequestBuilderStrategy {
 
         SearchRequestBuilder srb =
             esProvider.getClient().prepareSearch( alias.getReadAlias() ).setTypes( IndexingUtils.ES_ENTITY_TYPE )
-                      .setSearchType( SearchType.QUERY_THEN_FETCH );
+                      .setSearchType( SearchType.QUERY_THEN_FETCH )
+                      //candidates are parsed from the document id, entities and selected fields are loaded from
+                      //cassandra, so don't ship the indexed document back
+                      .setFetchSource( false );
 
 
         final Optional<QueryBuilder> queryBuilder = visitor.getQueryBuilder();
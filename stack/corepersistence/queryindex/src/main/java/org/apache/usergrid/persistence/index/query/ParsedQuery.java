@@ -26,16 +26,19 @@ package org.apache.usergrid.persistence.index.query;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.usergrid.persistence.index.SelectFieldMapping;
 import org.apache.usergrid.persistence.index.exceptions.QueryParseException;
 import org.apache.usergrid.persistence.index.query.tree.DirectOperand;
 import org.apache.usergrid.persistence.index.query.tree.Operand;
+import org.apache.usergrid.persistence.index.query.tree.QueryVisitor;
 
 
 /**
@@ -44,15 +47,15 @@ import org.apache.usergrid.persistence.index.query.tree.Operand;
 public class ParsedQuery {
 
     //fast lookup for our sort predicates
-    private Set<String> sortPropertyNames = new HashSet<>();
+    private final Set<String> sortPropertyNames;
 
     //The sort predicates ordered by their input order in the grammar
-    private List<SortPredicate> sortPredicateList = new ArrayList<>();
+    private final List<SortPredicate> sortPredicateList;
 
     /**
      * Our map that contains field mappings
      */
-    private Map<String, SelectFieldMapping> fieldMappings = new HashMap<>();
+    private final Map<String, SelectFieldMapping> fieldMappings;
 
     /**
      * The root operand of our query
@@ -61,6 +64,41 @@ public class ParsedQuery {
 
     private String originalQuery;
 
+    /**
+     * The visited query tree, shared with every copy of this query
+     */
+    private final AtomicReference<QueryVisitor> visitor;
+
+
+    public ParsedQuery() {
+        this.sortPropertyNames = new HashSet<>();
+        this.sortPredicateList = new ArrayList<>();
+        this.fieldMappings = new HashMap<>();
+        this.visitor = new AtomicReference<>();
+    }
+
+
+    /**
+     * Create a read only copy of the parsed query that shares its query tree and visitor
+     */
+    private ParsedQuery( final ParsedQuery parsedQuery, final String originalQuery ) {
+        this.sortPropertyNames = Collections.unmodifiableSet( parsedQuery.sortPropertyNames );
+        this.sortPredicateList = Collections.unmodifiableList( parsedQuery.sortPredicateList );
+        this.fieldMappings = Collections.unmodifiableMap( parsedQuery.fieldMappings );
+        this.rootOperand = parsedQuery.rootOperand;
+        this.visitor = parsedQuery.visitor;
+        this.originalQuery = originalQuery;
+    }
+
+
+    /**
+     * Get a read only copy of this query with a different original query.  Used to hand out a cached parse, the
+     * query tree is shared and must not be modified.
+     */
+    public ParsedQuery copy( final String originalQuery ) {
+        return new ParsedQuery( this, originalQuery );
+    }
+
 
     /**
      * Get the original query
@@ -204,6 +242,27 @@ public class ParsedQuery {
         return rootOperand;
     }
 
+    /**
+     * Get the visitor that has already been run over the query tree, or null if it hasn't been visited
+     */
+    public QueryVisitor getVisitor() {
+        return visitor.get();
+    }
+
+
+    /**
+     * Keep the visitor that was run over the query tree so later searches with this query can skip the visit.  The
+     * visitor must not be modified once set.  If another thread set one first, that visitor is returned.
+     */
+    public QueryVisitor setVisitor( final QueryVisitor queryVisitor ) {
+        if ( visitor.compareAndSet( null, queryVisitor ) ) {
+            return queryVisitor;
+        }
+
+        return visitor.get();
+    }
+
+
     public boolean isGeoQuery(){
         return getOriginalQuery().contains("location") && getOriginalQuery().contains("within");
     }
@@ -47,12 +47,21 @@ public class ParsedQueryBuilder {
 
 
     /**
-     * Generate a parsedQuery from the ql
+     * Generate a parsedQuery from the ql.  See {@link ParsedQueryCache} to reuse the parse of repeated queries
      */
     public static ParsedQuery build( final String ql ) throws QueryParseException {
         if ( StringUtils.isEmpty( ql ) ) {
             return null;
         }
+
+        return parse( normalize( ql ), ql );
+    }
+
+
+    /**
+     * Rewrite the ql to the query the grammar parses
+     */
+    static String normalize( final String ql ) {
         if (logger.isTraceEnabled()) {
             logger.trace("Processing raw query: {}", ql);
         }
@@ -82,6 +91,12 @@ public class ParsedQueryBuilder {
             outputQuery = trimmedLowercaseQuery;
         }
 
+        return outputQuery;
+    }
+
+
+    static ParsedQuery parse( final String outputQuery, final String ql ) throws QueryParseException {
+
         ANTLRStringStream in = new ANTLRStringStream( outputQuery );
         CpQueryFilterLexer lexer = new CpQueryFilterLexer( in );
         CommonTokenStream tokens = new CommonTokenStream( lexer );
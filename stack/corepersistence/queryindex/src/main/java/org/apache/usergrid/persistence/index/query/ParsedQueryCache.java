@@ -0,0 +1,99 @@
+/*
+ *
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ *
+ */
+
+package org.apache.usergrid.persistence.index.query;
+
+
+import java.util.concurrent.ExecutionException;
+
+import org.apache.commons.lang.StringUtils;
+
+import org.apache.usergrid.persistence.core.metrics.MetricsFactory;
+import org.apache.usergrid.persistence.index.IndexFig;
+import org.apache.usergrid.persistence.index.exceptions.QueryParseException;
+
+import com.codahale.metrics.Gauge;
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+
+/**
+ * Keeps the parse of the most recent distinct queries on this node.  Applications tend to issue a small number of
+ * queries many times, e.g. every page of a result set re-issues the same query.
+ */
+@Singleton
+public class ParsedQueryCache {
+
+    /**
+     * Parsed queries keyed by the normalized query the grammar sees.  Entries are never handed out directly, callers
+     * get a read only copy.
+     */
+    private final Cache<String, ParsedQuery> parsedQueries;
+
+
+    @Inject
+    public ParsedQueryCache( final IndexFig indexFig, final MetricsFactory metricsFactory ) {
+        this( indexFig.getParsedQueryCacheSize() );
+
+        metricsFactory.addGauge( ParsedQueryCache.class, "cache.hit_rate",
+            ( Gauge<Double> ) () -> parsedQueries.stats().hitRate() );
+        metricsFactory.addGauge( ParsedQueryCache.class, "cache.size", ( Gauge<Long> ) parsedQueries::size );
+    }
+
+
+    /**
+     * @param size The max number of distinct queries kept parsed
+     */
+    public ParsedQueryCache( final int size ) {
+        this.parsedQueries = CacheBuilder.newBuilder().maximumSize( size ).recordStats().build();
+    }
+
+
+    /**
+     * Generate a parsedQuery from the ql, reusing the parse of the same normalized query.  The returned query is read
+     * only, and shares its query tree and visitor with every other copy
+     */
+    public ParsedQuery build( final String ql ) throws QueryParseException {
+        if ( StringUtils.isEmpty( ql ) ) {
+            return null;
+        }
+
+        final String outputQuery = ParsedQueryBuilder.normalize( ql );
+
+        final ParsedQuery parsedQuery;
+
+        try {
+            parsedQuery = parsedQueries.get( outputQuery, () -> ParsedQueryBuilder.parse( outputQuery, ql ) );
+        }
+        catch ( ExecutionException | UncheckedExecutionException e ) {
+            // unwrap so callers still see the QueryParseException
+            throw Throwables.propagate( e.getCause() );
+        }
+
+        return parsedQuery.copy( ql );
+    }
+}
@@ -0,0 +1,210 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.usergrid.persistence.index.impl;
+
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkRequestBuilder;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.index.IndexRequestBuilder;
+import org.elasticsearch.client.Client;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.apache.usergrid.persistence.index.IndexFig;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Timer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+
+public class CoalescingBulkIndexerTest {
+
+    private IndexFig indexFig;
+    private EsProvider provider;
+    private Client client;
+    private BulkRequestBuilder bulkRequest;
+
+
+    @Before
+    public void setup() {
+        indexFig = mock( IndexFig.class );
+        when( indexFig.getIndexBatchSize() ).thenReturn( 100 );
+        when( indexFig.getBulkMaxBytes() ).thenReturn( Long.MAX_VALUE );
+        when( indexFig.getBulkFlushInterval() ).thenReturn( 10L );
+        when( indexFig.getBulkMaxInFlight() ).thenReturn( 2 );
+        when( indexFig.getBulkMaxPending() ).thenReturn( 1000 );
+        when( indexFig.getWriteConsistencyLevel() ).thenReturn( "one" );
+
+        final IndexRequestBuilder indexRequest = mock( IndexRequestBuilder.class );
+        when( indexRequest.setSource( any( Map.class ) ) ).thenReturn( indexRequest );
+
+        bulkRequest = mock( BulkRequestBuilder.class );
+        when( bulkRequest.numberOfActions() ).thenReturn( 1 );
+        when( bulkRequest.request() ).thenReturn( mock( BulkRequest.class ) );
+
+        client = mock( Client.class );
+        when( client.prepareBulk() ).thenReturn( bulkRequest );
+        when( client.prepareIndex( anyString(), anyString(), anyString() ) ).thenReturn( indexRequest );
+
+        provider = mock( EsProvider.class );
+        when( provider.getClient() ).thenReturn( client );
+    }
+
+
+    /**
+     * An error while flushing fails the callers of the drained operations instead of leaving them waiting
+     */
+    @Test( timeout = 10000 )
+    public void flushErrorFailsDrained() {
+
+        when( provider.getClient() ).thenThrow( new IllegalStateException( "no client" ) );
+
+        try {
+            newBulkIndexer().put( message( "doc1" ) ).toBlocking().first();
+            fail( "Flush error should fail the caller" );
+        }
+        catch ( IllegalStateException e ) {
+            assertEquals( "no client", e.getMessage() );
+        }
+    }
+
+
+    /**
+     * Callers are completed on the indexer's callback threads, not the transport thread that got the response
+     */
+    @Test( timeout = 10000 )
+    public void completedOnCallbackThread() {
+
+        final BulkResponse response = mock( BulkResponse.class );
+        when( response.iterator() ).thenReturn( Collections.<BulkItemResponse>emptyIterator() );
+
+        doAnswer( invocation -> {
+            @SuppressWarnings( "unchecked" )
+            final ActionListener<BulkResponse> listener = ( ActionListener<BulkResponse> ) invocation.getArguments()[0];
+            final Thread transport = new Thread( () -> listener.onResponse( response ), "transport" );
+            transport.start();
+            return null;
+        } ).when( bulkRequest ).execute( any( ActionListener.class ) );
+
+        final String completedOn = newBulkIndexer().put( message( "doc1" ) )
+            .map( message -> Thread.currentThread().getName() ).toBlocking().first();
+
+        assertTrue( completedOn, completedOn.startsWith( "EsBulkIndexerCallback" ) );
+    }
+
+
+    /**
+     * A bulk request that can't be sent fails its callers, and frees its slot for the next request
+     */
+    @Test( timeout = 10000 )
+    public void sendErrorFailsCallers() {
+
+        when( indexFig.getBulkMaxInFlight() ).thenReturn( 1 );
+
+        doAnswer( invocation -> {
+            throw new IllegalStateException( "not connected" );
+        } ).when( bulkRequest ).execute( any( ActionListener.class ) );
+
+        final CoalescingBulkIndexer bulkIndexer = newBulkIndexer();
+
+        for ( final String documentId : new String[] { "doc1", "doc2" } ) {
+            try {
+                bulkIndexer.put( message( documentId ) ).toBlocking().first();
+                fail( "Send error should fail the caller" );
+            }
+            catch ( IllegalStateException e ) {
+                assertEquals( "not connected", e.getMessage() );
+            }
+        }
+    }
+
+
+    /**
+     * A request with a document already in flight waits for it, so the operations are applied in order
+     */
+    @Test( timeout = 10000 )
+    public void sameDocumentSentInOrder() throws InterruptedException {
+
+        final BlockingQueue<ActionListener<BulkResponse>> sent = new LinkedBlockingQueue<>();
+
+        doAnswer( invocation -> {
+            @SuppressWarnings( "unchecked" )
+            final ActionListener<BulkResponse> listener = ( ActionListener<BulkResponse> ) invocation.getArguments()[0];
+            sent.add( listener );
+            return null;
+        } ).when( bulkRequest ).execute( any( ActionListener.class ) );
+
+        final CoalescingBulkIndexer bulkIndexer = newBulkIndexer();
+
+        bulkIndexer.put( message( "alias", "doc1" ) ).subscribe();
+
+        final ActionListener<BulkResponse> first = sent.poll( 5, TimeUnit.SECONDS );
+
+        //another operation on the same document, with a free in flight slot
+        bulkIndexer.put( message( "otherAlias", "doc1" ) ).subscribe();
+
+        assertNull( "Sent while the document was in flight", sent.poll( 200, TimeUnit.MILLISECONDS ) );
+
+        final BulkResponse response = mock( BulkResponse.class );
+        when( response.iterator() ).thenReturn( Collections.<BulkItemResponse>emptyIterator() );
+
+        first.onResponse( response );
+
+        assertTrue( "Sent once the document completed", sent.poll( 5, TimeUnit.SECONDS ) != null );
+    }
+
+
+    private CoalescingBulkIndexer newBulkIndexer() {
+        return new CoalescingBulkIndexer( indexFig, provider, mock( FailureMonitor.class ), new Timer(),
+            new Counter(), mock( Histogram.class ), new Counter() );
+    }
+
+
+    private static IndexOperationMessage message( final String documentId ) {
+        return message( "alias", documentId );
+    }
+
+
+    private static IndexOperationMessage message( final String alias, final String documentId ) {
+        final IndexOperationMessage message = new IndexOperationMessage();
+        message.addIndexRequest(
+            new IndexOperation( alias, documentId, Collections.<String, Object>singletonMap( "field", "value" ) ) );
+        return message;
+    }
+}
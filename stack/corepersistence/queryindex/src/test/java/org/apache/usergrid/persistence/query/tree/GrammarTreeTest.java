@@ -35,6 +35,9 @@ import org.apache.usergrid.persistence.index.impl.SearchEdgeImpl;
 import org.apache.usergrid.persistence.index.impl.SearchRequestBuilderStrategy;
 import org.apache.usergrid.persistence.index.query.ParsedQuery;
 import org.apache.usergrid.persistence.index.query.ParsedQueryBuilder;
+import org.apache.usergrid.persistence.index.query.ParsedQueryCache;
+import org.apache.usergrid.persistence.index.query.SortPredicate.SortDirection;
+import org.apache.usergrid.persistence.index.query.SortPredicate;
 import org.apache.usergrid.persistence.index.SelectFieldMapping;
 import org.apache.usergrid.persistence.index.query.tree.AndOperand;
 import org.apache.usergrid.persistence.index.query.tree.ContainsOperand;
@@ -686,4 +689,31 @@ public class GrammarTreeTest {
 		+" UUID | ID | LONG | FLOAT | STRING | WS );])",
                 error );
     }
+
+
+    @Test
+    public void cachedParse() throws QueryParseException {
+
+        ParsedQueryCache parsedQueryCache = new ParsedQueryCache( 100 );
+
+        ParsedQuery first = parsedQueryCache.build( "select * where name = 'cached' order by created desc" );
+        ParsedQuery second = parsedQueryCache.build( "  SELECT * where name = 'cached' order by created desc" );
+
+        //the normalized query is the same, so the tree is parsed once and shared
+        assertTrue( first.getRootOperand() == second.getRootOperand() );
+
+        assertEquals( "  SELECT * where name = 'cached' order by created desc", second.getOriginalQuery() );
+        assertEquals( 1, second.getSortPredicates().size() );
+
+        try {
+            second.addSort( new SortPredicate( "modified", SortDirection.ASCENDING ) );
+            fail( "cached queries should be read only" );
+        }
+        catch ( UnsupportedOperationException uoe ) {
+            //expected
+        }
+
+        assertEquals( 1, parsedQueryCache.build( "select * where name = 'cached' order by created desc" )
+                                         .getSortPredicates().size() );
+    }
 }
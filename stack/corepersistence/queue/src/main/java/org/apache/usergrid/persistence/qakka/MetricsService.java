@@ -34,6 +34,7 @@ public interface MetricsService {
     String TIMEOUT_TIME     = "qakka.timeout.time";
     String REFRESH_TIME     = "qakka.refresh.time";
     String ALLOCATE_TIME    = "qakka.allocate.time";
+    String SCHEDULE_TIME    = "qakka.schedule.time";
 
     MetricRegistry getMetricRegistry();
 }
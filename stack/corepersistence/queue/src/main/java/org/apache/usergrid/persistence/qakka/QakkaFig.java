@@ -74,6 +74,20 @@ public interface QakkaFig extends GuicyFig, Serializable {
 
     String QUEUE_MAX_TTL                          = "queue.max.ttl";
 
+    String QUEUE_MESSAGE_DATA_READ_CONCURRENCY    = "queue.message.data.read.concurrency";
+
+    String QUEUE_MESSAGE_DATA_CACHE_SIZE          = "queue.message.data.cache.size";
+
+    String QUEUE_MAX_BATCH_SIZE                   = "queue.max.batch.size";
+
+    String QUEUE_DELAYED_SHARD_MILLIS             = "queue.delayed.shard.millis";
+
+    String QUEUE_DELAYED_TICK_MILLIS              = "queue.delayed.tick.millis";
+
+    String QUEUE_DELAYED_LOAD_MILLIS              = "queue.delayed.load.millis";
+
+    String QUEUE_LONG_POLL_THREADS                = "queue.long.polling.threads";
+
 
 
     /** True if Qakka is running standlone */
@@ -106,7 +120,7 @@ public interface QakkaFig extends GuicyFig, Serializable {
     @Default("1000")
     int getQueueRefreshMilliseconds();
 
-    /** How many queue messages to keep in-memory */
+    /** How many queue messages to keep in-memory for each queue */
     @Key(QUEUE_INMEMORY_SIZE)
     @Default("1000")
     int getQueueInMemorySize();
@@ -173,8 +187,44 @@ public interface QakkaFig extends GuicyFig, Serializable {
     @Default("1209600") // default is two weeks
     int getMaxTtlSeconds();
 
+    /** Max number of message data reads in flight when loading the data of a batch of messages */
+    @Key(QUEUE_MESSAGE_DATA_READ_CONCURRENCY)
+    @Default("20")
+    int getMessageDataReadConcurrency();
+
+    /** Number of recently written message data entries to keep in memory, 0 disables the cache */
+    @Key(QUEUE_MESSAGE_DATA_CACHE_SIZE)
+    @Default("1000")
+    int getMessageDataCacheSize();
+
+    /** Max number of messages sent or acked by one actor message, larger batches are split */
+    @Key(QUEUE_MAX_BATCH_SIZE)
+    @Default("100")
+    int getMaxBatchSize();
+
+    /** Delayed messages are stored in shards that each hold the messages due in this many milliseconds */
+    @Key(QUEUE_DELAYED_SHARD_MILLIS)
+    @Default("60000")
+    long getDelayedShardMillis();
+
+    /** Resolution of the timing wheel that promotes delayed messages to the available queue when due */
+    @Key(QUEUE_DELAYED_TICK_MILLIS)
+    @Default("250")
+    long getDelayedTickMillis();
+
+    /** How often delayed messages coming due are loaded into the timing wheel */
+    @Key(QUEUE_DELAYED_LOAD_MILLIS)
+    @Default("5000")
+    long getDelayedLoadMillis();
+
+    /** Threads that retry the gets of waiting consumers when woken or when their long poll time is up */
+    @Key(QUEUE_LONG_POLL_THREADS)
+    @Default("8")
+    int getLongPollThreads();
+
+    /** Serve gets from a per-queue in-memory buffer of prefetched messages */
     @Key(QUEUE_IN_MEMORY)
-    @Default("false") // in memory not ready yet; leave this to false else msgs could be processed more than once
+    @Default("false")
     boolean getInMemoryCache();
 
     @Key(QUEUE_IN_MEMORY_REFRESH_ASYNC)
@@ -37,8 +37,10 @@ import org.apache.usergrid.persistence.qakka.distributed.impl.QueueSenderRouterP
 import org.apache.usergrid.persistence.qakka.distributed.impl.QueueWriterRouterProducer;
 import org.apache.usergrid.persistence.qakka.serialization.auditlog.AuditLogSerialization;
 import org.apache.usergrid.persistence.qakka.serialization.auditlog.impl.AuditLogSerializationImpl;
+import org.apache.usergrid.persistence.qakka.serialization.queuemessages.DelayedMessageSerialization;
 import org.apache.usergrid.persistence.qakka.serialization.queuemessages.MessageCounterSerialization;
 import org.apache.usergrid.persistence.qakka.serialization.queuemessages.QueueMessageSerialization;
+import org.apache.usergrid.persistence.qakka.serialization.queuemessages.impl.DelayedMessageSerializationImpl;
 import org.apache.usergrid.persistence.qakka.serialization.queuemessages.impl.MessageCounterSerializationImpl;
 import org.apache.usergrid.persistence.qakka.serialization.queuemessages.impl.QueueMessageSerializationImpl;
 import org.apache.usergrid.persistence.qakka.serialization.queues.QueueSerialization;
@@ -86,6 +88,7 @@ public class QakkaModule extends AbstractModule {
 
         bind( QueueMessageManager.class ).to(         QueueMessageManagerImpl.class );
         bind( QueueMessageSerialization.class ).to(   QueueMessageSerializationImpl.class );
+        bind( DelayedMessageSerialization.class ).to( DelayedMessageSerializationImpl.class );
 
         bind( ShardSerialization.class ).to(          ShardSerializationImpl.class );
         bind( ShardStrategy.class ).to(               ShardStrategyImpl.class );
@@ -109,6 +112,7 @@ public class QakkaModule extends AbstractModule {
 
         migrationBinder.addBinding().to( Key.get( AuditLogSerialization.class ) );
         migrationBinder.addBinding().to( Key.get( QueueMessageSerialization.class ) );
+        migrationBinder.addBinding().to( Key.get( DelayedMessageSerialization.class ) );
         migrationBinder.addBinding().to( Key.get( QueueSerialization.class ) );
         migrationBinder.addBinding().to( Key.get( ShardCounterSerialization.class ) );
         migrationBinder.addBinding().to( Key.get( ShardSerialization.class ) );
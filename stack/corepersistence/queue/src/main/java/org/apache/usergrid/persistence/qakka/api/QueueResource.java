@@ -19,6 +19,8 @@
 
 package org.apache.usergrid.persistence.qakka.api;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
 import com.google.common.base.Preconditions;
 import com.google.common.io.ByteStreams;
@@ -30,10 +32,14 @@ import org.slf4j.LoggerFactory;
 import javax.inject.Inject;
 import javax.ws.rs.*;
 import javax.ws.rs.NotFoundException;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.StreamingOutput;
+import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.UUID;
@@ -43,6 +49,8 @@ import java.util.UUID;
 public class QueueResource {
     private static final Logger logger = LoggerFactory.getLogger( QueueResource.class );
 
+    private static final ObjectMapper mapper = new ObjectMapper();
+
     private final QueueManager        queueManager;
     private final QueueMessageManager queueMessageManager;
     private final URIStrategy         uriStrategy;
@@ -202,8 +210,8 @@ public class QueueResource {
      *
      * @param queueName         Name of queue to target (queue must exist)
      * @param regionsParam      Comma-separated list of regions to send to
-     * @param delayParam        Delay (ms) before sending message (not yet supported)
-     * @param expirationParam   Time (ms) after which message will expire (not yet supported)
+     * @param delayParam        Delay (ms) before sending message
+     * @param expirationParam   Time (seconds) after which message will expire
      * @param messageBody       JSON payload in string form
      */
     @POST
@@ -227,8 +235,8 @@ public class QueueResource {
      *
      * @param queueName         Name of queue to target (queue must exist)
      * @param regionsParam      Comma-separated list of regions to send to
-     * @param delayParam        Delay (ms) before sending message (not yet supported)
-     * @param expirationParam   Time (ms) after which message will expire (not yet supported)
+     * @param delayParam        Delay (ms) before sending message
+     * @param expirationParam   Time (seconds) after which message will expire
      * @param actualContentType Content type of messageBody data (if not application/octet-stream)
      * @param messageBody       Binary data that is the payload of the queue message
      */
@@ -285,11 +293,72 @@ public class QueueResource {
     }
 
 
+    /**
+     * Send a batch of queue messages, each with a JSON payload. Messages are written and sent in batches
+     * rather than one at a time.
+     *
+     * @param queueName         Name of queue to target (queue must exist)
+     * @param regionsParam      Comma-separated list of regions to send to
+     * @param delayParam        Delay (ms) before sending messages
+     * @param expirationParam   Time (seconds) after which messages will expire
+     * @param messagesBody      JSON array with the JSON payload of each message
+     */
+    @POST
+    @Path( "{queueName}/messages/batch" )
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response sendMessageBatchJson(
+            @PathParam("queueName")                     String queueName,
+            @QueryParam("regions" )   @DefaultValue("") String regionsParam,
+            @QueryParam("delay")      @DefaultValue("") String delayParam,
+            @QueryParam("expiration") @DefaultValue("") String expirationParam,
+                                                        String messagesBody) throws Exception {
+
+        Preconditions.checkArgument( !QakkaUtils.isNullOrEmpty( queueName ), "Queue name is required" );
+
+        JsonNode messagesNode;
+        try {
+            messagesNode = mapper.readTree( messagesBody );
+        } catch (IOException e) {
+            throw new IllegalArgumentException( "Invalid JSON in batch of messages" );
+        }
+        Preconditions.checkArgument( messagesNode != null && messagesNode.isArray() && messagesNode.size() > 0,
+                "Batch of messages must be a non-empty JSON array" );
+
+        List<ByteBuffer> messageData = new ArrayList<>( messagesNode.size() );
+        for ( JsonNode messageNode : messagesNode ) {
+            messageData.add( ByteBuffer.wrap( mapper.writeValueAsBytes( messageNode ) ) );
+        }
+
+        if ( queueManager.getQueueConfig( queueName ) == null ) {
+            throw new NotFoundException( "Queue " + queueName + " not found" ) ;
+        }
+
+        if (regionsParam.equals( "" )) {
+            regionsParam = Regions.LOCAL;
+        }
+
+        Long delayMs = convertDelayParameter( delayParam );
+
+        Long expirationSecs = convertExpirationParameter( expirationParam );
+
+        List<String> regionList = regions.getRegions( regionsParam );
+
+        queueMessageManager.sendMessages( queueName, regionList, delayMs, expirationSecs,
+                MediaType.APPLICATION_JSON, messageData );
+
+        ApiResponse apiResponse = new ApiResponse();
+        apiResponse.setCount( messageData.size() );
+        return Response.ok().entity( apiResponse ).build();
+    }
+
+
     @GET
     @Path( "{queueName}/messages" )
     @Produces({MediaType.APPLICATION_JSON})
-    public Response getNextMessages( @PathParam("queueName") String queueName,
-                                     @QueryParam("count") @DefaultValue("1") String countParam) throws Exception {
+    public void getNextMessages( @PathParam("queueName") String queueName,
+                                 @QueryParam("count") @DefaultValue("1") String countParam,
+                                 @Suspended final AsyncResponse asyncResponse ) throws Exception {
 
         Preconditions.checkArgument( !QakkaUtils.isNullOrEmpty( queueName ), "Queue name is required" );
 
@@ -304,7 +373,18 @@ public class QueueResource {
             throw new IllegalArgumentException( "Count must be >= 1" );
         }
 
-        List<QueueMessage> messages = queueMessageManager.getNextMessages( queueName, count );
+        // waits for messages to arrive without holding the request thread
+        queueMessageManager.getNextMessagesAsync( queueName, count ).whenComplete( (messages, t) -> {
+            if ( t != null ) {
+                asyncResponse.resume( t );
+            } else {
+                asyncResponse.resume( createGetResponse( messages ) );
+            }
+        });
+    }
+
+
+    private Response createGetResponse( List<QueueMessage> messages ) {
 
         ApiResponse apiResponse = new ApiResponse();
 
@@ -340,6 +420,44 @@ public class QueueResource {
     }
 
 
+    /**
+     * Acknowledge a batch of queue messages. Queue messages that are not inflight are not acknowledged,
+     * they are counted in the response message rather than failing the whole batch.
+     *
+     * @param queueName         Name of queue
+     * @param queueMessageIds   JSON array of the IDs of the queue messages to acknowledge
+     */
+    @POST
+    @Path( "{queueName}/messages/ack" )
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces({MediaType.APPLICATION_JSON})
+    public Response ackMessages( @PathParam("queueName") String queueName,
+                                 List<String> queueMessageIds ) throws Exception {
+
+        Preconditions.checkArgument( !QakkaUtils.isNullOrEmpty( queueName ), "Queue name is required" );
+        Preconditions.checkArgument( queueMessageIds != null && !queueMessageIds.isEmpty(),
+                "Queue message IDs are required" );
+
+        List<UUID> messageUuids = new ArrayList<>( queueMessageIds.size() );
+        for ( String queueMessageId : queueMessageIds ) {
+            try {
+                messageUuids.add( UUID.fromString( queueMessageId ) );
+            } catch (Exception e) {
+                throw new IllegalArgumentException( "Invalid queue message UUID" );
+            }
+        }
+
+        List<UUID> notInflight = queueMessageManager.ackMessages( queueName, messageUuids );
+
+        ApiResponse apiResponse = new ApiResponse();
+        apiResponse.setCount( messageUuids.size() - notInflight.size() );
+        if ( !notInflight.isEmpty() ) {
+            apiResponse.setMessage( "Messages not inflight: " + notInflight );
+        }
+        return Response.ok().entity( apiResponse ).build();
+    }
+
+
     @GET
     @Path( "{queueName}/data/{queueMessageId}" )
     public Response getMessageData(
@@ -24,6 +24,7 @@ import org.apache.usergrid.persistence.qakka.serialization.queuemessages.Databas
 import java.nio.ByteBuffer;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 
 public interface QueueMessageManager {
@@ -40,6 +41,20 @@ public interface QueueMessageManager {
     void sendMessages(String queueName, List<String> destinationRegions,
                       Long delayMs, Long expirationSecs, String contentType, ByteBuffer messageData);
 
+    /**
+     * Send a batch of Queue Messages with the same content type to one or more destination regions.
+     * Messages are written and sent to each region in batches, rather than one at a time.
+     *
+     * @param queueName Name of queue
+     * @param destinationRegions List of destination regions
+     * @param delayMs Delay before sending queue messages
+     * @param expirationSecs Time before messages expire
+     * @param contentType Content type of message data
+     * @param messageData Content of each message
+     */
+    void sendMessages(String queueName, List<String> destinationRegions,
+                      Long delayMs, Long expirationSecs, String contentType, List<ByteBuffer> messageData);
+
     /**
      * Get next available messages from the specified queue.
      *
@@ -49,6 +64,16 @@ public interface QueueMessageManager {
      */
     List<QueueMessage> getNextMessages(String queueName, int count);
 
+    /**
+     * Get next available messages from the specified queue, without holding the calling thread while waiting
+     * up to the long poll time for messages to arrive.
+     *
+     * @param queueName Name of queue
+     * @param count Number of messages to get
+     * @return Future list of next messages, empty if none arrived in time
+     */
+    CompletableFuture<List<QueueMessage>> getNextMessagesAsync(String queueName, int count);
+
     /**
      * Acknowledge that message has been received and is no longer inflight.
      *
@@ -57,6 +82,15 @@ public interface QueueMessageManager {
      */
     void ackMessage(String queueName, UUID queueMessageId);
 
+    /**
+     * Acknowledge that a batch of messages have been received and are no longer inflight.
+     *
+     * @param queueName Name of queue
+     * @param queueMessageIds IDs of queue messages
+     * @return IDs of the queue messages that were not acknowledged because they were not inflight
+     */
+    List<UUID> ackMessages(String queueName, List<UUID> queueMessageIds);
+
     /**
      * Put message back in the queue.
      *
@@ -26,76 +26,186 @@ import org.apache.usergrid.persistence.qakka.serialization.queuemessages.Databas
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Queue;
+import java.util.NavigableSet;
+import java.util.Set;
 import java.util.UUID;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 
+/**
+ * Per-queue, bounded buffer of queue messages prefetched from the available messages table.
+ *
+ * Each queue has a lock-free ring buffer and the queue message IDs it has claimed: the messages in the buffer, plus
+ * the ones handed out by poll and not yet released. A message that is claimed is not added again, so a refresh that
+ * reads a message that's being put inflight doesn't buffer it a second time. Callers release a message once it's
+ * inflight, from there on the inflight table and QueueTimeouter track it, and a timed out message comes back as a
+ * new queue message.
+ *
+ * A refresh may read a message before it's put inflight and add it after it's released. So refreshes are bracketed
+ * by beginRefresh and endRefresh, and a message released while a refresh is running stays tombstoned, and can't be
+ * added, until every refresh that began before the release has ended. With that each message is handed out once
+ * per node.
+ */
 @Singleton
 public class InMemoryQueue {
     private static final Logger logger = LoggerFactory.getLogger( InMemoryQueue.class );
 
-    /** In-memory queues by name */
-    private final Map<String, Queue<DatabaseQueueMessage>> queuesByName;
+    private final int capacity;
 
-    /** Newest message seen by in-memory queue */
-    private final Map<String, UUID> newestByQueueName;
+    /** In-memory buffers by queue name */
+    private final ConcurrentMap<String, Buffer> buffersByName = new ConcurrentHashMap<>();
 
 
     @Inject
     InMemoryQueue(QakkaFig qakkaFig) {
-        queuesByName      = new HashMap<>( qakkaFig.getQueueInMemorySize() );
-        newestByQueueName = new HashMap<>( qakkaFig.getQueueInMemorySize() );
+        this( qakkaFig.getQueueInMemorySize() );
+    }
+
+    InMemoryQueue(int capacity) {
+        this.capacity = capacity;
     }
 
-    private Queue<DatabaseQueueMessage> getQueue( String queueName ) {
-        synchronized ( queuesByName ) {
-            if ( !queuesByName.containsKey( queueName )) {
-                queuesByName.put( queueName, new ConcurrentLinkedQueue<>() );
-            }
-            return queuesByName.get( queueName );
+    private Buffer getBuffer( String queueName ) {
+        Buffer buffer = buffersByName.get( queueName );
+        if ( buffer == null ) {
+            buffer = buffersByName.computeIfAbsent( queueName, name -> new Buffer( capacity ) );
         }
+        return buffer;
     }
 
-    synchronized public void add( String queueName, DatabaseQueueMessage databaseQueueMessage ) {
+    /**
+     * Add message to the queue's buffer.
+     *
+     * @return False if the message is already claimed or the buffer is full
+     */
+    public boolean add( String queueName, DatabaseQueueMessage databaseQueueMessage ) {
+
+        Buffer buffer = getBuffer( queueName );
+        UUID queueMessageId = databaseQueueMessage.getQueueMessageId();
+
+        if ( buffer.released.containsKey( queueMessageId ) || !buffer.claimed.add( queueMessageId ) ) {
+            return false;
+        }
 
-        UUID newest = newestByQueueName.get( queueName );
-        if ( newest == null ) {
-            newest = databaseQueueMessage.getQueueMessageId();
+        // released while we claimed it, release tombstones before it un-claims
+        if ( buffer.released.containsKey( queueMessageId ) ) {
+            buffer.claimed.remove( queueMessageId );
+            return false;
+        }
 
-        } else {
-            if ( databaseQueueMessage.getQueueMessageId().timestamp() > newest.timestamp() ) {
-                newest = databaseQueueMessage.getQueueMessageId();
-                //logger.debug("New newest for queue {} is {}", queueName, newest.timestamp());
-            }
+        if ( !buffer.messages.offer( databaseQueueMessage ) ) {
+            buffer.claimed.remove( queueMessageId );
+            return false;
         }
 
-        newestByQueueName.put( queueName, newest );
-        getQueue( queueName ).add( databaseQueueMessage );
+        buffer.newest.accumulateAndGet( queueMessageId, ( newest, added ) ->
+            newest == null || added.timestamp() > newest.timestamp() ? added : newest );
+
+        return true;
     }
 
-    synchronized public UUID getNewest( String queueName ) {
-        if ( getQueue( queueName ).isEmpty() ) {
-            newestByQueueName.remove( queueName );
+    /**
+     * Newest message seen by the queue's buffer, or null if the buffer is empty.
+     */
+    public UUID getNewest( String queueName ) {
+        Buffer buffer = getBuffer( queueName );
+        UUID newest = buffer.newest.get();
+        if ( newest != null && buffer.messages.isEmpty() ) {
+            // start the next refresh from the oldest available message, claimed messages are skipped
+            buffer.newest.compareAndSet( newest, null );
+            return null;
         }
-        return newestByQueueName.get( queueName );
+        return newest;
     }
 
+    /**
+     * Take the message at the head of the queue's buffer. The message stays claimed until released.
+     */
     public DatabaseQueueMessage poll( String queueName ) {
-        return getQueue( queueName ).poll();
+        return getBuffer( queueName ).messages.poll();
+    }
+
+    /**
+     * Release a message taken by poll, once it has been put inflight or failed to be.
+     */
+    public void release( String queueName, UUID queueMessageId ) {
+        Buffer buffer = getBuffer( queueName );
+
+        // a running refresh may have read the message before it was put inflight
+        if ( !buffer.refreshes.isEmpty() ) {
+            buffer.released.put( queueMessageId, buffer.clock.incrementAndGet() );
+        }
+
+        buffer.claimed.remove( queueMessageId );
+    }
+
+    /**
+     * Begin reading the available messages table to add to the queue's buffer.
+     *
+     * @return The refresh, to pass to endRefresh once no more messages will be added
+     */
+    public long beginRefresh( String queueName ) {
+        Buffer buffer = getBuffer( queueName );
+        long refresh = buffer.clock.incrementAndGet();
+        buffer.refreshes.add( refresh );
+        return refresh;
+    }
+
+    /**
+     * End a refresh, dropping the tombstones no running refresh can need.
+     */
+    public void endRefresh( String queueName, long refresh ) {
+        Buffer buffer = getBuffer( queueName );
+        buffer.refreshes.remove( refresh );
+
+        // a tombstone is needed by refreshes that began before it
+        long oldest = buffer.refreshes.isEmpty() ? Long.MAX_VALUE : buffer.refreshes.first();
+        buffer.released.values().removeIf( released -> released < oldest );
     }
 
     public DatabaseQueueMessage peek( String queueName ) {
-        return getQueue( queueName ).peek();
+        return getBuffer( queueName ).messages.peek();
     }
 
     public int size( String queueName ) {
-        return getQueue( queueName ).size();
+        return getBuffer( queueName ).messages.size();
     }
 
+    /**
+     * Drop the messages in the queue's buffer, they're loaded again by the next refresh.
+     */
     public void clear( String queueName ) {
-        getQueue( queueName ).clear();
+        Buffer buffer = getBuffer( queueName );
+        DatabaseQueueMessage message;
+        while ( ( message = buffer.messages.poll() ) != null ) {
+            buffer.claimed.remove( message.getQueueMessageId() );
+        }
+    }
+
+
+    private static class Buffer {
+
+        private final MpmcRingBuffer<DatabaseQueueMessage> messages;
+
+        private final Set<UUID> claimed = ConcurrentHashMap.newKeySet();
+
+        private final AtomicReference<UUID> newest = new AtomicReference<>();
+
+        /** Orders refreshes and releases */
+        private final AtomicLong clock = new AtomicLong();
+
+        /** Refreshes running */
+        private final NavigableSet<Long> refreshes = new ConcurrentSkipListSet<>();
+
+        /** Messages released while a refresh was running, and when */
+        private final ConcurrentMap<UUID, Long> released = new ConcurrentHashMap<>();
+
+        Buffer( int capacity ) {
+            messages = new MpmcRingBuffer<>( capacity );
+        }
     }
 }
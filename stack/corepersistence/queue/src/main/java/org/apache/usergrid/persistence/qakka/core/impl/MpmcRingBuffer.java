@@ -0,0 +1,170 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.usergrid.persistence.qakka.core.impl;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+
+/**
+ * Bounded, lock-free, multi-producer multi-consumer ring buffer.
+ *
+ * Each slot has a sequence number telling producers and consumers whose turn it is, so an offer or poll is one
+ * compare-and-set on the tail or head, retried only when another thread got to the same slot first.
+ */
+public class MpmcRingBuffer<E> {
+
+    private final int capacity;
+    private final int mask;
+
+    private final AtomicReferenceArray<E> slots;
+    private final AtomicLongArray sequences;
+
+    /** Position of the next poll */
+    private final AtomicLong head = new AtomicLong();
+
+    /** Position of the next offer */
+    private final AtomicLong tail = new AtomicLong();
+
+
+    public MpmcRingBuffer( int capacity ) {
+        if ( capacity <= 0 || capacity > 1 << 30 ) {
+            throw new IllegalArgumentException( "Capacity must be between 1 and 2^30" );
+        }
+        this.capacity = capacity;
+
+        int size = Integer.highestOneBit( capacity );
+        if ( size < capacity ) {
+            size = size << 1;
+        }
+        this.mask = size - 1;
+
+        this.slots = new AtomicReferenceArray<>( size );
+        this.sequences = new AtomicLongArray( size );
+        for ( int i = 0; i < size; i++ ) {
+            sequences.set( i, i );
+        }
+    }
+
+
+    /**
+     * Add to the tail of the buffer.
+     *
+     * @return False if the buffer is full
+     */
+    public boolean offer( E element ) {
+        if ( element == null ) {
+            throw new NullPointerException( "Null elements not supported" );
+        }
+
+        long position = tail.get();
+        while ( true ) {
+
+            if ( position - head.get() >= capacity ) {
+                return false;
+            }
+
+            int index = (int) ( position & mask );
+            long diff = sequences.get( index ) - position;
+
+            if ( diff == 0 ) {
+                if ( tail.compareAndSet( position, position + 1 ) ) {
+                    slots.lazySet( index, element );
+                    // publish the element to consumers
+                    sequences.set( index, position + 1 );
+                    return true;
+                }
+            } else if ( diff < 0 ) {
+                // slot not yet freed by the consumer of the previous lap
+                return false;
+            }
+
+            position = tail.get();
+        }
+    }
+
+
+    /**
+     * Remove from the head of the buffer.
+     *
+     * @return Null if the buffer is empty
+     */
+    public E poll() {
+
+        long position = head.get();
+        while ( true ) {
+
+            int index = (int) ( position & mask );
+            long diff = sequences.get( index ) - ( position + 1 );
+
+            if ( diff == 0 ) {
+                if ( head.compareAndSet( position, position + 1 ) ) {
+                    E element = slots.get( index );
+                    slots.lazySet( index, null );
+                    // free the slot for the producer of the next lap
+                    sequences.set( index, position + mask + 1 );
+                    return element;
+                }
+            } else if ( diff < 0 ) {
+                return null;
+            }
+
+            position = head.get();
+        }
+    }
+
+
+    /**
+     * Element at the head of the buffer, or null if empty. Only a hint when there are concurrent consumers.
+     */
+    public E peek() {
+        long position = head.get();
+        int index = (int) ( position & mask );
+        if ( sequences.get( index ) == position + 1 ) {
+            return slots.get( index );
+        }
+        return null;
+    }
+
+
+    /**
+     * Number of elements in the buffer, exact only when there are no concurrent offers or polls.
+     */
+    public int size() {
+        while ( true ) {
+            long before = head.get();
+            long currentTail = tail.get();
+            if ( head.get() == before ) {
+                return (int) Math.max( 0, Math.min( capacity, currentTail - before ) );
+            }
+        }
+    }
+
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+
+    public int capacity() {
+        return capacity;
+    }
+}
@@ -19,9 +19,11 @@
 
 package org.apache.usergrid.persistence.qakka.core.impl;
 
+import com.google.common.collect.Lists;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import org.apache.usergrid.persistence.actorsystem.ActorSystemFig;
+import org.apache.usergrid.persistence.qakka.QakkaFig;
 import org.apache.usergrid.persistence.qakka.api.URIStrategy;
 import org.apache.usergrid.persistence.qakka.core.*;
 import org.apache.usergrid.persistence.qakka.distributed.DistributedQueueService;
@@ -42,8 +44,11 @@ import java.net.URISyntaxException;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 
 
@@ -61,6 +66,8 @@ public class QueueMessageManagerImpl implements QueueMessageManager {
     private final MessageCounterSerialization messageCounterSerialization;
     private final ShardSerialization          shardSerialization;
     private final CassandraClient             cassandraClient;
+    private final QakkaFig                    qakkaFig;
+    private final WaitingConsumers            waitingConsumers;
 
     @Inject
     public QueueMessageManagerImpl(
@@ -72,7 +79,9 @@ public class QueueMessageManagerImpl implements QueueMessageManager {
         URIStrategy                 uriStrategy,
         MessageCounterSerialization messageCounterSerialization,
         ShardSerialization          shardSerialization,
-        CassandraClient             cassandraClient ) {
+        CassandraClient             cassandraClient,
+        QakkaFig                    qakkaFig,
+        WaitingConsumers            waitingConsumers ) {
 
         this.actorSystemFig              = actorSystemFig;
         this.queueManager                = queueManager;
@@ -83,6 +92,8 @@ public class QueueMessageManagerImpl implements QueueMessageManager {
         this.messageCounterSerialization = messageCounterSerialization;
         this.shardSerialization          = shardSerialization;
         this.cassandraClient             = cassandraClient;
+        this.qakkaFig                    = qakkaFig;
+        this.waitingConsumers            = waitingConsumers;
     }
 
 
@@ -96,8 +107,6 @@ public class QueueMessageManagerImpl implements QueueMessageManager {
 
         logger.trace("Sending message to queue {} regions {}", queueName, destinationRegions);
 
-        // TODO: implement delay and expiration
-
 //        Preconditions.checkArgument(delayMs == null || delayMs > 0L,
 //                "Delay milliseconds must be greater than zero");
 //        Preconditions.checkArgument(expirationSecs == null || expirationSecs > 0L,
@@ -141,10 +150,106 @@ public class QueueMessageManagerImpl implements QueueMessageManager {
     }
 
 
+    @Override
+    public void sendMessages(String queueName, List<String> destinationRegions,
+            Long delayMs, Long expirationSecs, String contentType, List<ByteBuffer> messageData) {
+
+        if ( queueManager.getQueueConfig( queueName ) == null ) {
+            throw new NotFoundException( "Queue " + queueName + " not found" );
+        }
+
+        logger.trace("Sending {} messages to queue {} regions {}", messageData.size(), queueName, destinationRegions);
+
+        Long currentTimeMs = System.currentTimeMillis();
+
+        Long deliveryTime = delayMs != null ? currentTimeMs + delayMs : null;
+        Long expirationTime = expirationSecs != null ? currentTimeMs + (1000 * expirationSecs) : null;
+
+        for ( List<ByteBuffer> batch : Lists.partition( messageData, Math.max( 1, qakkaFig.getMaxBatchSize() ) ) ) {
+
+            Map<UUID, DatabaseQueueMessageBody> messageBodies = new LinkedHashMap<>( batch.size() );
+            for ( ByteBuffer data : batch ) {
+                messageBodies.put( QakkaUtils.getTimeUuid(), new DatabaseQueueMessageBody( data, contentType ) );
+            }
+
+            // write message data to C*
+            queueMessageSerialization.writeMessageData( messageBodies );
+
+            List<UUID> messageIds = new ArrayList<>( messageBodies.keySet() );
+
+            for (String region : destinationRegions) {
+
+                transferLogSerialization.recordTransferLogs(
+                        queueName, actorSystemFig.getRegionLocal(), region, messageIds );
+
+                // send the whole batch to destination region's queue with one actor message
+                try {
+                    distributedQueueService.sendMessagesToRegion(
+                            queueName,
+                            actorSystemFig.getRegionLocal(),
+                            region,
+                            messageIds,
+                            deliveryTime,
+                            expirationTime );
+
+                } catch ( QakkaRuntimeException qae ) {
+                    logger.error("Error sending " + messageIds.size() + " messages to " + region, qae);
+                }
+            }
+        }
+    }
+
+
     @Override
     public List<QueueMessage> getNextMessages(String queueName, int count) {
+        return getNextMessages( queueName, count, true );
+    }
+
+
+    @Override
+    public CompletableFuture<List<QueueMessage>> getNextMessagesAsync(String queueName, int count) {
+
+        CompletableFuture<List<QueueMessage>> future = new CompletableFuture<>();
+        long deadline = System.currentTimeMillis() + qakkaFig.getLongPollTimeMillis();
+
+        getNextMessagesOrWait( queueName, count, deadline, future );
+
+        return future;
+    }
+
+
+    /**
+     * Complete the future with the next messages of the queue if there are any or the deadline has passed,
+     * otherwise wait for a message to be written to the queue and try again.
+     */
+    private void getNextMessagesOrWait(
+        String queueName, int count, long deadline, CompletableFuture<List<QueueMessage>> future ) {
+
+        try {
+            // read first, a wake up while we get messages runs the retry right away
+            long sequence = waitingConsumers.getSequence( queueName );
+
+            List<QueueMessage> queueMessages = getNextMessages( queueName, count, false );
+
+            if ( !queueMessages.isEmpty() || System.currentTimeMillis() >= deadline ) {
+                future.complete( queueMessages );
+                return;
+            }
 
-        Collection<DatabaseQueueMessage> dbMessages = distributedQueueService.getNextMessages( queueName, count );
+            waitingConsumers.await( queueName, sequence, deadline,
+                () -> getNextMessagesOrWait( queueName, count, deadline, future ) );
+
+        } catch ( Throwable t ) {
+            future.completeExceptionally( t );
+        }
+    }
+
+
+    private List<QueueMessage> getNextMessages(String queueName, int count, boolean wait) {
+
+        Collection<DatabaseQueueMessage> dbMessages = wait
+            ? distributedQueueService.getNextMessages( queueName, count )
+            : distributedQueueService.getNextMessagesNow( queueName, count );
 
         List<QueueMessage> queueMessages = joinMessages( queueName, dbMessages );
 
@@ -152,7 +257,9 @@ public class QueueMessageManagerImpl implements QueueMessageManager {
             logger.debug("Messages failed to join for queue:{}, get more", queueName);
 
             // some messages failed to join, get more
-            dbMessages = distributedQueueService.getNextMessages( queueName, count - queueMessages.size() );
+            dbMessages = wait
+                ? distributedQueueService.getNextMessages( queueName, count - queueMessages.size() )
+                : distributedQueueService.getNextMessagesNow( queueName, count - queueMessages.size() );
             queueMessages.addAll( joinMessages( queueName, dbMessages ) );
         }
 
@@ -164,9 +271,17 @@ public class QueueMessageManagerImpl implements QueueMessageManager {
 
         List<QueueMessage> queueMessages = new ArrayList<>();
 
+        List<UUID> messageIds = new ArrayList<>( dbMessages.size() );
         for (DatabaseQueueMessage dbMessage : dbMessages) {
+            messageIds.add( dbMessage.getMessageId() );
+        }
 
-            DatabaseQueueMessageBody data = queueMessageSerialization.loadMessageData( dbMessage.getMessageId() );
+        // load all the message data at once rather than waiting on a read per message
+        Map<UUID, DatabaseQueueMessageBody> messageData = queueMessageSerialization.loadMessageData( messageIds );
+
+        for (DatabaseQueueMessage dbMessage : dbMessages) {
+
+            DatabaseQueueMessageBody data = messageData.get( dbMessage.getMessageId() );
 
             if ( data != null ) {
 
@@ -232,6 +347,37 @@ public class QueueMessageManagerImpl implements QueueMessageManager {
     }
 
 
+    @Override
+    public List<UUID> ackMessages(String queueName, List<UUID> queueMessageIds) {
+
+        List<UUID> notInflight = new ArrayList<>();
+        int errors = 0;
+
+        for ( List<UUID> batch : Lists.partition( queueMessageIds, Math.max( 1, qakkaFig.getMaxBatchSize() ) ) ) {
+
+            Map<UUID, DistributedQueueService.Status> statuses = distributedQueueService.ackMessages( queueName, batch );
+
+            for ( Map.Entry<UUID, DistributedQueueService.Status> entry : statuses.entrySet() ) {
+
+                if ( DistributedQueueService.Status.NOT_INFLIGHT.equals( entry.getValue() )
+                    || DistributedQueueService.Status.BAD_REQUEST.equals( entry.getValue() )) {
+                    notInflight.add( entry.getKey() );
+
+                } else if ( DistributedQueueService.Status.ERROR.equals( entry.getValue() )) {
+                    errors++;
+                }
+            }
+        }
+
+        // every batch is attempted before failing, so an error in one doesn't leave the others inflight
+        if ( errors > 0 ) {
+            throw new QakkaRuntimeException( "Unable to ack " + errors + " messages due to error" );
+        }
+
+        return notInflight;
+    }
+
+
     @Override
     public void requeueMessage(String queueName, UUID messageId, Long delayMs) {
 
@@ -0,0 +1,197 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.usergrid.persistence.qakka.core.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * Hierarchical timing wheel, holds items until their deadline passes.
+ *
+ * Each level is a circular array of buckets, one bucket per tick of the level. Items due beyond the span of a level
+ * go to its overflow level, where a tick is as long as the whole span of the level below, and are cascaded down as
+ * that tick comes around. Adding an item and advancing one tick are constant time regardless of how many items are
+ * held, so a queue with many delayed messages is never scanned to find the ones that are due.
+ *
+ * Not thread safe, meant to be owned by a single actor.
+ */
+public class TimingWheel<T> {
+
+    private final long tickMillis;
+
+    private final Level<T> root;
+
+    private int size = 0;
+
+
+    /**
+     * @param tickMillis Resolution of the wheel, items are returned by the first advance to the end of the tick
+     *                   they're due in, never early and at most one tick late
+     * @param wheelSize  Number of buckets in each level
+     * @param startMillis Time to start at
+     */
+    public TimingWheel( long tickMillis, int wheelSize, long startMillis ) {
+        if ( tickMillis <= 0 || wheelSize <= 0 ) {
+            throw new IllegalArgumentException( "Tick and wheel size must be positive" );
+        }
+        this.tickMillis = tickMillis;
+        this.root = new Level<>( tickMillis, wheelSize, startMillis - Math.floorMod( startMillis, tickMillis ) );
+    }
+
+
+    /**
+     * Add an item to be returned once the deadline has passed.
+     *
+     * @return False if the item was not added because it is already due
+     */
+    public boolean add( T item, long deadline ) {
+        // round up to the end of the tick, so that items are never returned before their deadline
+        if ( root.add( new Entry<>( item, deadline + tickMillis - 1 ) ) ) {
+            size++;
+            return true;
+        }
+        return false;
+    }
+
+
+    /**
+     * Advance the wheel to now, returning the items that are due.
+     */
+    public List<T> advance( long now ) {
+
+        List<T> due = new ArrayList<>();
+
+        while ( root.currentTime + tickMillis <= now ) {
+            for ( Entry<T> entry : root.tick() ) {
+                due.add( entry.item );
+            }
+        }
+
+        size -= due.size();
+        return due;
+    }
+
+
+    /**
+     * Number of items waiting in the wheel.
+     */
+    public int size() {
+        return size;
+    }
+
+
+    private static class Entry<T> {
+        final T item;
+        final long deadline;
+
+        Entry( T item, long deadline ) {
+            this.item = item;
+            this.deadline = deadline;
+        }
+    }
+
+
+    private static class Level<T> {
+
+        private final long tick;
+        private final int wheelSize;
+        private final long interval;
+        private final List<Entry<T>>[] buckets;
+
+        /** Start of the current tick, always a multiple of the tick */
+        private long currentTime;
+
+        private Level<T> overflow;
+
+
+        @SuppressWarnings("unchecked")
+        Level( long tick, int wheelSize, long currentTime ) {
+            this.tick = tick;
+            this.wheelSize = wheelSize;
+            this.interval = tick * wheelSize;
+            this.buckets = new List[ wheelSize ];
+            this.currentTime = currentTime;
+        }
+
+
+        /**
+         * Add to the bucket of the deadline, or to the overflow level if the deadline is beyond this level.
+         *
+         * @return False if the entry is due in the current tick
+         */
+        boolean add( Entry<T> entry ) {
+
+            if ( entry.deadline < currentTime + tick ) {
+                return false;
+            }
+
+            if ( entry.deadline < currentTime + interval ) {
+                int index = index( entry.deadline );
+                if ( buckets[index] == null ) {
+                    buckets[index] = new ArrayList<>();
+                }
+                buckets[index].add( entry );
+                return true;
+            }
+
+            if ( overflow == null ) {
+                overflow = new Level<>( interval, wheelSize, currentTime - Math.floorMod( currentTime, interval ) );
+            }
+
+            // the overflow tick is our whole interval, so anything past our interval is past its current tick
+            return overflow.add( entry );
+        }
+
+
+        /**
+         * Move to the next tick, cascading the entries of the overflow level when its tick comes around.
+         *
+         * @return The entries due in the new current tick
+         */
+        List<Entry<T>> tick() {
+
+            currentTime += tick;
+
+            List<Entry<T>> due = new ArrayList<>();
+
+            if ( overflow != null && currentTime >= overflow.currentTime + overflow.tick ) {
+                for ( Entry<T> entry : overflow.tick() ) {
+                    if ( !add( entry ) ) {
+                        due.add( entry );
+                    }
+                }
+            }
+
+            int index = index( currentTime );
+            if ( buckets[index] != null ) {
+                due.addAll( buckets[index] );
+                buckets[index] = null;
+            }
+
+            return due;
+        }
+
+
+        private int index( long time ) {
+            return (int) Math.floorMod( time / tick, (long) wheelSize );
+        }
+    }
+}
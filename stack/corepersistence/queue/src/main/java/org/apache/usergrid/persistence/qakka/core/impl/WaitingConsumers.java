@@ -0,0 +1,189 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.usergrid.persistence.qakka.core.impl;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import org.apache.usergrid.persistence.qakka.QakkaFig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * Consumers on this node that are waiting for messages to arrive in a queue.
+ *
+ * A waiting consumer is a task, run once on the registry's threads when messages become available to the queue's
+ * consumers on this node or when its deadline passes, whichever comes first. Nothing is held by a waiting consumer
+ * but the task, so long polling requests don't tie up a request thread while they wait.
+ *
+ * Messages become available when they're written to the available messages table on this node, or with the
+ * in-memory cache on, when a refresh on this node buffers them. Without the in-memory cache, messages written on
+ * another node don't wake the consumers waiting here, those find them at their deadline. Each queue has a wake up
+ * sequence, read before looking for messages and passed to await, so a wake up between the two isn't missed.
+ */
+@Singleton
+public class WaitingConsumers {
+    private static final Logger logger = LoggerFactory.getLogger( WaitingConsumers.class );
+
+    private final ConcurrentMap<String, Queue<Waiter>> waitersByQueueName = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, AtomicLong> sequenceByQueueName = new ConcurrentHashMap<>();
+
+    private final QakkaFig qakkaFig;
+
+    private final ScheduledExecutorService executor;
+
+
+    @Inject
+    public WaitingConsumers( QakkaFig qakkaFig ) {
+        this.qakkaFig = qakkaFig;
+        this.executor = Executors.newScheduledThreadPool( qakkaFig.getLongPollThreads(),
+            new ThreadFactoryBuilder().setNameFormat( "qakka-long-poll-%d" ).setDaemon( true ).build() );
+    }
+
+
+    /**
+     * Wake up sequence of the queue, read it before looking for messages.
+     */
+    public long getSequence( String queueName ) {
+        return getSequenceCounter( queueName ).get();
+    }
+
+
+    /**
+     * Run the task once messages become available to the queue's consumers on this node, or at the deadline. Runs
+     * it right away if they became available since the sequence was read.
+     */
+    public void await( String queueName, long sequence, long deadline, Runnable task ) {
+
+        Waiter waiter = new Waiter( queueName, task );
+        waitersByQueueName.computeIfAbsent( queueName, name -> new ConcurrentLinkedQueue<>() ).add( waiter );
+
+        waiter.timeout = executor.schedule(
+            waiter::wake, Math.max( 0L, deadline - System.currentTimeMillis() ), TimeUnit.MILLISECONDS );
+
+        // woken before we were waiting, the sequence is moved before waiters are polled
+        if ( getSequence( queueName ) != sequence ) {
+            waiter.wake();
+        }
+    }
+
+
+    /**
+     * Messages were written to the queue's available messages table on this node. Wakes consumers unless they
+     * read from the in-memory cache, those are woken by the refresh that buffers the messages.
+     */
+    public void written( String queueName, int messageCount ) {
+        if ( !qakkaFig.getInMemoryCache() ) {
+            wake( queueName, messageCount );
+        }
+    }
+
+
+    /**
+     * Wake up to one waiting consumer per message available to the queue. Consumers that find the messages
+     * already taken by someone else wait again.
+     */
+    public void wake( String queueName, int messageCount ) {
+
+        getSequenceCounter( queueName ).incrementAndGet();
+
+        Queue<Waiter> waiters = waitersByQueueName.get( queueName );
+        if ( waiters == null ) {
+            return;
+        }
+
+        int woken = 0;
+        Waiter waiter;
+        while ( woken < messageCount && ( waiter = waiters.poll() ) != null ) {
+            if ( waiter.wake() ) {
+                woken++;
+            }
+        }
+
+        if ( woken > 0 ) {
+            logger.trace( "Woke {} consumers of queue {}", woken, queueName );
+        }
+    }
+
+
+    /**
+     * Number of consumers waiting for messages in the queue.
+     */
+    public int getWaiting( String queueName ) {
+        Queue<Waiter> waiters = waitersByQueueName.get( queueName );
+        return waiters == null ? 0 : waiters.size();
+    }
+
+
+    private AtomicLong getSequenceCounter( String queueName ) {
+        return sequenceByQueueName.computeIfAbsent( queueName, name -> new AtomicLong() );
+    }
+
+
+    private class Waiter {
+
+        private final String queueName;
+        private final Runnable task;
+        private final AtomicBoolean done = new AtomicBoolean( false );
+
+        private volatile ScheduledFuture<?> timeout;
+
+        Waiter( String queueName, Runnable task ) {
+            this.queueName = queueName;
+            this.task = task;
+        }
+
+        /**
+         * Run the task unless it has already run.
+         *
+         * @return False if already woken
+         */
+        boolean wake() {
+
+            if ( !done.compareAndSet( false, true ) ) {
+                return false;
+            }
+
+            ScheduledFuture<?> scheduled = timeout;
+            if ( scheduled != null ) {
+                scheduled.cancel( false );
+            }
+
+            Queue<Waiter> waiters = waitersByQueueName.get( queueName );
+            if ( waiters != null ) {
+                waiters.remove( this );
+            }
+
+            try {
+                executor.execute( task );
+            } catch ( RejectedExecutionException e ) {
+                logger.error( "Unable to run waiting consumer of queue {}", queueName, e );
+            }
+            return true;
+        }
+    }
+}
@@ -22,6 +22,8 @@ package org.apache.usergrid.persistence.qakka.distributed;
 import org.apache.usergrid.persistence.qakka.serialization.queuemessages.DatabaseQueueMessage;
 
 import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 
@@ -50,9 +52,32 @@ public interface DistributedQueueService {
         Long deliveryTime,
         Long expirationTime);
 
+    /**
+     * Send a batch of messages to a region's queue with a single actor message.
+     */
+    Status sendMessagesToRegion(
+        String queueName,
+        String sourceRegion,
+        String destRegion,
+        List<UUID> messageIds,
+        Long deliveryTime,
+        Long expirationTime);
+
     Collection<DatabaseQueueMessage> getNextMessages(String queueName, int numMessages);
 
+    /**
+     * Get next messages from queue, returning right away instead of waiting the long poll time for messages.
+     */
+    Collection<DatabaseQueueMessage> getNextMessagesNow(String queueName, int numMessages);
+
     Status ackMessage(String queueName, UUID messageId);
 
+    /**
+     * Ack a batch of queue messages with a single actor message.
+     *
+     * @return Status of the ack of each queue message, in the order given
+     */
+    Map<UUID, Status> ackMessages(String queueName, List<UUID> queueMessageIds);
+
     Status requeueMessage(String queueName, UUID messageId);
 }
@@ -51,6 +51,7 @@ public class QueueActor extends UntypedActor {
     private final Map<String, ActorRef> queueReadersByQueueName    = new HashMap<>();
     private final Map<String, ActorRef> queueTimeoutersByQueueName = new HashMap<>();
     private final Map<String, ActorRef> shardAllocatorsByQueueName = new HashMap<>();
+    private final Map<String, ActorRef> schedulersByQueueName      = new HashMap<>();
 
 
     @Inject
@@ -121,6 +122,20 @@ public class QueueActor extends UntypedActor {
             shardAllocatorsByQueueName.get( request.getQueueName() ).tell( request, self() );
 
 
+        } else if ( message instanceof QueueScheduleRequest ) {
+            QueueScheduleRequest request = (QueueScheduleRequest)message;
+
+            if ( schedulersByQueueName.get( request.getQueueName() ) == null ) {
+                ActorRef schedulerRef = getContext().actorOf(
+                    Props.create( GuiceActorProducer.class, QueueScheduler.class),
+                    request.getQueueName() + "_scheduler");
+                schedulersByQueueName.put( request.getQueueName(), schedulerRef );
+            }
+
+            // ASYNCHRONOUS -> hand-off to queue's scheduler
+            schedulersByQueueName.get( request.getQueueName() ).tell( request, self() );
+
+
         } else if ( message instanceof QueueGetRequest) {
 
             QueueGetRequest queueGetRequest = (QueueGetRequest) message;
@@ -30,6 +30,7 @@ import org.apache.usergrid.persistence.qakka.MetricsService;
 import org.apache.usergrid.persistence.qakka.QakkaFig;
 import org.apache.usergrid.persistence.qakka.core.CassandraClient;
 import org.apache.usergrid.persistence.qakka.core.impl.InMemoryQueue;
+import org.apache.usergrid.persistence.qakka.core.impl.WaitingConsumers;
 import org.apache.usergrid.persistence.qakka.distributed.DistributedQueueService;
 import org.apache.usergrid.persistence.qakka.serialization.MultiShardMessageIterator;
 import org.apache.usergrid.persistence.qakka.serialization.auditlog.AuditLog;
@@ -57,6 +58,7 @@ public class QueueActorHelper {
     private final QakkaFig                  qakkaFig;
     private final MetricsService            metricsService;
     private final CassandraClient           cassandraClient;
+    private final WaitingConsumers          waitingConsumers;
 
     private Map<String, Long> startingShards = new HashMap<>();
     private Map<String, Long> lastRefreshTimeMillis = new HashMap<>();
@@ -71,7 +73,8 @@ public class QueueActorHelper {
             AuditLogSerialization     auditLogSerialization,
             InMemoryQueue             inMemoryQueue,
             MetricsService            metricsService,
-            CassandraClient           cassandraClient
+            CassandraClient           cassandraClient,
+            WaitingConsumers          waitingConsumers
             ) {
 
         this.actorSystemFig        = actorSystemFig;
@@ -81,6 +84,7 @@ public class QueueActorHelper {
         this.qakkaFig              = qakkaFig;
         this.metricsService        = metricsService;
         this.cassandraClient       = cassandraClient;
+        this.waitingConsumers      = waitingConsumers;
     }
 
 
@@ -123,8 +127,13 @@ public class QueueActorHelper {
 
             if (queueMessage != null) {
 
-                if (putInflight( queueMessage )) {
-                    queueMessages.add( queueMessage );
+                try {
+                    if (putInflight( queueMessage )) {
+                        queueMessages.add( queueMessage );
+                    }
+                } finally {
+                    // now in the inflight table, or still available and free to be loaded again
+                    inMemoryQueue.release( queueName, queueMessage.getQueueMessageId() );
                 }
 
             } else {
@@ -194,6 +203,13 @@ public class QueueActorHelper {
     boolean putInflight( DatabaseQueueMessage queueMessage ) {
 
         UUID qmid = queueMessage.getQueueMessageId();
+
+        // expired after it was read, Cassandra only skips it once read again
+        if ( queueMessage.isExpired( System.currentTimeMillis() ) ) {
+            deleteExpired( queueMessage );
+            return false;
+        }
+
         try {
 
             messageSerialization.putInflight( queueMessage );
@@ -225,6 +241,19 @@ public class QueueActorHelper {
     }
 
 
+    private void deleteExpired( DatabaseQueueMessage queueMessage ) {
+        try {
+            messageSerialization.deleteMessages( Collections.singletonList( queueMessage ) );
+            logger.trace( "Deleted expired queue message id {} from queue {}",
+                queueMessage.getQueueMessageId(), queueMessage.getQueueName() );
+
+        } catch ( Throwable t ) {
+            logger.error( "Error deleting expired queue message "
+                + queueMessage.getQueueMessageId() + " queue name: " + queueMessage.getQueueName(), t );
+        }
+    }
+
+
     DistributedQueueService.Status ackQueueMessage(String queueName, UUID queueMessageId ) {
 
         DatabaseQueueMessage queueMessage = messageSerialization.loadMessage(
@@ -280,6 +309,70 @@ public class QueueActorHelper {
     }
 
 
+    /**
+     * Ack many queue messages, deleting them from the inflight table with one batch per shard.
+     *
+     * @return Status of the ack of each queue message, in the order given
+     */
+    Map<UUID, DistributedQueueService.Status> ackQueueMessages( String queueName, Collection<UUID> queueMessageIds ) {
+
+        Map<UUID, DistributedQueueService.Status> statuses = new LinkedHashMap<>();
+        List<DatabaseQueueMessage> queueMessages = new ArrayList<>( queueMessageIds.size() );
+
+        for ( UUID queueMessageId : queueMessageIds ) {
+
+            if ( statuses.containsKey( queueMessageId ) ) {
+                continue; // acked more than once in the same batch
+            }
+
+            DatabaseQueueMessage queueMessage = messageSerialization.loadMessage(
+                queueName,
+                actorSystemFig.getRegionLocal(),
+                null,
+                DatabaseQueueMessage.Type.INFLIGHT,
+                queueMessageId );
+
+            if ( queueMessage == null ) {
+                logger.error("Queue {} queue message id {} not found in inflight table", queueName, queueMessageId);
+                statuses.put( queueMessageId, DistributedQueueService.Status.NOT_INFLIGHT );
+            } else {
+                // keeps the requested order, the status is set once the message is deleted
+                statuses.put( queueMessageId, null );
+                queueMessages.add( queueMessage );
+            }
+        }
+
+        if ( queueMessages.isEmpty() ) {
+            return statuses;
+        }
+
+        boolean error = false;
+        try {
+            messageSerialization.deleteMessages( queueMessages );
+
+        } catch (Throwable t) {
+            logger.error( "Error deleting queueMessages for ack", t );
+            error = true;
+        }
+
+        for ( DatabaseQueueMessage queueMessage : queueMessages ) {
+
+            auditLogSerialization.recordAuditLog(
+                    AuditLog.Action.ACK,
+                    error ? AuditLog.Status.ERROR : AuditLog.Status.SUCCESS,
+                    queueName,
+                    actorSystemFig.getRegionLocal(),
+                    queueMessage.getMessageId(),
+                    queueMessage.getQueueMessageId() );
+
+            statuses.put( queueMessage.getQueueMessageId(),
+                error ? DistributedQueueService.Status.ERROR : DistributedQueueService.Status.SUCCESS );
+        }
+
+        return statuses;
+    }
+
+
     synchronized void queueRefresh( String queueName ) {
 
         Timer.Context timer = metricsService.getMetricRegistry().timer( MetricsService.REFRESH_TIME).time();
@@ -313,17 +406,35 @@ public class QueueActorHelper {
                 UUID since = inMemoryQueue.getNewest( queueName );
                 String region = actorSystemFig.getRegionLocal();
 
-                MultiShardMessageIterator multiShardIterator = new MultiShardMessageIterator(
-                    cassandraClient, queueName, region, DatabaseQueueMessage.Type.DEFAULT,
-                    shardIterator, since);
-
-                int need = qakkaFig.getQueueInMemorySize() - inMemoryQueue.size( queueName );
+                // messages released from here on can't be added by this refresh
+                long refresh = inMemoryQueue.beginRefresh( queueName );
                 int count = 0;
 
-                while ( multiShardIterator.hasNext() && count < need ) {
-                    DatabaseQueueMessage queueMessage = multiShardIterator.next();
-                    inMemoryQueue.add( queueName, queueMessage );
-                    count++;
+                try {
+                    MultiShardMessageIterator multiShardIterator = new MultiShardMessageIterator(
+                        cassandraClient, queueName, region, DatabaseQueueMessage.Type.DEFAULT,
+                        shardIterator, since);
+
+                    int need = qakkaFig.getQueueInMemorySize() - inMemoryQueue.size( queueName );
+
+                    while ( multiShardIterator.hasNext() && count < need ) {
+                        DatabaseQueueMessage queueMessage = multiShardIterator.next();
+
+                        // messages already buffered, being put inflight or just put inflight are not added again
+                        if ( inMemoryQueue.add( queueName, queueMessage ) ) {
+                            count++;
+                        } else if ( inMemoryQueue.size( queueName ) >= qakkaFig.getQueueInMemorySize() ) {
+                            break;
+                        }
+                    }
+
+                } finally {
+                    inMemoryQueue.endRefresh( queueName, refresh );
+                }
+
+                // consumers reading from memory are woken once messages are buffered, not when they're written
+                if ( count > 0 ) {
+                    waitingConsumers.wake( queueName, count );
                 }
 
                 startingShards.put( shardKey, shardId );
@@ -58,6 +58,7 @@ public class QueueActorRouter extends UntypedActor {
     private final Map<String, Cancellable> refreshSchedulersByQueueName = new HashMap<>();
     private final Map<String, Cancellable> timeoutSchedulersByQueueName = new HashMap<>();
     private final Map<String, Cancellable> shardAllocationSchedulersByQueueName = new HashMap<>();
+    private final Map<String, Cancellable> delayedSchedulersByQueueName = new HashMap<>();
 
 
     @Inject
@@ -92,7 +93,7 @@ public class QueueActorRouter extends UntypedActor {
 
 
     /**
-     * Create scheduled refresh, timeout and shard-allocation tasks just in time.
+     * Create scheduled refresh, timeout, shard-allocation and delayed message tasks just in time.
      */
     private void initIfNeeded( String queueName ) {
 
@@ -135,6 +136,18 @@ public class QueueActorRouter extends UntypedActor {
                 shardAllocationSchedulersByQueueName.put( queueName, scheduler );
                 logger.debug( "Created shard allocator for queue {}", queueName );
             }
+
+            if ( delayedSchedulersByQueueName.get( queueName ) == null) {
+                Cancellable scheduler = getContext().system().scheduler().schedule(
+                    Duration.create( 0, TimeUnit.MILLISECONDS ),
+                    Duration.create( qakkaFig.getDelayedTickMillis(), TimeUnit.MILLISECONDS ),
+                    self(),
+                    new QueueScheduleRequest( queueName ),
+                    getContext().dispatcher(),
+                    getSelf() );
+                delayedSchedulersByQueueName.put( queueName, scheduler );
+                logger.debug( "Created delayed message scheduler for queue {}", queueName );
+            }
         }
     }
 
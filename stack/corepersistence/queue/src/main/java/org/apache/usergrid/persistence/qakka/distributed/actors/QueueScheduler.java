@@ -0,0 +1,277 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.usergrid.persistence.qakka.distributed.actors;
+
+import akka.actor.UntypedActor;
+import com.codahale.metrics.Timer;
+import com.google.inject.Inject;
+import org.apache.commons.lang3.RandomStringUtils;
+import org.apache.usergrid.persistence.actorsystem.ActorSystemFig;
+import org.apache.usergrid.persistence.qakka.MetricsService;
+import org.apache.usergrid.persistence.qakka.QakkaFig;
+import org.apache.usergrid.persistence.qakka.core.QakkaUtils;
+import org.apache.usergrid.persistence.qakka.core.impl.TimingWheel;
+import org.apache.usergrid.persistence.qakka.core.impl.WaitingConsumers;
+import org.apache.usergrid.persistence.qakka.distributed.messages.QueueScheduleRequest;
+import org.apache.usergrid.persistence.qakka.serialization.queuemessages.DatabaseQueueMessage;
+import org.apache.usergrid.persistence.qakka.serialization.queuemessages.DelayedMessageSerialization;
+import org.apache.usergrid.persistence.qakka.serialization.queuemessages.QueueMessageSerialization;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+
+
+/**
+ * Promotes the delayed messages of one queue to its available messages once they're due.
+ *
+ * Messages due within the next couple of load intervals are held in a timing wheel, loaded periodically from the
+ * delayed shards that cover that time and pushed by the writer when they're sent, so each message is read from
+ * Cassandra about once no matter how long it's delayed. Expired messages are deleted instead of promoted.
+ *
+ * A message may be pushed by the writer after a load already promoted it, or loaded again if deleting its delayed
+ * row failed, so promoted messages are remembered for a couple of load intervals and not scheduled again.
+ */
+public class QueueScheduler extends UntypedActor {
+    private static final Logger logger = LoggerFactory.getLogger( QueueScheduler.class );
+
+    private static final int WHEEL_SIZE = 64;
+
+    private final String name = RandomStringUtils.randomAlphanumeric( 4 );
+
+    private final DelayedMessageSerialization delayedMessageSerialization;
+    private final QueueMessageSerialization   messageSerialization;
+    private final MetricsService              metricsService;
+    private final ActorSystemFig              actorSystemFig;
+    private final QakkaFig                    qakkaFig;
+    private final WaitingConsumers            waitingConsumers;
+
+    private final TimingWheel<DatabaseQueueMessage> timingWheel;
+
+    /** Queue message IDs of the messages in the timing wheel */
+    private final Set<UUID> scheduled = new HashSet<>();
+
+    /** Queue message IDs of recently promoted messages and when they were promoted, oldest first */
+    private final Map<UUID, Long> promoted = new LinkedHashMap<>();
+
+    private long nextLoadTime = 0L;
+
+
+    @Inject
+    public QueueScheduler(
+        DelayedMessageSerialization delayedMessageSerialization,
+        QueueMessageSerialization   messageSerialization,
+        MetricsService              metricsService,
+        ActorSystemFig              actorSystemFig,
+        QakkaFig                    qakkaFig,
+        WaitingConsumers            waitingConsumers
+    ) {
+        this.delayedMessageSerialization = delayedMessageSerialization;
+        this.messageSerialization = messageSerialization;
+        this.metricsService = metricsService;
+        this.actorSystemFig = actorSystemFig;
+        this.qakkaFig = qakkaFig;
+        this.waitingConsumers = waitingConsumers;
+
+        this.timingWheel = new TimingWheel<>(
+            qakkaFig.getDelayedTickMillis(), WHEEL_SIZE, System.currentTimeMillis() );
+    }
+
+
+    @Override
+    public void onReceive(Object message) {
+
+        if ( message instanceof QueueScheduleRequest ) {
+
+            Timer.Context timer = metricsService.getMetricRegistry().timer( MetricsService.SCHEDULE_TIME ).time();
+
+            try {
+                QueueScheduleRequest request = (QueueScheduleRequest) message;
+
+                String queueName = request.getQueueName();
+                long now = System.currentTimeMillis();
+
+                List<DatabaseQueueMessage> due = new ArrayList<>();
+
+                forgetPromoted( now );
+
+                if ( now >= nextLoadTime ) {
+                    loadDelayedMessages( queueName, now, due );
+                    nextLoadTime = now + qakkaFig.getDelayedLoadMillis();
+                }
+
+                for ( DatabaseQueueMessage queueMessage : request.getMessages() ) {
+                    schedule( queueMessage, due );
+                }
+
+                due.addAll( timingWheel.advance( now ) );
+
+                promote( queueName, due, now );
+
+            } finally {
+                timer.close();
+            }
+
+        } else {
+            unhandled( message );
+        }
+    }
+
+
+    /**
+     * Load the delayed messages due before the load after next, and remove the listing of old empty shards.
+     */
+    private void loadDelayedMessages( String queueName, long now, List<DatabaseQueueMessage> due ) {
+
+        String region = actorSystemFig.getRegionLocal();
+        long loadMillis = qakkaFig.getDelayedLoadMillis();
+        long deliveredBy = now + 2 * loadMillis;
+
+        List<Long> shardIds = delayedMessageSerialization.getShardIds(
+            queueName, region, delayedMessageSerialization.getShardId( deliveredBy ) );
+
+        for ( Long shardId : shardIds ) {
+
+            List<DatabaseQueueMessage> queueMessages = delayedMessageSerialization.loadDelayedMessages(
+                queueName, region, shardId, deliveredBy );
+
+            List<DatabaseQueueMessage> undeleted = new ArrayList<>();
+            for ( DatabaseQueueMessage queueMessage : queueMessages ) {
+                if ( promoted.remove( queueMessage.getQueueMessageId() ) != null ) {
+                    // remembered until its delayed row is gone
+                    promoted.put( queueMessage.getQueueMessageId(), now );
+                    undeleted.add( queueMessage );
+                } else {
+                    schedule( queueMessage, due );
+                }
+            }
+
+            if ( !undeleted.isEmpty() ) {
+                deletePromoted( queueName, undeleted );
+            }
+
+            // no more messages will be written to a shard that ended a while ago
+            long shardEnd = ( shardId + 1 ) * qakkaFig.getDelayedShardMillis();
+            if ( queueMessages.isEmpty() && shardEnd < now - loadMillis ) {
+                delayedMessageSerialization.deleteShard( queueName, region, shardId );
+            }
+        }
+    }
+
+
+    private void schedule( DatabaseQueueMessage queueMessage, List<DatabaseQueueMessage> due ) {
+
+        if ( promoted.containsKey( queueMessage.getQueueMessageId() ) ) {
+            logger.trace( "{}: Delayed message {} already promoted", name, queueMessage.getQueueMessageId() );
+            return;
+        }
+
+        if ( scheduled.add( queueMessage.getQueueMessageId() ) ) {
+            if ( !timingWheel.add( queueMessage, queueMessage.getDeliveryTime() ) ) {
+                due.add( queueMessage );
+            }
+        }
+    }
+
+
+    /**
+     * Write due messages to the available messages as new queue messages, and delete them from the delayed messages.
+     */
+    private void promote( String queueName, List<DatabaseQueueMessage> due, long now ) {
+
+        if ( due.isEmpty() ) {
+            return;
+        }
+
+        List<DatabaseQueueMessage> available = new ArrayList<>( due.size() );
+
+        for ( DatabaseQueueMessage queueMessage : due ) {
+
+            scheduled.remove( queueMessage.getQueueMessageId() );
+
+            if ( queueMessage.isExpired( now ) ) {
+                continue;
+            }
+
+            DatabaseQueueMessage availableMessage = new DatabaseQueueMessage(
+                queueMessage.getMessageId(),
+                DatabaseQueueMessage.Type.DEFAULT,
+                queueMessage.getQueueName(),
+                queueMessage.getRegion(),
+                null,
+                queueMessage.getQueuedAt(),
+                -1L,
+                QakkaUtils.getTimeUuid() );
+            availableMessage.setExpirationTime( queueMessage.getExpirationTime() );
+
+            available.add( availableMessage );
+        }
+
+        try {
+            if ( !available.isEmpty() ) {
+                messageSerialization.writeMessages( available );
+                waitingConsumers.written( queueName, available.size() );
+            }
+
+        } catch ( Throwable t ) {
+            // messages stay in the delayed shards and are scheduled again by the next load
+            logger.error( "{}: Error promoting {} delayed messages for queue {}", name, due.size(), queueName, t );
+            return;
+        }
+
+        for ( DatabaseQueueMessage queueMessage : due ) {
+            promoted.put( queueMessage.getQueueMessageId(), now );
+        }
+
+        logger.debug( "{}: Promoted {} and expired {} delayed messages for queue {}",
+            name, available.size(), due.size() - available.size(), queueName );
+
+        deletePromoted( queueName, due );
+    }
+
+
+    /**
+     * Delete promoted messages from the delayed messages, if that fails they're deleted when loaded again.
+     */
+    private void deletePromoted( String queueName, List<DatabaseQueueMessage> queueMessages ) {
+        try {
+            delayedMessageSerialization.deleteDelayedMessages( queueMessages );
+
+        } catch ( Throwable t ) {
+            logger.error( "{}: Error deleting {} promoted delayed messages for queue {}",
+                name, queueMessages.size(), queueName, t );
+        }
+    }
+
+
+    /**
+     * Forget messages promoted more than two load intervals ago, the writer's push and the next load have
+     * arrived by then.
+     */
+    private void forgetPromoted( long now ) {
+
+        long forgetBefore = now - 2 * qakkaFig.getDelayedLoadMillis();
+
+        Iterator<Long> promotedTimes = promoted.values().iterator();
+        while ( promotedTimes.hasNext() && promotedTimes.next() < forgetBefore ) {
+            promotedTimes.remove();
+        }
+    }
+}
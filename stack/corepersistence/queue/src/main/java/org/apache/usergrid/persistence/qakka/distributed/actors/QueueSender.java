@@ -43,6 +43,7 @@ import org.slf4j.LoggerFactory;
 import scala.concurrent.Await;
 import scala.concurrent.Future;
 
+import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.TimeUnit;
 
@@ -97,6 +98,22 @@ public class QueueSender extends UntypedActor {
 
             logResponse( writeStatus, qa.getQueueName(), qa.getDestRegion(), qa.getMessageId() );
 
+        } else if ( message instanceof QueueSendBatchRequest ) {
+            QueueSendBatchRequest qa =  (QueueSendBatchRequest) message;
+
+            getSender().tell( new QueueSendResponse(
+                    DistributedQueueService.Status.SUCCESS, qa.getQueueName() ), getSender() );
+
+            final QueueWriter.WriteStatus writeStatus = sendMessagesToRegion(
+                    qa.getQueueName(),
+                    qa.getSourceRegion(),
+                    qa.getDestRegion(),
+                    qa.getMessageIds(),
+                    qa.getDeliveryTime(),
+                    qa.getExpirationTime() );
+
+            logResponse( writeStatus, qa.getQueueName(), qa.getDestRegion(), qa.getMessageIds() );
+
         } else {
             unhandled( message );
         }
@@ -112,15 +129,37 @@ public class QueueSender extends UntypedActor {
             Long deliveryTime,
             Long expirationTime ) {
 
+        QueueWriteRequest request = new QueueWriteRequest(
+                queueName, sourceRegion, destRegion, messageId, deliveryTime, expirationTime );
+
+        return sendWriteRequest( request, queueName, destRegion );
+    }
+
+
+    QueueWriter.WriteStatus sendMessagesToRegion(
+
+            String queueName,
+            String sourceRegion,
+            String destRegion,
+            List<UUID> messageIds,
+            Long deliveryTime,
+            Long expirationTime ) {
+
+        QueueWriteBatchRequest request = new QueueWriteBatchRequest(
+                queueName, sourceRegion, destRegion, messageIds, deliveryTime, expirationTime );
+
+        return sendWriteRequest( request, queueName, destRegion );
+    }
+
+
+    private QueueWriter.WriteStatus sendWriteRequest( QakkaMessage request, String queueName, String destRegion ) {
+
         Timer.Context timer = metricsService.getMetricRegistry().timer( MetricsService.SEND_TIME_SEND ).time();
         try {
 
             int maxRetries = qakkaFig.getMaxSendRetries();
             int retries = 0;
 
-            QueueWriteRequest request = new QueueWriteRequest(
-                    queueName, sourceRegion, destRegion, messageId, deliveryTime, expirationTime );
-
             while (retries++ < maxRetries) {
                 try {
                     Timeout t = new Timeout( qakkaFig.getSendTimeoutSeconds(), TimeUnit.SECONDS );
@@ -181,6 +220,30 @@ public class QueueSender extends UntypedActor {
     }
 
 
+    void logResponse( QueueWriter.WriteStatus writeStatus, String queueName, String region, List<UUID> messageIds ) {
+
+        if ( writeStatus != null
+                && writeStatus.equals( QueueWriter.WriteStatus.SUCCESS_XFERLOG_NOTDELETED ) ) {
+
+            // queue writer failed to clean up transfer logs
+            try {
+                transferLogSerialization.removeTransferLogs(
+                        queueName, actorSystemFig.getRegionLocal(), region, messageIds );
+
+            } catch (Throwable t) {
+                logger.error( "Unable to remove transfer logs for {}, {}, {}, {} messages",
+                        new Object[]{queueName, actorSystemFig.getRegionLocal(), region, messageIds.size()} );
+                logger.debug( "Unable to remove transfer logs exception is:", t );
+            }
+
+        } else {
+            for ( UUID messageId : messageIds ) {
+                logResponse( writeStatus, queueName, region, messageId );
+            }
+        }
+    }
+
+
     void logResponse( QueueWriter.WriteStatus writeStatus, String queueName, String region, UUID messageId ) {
 
         if ( writeStatus != null
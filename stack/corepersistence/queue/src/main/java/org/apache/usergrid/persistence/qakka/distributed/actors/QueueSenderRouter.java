@@ -26,6 +26,7 @@ import akka.routing.FromConfig;
 import com.google.inject.Inject;
 import com.google.inject.Injector;
 import org.apache.usergrid.persistence.actorsystem.GuiceActorProducer;
+import org.apache.usergrid.persistence.qakka.distributed.messages.QueueSendBatchRequest;
 import org.apache.usergrid.persistence.qakka.distributed.messages.QueueSendRequest;
 
 
@@ -48,7 +49,7 @@ public class QueueSenderRouter extends UntypedActor {
     @Override
     public void onReceive(Object message) {
 
-        if ( message instanceof QueueSendRequest ) {
+        if ( message instanceof QueueSendRequest || message instanceof QueueSendBatchRequest ) {
             router.tell( message, getSender() );
 
         } else {
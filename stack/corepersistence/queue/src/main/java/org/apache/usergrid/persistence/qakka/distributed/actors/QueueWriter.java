@@ -23,21 +23,33 @@ import akka.actor.UntypedActor;
 import com.codahale.metrics.Timer;
 import com.google.inject.Inject;
 import org.apache.commons.lang3.RandomStringUtils;
+import org.apache.usergrid.persistence.actorsystem.ActorSystemManager;
 import org.apache.usergrid.persistence.qakka.MetricsService;
+import org.apache.usergrid.persistence.qakka.QakkaFig;
+import org.apache.usergrid.persistence.qakka.core.impl.WaitingConsumers;
 import org.apache.usergrid.persistence.qakka.core.QakkaUtils;
 import org.apache.usergrid.persistence.qakka.distributed.DistributedQueueService;
+import org.apache.usergrid.persistence.qakka.distributed.messages.QueueAckBatchRequest;
+import org.apache.usergrid.persistence.qakka.distributed.messages.QueueAckBatchResponse;
 import org.apache.usergrid.persistence.qakka.distributed.messages.QueueAckRequest;
 import org.apache.usergrid.persistence.qakka.distributed.messages.QueueAckResponse;
+import org.apache.usergrid.persistence.qakka.distributed.messages.QueueScheduleRequest;
+import org.apache.usergrid.persistence.qakka.distributed.messages.QueueWriteBatchRequest;
 import org.apache.usergrid.persistence.qakka.distributed.messages.QueueWriteRequest;
 import org.apache.usergrid.persistence.qakka.distributed.messages.QueueWriteResponse;
 import org.apache.usergrid.persistence.qakka.serialization.auditlog.AuditLog;
 import org.apache.usergrid.persistence.qakka.serialization.auditlog.AuditLogSerialization;
 import org.apache.usergrid.persistence.qakka.serialization.queuemessages.DatabaseQueueMessage;
+import org.apache.usergrid.persistence.qakka.serialization.queuemessages.DelayedMessageSerialization;
 import org.apache.usergrid.persistence.qakka.serialization.queuemessages.QueueMessageSerialization;
 import org.apache.usergrid.persistence.qakka.serialization.transferlog.TransferLogSerialization;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 
@@ -49,24 +61,36 @@ public class QueueWriter extends UntypedActor {
     private final String name = RandomStringUtils.randomAlphanumeric( 4 );
 
     private final QueueMessageSerialization messageSerialization;
+    private final DelayedMessageSerialization delayedMessageSerialization;
     private final TransferLogSerialization  transferLogSerialization;
     private final AuditLogSerialization     auditLogSerialization;
     private final MetricsService            metricsService;
     private final QueueActorHelper          queueActorHelper;
+    private final ActorSystemManager        actorSystemManager;
+    private final QakkaFig                  qakkaFig;
+    private final WaitingConsumers          waitingConsumers;
 
     @Inject
     public QueueWriter(
         QueueMessageSerialization messageSerialization,
+        DelayedMessageSerialization delayedMessageSerialization,
         TransferLogSerialization  transferLogSerialization,
         AuditLogSerialization     auditLogSerialization,
         MetricsService            metricsService,
-        QueueActorHelper          queueActorHelper
+        QueueActorHelper          queueActorHelper,
+        ActorSystemManager        actorSystemManager,
+        QakkaFig                  qakkaFig,
+        WaitingConsumers          waitingConsumers
     ) {
         this.messageSerialization     = messageSerialization;
+        this.delayedMessageSerialization = delayedMessageSerialization;
         this.transferLogSerialization = transferLogSerialization;
         this.auditLogSerialization    = auditLogSerialization;
         this.metricsService           = metricsService;
         this.queueActorHelper         = queueActorHelper;
+        this.actorSystemManager       = actorSystemManager;
+        this.qakkaFig                 = qakkaFig;
+        this.waitingConsumers         = waitingConsumers;
     }
 
     @Override
@@ -81,8 +105,6 @@ public class QueueWriter extends UntypedActor {
 
                 UUID queueMessageId = QakkaUtils.getTimeUuid();
 
-                // TODO: implement deliveryTime and expirationTime
-
                 DatabaseQueueMessage dbqm = null;
                 long currentTime = System.currentTimeMillis();
                 String queueName = qa.getQueueName();
@@ -97,8 +119,16 @@ public class QueueWriter extends UntypedActor {
                             currentTime,
                             -1L,
                             queueMessageId );
+                    dbqm.setExpirationTime( qa.getExpirationTime() );
+
+                    if ( isDelayed( qa.getDeliveryTime(), currentTime ) ) {
+                        dbqm.setDeliveryTime( qa.getDeliveryTime() );
+                        writeDelayedMessages( queueName, Collections.singletonList( dbqm ), currentTime );
 
-                    messageSerialization.writeMessage( dbqm );
+                    } else {
+                        messageSerialization.writeMessage( dbqm );
+                        waitingConsumers.written( queueName, 1 );
+                    }
 
                     logger.trace("{}: Wrote queue message id {} to queue name {}",
                             name, dbqm.getQueueMessageId(), dbqm.getQueueName());
@@ -154,6 +184,16 @@ public class QueueWriter extends UntypedActor {
                 timer.close();
             }
 
+        } else if ( message instanceof QueueWriteBatchRequest ) {
+
+            Timer.Context timer = metricsService.getMetricRegistry().timer( MetricsService.SEND_TIME_WRITE ).time();
+            try {
+                writeBatch( (QueueWriteBatchRequest) message );
+
+            } finally {
+                timer.close();
+            }
+
         } else if ( message instanceof QueueAckRequest ){
 
             Timer.Context timer = metricsService.getMetricRegistry().timer( MetricsService.ACK_TIME_ACK ).time();
@@ -178,10 +218,148 @@ public class QueueWriter extends UntypedActor {
                 timer.close();
             }
 
+        } else if ( message instanceof QueueAckBatchRequest ){
+
+            Timer.Context timer = metricsService.getMetricRegistry().timer( MetricsService.ACK_TIME_ACK ).time();
+            try {
+
+                QueueAckBatchRequest queueAckBatchRequest = (QueueAckBatchRequest) message;
+
+                logger.trace("Receive QueueAckBatchRequest for {} messages",
+                    queueAckBatchRequest.getQueueMessageIds().size() );
+
+                Map<UUID, DistributedQueueService.Status> statuses = queueActorHelper.ackQueueMessages(
+                    queueAckBatchRequest.getQueueName(),
+                    queueAckBatchRequest.getQueueMessageIds() );
+
+                getSender().tell( new QueueAckBatchResponse(
+                    queueAckBatchRequest.getQueueName(), statuses ), getSender() );
+
+            } finally {
+                timer.close();
+            }
+
         } else {
             unhandled( message );
         }
 
     }
 
+
+    /**
+     * Write all messages of the batch, one Cassandra batch per shard, and then remove their transfer logs.
+     */
+    private void writeBatch( QueueWriteBatchRequest qa ) {
+
+        long currentTime = System.currentTimeMillis();
+        String queueName = qa.getQueueName();
+        boolean delayed = isDelayed( qa.getDeliveryTime(), currentTime );
+
+        List<DatabaseQueueMessage> dbqms = new ArrayList<>( qa.getMessageIds().size() );
+        for ( UUID messageId : qa.getMessageIds() ) {
+            DatabaseQueueMessage dbqm = new DatabaseQueueMessage(
+                    messageId,
+                    DatabaseQueueMessage.Type.DEFAULT,
+                    queueName,
+                    qa.getDestRegion(),
+                    null,
+                    currentTime,
+                    -1L,
+                    QakkaUtils.getTimeUuid() );
+            dbqm.setExpirationTime( qa.getExpirationTime() );
+            if ( delayed ) {
+                dbqm.setDeliveryTime( qa.getDeliveryTime() );
+            }
+            dbqms.add( dbqm );
+        }
+
+        try {
+            if ( delayed ) {
+                writeDelayedMessages( queueName, dbqms, currentTime );
+            } else {
+                messageSerialization.writeMessages( dbqms );
+                waitingConsumers.written( queueName, dbqms.size() );
+            }
+
+            logger.trace("{}: Wrote {} queue messages to queue name {}", name, dbqms.size(), queueName);
+
+        } catch (Throwable t) {
+            logger.debug("Error creating database queue messages", t);
+
+            for ( DatabaseQueueMessage dbqm : dbqms ) {
+                auditLogSerialization.recordAuditLog(
+                        AuditLog.Action.SEND,
+                        AuditLog.Status.ERROR,
+                        queueName,
+                        qa.getDestRegion(),
+                        dbqm.getMessageId(),
+                        dbqm.getQueueMessageId() );
+            }
+
+            getSender().tell( new QueueWriteResponse(
+                    QueueWriter.WriteStatus.ERROR, queueName ), getSender() );
+
+            return;
+        }
+
+        for ( DatabaseQueueMessage dbqm : dbqms ) {
+            auditLogSerialization.recordAuditLog(
+                    AuditLog.Action.SEND,
+                    AuditLog.Status.SUCCESS,
+                    queueName,
+                    qa.getDestRegion(),
+                    dbqm.getMessageId(),
+                    dbqm.getQueueMessageId() );
+        }
+
+        try {
+            transferLogSerialization.removeTransferLogs(
+                    queueName,
+                    qa.getSourceRegion(),
+                    qa.getDestRegion(),
+                    qa.getMessageIds() );
+
+            getSender().tell( new QueueWriteResponse(
+                    QueueWriter.WriteStatus.SUCCESS_XFERLOG_DELETED, queueName ), getSender() );
+
+        } catch (Throwable e) {
+            logger.debug( "Unable to delete transfer logs for {} {} {}",
+                    queueName,
+                    qa.getSourceRegion(),
+                    qa.getDestRegion() );
+            logger.debug("Error deleting transferlogs", e);
+
+            getSender().tell( new QueueWriteResponse(
+                    QueueWriter.WriteStatus.SUCCESS_XFERLOG_NOTDELETED, queueName ), getSender() );
+        }
+    }
+
+
+    private boolean isDelayed( Long deliveryTime, long currentTime ) {
+        return deliveryTime != null && deliveryTime > currentTime;
+    }
+
+
+    /**
+     * Write messages to the delayed shards, and hand the ones due before the next load of the queue's
+     * scheduler straight to it.
+     */
+    private void writeDelayedMessages( String queueName, List<DatabaseQueueMessage> dbqms, long currentTime ) {
+
+        delayedMessageSerialization.writeDelayedMessages( dbqms );
+
+        List<DatabaseQueueMessage> dueSoon = new ArrayList<>();
+        for ( DatabaseQueueMessage dbqm : dbqms ) {
+            if ( dbqm.getDeliveryTime() < currentTime + qakkaFig.getDelayedLoadMillis() ) {
+                dueSoon.add( dbqm );
+            }
+        }
+
+        if ( !dueSoon.isEmpty() ) {
+            actorSystemManager.getClientActor().tell( new QueueScheduleRequest( queueName, dueSoon ), null );
+        }
+
+        logger.trace("{}: Wrote {} delayed queue messages to queue name {}", name, dbqms.size(), queueName);
+    }
+
 }
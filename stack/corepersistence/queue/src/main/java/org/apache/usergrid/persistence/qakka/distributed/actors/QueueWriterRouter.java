@@ -25,7 +25,9 @@ import akka.actor.UntypedActor;
 import akka.routing.FromConfig;
 import com.google.inject.Inject;
 import org.apache.usergrid.persistence.actorsystem.GuiceActorProducer;
+import org.apache.usergrid.persistence.qakka.distributed.messages.QueueAckBatchRequest;
 import org.apache.usergrid.persistence.qakka.distributed.messages.QueueAckRequest;
+import org.apache.usergrid.persistence.qakka.distributed.messages.QueueWriteBatchRequest;
 import org.apache.usergrid.persistence.qakka.distributed.messages.QueueWriteRequest;
 
 
@@ -48,7 +50,10 @@ public class QueueWriterRouter extends UntypedActor {
     @Override
     public void onReceive(Object message) {
 
-        if ( message instanceof QueueWriteRequest || message instanceof QueueAckRequest ) {
+        if ( message instanceof QueueWriteRequest
+            || message instanceof QueueWriteBatchRequest
+            || message instanceof QueueAckRequest
+            || message instanceof QueueAckBatchRequest ) {
             router.tell( message, getSender() );
 
         } else {
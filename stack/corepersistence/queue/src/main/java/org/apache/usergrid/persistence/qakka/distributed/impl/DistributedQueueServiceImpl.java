@@ -142,15 +142,35 @@ public class DistributedQueueServiceImpl implements DistributedQueueService {
 
         logger.trace("Sending message to queue {} region {}", queueName, destRegion);
 
+        QueueSendRequest request = new QueueSendRequest(
+                queueName, sourceRegion, destRegion, messageId, deliveryTime, expirationTime );
+
+        return sendMessageToLocalSenders( queueName, request );
+    }
+
+
+    @Override
+    public DistributedQueueService.Status sendMessagesToRegion(
+            String queueName, String sourceRegion, String destRegion, List<UUID> messageIds,
+            Long deliveryTime, Long expirationTime ) {
+
+        logger.trace("Sending {} messages to queue {} region {}", messageIds.size(), queueName, destRegion);
+
+        QueueSendBatchRequest request = new QueueSendBatchRequest(
+                queueName, sourceRegion, destRegion, messageIds, deliveryTime, expirationTime );
+
+        return sendMessageToLocalSenders( queueName, request );
+    }
+
+
+    private DistributedQueueService.Status sendMessageToLocalSenders( String queueName, QakkaMessage request ) {
+
         Timer.Context timer = metricsService.getMetricRegistry().timer( MetricsService.SEND_TIME_TOTAL ).time();
         try {
 
             int maxRetries = qakkaFig.getMaxSendRetries();
             int retries = 0;
 
-            QueueSendRequest request = new QueueSendRequest(
-                    queueName, sourceRegion, destRegion, messageId, deliveryTime, expirationTime );
-
             while ( retries++ < maxRetries ) {
                 try {
                     Timeout t = new Timeout( qakkaFig.getSendTimeoutSeconds(), TimeUnit.SECONDS );
@@ -236,6 +256,21 @@ public class DistributedQueueServiceImpl implements DistributedQueueService {
     }
 
 
+    @Override
+    public Collection<DatabaseQueueMessage> getNextMessagesNow( String queueName, int count ) {
+
+        com.codahale.metrics.Timer.Context timer =
+            metricsService.getMetricRegistry().timer( MetricsService.GET_TIME_TOTAL ).time();
+
+        try {
+            return getNextMessagesInternal( queueName, count );
+
+        } finally {
+            timer.close();
+        }
+    }
+
+
     public Collection<DatabaseQueueMessage> getNextMessagesInternal( String queueName, int count ) {
 
         if ( actorSystemManager.getClientActor() == null || !actorSystemManager.isReady() ) {
@@ -315,8 +350,27 @@ public class DistributedQueueServiceImpl implements DistributedQueueService {
         try {
 
             QueueAckRequest message = new QueueAckRequest( queueName, queueMessageId );
-            return sendMessageToLocalRouters( message );
+            return sendMessageToLocalRouters( message, QueueAckResponse.class, 1 ).getStatus();
+
+
+        } finally {
+            timer.close();
+        }
+    }
+
+
+    @Override
+    public Map<UUID, Status> ackMessages( String queueName, List<UUID> queueMessageIds ) {
+
+        logger.trace("Acking {} messages for queue {}", queueMessageIds.size(), queueName);
+
+        Timer.Context timer = metricsService.getMetricRegistry().timer( MetricsService.ACK_TIME_TOTAL ).time();
+        try {
 
+            // a batch takes longer than a single ack, allow it as long as a send
+            QueueAckBatchRequest message = new QueueAckBatchRequest( queueName, queueMessageIds );
+            return sendMessageToLocalRouters(
+                message, QueueAckBatchResponse.class, qakkaFig.getSendTimeoutSeconds() ).getStatuses();
 
         } finally {
             timer.close();
@@ -328,27 +382,27 @@ public class DistributedQueueServiceImpl implements DistributedQueueService {
     public Status requeueMessage(String queueName, UUID messageId) {
 
         QueueAckRequest message = new QueueAckRequest( queueName, messageId );
-        return sendMessageToLocalRouters( message );
+        return sendMessageToLocalRouters( message, QueueAckResponse.class, 1 ).getStatus();
     }
 
 
-    private Status sendMessageToLocalRouters( QakkaMessage message ) {
+    private <T extends QakkaMessage> T sendMessageToLocalRouters(
+            QakkaMessage message, Class<T> responseType, long timeoutSeconds ) {
 
         int maxRetries = 5;
         int retries = 0;
 
         while ( retries++ < maxRetries ) {
             try {
-                Timeout t = new Timeout( 1, TimeUnit.SECONDS );
+                Timeout t = new Timeout( timeoutSeconds, TimeUnit.SECONDS );
 
                 // ask ClientActor and wait (up to timeout) for response
 
                 Future<Object> fut = Patterns.ask( actorSystemManager.getClientActor(), message, t );
                 final QakkaMessage response = (QakkaMessage)Await.result( fut, t.duration() );
 
-                if ( response != null && response instanceof QueueAckResponse) {
-                    QueueAckResponse qprm = (QueueAckResponse)response;
-                    return qprm.getStatus();
+                if ( responseType.isInstance( response ) ) {
+                    return responseType.cast( response );
 
                 } else if ( response != null  ) {
                     logger.debug("UNKNOWN RESPONSE sending message, retrying {}", retries );
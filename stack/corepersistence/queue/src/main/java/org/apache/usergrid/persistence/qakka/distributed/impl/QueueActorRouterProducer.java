@@ -136,6 +136,7 @@ public class QueueActorRouterProducer implements RouterProducer {
             add( QueueInitRequest.class );
             add( QueueRefreshRequest.class );
             add( QueueTimeoutRequest.class );
+            add( QueueScheduleRequest.class );
             add( ShardCheckRequest.class );
         }};
     }
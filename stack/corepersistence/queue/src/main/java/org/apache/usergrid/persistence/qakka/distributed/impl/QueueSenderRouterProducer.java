@@ -33,10 +33,11 @@ import org.apache.usergrid.persistence.actorsystem.GuiceActorProducer;
 import org.apache.usergrid.persistence.actorsystem.RouterProducer;
 import org.apache.usergrid.persistence.qakka.QakkaFig;
 import org.apache.usergrid.persistence.qakka.distributed.actors.QueueSenderRouter;
+import org.apache.usergrid.persistence.qakka.distributed.messages.QueueSendBatchRequest;
 import org.apache.usergrid.persistence.qakka.distributed.messages.QueueSendRequest;
 
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -128,7 +129,7 @@ public class QueueSenderRouterProducer implements RouterProducer {
 
     @Override
     public Collection<Class> getMessageTypes() {
-        return Collections.singletonList( QueueSendRequest.class );
+        return Arrays.asList( QueueSendRequest.class, QueueSendBatchRequest.class );
     }
 
 }
@@ -34,7 +34,9 @@ import org.apache.usergrid.persistence.actorsystem.GuiceActorProducer;
 import org.apache.usergrid.persistence.actorsystem.RouterProducer;
 import org.apache.usergrid.persistence.qakka.QakkaFig;
 import org.apache.usergrid.persistence.qakka.distributed.actors.QueueWriterRouter;
+import org.apache.usergrid.persistence.qakka.distributed.messages.QueueAckBatchRequest;
 import org.apache.usergrid.persistence.qakka.distributed.messages.QueueAckRequest;
+import org.apache.usergrid.persistence.qakka.distributed.messages.QueueWriteBatchRequest;
 import org.apache.usergrid.persistence.qakka.distributed.messages.QueueWriteRequest;
 
 import java.util.ArrayList;
@@ -133,7 +135,9 @@ public class QueueWriterRouterProducer implements RouterProducer {
     public Collection<Class> getMessageTypes() {
         return new ArrayList() {{
             add( QueueAckRequest.class );
+            add( QueueAckBatchRequest.class );
             add( QueueWriteRequest.class );
+            add( QueueWriteBatchRequest.class );
         }};
 
     }
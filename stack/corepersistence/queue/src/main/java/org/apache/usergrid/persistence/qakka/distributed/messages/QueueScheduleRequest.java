@@ -0,0 +1,64 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.usergrid.persistence.qakka.distributed.messages;
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.usergrid.persistence.qakka.serialization.queuemessages.DatabaseQueueMessage;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+
+/**
+ * Schedule delayed messages for promotion to the available messages of the queue.
+ * Sent with no messages to advance the queue's timing wheel.
+ */
+public class QueueScheduleRequest implements QakkaMessage {
+    private final String queueName;
+    private final ArrayList<DatabaseQueueMessage> messages;
+
+
+    public QueueScheduleRequest( String queueName ) {
+        this.queueName = queueName;
+        this.messages = new ArrayList<>();
+    }
+
+    public QueueScheduleRequest( String queueName, Collection<DatabaseQueueMessage> messages ) {
+        this.queueName = queueName;
+        this.messages = new ArrayList<>( messages );
+    }
+
+    public String getQueueName() {
+        return queueName;
+    }
+
+    public List<DatabaseQueueMessage> getMessages() {
+        return messages;
+    }
+
+    public String toString() {
+        return new ToStringBuilder( this )
+                .append( "queueName", queueName )
+                .append( "messageCount", messages.size() )
+                .toString();
+    }
+
+}
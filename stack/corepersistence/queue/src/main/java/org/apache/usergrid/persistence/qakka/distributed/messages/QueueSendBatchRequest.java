@@ -0,0 +1,90 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.usergrid.persistence.qakka.distributed.messages;
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+
+/**
+ * Request to send a batch of messages to one queue in one region, in place of a QueueSendRequest per message.
+ */
+public class QueueSendBatchRequest implements QakkaMessage {
+
+    private final String queueName;
+    private final String sourceRegion;
+    private final String destRegion;
+    private final ArrayList<UUID> messageIds;
+    private Long deliveryTime;
+    private Long expirationTime;
+
+
+    public QueueSendBatchRequest(
+            String queueName, String sourceRegion, String destRegion, Collection<UUID> messageIds,
+            Long deliveryTime, Long expirationTime) {
+
+        this.queueName = queueName;
+        this.sourceRegion = sourceRegion;
+        this.destRegion = destRegion;
+        this.messageIds = new ArrayList<>( messageIds );
+        this.deliveryTime = deliveryTime;
+        this.expirationTime = expirationTime;
+    }
+
+    public String getQueueName() {
+        return queueName;
+    }
+
+    public String getSourceRegion() {
+        return sourceRegion;
+    }
+
+    public String getDestRegion() {
+        return destRegion;
+    }
+
+    public List<UUID> getMessageIds() {
+        return messageIds;
+    }
+
+    public Long getExpirationTime() {
+        return expirationTime;
+    }
+
+    public Long getDeliveryTime() {
+        return deliveryTime;
+    }
+
+    public String toString() {
+        return new ToStringBuilder( this )
+                .append( "queueName", queueName )
+                .append( "sourceRegion", sourceRegion )
+                .append( "destRegion", destRegion )
+                .append( "messageIds", messageIds.size() )
+                .append( "expirationTime", expirationTime )
+                .append( "deliveryTime", deliveryTime )
+                .toString();
+    }
+
+}
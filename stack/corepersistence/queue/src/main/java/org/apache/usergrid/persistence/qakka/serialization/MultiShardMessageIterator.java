@@ -177,8 +177,10 @@ public class MultiShardMessageIterator implements Iterator<DatabaseQueueMessage>
             final long queuedAt =       row.getLong(   COLUMN_QUEUED_AT);
             final long inflightAt =     row.getLong(   COLUMN_INFLIGHT_AT);
 
-            messages.add(new DatabaseQueueMessage(
-                    messageId, messageType, queueName, region, shardId, queuedAt, inflightAt, queueMessageId));
+            DatabaseQueueMessage message = new DatabaseQueueMessage(
+                    messageId, messageType, queueName, region, shardId, queuedAt, inflightAt, queueMessageId);
+            message.setExpirationTime( getExpirationTime( row ) );
+            messages.add( message );
 
             //queueMessageId is internal to the messages_available and messages_inflight tables
             nextStart = queueMessageId;
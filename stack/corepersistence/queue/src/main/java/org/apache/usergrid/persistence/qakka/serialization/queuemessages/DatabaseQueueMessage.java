@@ -40,6 +40,10 @@ public class DatabaseQueueMessage implements Serializable {
 
     private Long shardId;
 
+    // delivery time is only stored for delayed messages
+    private Long deliveryTime;
+    private Long expirationTime;
+
 
     public DatabaseQueueMessage(
             final UUID messageId,
@@ -106,6 +110,29 @@ public class DatabaseQueueMessage implements Serializable {
         this.shardId = shardId;
     }
 
+    public Long getDeliveryTime() {
+        return deliveryTime;
+    }
+
+    public void setDeliveryTime(Long deliveryTime) {
+        this.deliveryTime = deliveryTime;
+    }
+
+    public Long getExpirationTime() {
+        return expirationTime;
+    }
+
+    public void setExpirationTime(Long expirationTime) {
+        this.expirationTime = expirationTime;
+    }
+
+    /**
+     * True if the message has an expiration time and it has passed.
+     */
+    public boolean isExpired( long now ) {
+        return expirationTime != null && expirationTime <= now;
+    }
+
 
 
     @Override
@@ -0,0 +1,68 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.usergrid.persistence.qakka.serialization.queuemessages;
+
+import org.apache.usergrid.persistence.core.migration.schema.Migration;
+
+import java.util.Collection;
+import java.util.List;
+
+
+/**
+ * Storage for messages sent with a delay, until they're due and promoted to the available messages.
+ *
+ * Delayed messages are stored in time-bucketed shards, each shard holding the messages due in one period of
+ * queue.delayed.shard.millis, so promoting the messages due soon only reads the shards of the near future.
+ * The shards holding messages are listed per queue and region.
+ */
+public interface DelayedMessageSerialization extends Migration {
+
+    /**
+     * Write delayed messages, with one batch for all the messages in the same shard.
+     * Messages must have a queueMessageId and a deliveryTime.
+     */
+    void writeDelayedMessages( final Collection<DatabaseQueueMessage> messages );
+
+    /**
+     * Get the IDs of the shards that hold delayed messages of the queue, up to and including maxShardId.
+     */
+    List<Long> getShardIds( final String queueName, final String region, final long maxShardId );
+
+    /**
+     * Load the delayed messages of one shard that are due at or before deliveredBy.
+     */
+    List<DatabaseQueueMessage> loadDelayedMessages(
+        final String queueName, final String region, final long shardId, final long deliveredBy );
+
+    /**
+     * Delete delayed messages, with one batch for all the messages in the same shard.
+     */
+    void deleteDelayedMessages( final Collection<DatabaseQueueMessage> messages );
+
+    /**
+     * Remove a shard from the list of shards holding delayed messages of the queue.
+     */
+    void deleteShard( final String queueName, final String region, final long shardId );
+
+    /**
+     * Get the ID of the shard that holds messages due at the delivery time.
+     */
+    long getShardId( final long deliveryTime );
+}
@@ -21,6 +21,8 @@ package org.apache.usergrid.persistence.qakka.serialization.queuemessages;
 
 import org.apache.usergrid.persistence.core.migration.schema.Migration;
 
+import java.util.Collection;
+import java.util.Map;
 import java.util.UUID;
 
 
@@ -32,6 +34,12 @@ public interface QueueMessageSerialization extends Migration {
      */
     UUID writeMessage(final DatabaseQueueMessage message);
 
+    /**
+     * Write many messages to storage, with one batch for all the messages that fall in the same shard.
+     * Messages must have a queueMessageId, shards are selected for messages without one.
+     */
+    void writeMessages(final Collection<DatabaseQueueMessage> messages);
+
     DatabaseQueueMessage loadMessage(
         final String queueName,
         final String region,
@@ -46,10 +54,25 @@ public interface QueueMessageSerialization extends Migration {
         final DatabaseQueueMessage.Type type,
         final UUID queueMessageId);
 
+    /**
+     * Delete many messages from storage, with one batch for all the messages that are in the same shard.
+     */
+    void deleteMessages(final Collection<DatabaseQueueMessage> messages);
+
     void writeMessageData(final UUID messageId, final DatabaseQueueMessageBody messageBody);
 
+    /**
+     * Write the data of many messages at once.
+     */
+    void writeMessageData(final Map<UUID, DatabaseQueueMessageBody> messageBodies);
+
     DatabaseQueueMessageBody loadMessageData(final UUID messageId);
 
+    /**
+     * Load the data of many messages at once. Message data not found is not present in the returned map.
+     */
+    Map<UUID, DatabaseQueueMessageBody> loadMessageData(final Collection<UUID> messageIds);
+
     void deleteMessageData(final UUID messageId);
 
     /**
@@ -0,0 +1,297 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.usergrid.persistence.qakka.serialization.queuemessages.impl;
+
+import com.datastax.driver.core.BatchStatement;
+import com.datastax.driver.core.Row;
+import com.datastax.driver.core.Statement;
+import com.datastax.driver.core.querybuilder.Clause;
+import com.datastax.driver.core.querybuilder.QueryBuilder;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import org.apache.usergrid.persistence.core.CassandraConfig;
+import org.apache.usergrid.persistence.core.astyanax.MultiTenantColumnFamilyDefinition;
+import org.apache.usergrid.persistence.core.datastax.TableDefinition;
+import org.apache.usergrid.persistence.core.datastax.impl.TableDefinitionStringImpl;
+import org.apache.usergrid.persistence.qakka.QakkaFig;
+import org.apache.usergrid.persistence.qakka.core.CassandraClient;
+import org.apache.usergrid.persistence.qakka.serialization.queuemessages.DatabaseQueueMessage;
+import org.apache.usergrid.persistence.qakka.serialization.queuemessages.DelayedMessageSerialization;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+
+
+@Singleton
+public class DelayedMessageSerializationImpl implements DelayedMessageSerialization {
+    private static final Logger logger = LoggerFactory.getLogger( DelayedMessageSerializationImpl.class );
+
+    private final CassandraClient cassandraClient;
+    private final CassandraConfig cassandraConfig;
+
+    private final int maxTtl;
+    private final long shardMillis;
+
+    // longest TTL Cassandra accepts, 20 years
+    private final static long MAX_CASSANDRA_TTL = 630720000L;
+
+    public final static String COLUMN_QUEUE_NAME       = "queue_name";
+    public final static String COLUMN_REGION           = "region";
+    public final static String COLUMN_SHARD_ID         = "shard_id";
+    public final static String COLUMN_DELIVERY_TIME    = "delivery_time";
+    public final static String COLUMN_QUEUE_MESSAGE_ID = "queue_message_id";
+    public final static String COLUMN_MESSAGE_ID       = "message_id";
+    public final static String COLUMN_QUEUED_AT        = "queued_at";
+    public final static String COLUMN_EXPIRATION_TIME  = "expiration_time";
+
+    public final static String TABLE_MESSAGES_DELAYED = "messages_delayed";
+
+    public final static String TABLE_MESSAGES_DELAYED_SHARDS = "messages_delayed_shards";
+
+    static final String MESSAGES_DELAYED =
+        "CREATE TABLE IF NOT EXISTS messages_delayed ( " +
+                "queue_name       text, " +
+                "region           text, " +
+                "shard_id         bigint, " +
+                "delivery_time    bigint, " +
+                "queue_message_id timeuuid, " +
+                "message_id       uuid, " +
+                "queued_at        bigint, " +
+                "expiration_time  bigint, " +
+                "PRIMARY KEY ((queue_name, region, shard_id), delivery_time, queue_message_id ) " +
+                ") WITH CLUSTERING ORDER BY (delivery_time ASC, queue_message_id ASC) AND " +
+                    "gc_grace_seconds = 60 AND " +
+                    "compaction = {'class': " + "'LeveledCompactionStrategy', " +
+                        "'sstable_size_in_mb': 5, " +
+                        "'tombstone_compaction_interval': 60, " +
+                        "'tombstone_threshold': 0.05, " +
+                        "'unchecked_tombstone_compaction': true" +
+                    "};";
+
+    static final String MESSAGES_DELAYED_SHARDS =
+        "CREATE TABLE IF NOT EXISTS messages_delayed_shards ( " +
+                "queue_name       text, " +
+                "region           text, " +
+                "shard_id         bigint, " +
+                "PRIMARY KEY ((queue_name, region), shard_id ) " +
+                ") WITH CLUSTERING ORDER BY (shard_id ASC) AND " +
+                    "gc_grace_seconds = 60;";
+
+
+    @Inject
+    public DelayedMessageSerializationImpl(
+            CassandraConfig cassandraConfig,
+            CassandraClient cassandraClient,
+            QakkaFig        qakkaFig ) {
+
+        this.cassandraConfig = cassandraConfig;
+        this.cassandraClient = cassandraClient;
+
+        this.maxTtl = qakkaFig.getMaxTtlSeconds();
+        this.shardMillis = Math.max( 1L, qakkaFig.getDelayedShardMillis() );
+    }
+
+
+    @Override
+    public void writeDelayedMessages( final Collection<DatabaseQueueMessage> messages ) {
+
+        logger.trace("writeDelayedMessages {} messages", messages.size());
+
+        for ( List<DatabaseQueueMessage> shardMessages : groupByShard( messages ).values() ) {
+
+            DatabaseQueueMessage first = shardMessages.get( 0 );
+
+            // list the shard first, so that a message is never in a shard that is not listed
+            Statement shardInsert = QueryBuilder.insertInto( TABLE_MESSAGES_DELAYED_SHARDS )
+                .value( COLUMN_QUEUE_NAME, first.getQueueName() )
+                .value( COLUMN_REGION,     first.getRegion() )
+                .value( COLUMN_SHARD_ID,   first.getShardId() )
+                .using( QueryBuilder.ttl( getTtl( first.getShardId() * shardMillis + shardMillis ) ) );
+            cassandraClient.getQueueMessageSession().execute( shardInsert );
+
+            // every message in the group is in the same partition, so the batch needs no batch log
+            BatchStatement batchStatement = new BatchStatement( BatchStatement.Type.UNLOGGED );
+            for ( DatabaseQueueMessage message : shardMessages ) {
+                Preconditions.checkArgument( message.getQueueMessageId() != null, "Queue message ID is required" );
+
+                batchStatement.add( QueryBuilder.insertInto( TABLE_MESSAGES_DELAYED )
+                    .value( COLUMN_QUEUE_NAME,       message.getQueueName() )
+                    .value( COLUMN_REGION,           message.getRegion() )
+                    .value( COLUMN_SHARD_ID,         message.getShardId() )
+                    .value( COLUMN_DELIVERY_TIME,    message.getDeliveryTime() )
+                    .value( COLUMN_QUEUE_MESSAGE_ID, message.getQueueMessageId() )
+                    .value( COLUMN_MESSAGE_ID,       message.getMessageId() )
+                    .value( COLUMN_QUEUED_AT,        message.getQueuedAt() )
+                    .value( COLUMN_EXPIRATION_TIME,  message.getExpirationTime() )
+                    .using( QueryBuilder.ttl( getTtl( message.getDeliveryTime() ) ) ) );
+            }
+            cassandraClient.getQueueMessageSession().execute( batchStatement );
+
+            logger.trace("Wrote queue {} {} delayed messages shardId {}",
+                first.getQueueName(), shardMessages.size(), first.getShardId() );
+        }
+    }
+
+
+    @Override
+    public List<Long> getShardIds( final String queueName, final String region, final long maxShardId ) {
+
+        Statement select = QueryBuilder.select( COLUMN_SHARD_ID ).from( TABLE_MESSAGES_DELAYED_SHARDS )
+            .where( QueryBuilder.eq( COLUMN_QUEUE_NAME, queueName ) )
+            .and(   QueryBuilder.eq( COLUMN_REGION, region ) )
+            .and(   QueryBuilder.lte( COLUMN_SHARD_ID, maxShardId ) );
+
+        List<Long> shardIds = new ArrayList<>();
+        for ( Row row : cassandraClient.getQueueMessageSession().execute( select ) ) {
+            shardIds.add( row.getLong( COLUMN_SHARD_ID ) );
+        }
+        return shardIds;
+    }
+
+
+    @Override
+    public List<DatabaseQueueMessage> loadDelayedMessages(
+        final String queueName, final String region, final long shardId, final long deliveredBy ) {
+
+        Clause queueNameClause = QueryBuilder.eq(     COLUMN_QUEUE_NAME, queueName );
+        Clause regionClause = QueryBuilder.eq(        COLUMN_REGION, region );
+        Clause shardIdClause = QueryBuilder.eq(       COLUMN_SHARD_ID, shardId );
+        Clause deliveryTimeClause = QueryBuilder.lte( COLUMN_DELIVERY_TIME, deliveredBy );
+
+        Statement select = QueryBuilder.select().from( TABLE_MESSAGES_DELAYED )
+            .where( queueNameClause )
+            .and( regionClause )
+            .and( shardIdClause )
+            .and( deliveryTimeClause );
+
+        List<DatabaseQueueMessage> messages = new ArrayList<>();
+        for ( Row row : cassandraClient.getQueueMessageSession().execute( select ) ) {
+
+            DatabaseQueueMessage message = new DatabaseQueueMessage(
+                row.getUUID(   COLUMN_MESSAGE_ID ),
+                DatabaseQueueMessage.Type.DEFAULT,
+                row.getString( COLUMN_QUEUE_NAME ),
+                row.getString( COLUMN_REGION ),
+                row.getLong(   COLUMN_SHARD_ID ),
+                row.getLong(   COLUMN_QUEUED_AT ),
+                null,
+                row.getUUID(   COLUMN_QUEUE_MESSAGE_ID ) );
+
+            message.setDeliveryTime( row.getLong( COLUMN_DELIVERY_TIME ) );
+            if ( !row.isNull( COLUMN_EXPIRATION_TIME ) ) {
+                message.setExpirationTime( row.getLong( COLUMN_EXPIRATION_TIME ) );
+            }
+
+            messages.add( message );
+        }
+        return messages;
+    }
+
+
+    @Override
+    public void deleteDelayedMessages( final Collection<DatabaseQueueMessage> messages ) {
+
+        logger.trace("deleteDelayedMessages {} messages", messages.size());
+
+        for ( List<DatabaseQueueMessage> shardMessages : groupByShard( messages ).values() ) {
+
+            BatchStatement batchStatement = new BatchStatement( BatchStatement.Type.UNLOGGED );
+            for ( DatabaseQueueMessage message : shardMessages ) {
+                batchStatement.add( QueryBuilder.delete().from( TABLE_MESSAGES_DELAYED )
+                    .where( QueryBuilder.eq( COLUMN_QUEUE_NAME,       message.getQueueName() ) )
+                    .and(   QueryBuilder.eq( COLUMN_REGION,           message.getRegion() ) )
+                    .and(   QueryBuilder.eq( COLUMN_SHARD_ID,         message.getShardId() ) )
+                    .and(   QueryBuilder.eq( COLUMN_DELIVERY_TIME,    message.getDeliveryTime() ) )
+                    .and(   QueryBuilder.eq( COLUMN_QUEUE_MESSAGE_ID, message.getQueueMessageId() ) ) );
+            }
+            cassandraClient.getQueueMessageSession().execute( batchStatement );
+        }
+    }
+
+
+    @Override
+    public void deleteShard( final String queueName, final String region, final long shardId ) {
+
+        Statement delete = QueryBuilder.delete().from( TABLE_MESSAGES_DELAYED_SHARDS )
+            .where( QueryBuilder.eq( COLUMN_QUEUE_NAME, queueName ) )
+            .and(   QueryBuilder.eq( COLUMN_REGION, region ) )
+            .and(   QueryBuilder.eq( COLUMN_SHARD_ID, shardId ) );
+
+        cassandraClient.getQueueMessageSession().execute( delete );
+    }
+
+
+    @Override
+    public long getShardId( final long deliveryTime ) {
+        return deliveryTime / shardMillis;
+    }
+
+
+    /**
+     * Group messages by the shard they're stored in, setting the shard of each message from its delivery time.
+     */
+    private Map<String, List<DatabaseQueueMessage>> groupByShard( final Collection<DatabaseQueueMessage> messages ) {
+
+        Map<String, List<DatabaseQueueMessage>> messagesByShard = new LinkedHashMap<>();
+
+        for ( DatabaseQueueMessage message : messages ) {
+
+            Preconditions.checkArgument( message.getDeliveryTime() != null, "Delivery time is required" );
+            message.setShardId( getShardId( message.getDeliveryTime() ) );
+
+            String shardKey = message.getQueueName() + "_" + message.getRegion() + "_" + message.getShardId();
+
+            messagesByShard.computeIfAbsent( shardKey, key -> new ArrayList<>() ).add( message );
+        }
+
+        return messagesByShard;
+    }
+
+
+    /**
+     * Delayed messages are kept for the max TTL after they're due.
+     */
+    private int getTtl( final long deliveryTime ) {
+        long secondsUntilDue = Math.max( 0L, ( deliveryTime - System.currentTimeMillis() ) / 1000 );
+        return (int) Math.min( MAX_CASSANDRA_TTL, secondsUntilDue + maxTtl );
+    }
+
+
+    @Override
+    public Collection<MultiTenantColumnFamilyDefinition> getColumnFamilies() {
+        return Collections.EMPTY_LIST;
+    }
+
+    @Override
+    public Collection<TableDefinition> getTables() {
+        return Lists.newArrayList(
+
+            new TableDefinitionStringImpl( cassandraConfig.getApplicationLocalKeyspace(),
+                TABLE_MESSAGES_DELAYED, MESSAGES_DELAYED ),
+
+            new TableDefinitionStringImpl( cassandraConfig.getApplicationLocalKeyspace(),
+                TABLE_MESSAGES_DELAYED_SHARDS, MESSAGES_DELAYED_SHARDS )
+        );
+    }
+
+}
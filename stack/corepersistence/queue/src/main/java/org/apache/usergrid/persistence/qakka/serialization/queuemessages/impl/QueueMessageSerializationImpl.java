@@ -20,13 +20,18 @@
 package org.apache.usergrid.persistence.qakka.serialization.queuemessages.impl;
 
 import com.datastax.driver.core.BatchStatement;
+import com.datastax.driver.core.ResultSetFuture;
 import com.datastax.driver.core.Row;
 import com.datastax.driver.core.Statement;
 import com.datastax.driver.core.querybuilder.Clause;
+import com.datastax.driver.core.querybuilder.Insert;
 import com.datastax.driver.core.querybuilder.QueryBuilder;
 import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.Lists;
 import com.google.inject.Inject;
+import com.google.inject.Singleton;
 import org.apache.usergrid.persistence.actorsystem.ActorSystemFig;
 import org.apache.usergrid.persistence.core.CassandraConfig;
 import org.apache.usergrid.persistence.core.astyanax.MultiTenantColumnFamilyDefinition;
@@ -48,8 +53,10 @@ import org.slf4j.LoggerFactory;
 import scala.concurrent.java8.FuturesConvertersImpl;
 
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 
 
+@Singleton
 public class QueueMessageSerializationImpl implements QueueMessageSerialization {
     private static final Logger logger = LoggerFactory.getLogger( QueueMessageSerializationImpl.class );
 
@@ -57,6 +64,14 @@ public class QueueMessageSerializationImpl implements QueueMessageSerialization
     private final CassandraConfig cassandraConfig;
 
     private final int maxTtl;
+    private final int messageDataReadConcurrency;
+
+    // message data written on this node, most messages are read soon after they're sent
+    private final Cache<UUID, DatabaseQueueMessageBody> messageDataCache;
+
+    // only small message data is cached, anything larger is read from cassandra
+    private final static int MESSAGE_DATA_CACHE_MAX_BYTES = 64 * 1024;
+    private final static int MESSAGE_DATA_CACHE_TTL_SECONDS = 60;
 
     private final ActorSystemFig            actorSystemFig;
     private final ShardStrategy             shardStrategy;
@@ -69,6 +84,7 @@ public class QueueMessageSerializationImpl implements QueueMessageSerialization
     public final static String COLUMN_QUEUED_AT        = "queued_at";
     public final static String COLUMN_INFLIGHT_AT      = "inflight_at";
     public final static String COLUMN_QUEUE_MESSAGE_ID = "queue_message_id";
+    public final static String COLUMN_EXPIRATION_TIME  = "expiration_time";
     public final static String COLUMN_MESSAGE_ID       = "message_id";
     public final static String COLUMN_CONTENT_TYPE     = "content_type";
     public final static String COLUMN_MESSAGE_DATA     = "data";
@@ -88,6 +104,7 @@ public class QueueMessageSerializationImpl implements QueueMessageSerialization
                 "message_id       uuid, " +
                 "queued_at        bigint, " +
                 "inflight_at      bigint, " +
+                "expiration_time  bigint, " +
                 "PRIMARY KEY ((queue_name, region, shard_id), queue_message_id ) " +
                 ") WITH CLUSTERING ORDER BY (queue_message_id ASC) AND " +
                     "gc_grace_seconds = 60 AND " +
@@ -107,6 +124,7 @@ public class QueueMessageSerializationImpl implements QueueMessageSerialization
                 "message_id       uuid, " +
                 "queued_at        bigint, " +
                 "inflight_at      bigint, " +
+                "expiration_time  bigint, " +
                 "PRIMARY KEY ((queue_name, region, shard_id), queue_message_id ) " +
                 ") WITH CLUSTERING ORDER BY (queue_message_id ASC) AND " +
                     "gc_grace_seconds = 60 AND " +
@@ -117,6 +135,10 @@ public class QueueMessageSerializationImpl implements QueueMessageSerialization
                         "'unchecked_tombstone_compaction': true" +
                     "};";
 
+    // added to messages tables created before messages expired, their rows are written with the column
+    static final Map<String, String> ADDED_MESSAGE_COLUMNS =
+        Collections.singletonMap( COLUMN_EXPIRATION_TIME, "bigint" );
+
     static final String MESSAGE_DATA =
         "CREATE TABLE IF NOT EXISTS message_data ( " +
                 "message_id uuid, " +
@@ -143,6 +165,12 @@ public class QueueMessageSerializationImpl implements QueueMessageSerialization
         this.cassandraClient             = cassandraClient;
 
         this.maxTtl = qakkaFig.getMaxTtlSeconds();
+        this.messageDataReadConcurrency = Math.max( 1, qakkaFig.getMessageDataReadConcurrency() );
+
+        this.messageDataCache = CacheBuilder.newBuilder()
+            .maximumSize( Math.max( 0, qakkaFig.getMessageDataCacheSize() ) )
+            .expireAfterWrite( MESSAGE_DATA_CACHE_TTL_SECONDS, TimeUnit.SECONDS )
+            .build();
     }
 
 
@@ -177,6 +205,35 @@ public class QueueMessageSerializationImpl implements QueueMessageSerialization
     }
 
 
+    @Override
+    public void writeMessages( final Collection<DatabaseQueueMessage> messages ) {
+
+        logger.trace("writeMessages {} messages", messages.size());
+
+        for ( List<DatabaseQueueMessage> shardMessages : groupByShard( messages ).values() ) {
+
+            // every message in the group is in the same partition, so the batch needs no batch log
+            BatchStatement batchStatement = new BatchStatement( BatchStatement.Type.UNLOGGED );
+            for ( DatabaseQueueMessage message : shardMessages ) {
+                Preconditions.checkArgument( message.getQueueMessageId() != null, "Queue message ID is required" );
+                batchStatement.add( createWriteMessageStatement( message ) );
+            }
+            cassandraClient.getQueueMessageSession().execute( batchStatement );
+
+            DatabaseQueueMessage first = shardMessages.get( 0 );
+
+            logger.trace("Wrote queue {} {} queue messages shardId {}",
+                first.getQueueName(), shardMessages.size(), first.getShardId() );
+
+            shardCounterSerialization.incrementCounter(
+                first.getQueueName(), getShardType( first.getType() ), first.getShardId(), shardMessages.size() );
+
+            messageCounterSerialization.incrementCounter(
+                first.getQueueName(), first.getType(), shardMessages.size() );
+        }
+    }
+
+
     @Override
     public DatabaseQueueMessage loadMessage(
             final String queueName,
@@ -219,7 +276,7 @@ public class QueueMessageSerializationImpl implements QueueMessageSerialization
             return null;
         }
 
-        return new DatabaseQueueMessage(
+        DatabaseQueueMessage message = new DatabaseQueueMessage(
             row.getUUID(   COLUMN_MESSAGE_ID),
             type,
             row.getString( COLUMN_QUEUE_NAME),
@@ -229,6 +286,20 @@ public class QueueMessageSerializationImpl implements QueueMessageSerialization
             row.getLong(   COLUMN_INFLIGHT_AT),
             row.getUUID(   COLUMN_QUEUE_MESSAGE_ID)
         );
+        message.setExpirationTime( getExpirationTime( row ) );
+
+        return message;
+    }
+
+
+    /**
+     * Expiration time of a queue message row, null if it has none or the table predates the column.
+     */
+    public static Long getExpirationTime( Row row ) {
+        if ( !row.getColumnDefinitions().contains( COLUMN_EXPIRATION_TIME ) || row.isNull( COLUMN_EXPIRATION_TIME ) ) {
+            return null;
+        }
+        return row.getLong( COLUMN_EXPIRATION_TIME );
     }
 
 
@@ -250,16 +321,126 @@ public class QueueMessageSerializationImpl implements QueueMessageSerialization
     }
 
 
+    @Override
+    public void deleteMessages( final Collection<DatabaseQueueMessage> messages ) {
+
+        logger.trace("deleteMessages {} messages", messages.size());
+
+        for ( List<DatabaseQueueMessage> shardMessages : groupByShard( messages ).values() ) {
+
+            BatchStatement batchStatement = new BatchStatement( BatchStatement.Type.UNLOGGED );
+            for ( DatabaseQueueMessage message : shardMessages ) {
+                batchStatement.add( createDeleteMessageStatement(
+                    message.getQueueName(),
+                    message.getRegion(),
+                    message.getShardId(),
+                    message.getType(),
+                    message.getQueueMessageId() ) );
+            }
+            cassandraClient.getQueueMessageSession().execute( batchStatement );
+
+            DatabaseQueueMessage first = shardMessages.get( 0 );
+            messageCounterSerialization.decrementCounter(
+                first.getQueueName(), first.getType(), shardMessages.size() );
+        }
+    }
+
+
+    /**
+     * Group messages by the partition they're stored in, selecting the shard of messages that don't have one.
+     */
+    private Map<String, List<DatabaseQueueMessage>> groupByShard( final Collection<DatabaseQueueMessage> messages ) {
+
+        Map<String, List<DatabaseQueueMessage>> messagesByShard = new LinkedHashMap<>();
+
+        for ( DatabaseQueueMessage message : messages ) {
+
+            if ( message.getShardId() == null ) {
+                Shard shard = shardStrategy.selectShard( message.getQueueName(), message.getRegion(),
+                    getShardType( message.getType() ), message.getQueueMessageId() );
+                message.setShardId( shard.getShardId() );
+            }
+
+            String shardKey = message.getType() + "_" + message.getQueueName() + "_"
+                + message.getRegion() + "_" + message.getShardId();
+
+            messagesByShard.computeIfAbsent( shardKey, key -> new ArrayList<>() ).add( message );
+        }
+
+        return messagesByShard;
+    }
+
+
+    private static Shard.Type getShardType( final DatabaseQueueMessage.Type type ) {
+        return DatabaseQueueMessage.Type.DEFAULT.equals( type ) ? Shard.Type.DEFAULT : Shard.Type.INFLIGHT;
+    }
+
+
     @Override
     public DatabaseQueueMessageBody loadMessageData(final UUID messageId ){
 
         logger.trace("loadMessageData {}", messageId);
 
+        DatabaseQueueMessageBody cached = getCachedMessageData( messageId );
+        if ( cached != null ) {
+            return cached;
+        }
+
+        Row row = cassandraClient.getApplicationSession().execute( createLoadMessageDataStatement( messageId ) ).one();
+
+        return toMessageBody( row );
+    }
+
+
+    @Override
+    public Map<UUID, DatabaseQueueMessageBody> loadMessageData( final Collection<UUID> messageIds ) {
+
+        logger.trace("loadMessageData {} messages", messageIds.size());
+
+        Map<UUID, DatabaseQueueMessageBody> bodies = new HashMap<>( messageIds.size() );
+
+        List<UUID> uncached = new ArrayList<>( messageIds.size() );
+        for ( UUID messageId : messageIds ) {
+            DatabaseQueueMessageBody cached = getCachedMessageData( messageId );
+            if ( cached != null ) {
+                bodies.put( messageId, cached );
+            } else {
+                uncached.add( messageId );
+            }
+        }
+
+        // each message's data is its own partition, so rather than an IN query that makes one coordinator wait
+        // on every partition, read them concurrently with a bound on the reads in flight
+        for ( List<UUID> window : Lists.partition( uncached, messageDataReadConcurrency ) ) {
+
+            List<ResultSetFuture> reads = new ArrayList<>( window.size() );
+            for ( UUID messageId : window ) {
+                reads.add( cassandraClient.getApplicationSession()
+                    .executeAsync( createLoadMessageDataStatement( messageId ) ) );
+            }
+
+            for ( int i = 0; i < window.size(); i++ ) {
+                DatabaseQueueMessageBody body = toMessageBody( reads.get( i ).getUninterruptibly().one() );
+                if ( body != null ) {
+                    bodies.put( window.get( i ), body );
+                }
+            }
+        }
+
+        return bodies;
+    }
+
+
+    private Statement createLoadMessageDataStatement( final UUID messageId ) {
+
         Clause messageIdClause = QueryBuilder.eq( COLUMN_MESSAGE_ID, messageId );
 
-        Statement select = QueryBuilder.select().from( TABLE_MESSAGE_DATA).where(messageIdClause);
+        return QueryBuilder.select().from( TABLE_MESSAGE_DATA).where(messageIdClause);
+    }
+
+
+    private DatabaseQueueMessageBody toMessageBody( final Row row ) {
 
-        Row row = cassandraClient.getApplicationSession().execute(select).one();
         if ( row == null ) {
             return null;
         }
@@ -270,19 +451,74 @@ public class QueueMessageSerializationImpl implements QueueMessageSerialization
     }
 
 
+    /**
+     * Get message data from the cache.  Callers get their own view of the data so reading it can't change what
+     * the next caller sees.
+     */
+    private DatabaseQueueMessageBody getCachedMessageData( final UUID messageId ) {
+
+        DatabaseQueueMessageBody cached = messageDataCache.getIfPresent( messageId );
+        if ( cached == null ) {
+            return null;
+        }
+
+        return new DatabaseQueueMessageBody( cached.getBlob().duplicate(), cached.getContentType() );
+    }
+
+
     @Override
     public void writeMessageData( final UUID messageId, final DatabaseQueueMessageBody messageBody ) {
         Preconditions.checkArgument(QakkaUtils.isTimeUuid(messageId), "MessageId is not a type 1 UUID");
 
         logger.trace("writeMessageData {}", messageId);
 
-        Statement insert = QueryBuilder.insertInto(TABLE_MESSAGE_DATA)
+        cassandraClient.getApplicationSession().execute( createWriteMessageDataStatement( messageId, messageBody ) );
+
+        cacheMessageData( messageId, messageBody );
+    }
+
+
+    @Override
+    public void writeMessageData( final Map<UUID, DatabaseQueueMessageBody> messageBodies ) {
+
+        logger.trace("writeMessageData {} messages", messageBodies.size());
+
+        // each message's data is its own partition, so write them concurrently rather than in a multi-partition batch
+        List<ResultSetFuture> writes = new ArrayList<>( messageBodies.size() );
+        for ( Map.Entry<UUID, DatabaseQueueMessageBody> entry : messageBodies.entrySet() ) {
+            Preconditions.checkArgument(QakkaUtils.isTimeUuid(entry.getKey()), "MessageId is not a type 1 UUID");
+
+            writes.add( cassandraClient.getApplicationSession().executeAsync(
+                createWriteMessageDataStatement( entry.getKey(), entry.getValue() ) ) );
+        }
+
+        for ( ResultSetFuture write : writes ) {
+            write.getUninterruptibly();
+        }
+
+        for ( Map.Entry<UUID, DatabaseQueueMessageBody> entry : messageBodies.entrySet() ) {
+            cacheMessageData( entry.getKey(), entry.getValue() );
+        }
+    }
+
+
+    private Statement createWriteMessageDataStatement(
+        final UUID messageId, final DatabaseQueueMessageBody messageBody ) {
+
+        return QueryBuilder.insertInto(TABLE_MESSAGE_DATA)
                 .value( COLUMN_MESSAGE_ID, messageId)
                 .value( COLUMN_MESSAGE_DATA, messageBody.getBlob())
                 .value( COLUMN_CONTENT_TYPE, messageBody.getContentType())
             .using( QueryBuilder.ttl( maxTtl ) );
+    }
+
 
-        cassandraClient.getApplicationSession().execute(insert);
+    private void cacheMessageData( final UUID messageId, final DatabaseQueueMessageBody messageBody ) {
+
+        if ( messageBody.getBlob().remaining() <= MESSAGE_DATA_CACHE_MAX_BYTES ) {
+            messageDataCache.put( messageId,
+                new DatabaseQueueMessageBody( messageBody.getBlob().duplicate(), messageBody.getContentType() ) );
+        }
     }
 
 
@@ -295,6 +531,8 @@ public class QueueMessageSerializationImpl implements QueueMessageSerialization
         Statement delete = QueryBuilder.delete().from(TABLE_MESSAGE_DATA).where(messageIdClause);
 
         cassandraClient.getApplicationSession().execute(delete);
+
+        messageDataCache.invalidate( messageId );
     }
 
 
@@ -314,6 +552,7 @@ public class QueueMessageSerializationImpl implements QueueMessageSerialization
             message.getQueuedAt(),
             System.currentTimeMillis(),
             message.getQueueMessageId() );
+        inflightMessage.setExpirationTime( message.getExpirationTime() );
 
         Statement insert = createWriteMessageStatement( inflightMessage );
 
@@ -418,6 +657,12 @@ public class QueueMessageSerializationImpl implements QueueMessageSerialization
 
         logger.trace("timeoutInflight {}", message.getQueueMessageId() );
 
+        // expired while inflight, it's not made available again
+        if ( message.isExpired( System.currentTimeMillis() ) ) {
+            deleteMessages( Collections.singletonList( message ) );
+            return;
+        }
+
         // create statement to write queue message back to available table, with new UUID
 
         UUID newQueueMessageId = QakkaUtils.getTimeUuid();
@@ -431,6 +676,7 @@ public class QueueMessageSerializationImpl implements QueueMessageSerialization
             System.currentTimeMillis(),
             -1L,
             newQueueMessageId );
+        newMessage.setExpirationTime( message.getExpirationTime() );
 
         Statement write = createWriteMessageStatement( newMessage );
 
@@ -515,17 +761,36 @@ public class QueueMessageSerializationImpl implements QueueMessageSerialization
             shardId = shard.getShardId();
         }
 
-        Statement insert = QueryBuilder.insertInto(getTableName(message.getType()))
+        Insert insert = QueryBuilder.insertInto(getTableName(message.getType()))
             .value( COLUMN_QUEUE_NAME,       message.getQueueName())
             .value( COLUMN_REGION,           message.getRegion())
             .value( COLUMN_SHARD_ID,         shardId)
             .value( COLUMN_MESSAGE_ID,       message.getMessageId())
             .value( COLUMN_QUEUE_MESSAGE_ID, queueMessageId)
             .value( COLUMN_INFLIGHT_AT,      message.getInflightAt())
-            .value( COLUMN_QUEUED_AT,        message.getQueuedAt())
-            .using( QueryBuilder.ttl( maxTtl ) );
+            .value( COLUMN_QUEUED_AT,        message.getQueuedAt());
+
+        if ( message.getExpirationTime() != null ) {
+            insert.value( COLUMN_EXPIRATION_TIME, message.getExpirationTime() );
+        }
+
+        return insert.using( QueryBuilder.ttl( getTtl( message ) ) );
+    }
+
+
+    /**
+     * Available messages with an expiration time are written with a TTL that ends then, so that Cassandra skips
+     * and tombstones them once they've expired. The expiration time is stored too, messages already read when they
+     * expire are dropped by the reader. Inflight messages are kept until acked or timed out.
+     */
+    private int getTtl( DatabaseQueueMessage message ) {
+
+        if ( message.getExpirationTime() == null || !DatabaseQueueMessage.Type.DEFAULT.equals( message.getType() ) ) {
+            return maxTtl;
+        }
 
-        return insert;
+        long secondsLeft = ( message.getExpirationTime() - System.currentTimeMillis() + 999 ) / 1000;
+        return (int) Math.max( 1, Math.min( maxTtl, secondsLeft ) );
     }
 
 
@@ -553,10 +818,10 @@ public class QueueMessageSerializationImpl implements QueueMessageSerialization
         return Lists.newArrayList(
 
             new TableDefinitionStringImpl( cassandraConfig.getApplicationLocalKeyspace(),
-                TABLE_MESSAGES_AVAILABLE, MESSAGES_AVAILABLE ),
+                TABLE_MESSAGES_AVAILABLE, MESSAGES_AVAILABLE, ADDED_MESSAGE_COLUMNS ),
 
             new TableDefinitionStringImpl( cassandraConfig.getApplicationLocalKeyspace(),
-                TABLE_MESSAGES_INFLIGHT, MESSAGES_INFLIGHT ),
+                TABLE_MESSAGES_INFLIGHT, MESSAGES_INFLIGHT, ADDED_MESSAGE_COLUMNS ),
 
             new TableDefinitionStringImpl( cassandraConfig.getApplicationKeyspace(),
                 TABLE_MESSAGE_DATA, MESSAGE_DATA )
@@ -24,6 +24,7 @@ import org.apache.usergrid.persistence.core.migration.schema.Migration;
 import org.apache.usergrid.persistence.qakka.exceptions.QakkaException;
 import org.apache.usergrid.persistence.qakka.serialization.Result;
 
+import java.util.Collection;
 import java.util.UUID;
 
 
@@ -40,6 +41,17 @@ public interface TransferLogSerialization extends Migration {
     void recordTransferLog(
         String queueName, String source, String dest, UUID messageId);
 
+    /**
+     * Record transfer log records for many messages to the same queue and destination region.
+     *
+     * @param queueName Name of queue.
+     * @param source Source region.
+     * @param dest Destination region.
+     * @param messageIds UUIDs of messages in message_data table.
+     */
+    void recordTransferLogs(
+        String queueName, String source, String dest, Collection<UUID> messageIds);
+
     /**
      * Remove transfer log record.
      *
@@ -52,6 +64,18 @@ public interface TransferLogSerialization extends Migration {
     void removeTransferLog(
         String queueName, String source, String dest, UUID messageId) throws QakkaException;
 
+    /**
+     * Remove transfer log records for many messages to the same queue and destination region.
+     * Unlike removeTransferLog(), records that are not found are ignored.
+     *
+     * @param queueName Name of queue.
+     * @param source Source region.
+     * @param dest Destination region.
+     * @param messageIds UUIDs of messages in message_data table.
+     */
+    void removeTransferLogs(
+        String queueName, String source, String dest, Collection<UUID> messageIds);
+
     /**
      * Get all transfer logs (for testing purposes)
      *
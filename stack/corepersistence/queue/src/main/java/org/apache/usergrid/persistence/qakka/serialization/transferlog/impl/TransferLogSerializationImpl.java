@@ -21,6 +21,7 @@ package org.apache.usergrid.persistence.qakka.serialization.transferlog.impl;
 
 import com.datastax.driver.core.PagingState;
 import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.ResultSetFuture;
 import com.datastax.driver.core.Row;
 import com.datastax.driver.core.Statement;
 import com.datastax.driver.core.querybuilder.QueryBuilder;
@@ -90,6 +91,29 @@ public class TransferLogSerializationImpl implements TransferLogSerialization {
     }
 
 
+    @Override
+    public void recordTransferLogs(
+            String queueName, String source, String dest, Collection<UUID> messageIds ) {
+
+        // each record is its own partition, so write them concurrently rather than in a multi-partition batch
+        long transferTime = System.currentTimeMillis();
+        List<ResultSetFuture> writes = new ArrayList<>( messageIds.size() );
+        for ( UUID messageId : messageIds ) {
+            Statement insert = QueryBuilder.insertInto(TABLE_TRANSFER_LOG)
+                    .value(COLUMN_QUEUE_NAME, queueName )
+                    .value(COLUMN_SOURCE_REGION, source )
+                    .value(COLUMN_DEST_REGION, dest )
+                    .value(COLUMN_MESSAGE_ID, messageId )
+                    .value(COLUMN_TRANSFER_TIME, transferTime );
+            writes.add( cassandraClient.getApplicationSession().executeAsync( insert ) );
+        }
+
+        for ( ResultSetFuture write : writes ) {
+            write.getUninterruptibly();
+        }
+    }
+
+
     @Override
     public void removeTransferLog(
             String queueName, String source, String dest, UUID messageId ) throws QakkaException {
@@ -116,6 +140,25 @@ public class TransferLogSerializationImpl implements TransferLogSerialization {
     }
 
 
+    @Override
+    public void removeTransferLogs(
+            String queueName, String source, String dest, Collection<UUID> messageIds ) {
+
+        List<ResultSetFuture> deletes = new ArrayList<>( messageIds.size() );
+        for ( UUID messageId : messageIds ) {
+            Statement deleteQuery = QueryBuilder.delete().from(TABLE_TRANSFER_LOG)
+                    .where(   QueryBuilder.eq( COLUMN_QUEUE_NAME, queueName ))
+                        .and( QueryBuilder.eq( COLUMN_DEST_REGION, dest ))
+                    .and( QueryBuilder.eq( COLUMN_MESSAGE_ID, messageId ));
+            deletes.add( cassandraClient.getApplicationSession().executeAsync( deleteQuery ) );
+        }
+
+        for ( ResultSetFuture delete : deletes ) {
+            delete.getUninterruptibly();
+        }
+    }
+
+
     @Override
     public Result<TransferLog> getAllTransferLogs(PagingState pagingState, int fetchSize ) {
 
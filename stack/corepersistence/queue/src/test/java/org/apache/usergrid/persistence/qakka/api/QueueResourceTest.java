@@ -402,6 +402,70 @@ public class QueueResourceTest extends AbstractRestTest {
     }
 
 
+    @Test
+    public void testSendAndAckMessageBatch() throws URISyntaxException, IOException, InterruptedException {
+
+        // create a queue
+
+        String queueName = "qrt_batch_" + RandomStringUtils.randomAlphanumeric( 10 );
+        Map<String, Object> queueMap = new HashMap<String, Object>() {{ put("name", queueName); }};
+        target("queues").request().post( Entity.entity( queueMap, MediaType.APPLICATION_JSON_TYPE));
+
+        try {
+
+            // send all messages with one request
+
+            ObjectMapper mapper = new ObjectMapper();
+
+            int numMessages = 250;
+            List<Map<String, Object>> messageMaps = new ArrayList<>();
+            for (int i = 0; i < numMessages; i++) {
+                final int number = i;
+                messageMaps.add( new HashMap<String, Object>() {{
+                    put( "message", "this is message #" + number );
+                    put( "valid", true );
+                }});
+            }
+            String body = mapper.writeValueAsString( messageMaps );
+
+            Response response = target( "queues" ).path( queueName ).path( "messages" ).path( "batch" )
+                .request().post( Entity.entity( body, MediaType.APPLICATION_JSON ) );
+            Assert.assertEquals( 200, response.getStatus() );
+            Assert.assertEquals( numMessages, response.readEntity( ApiResponse.class ).getCount().intValue() );
+
+            // get all messages, checking for dups
+
+            Set<UUID> messageIds = checkJsonMessages( queueName, numMessages );
+
+            // ack all of them with one request, plus one that is not inflight
+
+            List<String> ackIds = new ArrayList<>();
+            for (UUID queueMessageId : messageIds) {
+                ackIds.add( queueMessageId.toString() );
+            }
+            ackIds.add( UUID.randomUUID().toString() );
+
+            response = target( "queues" ).path( queueName ).path( "messages" ).path( "ack" )
+                .request().post( Entity.entity( ackIds, MediaType.APPLICATION_JSON ) );
+            Assert.assertEquals( 200, response.getStatus() );
+
+            ApiResponse apiResponse = response.readEntity( ApiResponse.class );
+            Assert.assertEquals( numMessages, apiResponse.getCount().intValue() );
+            Assert.assertNotNull( apiResponse.getMessage() );
+
+            // acked messages are no longer inflight
+
+            response = target( "queues" )
+                .path( queueName ).path( "messages" ).path( messageIds.iterator().next().toString() ).request().delete();
+            Assert.assertEquals( 400, response.getStatus() );
+
+        } finally {
+            Response response = target( "queues" ).path( queueName ).queryParam( "confirm", true ).request().delete();
+            Assert.assertEquals( 200, response.getStatus() );
+        }
+    }
+
+
     @Test
     public void testConvertDelayParameter() {
 
@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.usergrid.persistence.qakka.core;
+
+import org.apache.usergrid.persistence.qakka.core.impl.MpmcRingBuffer;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+public class MpmcRingBufferTest {
+
+    @Test
+    public void boundedFifo() {
+
+        // capacity is kept even when the slots are rounded up to a power of two
+        MpmcRingBuffer<Integer> buffer = new MpmcRingBuffer<>( 5 );
+
+        Assert.assertNull( buffer.poll() );
+        Assert.assertNull( buffer.peek() );
+
+        for ( int i = 0; i < 5; i++ ) {
+            Assert.assertTrue( buffer.offer( i ) );
+        }
+        Assert.assertFalse( buffer.offer( 5 ) );
+        Assert.assertEquals( 5, buffer.size() );
+
+        Assert.assertEquals( Integer.valueOf( 0 ), buffer.peek() );
+        Assert.assertEquals( Integer.valueOf( 0 ), buffer.poll() );
+        Assert.assertTrue( buffer.offer( 5 ) );
+
+        for ( int i = 1; i <= 5; i++ ) {
+            Assert.assertEquals( Integer.valueOf( i ), buffer.poll() );
+        }
+        Assert.assertNull( buffer.poll() );
+        Assert.assertTrue( buffer.isEmpty() );
+    }
+
+
+    @Test
+    public void concurrentProducersAndConsumers() throws Exception {
+
+        final int threads = 4;
+        final int perProducer = 20000;
+
+        final MpmcRingBuffer<Integer> buffer = new MpmcRingBuffer<>( 64 );
+        final Set<Integer> consumed = ConcurrentHashMap.newKeySet();
+        final AtomicInteger duplicates = new AtomicInteger();
+        final AtomicInteger remaining = new AtomicInteger( threads * perProducer );
+        final CountDownLatch done = new CountDownLatch( threads * 2 );
+
+        List<Thread> all = new ArrayList<>();
+
+        for ( int t = 0; t < threads; t++ ) {
+            final int producer = t;
+            all.add( new Thread( () -> {
+                for ( int i = 0; i < perProducer; i++ ) {
+                    while ( !buffer.offer( producer * perProducer + i ) ) {
+                        Thread.yield();
+                    }
+                }
+                done.countDown();
+            } ) );
+
+            all.add( new Thread( () -> {
+                while ( remaining.get() > 0 ) {
+                    Integer element = buffer.poll();
+                    if ( element == null ) {
+                        Thread.yield();
+                        continue;
+                    }
+                    if ( !consumed.add( element ) ) {
+                        duplicates.incrementAndGet();
+                    }
+                    remaining.decrementAndGet();
+                }
+                done.countDown();
+            } ) );
+        }
+
+        all.forEach( Thread::start );
+        done.await();
+
+        Assert.assertEquals( 0, duplicates.get() );
+        Assert.assertEquals( threads * perProducer, consumed.size() );
+        Assert.assertTrue( buffer.isEmpty() );
+    }
+}
@@ -378,4 +378,110 @@ public class QueueMessageManagerTest extends AbstractAkkaTest {
             queueManager.deleteQueue( queueName );
         }
     }
+
+
+    @Test
+    public void testDelayedMessage() throws Exception {
+
+        Injector injector = getInjector();
+
+        DistributedQueueService distributedQueueService = injector.getInstance( DistributedQueueService.class );
+        ActorSystemFig actorSystemFig = injector.getInstance( ActorSystemFig.class );
+        String region = actorSystemFig.getRegionLocal();
+
+        QueueManager queueManager = injector.getInstance( QueueManager.class );
+
+        String queueName = "queue_testDelayedMessage_" + RandomStringUtils.randomAlphanumeric( 15 );
+
+        try {
+            QueueMessageManager qmm = injector.getInstance( QueueMessageManager.class );
+            queueManager.createQueue( new Queue( queueName, "test-type", region, region, 0L, 5, 10, null ) );
+
+            long sentAt = System.currentTimeMillis();
+            qmm.sendMessages(
+                queueName,
+                Collections.singletonList( region ),
+                3000L, // delay
+                null,  // expiration
+                "application/json",
+                DataType.serializeValue( "{}", ProtocolVersion.NEWEST_SUPPORTED ) );
+
+            // not available until the delay has passed
+            distributedQueueService.refresh();
+            Assert.assertTrue( qmm.getNextMessages( queueName, 1 ).isEmpty() );
+
+            List<QueueMessage> messages = getNextMessages( distributedQueueService, qmm, queueName, 15000 );
+            Assert.assertEquals( 1, messages.size() );
+            Assert.assertTrue( System.currentTimeMillis() - sentAt >= 3000 );
+
+            qmm.ackMessage( queueName, messages.get( 0 ).getQueueMessageId() );
+
+            // promoted once, even though both the writer and the scheduler's load saw it
+            Assert.assertTrue( getNextMessages( distributedQueueService, qmm, queueName, 5000 ).isEmpty() );
+
+            distributedQueueService.shutdown();
+
+        } finally {
+            queueManager.deleteQueue( queueName );
+        }
+    }
+
+
+    @Test
+    public void testExpiringMessage() throws Exception {
+
+        Injector injector = getInjector();
+
+        DistributedQueueService distributedQueueService = injector.getInstance( DistributedQueueService.class );
+        ActorSystemFig actorSystemFig = injector.getInstance( ActorSystemFig.class );
+        String region = actorSystemFig.getRegionLocal();
+
+        QueueManager queueManager = injector.getInstance( QueueManager.class );
+
+        String queueName = "queue_testExpiringMessage_" + RandomStringUtils.randomAlphanumeric( 15 );
+
+        try {
+            QueueMessageManager qmm = injector.getInstance( QueueMessageManager.class );
+            queueManager.createQueue( new Queue( queueName, "test-type", region, region, 0L, 5, 10, null ) );
+
+            qmm.sendMessages(
+                queueName,
+                Collections.singletonList( region ),
+                null, // delay
+                2L,   // expiration
+                "application/json",
+                DataType.serializeValue( "{}", ProtocolVersion.NEWEST_SUPPORTED ) );
+
+            // read into memory before it expires, then never handed out
+            distributedQueueService.refresh();
+            Thread.sleep( 3000 );
+
+            Assert.assertTrue( getNextMessages( distributedQueueService, qmm, queueName, 3000 ).isEmpty() );
+            Assert.assertEquals( 0, qmm.getQueueDepth( queueName, DatabaseQueueMessage.Type.INFLIGHT ) );
+
+            distributedQueueService.shutdown();
+
+        } finally {
+            queueManager.deleteQueue( queueName );
+        }
+    }
+
+
+    /**
+     * Get the next message of the queue, refreshing it until one arrives or the time is up.
+     */
+    private List<QueueMessage> getNextMessages( DistributedQueueService distributedQueueService,
+        QueueMessageManager qmm, String queueName, long millis ) throws InterruptedException {
+
+        long end = System.currentTimeMillis() + millis;
+        while ( System.currentTimeMillis() < end ) {
+            distributedQueueService.refresh();
+            List<QueueMessage> messages = qmm.getNextMessages( queueName, 1 );
+            if ( !messages.isEmpty() ) {
+                return messages;
+            }
+            Thread.sleep( 250 );
+        }
+        return Collections.emptyList();
+    }
 }
@@ -0,0 +1,101 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.usergrid.persistence.qakka.core;
+
+import org.apache.usergrid.persistence.qakka.core.impl.TimingWheel;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+
+public class TimingWheelTest {
+
+    @Test
+    public void itemsReturnedWhenDue() {
+
+        TimingWheel<String> wheel = new TimingWheel<>( 100, 8, 1000 );
+
+        // already due
+        Assert.assertFalse( wheel.add( "past", 900 ) );
+        Assert.assertFalse( wheel.add( "now", 1000 ) );
+
+        Assert.assertTrue( wheel.add( "soon", 1250 ) );
+        Assert.assertTrue( wheel.add( "later", 1790 ) );
+        Assert.assertEquals( 2, wheel.size() );
+
+        Assert.assertTrue( wheel.advance( 1199 ).isEmpty() );
+
+        List<String> due = wheel.advance( 1300 );
+        Assert.assertEquals( 1, due.size() );
+        Assert.assertEquals( "soon", due.get( 0 ) );
+
+        Assert.assertTrue( wheel.advance( 1699 ).isEmpty() );
+        Assert.assertEquals( "later", wheel.advance( 1800 ).get( 0 ) );
+        Assert.assertEquals( 0, wheel.size() );
+    }
+
+
+    @Test
+    public void itemsCascadeFromOverflowLevels() {
+
+        // levels span 1s, 10s, 100s and 1000s
+        TimingWheel<Long> wheel = new TimingWheel<>( 100, 10, 0 );
+
+        List<Long> deadlines = new ArrayList<>();
+        for ( long deadline = 150; deadline < 500000; deadline = deadline * 3 + 7 ) {
+            Assert.assertTrue( wheel.add( deadline, deadline ) );
+            deadlines.add( deadline );
+        }
+        Assert.assertEquals( deadlines.size(), wheel.size() );
+
+        // every item comes back in the first advance past the start of its tick, and not before
+        List<Long> returned = new ArrayList<>();
+        for ( long now = 0; now <= 500000; now += 100 ) {
+            for ( Long deadline : wheel.advance( now ) ) {
+                Assert.assertTrue( deadline <= now );
+                Assert.assertTrue( deadline > now - 200 );
+                returned.add( deadline );
+            }
+        }
+
+        Assert.assertEquals( deadlines, returned );
+        Assert.assertEquals( 0, wheel.size() );
+    }
+
+
+    @Test
+    public void advanceOverManyTicks() {
+
+        TimingWheel<String> wheel = new TimingWheel<>( 100, 4, 0 );
+
+        wheel.add( "a", 350 );
+        wheel.add( "b", 5000 );
+        wheel.add( "c", 90000 );
+
+        List<String> due = wheel.advance( 10000 );
+        Assert.assertEquals( 2, due.size() );
+        Assert.assertTrue( due.contains( "a" ) );
+        Assert.assertTrue( due.contains( "b" ) );
+
+        Assert.assertEquals( "c", wheel.advance( 100000 ).get( 0 ) );
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.usergrid.persistence.qakka.core;
+
+import org.apache.commons.lang.RandomStringUtils;
+import org.apache.usergrid.persistence.qakka.AbstractTest;
+import org.apache.usergrid.persistence.qakka.core.impl.WaitingConsumers;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+public class WaitingConsumersTest extends AbstractTest {
+
+    @Test
+    public void wokenByWrite() throws Exception {
+
+        WaitingConsumers waitingConsumers = getInjector().getInstance( WaitingConsumers.class );
+        String queueName = "wc_queue_" + RandomStringUtils.randomAlphanumeric( 10 );
+
+        AtomicInteger runs = new AtomicInteger();
+        CountDownLatch latch = new CountDownLatch( 2 );
+
+        long deadline = System.currentTimeMillis() + 60000;
+        long sequence = waitingConsumers.getSequence( queueName );
+        for ( int i = 0; i < 3; i++ ) {
+            waitingConsumers.await( queueName, sequence, deadline, () -> {
+                runs.incrementAndGet();
+                latch.countDown();
+            } );
+        }
+        Assert.assertEquals( 3, waitingConsumers.getWaiting( queueName ) );
+
+        // one consumer woken per message
+        waitingConsumers.wake( queueName, 2 );
+
+        Assert.assertTrue( latch.await( 5, TimeUnit.SECONDS ) );
+        Assert.assertEquals( 1, waitingConsumers.getWaiting( queueName ) );
+
+        Thread.sleep( 100 );
+        Assert.assertEquals( 2, runs.get() );
+    }
+
+
+    @Test
+    public void wokenAtDeadline() throws Exception {
+
+        WaitingConsumers waitingConsumers = getInjector().getInstance( WaitingConsumers.class );
+        String queueName = "wc_queue_" + RandomStringUtils.randomAlphanumeric( 10 );
+
+        AtomicInteger runs = new AtomicInteger();
+        CountDownLatch latch = new CountDownLatch( 1 );
+
+        long start = System.currentTimeMillis();
+        waitingConsumers.await( queueName, waitingConsumers.getSequence( queueName ), start + 200, () -> {
+            runs.incrementAndGet();
+            latch.countDown();
+        } );
+
+        Assert.assertTrue( latch.await( 5, TimeUnit.SECONDS ) );
+        Assert.assertTrue( System.currentTimeMillis() - start >= 200 );
+        Assert.assertEquals( 0, waitingConsumers.getWaiting( queueName ) );
+
+        // already run, waking does nothing
+        waitingConsumers.wake( queueName, 1 );
+        Thread.sleep( 100 );
+        Assert.assertEquals( 1, runs.get() );
+    }
+
+
+    @Test
+    public void wokenBeforeWaiting() throws Exception {
+
+        WaitingConsumers waitingConsumers = getInjector().getInstance( WaitingConsumers.class );
+        String queueName = "wc_queue_" + RandomStringUtils.randomAlphanumeric( 10 );
+
+        CountDownLatch latch = new CountDownLatch( 1 );
+
+        // message arrives after the consumer looked for messages and before it waits
+        long sequence = waitingConsumers.getSequence( queueName );
+        waitingConsumers.wake( queueName, 1 );
+
+        long start = System.currentTimeMillis();
+        waitingConsumers.await( queueName, sequence, start + 60000, latch::countDown );
+
+        Assert.assertTrue( latch.await( 5, TimeUnit.SECONDS ) );
+        Assert.assertTrue( System.currentTimeMillis() - start < 60000 );
+        Assert.assertEquals( 0, waitingConsumers.getWaiting( queueName ) );
+    }
+}
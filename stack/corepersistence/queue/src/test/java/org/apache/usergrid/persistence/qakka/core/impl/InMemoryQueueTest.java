@@ -0,0 +1,165 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.usergrid.persistence.qakka.core.impl;
+
+import org.apache.cassandra.utils.UUIDGen;
+import org.apache.usergrid.persistence.qakka.serialization.queuemessages.DatabaseQueueMessage;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+public class InMemoryQueueTest {
+
+    private static final String QUEUE = "queue";
+
+
+    @Test
+    public void releasedMessageNotAddedByEarlierRefresh() {
+
+        InMemoryQueue inMemoryQueue = new InMemoryQueue( 10 );
+        DatabaseQueueMessage message = newMessage();
+
+        Assert.assertTrue( inMemoryQueue.add( QUEUE, message ) );
+
+        // refresh reads the message, then it's polled, put inflight and released
+        long refresh = inMemoryQueue.beginRefresh( QUEUE );
+        Assert.assertSame( message, inMemoryQueue.poll( QUEUE ) );
+        inMemoryQueue.release( QUEUE, message.getQueueMessageId() );
+
+        Assert.assertFalse( inMemoryQueue.add( QUEUE, message ) );
+        Assert.assertEquals( 0, inMemoryQueue.size( QUEUE ) );
+
+        // no refresh left that could have read it, a timed out message may come back
+        inMemoryQueue.endRefresh( QUEUE, refresh );
+        Assert.assertTrue( inMemoryQueue.add( QUEUE, message ) );
+    }
+
+
+    @Test
+    public void laterRefreshDoesNotKeepTombstone() {
+
+        InMemoryQueue inMemoryQueue = new InMemoryQueue( 10 );
+        DatabaseQueueMessage message = newMessage();
+
+        long first = inMemoryQueue.beginRefresh( QUEUE );
+        Assert.assertTrue( inMemoryQueue.add( QUEUE, message ) );
+        Assert.assertSame( message, inMemoryQueue.poll( QUEUE ) );
+        inMemoryQueue.release( QUEUE, message.getQueueMessageId() );
+
+        // began after the release, so it's still tombstoned while the first refresh runs only
+        long second = inMemoryQueue.beginRefresh( QUEUE );
+        inMemoryQueue.endRefresh( QUEUE, first );
+        Assert.assertTrue( inMemoryQueue.add( QUEUE, message ) );
+        inMemoryQueue.endRefresh( QUEUE, second );
+    }
+
+
+    @Test
+    public void concurrentRefreshHandsOutOnce() throws Exception {
+
+        final int messageCount = 20000;
+        final int refreshers = 3;
+        final int consumers = 4;
+
+        InMemoryQueue inMemoryQueue = new InMemoryQueue( 64 );
+
+        // the available messages table, put inflight deletes from it
+        ConcurrentMap<UUID, DatabaseQueueMessage> available = new ConcurrentSkipListMap<>();
+        for ( int i = 0; i < messageCount; i++ ) {
+            DatabaseQueueMessage message = newMessage();
+            available.put( message.getQueueMessageId(), message );
+        }
+
+        Set<UUID> handedOut = ConcurrentHashMap.newKeySet();
+        AtomicInteger duplicates = new AtomicInteger();
+        AtomicInteger consumed = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch( consumers );
+
+        List<Thread> threads = new ArrayList<>();
+
+        for ( int i = 0; i < refreshers; i++ ) {
+            threads.add( new Thread( () -> {
+                while ( done.getCount() > 0 ) {
+                    long refresh = inMemoryQueue.beginRefresh( QUEUE );
+                    try {
+                        for ( DatabaseQueueMessage message : available.values() ) {
+                            Thread.yield();
+                            inMemoryQueue.add( QUEUE, message );
+                        }
+                    } finally {
+                        inMemoryQueue.endRefresh( QUEUE, refresh );
+                    }
+                }
+            } ) );
+        }
+
+        for ( int i = 0; i < consumers; i++ ) {
+            threads.add( new Thread( () -> {
+                try {
+                    while ( consumed.get() < messageCount ) {
+                        DatabaseQueueMessage message = inMemoryQueue.poll( QUEUE );
+                        if ( message == null ) {
+                            Thread.yield();
+                            continue;
+                        }
+                        UUID queueMessageId = message.getQueueMessageId();
+                        try {
+                            if ( !handedOut.add( queueMessageId ) ) {
+                                duplicates.incrementAndGet();
+                            }
+                            available.remove( queueMessageId );
+                            consumed.incrementAndGet();
+                        } finally {
+                            inMemoryQueue.release( QUEUE, queueMessageId );
+                        }
+                    }
+                } finally {
+                    done.countDown();
+                }
+            } ) );
+        }
+
+        threads.forEach( Thread::start );
+        for ( Thread thread : threads ) {
+            thread.join( 60000 );
+        }
+
+        Assert.assertEquals( 0, duplicates.get() );
+        Assert.assertEquals( messageCount, handedOut.size() );
+        Assert.assertTrue( available.isEmpty() );
+    }
+
+
+    private static DatabaseQueueMessage newMessage() {
+        UUID queueMessageId = UUIDGen.getTimeUUID();
+        return new DatabaseQueueMessage( queueMessageId, DatabaseQueueMessage.Type.DEFAULT, QUEUE, "region",
+            0L, System.currentTimeMillis(), null, queueMessageId );
+    }
+}
@@ -211,6 +211,76 @@ public class QueueActorHelperTest extends AbstractAkkaTest {
     }
 
 
+    @Test
+    public void putInflightSkipsExpired() throws Exception {
+
+        Injector injector = getInjector();
+
+        injector.getInstance( App.class ); // init the INJECTOR
+
+        ActorSystemFig actorSystemFig = injector.getInstance( ActorSystemFig.class );
+        QueueMessageSerialization qms = injector.getInstance( QueueMessageSerialization.class );
+        QueueManager queueManager     = injector.getInstance( QueueManager.class );
+
+        UUID queueMessageId = QakkaUtils.getTimeUuid();
+
+        String queueName = "qat_queue_" + RandomStringUtils.randomAlphanumeric( 10 );
+        queueManager.createQueue( new Queue( queueName ) );
+
+        try {
+
+            DatabaseQueueMessage message = new DatabaseQueueMessage(
+                QakkaUtils.getTimeUuid(),
+                DatabaseQueueMessage.Type.DEFAULT,
+                queueName,
+                actorSystemFig.getRegionLocal(),
+                null,
+                System.currentTimeMillis(),
+                null,
+                queueMessageId );
+            message.setExpirationTime( System.currentTimeMillis() + 60000 );
+            qms.writeMessage( message );
+
+            // the expiration time is stored with the message
+
+            DatabaseQueueMessage loaded = qms.loadMessage(
+                queueName,
+                actorSystemFig.getRegionLocal(),
+                null,
+                DatabaseQueueMessage.Type.DEFAULT,
+                queueMessageId );
+            Assert.assertEquals( message.getExpirationTime(), loaded.getExpirationTime() );
+
+            // read before it expired, it's deleted instead of put inflight
+
+            loaded.setExpirationTime( System.currentTimeMillis() - 1 );
+
+            QueueActorHelper helper = injector.getInstance( QueueActorHelper.class );
+            Assert.assertFalse( helper.putInflight( loaded ) );
+
+            Assert.assertNull( qms.loadMessage(
+                queueName,
+                actorSystemFig.getRegionLocal(),
+                null,
+                DatabaseQueueMessage.Type.DEFAULT,
+                queueMessageId ) );
+
+            Assert.assertNull( qms.loadMessage(
+                queueName,
+                actorSystemFig.getRegionLocal(),
+                null,
+                DatabaseQueueMessage.Type.INFLIGHT,
+                queueMessageId ) );
+
+            DistributedQueueService distributedQueueService = injector.getInstance( DistributedQueueService.class );
+            distributedQueueService.shutdown();
+
+        } finally {
+            queueManager.deleteQueue( queueName );
+        }
+    }
+
+
     @Test
     public void ackQueueMessage() throws Exception {
 
@@ -31,6 +31,9 @@ import org.junit.Test;
 
 import java.io.*;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 import static org.junit.Assert.assertEquals;
@@ -107,6 +110,54 @@ public class DatabaseQueueMessageSerializationTest extends AbstractTest {
     }
 
 
+    @Test
+    public void writeAndDeleteMessages(){
+
+        Injector injector = getInjector();
+
+        QueueMessageSerialization queueMessageSerialization =
+            injector.getInstance( QueueMessageSerialization.class );
+
+        ShardSerialization shardSerialization =
+            injector.getInstance( ShardSerialization.class );
+
+        String queueName = "dqmst_queue_" + RandomStringUtils.randomAlphanumeric( 20 );
+        String region = "dummy_region";
+
+        Shard shard1 = new Shard(queueName, region, Shard.Type.DEFAULT, 1L, null);
+        shardSerialization.createShard( shard1 );
+
+        List<DatabaseQueueMessage> messages = new ArrayList<>();
+        for ( int i = 0; i < 10; i++ ) {
+            messages.add( new DatabaseQueueMessage(
+                QakkaUtils.getTimeUuid(),
+                DatabaseQueueMessage.Type.DEFAULT,
+                queueName,
+                region,
+                null,
+                System.currentTimeMillis(),
+                null,
+                QakkaUtils.getTimeUuid() ) );
+        }
+
+        queueMessageSerialization.writeMessages( messages );
+
+        for ( DatabaseQueueMessage message : messages ) {
+            DatabaseQueueMessage loaded = queueMessageSerialization.loadMessage(
+                queueName, region, null, DatabaseQueueMessage.Type.DEFAULT, message.getQueueMessageId() );
+            assertEquals( message.getMessageId(), loaded.getMessageId() );
+            assertEquals( message.getShardId(), loaded.getShardId() );
+        }
+
+        queueMessageSerialization.deleteMessages( messages );
+
+        for ( DatabaseQueueMessage message : messages ) {
+            assertNull( queueMessageSerialization.loadMessage(
+                queueName, region, null, DatabaseQueueMessage.Type.DEFAULT, message.getQueueMessageId() ) );
+        }
+    }
+
+
     @Test
     public void loadNullMessage(){
 
@@ -170,6 +221,38 @@ public class DatabaseQueueMessageSerializationTest extends AbstractTest {
     }
 
 
+    @Test
+    public void loadMultipleMessageData() throws Exception {
+
+        QueueMessageSerialization queueMessageSerialization =
+                getInjector().getInstance( QueueMessageSerialization.class );
+
+        // more messages than the reads allowed in flight at once
+        List<UUID> messageIds = new ArrayList<>();
+        for ( int i = 0; i < 50; i++ ) {
+            UUID messageId = QakkaUtils.getTimeUuid();
+            messageIds.add( messageId );
+
+            final DatabaseQueueMessageBody messageBody = new DatabaseQueueMessageBody( DataType.serializeValue(
+                "my test data " + i, ProtocolVersion.NEWEST_SUPPORTED), "text/plain");
+
+            queueMessageSerialization.writeMessageData(messageId, messageBody);
+        }
+
+        // message with no data
+        messageIds.add( QakkaUtils.getTimeUuid() );
+
+        Map<UUID, DatabaseQueueMessageBody> bodies = queueMessageSerialization.loadMessageData( messageIds );
+
+        assertEquals( 50, bodies.size() );
+
+        for ( int i = 0; i < 50; i++ ) {
+            String returnedData = new String( bodies.get( messageIds.get( i ) ).getBlob().array(), "UTF-8");
+            assertEquals( "my test data " + i, returnedData );
+        }
+    }
+
+
     @Test
     public void loadMessageObjectData() throws Exception {
 
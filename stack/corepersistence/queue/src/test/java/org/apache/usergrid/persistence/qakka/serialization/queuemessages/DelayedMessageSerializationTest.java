@@ -0,0 +1,114 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.usergrid.persistence.qakka.serialization.queuemessages;
+
+import org.apache.commons.lang.RandomStringUtils;
+import org.apache.usergrid.persistence.qakka.AbstractTest;
+import org.apache.usergrid.persistence.qakka.QakkaFig;
+import org.apache.usergrid.persistence.qakka.core.QakkaUtils;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+
+public class DelayedMessageSerializationTest extends AbstractTest {
+
+
+    @Test
+    public void writeLoadAndDelete() {
+
+        DelayedMessageSerialization delayedMessageSerialization =
+            getInjector().getInstance( DelayedMessageSerialization.class );
+        long shardMillis = getInjector().getInstance( QakkaFig.class ).getDelayedShardMillis();
+
+        String queueName = "dmst_queue_" + RandomStringUtils.randomAlphanumeric( 15 );
+        String region = "dummy_region";
+
+        // two messages in the first shard, one in the next
+        long shardStart = ( System.currentTimeMillis() / shardMillis + 1 ) * shardMillis;
+        DatabaseQueueMessage first = newDelayedMessage( queueName, region, shardStart + 10, null );
+        DatabaseQueueMessage second = newDelayedMessage( queueName, region, shardStart + 20, shardStart + 1000 );
+        DatabaseQueueMessage third = newDelayedMessage( queueName, region, shardStart + shardMillis + 10, null );
+
+        delayedMessageSerialization.writeDelayedMessages( Arrays.asList( third, second, first ) );
+
+        long firstShard = delayedMessageSerialization.getShardId( shardStart );
+        assertEquals( firstShard, (long) first.getShardId() );
+        assertEquals( firstShard + 1, (long) third.getShardId() );
+
+        assertEquals( Collections.singletonList( firstShard ),
+            delayedMessageSerialization.getShardIds( queueName, region, firstShard ) );
+        assertEquals( Arrays.asList( firstShard, firstShard + 1 ),
+            delayedMessageSerialization.getShardIds( queueName, region, firstShard + 1 ) );
+
+        // only messages due by the time given, in delivery order, with their delivery and expiration times
+        List<DatabaseQueueMessage> loaded = delayedMessageSerialization.loadDelayedMessages(
+            queueName, region, firstShard, shardStart + 10 );
+        assertEquals( 1, loaded.size() );
+        assertEquals( first.getQueueMessageId(), loaded.get( 0 ).getQueueMessageId() );
+
+        loaded = delayedMessageSerialization.loadDelayedMessages( queueName, region, firstShard, shardStart + 100 );
+        assertEquals( 2, loaded.size() );
+        assertEquals( first.getQueueMessageId(), loaded.get( 0 ).getQueueMessageId() );
+        assertNull( loaded.get( 0 ).getExpirationTime() );
+        assertEquals( second.getQueueMessageId(), loaded.get( 1 ).getQueueMessageId() );
+        assertEquals( second.getDeliveryTime(), loaded.get( 1 ).getDeliveryTime() );
+        assertEquals( second.getExpirationTime(), loaded.get( 1 ).getExpirationTime() );
+
+        // deleting messages leaves the shard listed until it's deleted
+        delayedMessageSerialization.deleteDelayedMessages( loaded );
+        assertTrue( delayedMessageSerialization.loadDelayedMessages(
+            queueName, region, firstShard, shardStart + shardMillis ).isEmpty() );
+
+        delayedMessageSerialization.deleteShard( queueName, region, firstShard );
+        assertEquals( Collections.singletonList( firstShard + 1 ),
+            delayedMessageSerialization.getShardIds( queueName, region, firstShard + 1 ) );
+
+        loaded = delayedMessageSerialization.loadDelayedMessages(
+            queueName, region, firstShard + 1, shardStart + 2 * shardMillis );
+        assertEquals( 1, loaded.size() );
+        assertEquals( third.getQueueMessageId(), loaded.get( 0 ).getQueueMessageId() );
+    }
+
+
+    private static DatabaseQueueMessage newDelayedMessage(
+        String queueName, String region, long deliveryTime, Long expirationTime ) {
+
+        DatabaseQueueMessage message = new DatabaseQueueMessage(
+            QakkaUtils.getTimeUuid(),
+            DatabaseQueueMessage.Type.DEFAULT,
+            queueName,
+            region,
+            null,
+            System.currentTimeMillis(),
+            null,
+            QakkaUtils.getTimeUuid() );
+        message.setDeliveryTime( deliveryTime );
+        message.setExpirationTime( expirationTime );
+        return message;
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.usergrid.persistence.token;
+
+
+import java.util.UUID;
+
+
+/**
+ * Records token access times without putting a Cassandra write on every token validation.  Updates are held in
+ * memory, merged per token and written behind in batches.
+ */
+public interface TokenAccessTimeUpdater {
+
+    /**
+     * Record that the token was accessed.  See {@link TokenSerialization#updateTokenAccessTime} for the arguments.
+     */
+    void updateTokenAccessTime( UUID tokenUUID, long accessedTime, long inactiveTime, int ttl );
+
+    /**
+     * Get the update for the token that has not yet been written, or null if there is none.  Readers use this so
+     * that inactivity is calculated from the latest access seen on this node.
+     */
+    TokenAccessUpdate getPendingUpdate( UUID tokenUUID );
+
+    /**
+     * Drop the pending update of a token that is being deleted, so a later flush doesn't write it back.  Waits for a
+     * flush in progress, which may be writing the update, to finish.
+     */
+    void discard( UUID tokenUUID );
+
+    /**
+     * Write all pending updates now.
+     */
+    void flush();
+}
@@ -0,0 +1,88 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.usergrid.persistence.token;
+
+
+import java.util.UUID;
+
+
+/**
+ * An update to the accessed and inactive times of a token.  An inactive time of {@link Long#MIN_VALUE} means the
+ * stored inactive time is left unchanged.
+ */
+public class TokenAccessUpdate {
+
+    private final UUID tokenUUID;
+    private final long accessedTime;
+    private final long inactiveTime;
+    private final int ttl;
+
+
+    public TokenAccessUpdate( final UUID tokenUUID, final long accessedTime, final long inactiveTime,
+                              final int ttl ) {
+        this.tokenUUID = tokenUUID;
+        this.accessedTime = accessedTime;
+        this.inactiveTime = inactiveTime;
+        this.ttl = ttl;
+    }
+
+
+    public UUID getTokenUUID() {
+        return tokenUUID;
+    }
+
+
+    public long getAccessedTime() {
+        return accessedTime;
+    }
+
+
+    public long getInactiveTime() {
+        return inactiveTime;
+    }
+
+
+    public int getTtl() {
+        return ttl;
+    }
+
+
+    /**
+     * Merge a later update for the same token into this one.  The latest accessed time and the largest inactive time
+     * win, and the ttl is taken from whichever update was accessed last.
+     */
+    public TokenAccessUpdate merge( final TokenAccessUpdate other ) {
+
+        final boolean otherIsLater = other.accessedTime >= accessedTime;
+
+        return new TokenAccessUpdate( tokenUUID,
+            Math.max( accessedTime, other.accessedTime ),
+            Math.max( inactiveTime, other.inactiveTime ),
+            otherIsLater ? other.ttl : ttl );
+    }
+
+
+    @Override
+    public String toString() {
+        return "TokenAccessUpdate{" +
+            "tokenUUID=" + tokenUUID +
+            ", accessedTime=" + accessedTime +
+            ", inactiveTime=" + inactiveTime +
+            ", ttl=" + ttl +
+            '}';
+    }
+}
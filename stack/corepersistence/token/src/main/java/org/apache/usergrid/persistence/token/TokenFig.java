@@ -0,0 +1,54 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.usergrid.persistence.token;
+
+
+import org.safehaus.guicyfig.Default;
+import org.safehaus.guicyfig.FigSingleton;
+import org.safehaus.guicyfig.GuicyFig;
+import org.safehaus.guicyfig.Key;
+
+
+/**
+ * Configuration for token persistence.
+ */
+@FigSingleton
+public interface TokenFig extends GuicyFig {
+
+    /**
+     * How often pending token access time updates are written to Cassandra.  Repeated validations of the same token
+     * within the interval are merged into a single write.  Set to 0 to write on every validation.
+     */
+    @Key( "usergrid.auth.token.access_time.flush_interval_ms" )
+    @Default( "1000" )
+    long getAccessTimeFlushInterval();
+
+    /**
+     * The maximum number of distinct tokens with a pending access time update.  Once reached, updates for tokens
+     * not already pending are written immediately rather than buffered.
+     */
+    @Key( "usergrid.auth.token.access_time.max_pending" )
+    @Default( "100000" )
+    int getAccessTimeMaxPending();
+
+    /**
+     * The maximum number of tokens updated in a single Cassandra batch when flushing.
+     */
+    @Key( "usergrid.auth.token.access_time.batch_size" )
+    @Default( "50" )
+    int getAccessTimeBatchSize();
+}
@@ -20,6 +20,7 @@ package org.apache.usergrid.persistence.token;
 import org.apache.usergrid.persistence.core.migration.schema.Migration;
 
 import java.nio.ByteBuffer;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
@@ -41,6 +42,8 @@ public interface TokenSerialization extends Migration {
 
     void updateTokenAccessTime(UUID tokenUUID, long accessedTime, long inactiveTime, int ttl );
 
+    void updateTokenAccessTimes(Collection<TokenAccessUpdate> updates);
+
     Map<String, Object> getTokenInfo(UUID tokenUUID);
 
     void putTokenInfo(UUID tokenUUID, Map<String, Object> tokenInfo, ByteBuffer principalKeyBuffer, int ttl);
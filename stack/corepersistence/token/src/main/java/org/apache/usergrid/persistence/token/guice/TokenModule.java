@@ -21,8 +21,12 @@ import com.google.inject.AbstractModule;
 import com.google.inject.Key;
 import com.google.inject.multibindings.Multibinder;
 import org.apache.usergrid.persistence.core.migration.schema.Migration;
+import org.apache.usergrid.persistence.token.TokenAccessTimeUpdater;
+import org.apache.usergrid.persistence.token.TokenFig;
 import org.apache.usergrid.persistence.token.TokenSerialization;
+import org.apache.usergrid.persistence.token.impl.TokenAccessTimeUpdaterImpl;
 import org.apache.usergrid.persistence.token.impl.TokenSerializationImpl;
+import org.safehaus.guicyfig.GuicyFigModule;
 
 
 /**
@@ -33,7 +37,10 @@ public class TokenModule extends AbstractModule {
     @Override
     protected void configure() {
 
+        install( new GuicyFigModule( TokenFig.class ) );
+
         bind( TokenSerialization.class ).to( TokenSerializationImpl.class );
+        bind( TokenAccessTimeUpdater.class ).to( TokenAccessTimeUpdaterImpl.class );
 
         Multibinder<Migration> migrationBinding = Multibinder.newSetBinder( binder(), Migration.class );
         migrationBinding.addBinding().to(  Key.get( TokenSerialization.class ) );
@@ -0,0 +1,169 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.usergrid.persistence.token.impl;
+
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.usergrid.persistence.token.TokenAccessTimeUpdater;
+import org.apache.usergrid.persistence.token.TokenAccessUpdate;
+import org.apache.usergrid.persistence.token.TokenFig;
+import org.apache.usergrid.persistence.token.TokenSerialization;
+
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+
+/**
+ * Holds the latest access time of each token in memory and writes them to Cassandra in batches on an interval.
+ * A token validated many times within the interval costs a single write.  Updates are never dropped; when the
+ * pending set is full new tokens are written immediately, as they are when the flush interval is 0.
+ */
+@Singleton
+public class TokenAccessTimeUpdaterImpl implements TokenAccessTimeUpdater {
+
+    private static final Logger logger = LoggerFactory.getLogger( TokenAccessTimeUpdaterImpl.class );
+
+    private final TokenSerialization tokenSerialization;
+    private final TokenFig tokenFig;
+
+    private final ConcurrentHashMap<UUID, TokenAccessUpdate> pending = new ConcurrentHashMap<>();
+
+    private final Object flushLock = new Object();
+
+
+    @Inject
+    public TokenAccessTimeUpdaterImpl( final TokenSerialization tokenSerialization, final TokenFig tokenFig ) {
+        this.tokenSerialization = tokenSerialization;
+        this.tokenFig = tokenFig;
+
+        final long interval = tokenFig.getAccessTimeFlushInterval();
+
+        if ( interval > 0 ) {
+            final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setDaemon( true ).setNameFormat( "TokenAccessTimeFlusher-%d" ).build() );
+
+            flusher.scheduleWithFixedDelay( this::flushQuietly, interval, interval, TimeUnit.MILLISECONDS );
+
+            Runtime.getRuntime().addShutdownHook( new Thread( this::flushQuietly ) );
+        }
+    }
+
+
+    @Override
+    public void updateTokenAccessTime( final UUID tokenUUID, final long accessedTime, final long inactiveTime,
+                                       final int ttl ) {
+
+        Preconditions.checkNotNull( tokenUUID, "token UUID is required" );
+
+        if ( tokenFig.getAccessTimeFlushInterval() <= 0 ) {
+            tokenSerialization.updateTokenAccessTime( tokenUUID, accessedTime, inactiveTime, ttl );
+            return;
+        }
+
+        final TokenAccessUpdate update = new TokenAccessUpdate( tokenUUID, accessedTime, inactiveTime, ttl );
+
+        if ( pending.size() >= tokenFig.getAccessTimeMaxPending() ) {
+            // only merge into an existing entry, otherwise don't grow the pending set and write through
+            if ( pending.computeIfPresent( tokenUUID, ( id, existing ) -> existing.merge( update ) ) == null ) {
+                tokenSerialization.updateTokenAccessTime( tokenUUID, accessedTime, inactiveTime, ttl );
+            }
+            return;
+        }
+
+        pending.merge( tokenUUID, update, TokenAccessUpdate::merge );
+    }
+
+
+    @Override
+    public TokenAccessUpdate getPendingUpdate( final UUID tokenUUID ) {
+        return pending.get( tokenUUID );
+    }
+
+
+    @Override
+    public void discard( final UUID tokenUUID ) {
+
+        synchronized ( flushLock ) {
+            pending.remove( tokenUUID );
+        }
+    }
+
+
+    @Override
+    public void flush() {
+
+        synchronized ( flushLock ) {
+
+            final int batchSize = Math.max( 1, tokenFig.getAccessTimeBatchSize() );
+            final List<TokenAccessUpdate> batch = new ArrayList<>( batchSize );
+
+            for ( final UUID tokenUUID : pending.keySet() ) {
+
+                final TokenAccessUpdate update = pending.remove( tokenUUID );
+
+                if ( update == null ) {
+                    continue;
+                }
+
+                batch.add( update );
+
+                if ( batch.size() >= batchSize ) {
+                    write( batch );
+                    batch.clear();
+                }
+            }
+
+            if ( !batch.isEmpty() ) {
+                write( batch );
+            }
+        }
+    }
+
+
+    private void write( final List<TokenAccessUpdate> batch ) {
+        try {
+            tokenSerialization.updateTokenAccessTimes( batch );
+        }
+        catch ( RuntimeException e ) {
+            // put them back so the next flush retries, keeping anything newer that arrived meanwhile
+            batch.forEach( update -> pending.merge( update.getTokenUUID(), update, TokenAccessUpdate::merge ) );
+            throw e;
+        }
+    }
+
+
+    private void flushQuietly() {
+        try {
+            flush();
+        }
+        catch ( Throwable t ) {
+            logger.error( "Unable to write pending token access times, will retry", t );
+        }
+    }
+}
@@ -28,6 +28,7 @@ import org.apache.usergrid.persistence.core.astyanax.*;
 import org.apache.usergrid.persistence.core.datastax.CQLUtils;
 import org.apache.usergrid.persistence.core.datastax.TableDefinition;
 import org.apache.usergrid.persistence.core.datastax.impl.TableDefinitionImpl;
+import org.apache.usergrid.persistence.token.TokenAccessUpdate;
 import org.apache.usergrid.persistence.token.TokenSerialization;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -200,6 +201,41 @@ public class TokenSerializationImpl implements TokenSerialization {
             tokenUUID, accessedTime, inactiveTime, ttl);
 
         final BatchStatement batchStatement = new BatchStatement();
+
+        addTokenAccessTime(batchStatement, tokenUUID, accessedTime, inactiveTime, ttl);
+
+        session.execute(batchStatement);
+
+    }
+
+
+    @Override
+    public void updateTokenAccessTimes(final Collection<TokenAccessUpdate> updates){
+
+        Preconditions.checkNotNull(updates, "updates are required");
+
+        if(updates.isEmpty()){
+            return;
+        }
+
+        logger.trace("updateTokenAccessTimes, {} tokens", updates.size());
+
+        // the updates touch unrelated partitions, atomicity across them isn't needed
+        final BatchStatement batchStatement = new BatchStatement(BatchStatement.Type.UNLOGGED);
+
+        updates.forEach( update ->
+            addTokenAccessTime(batchStatement, update.getTokenUUID(), update.getAccessedTime(),
+                update.getInactiveTime(), update.getTtl())
+        );
+
+        session.execute(batchStatement);
+
+    }
+
+
+    private void addTokenAccessTime(final BatchStatement batchStatement, final UUID tokenUUID,
+                                    final long accessedTime, final long inactiveTime, final int ttl){
+
         final Clause inKey =
             QueryBuilder.eq("key", DataType.uuid().serialize(tokenUUID, ProtocolVersion.NEWEST_SUPPORTED));
         final Clause whereTokenAccessed =
@@ -232,8 +268,6 @@ public class TokenSerializationImpl implements TokenSerialization {
             .using(usingTTL)
         );
 
-        session.execute(batchStatement);
-
     }
 
 
@@ -0,0 +1,143 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.usergrid.persistence.token;
+
+import net.jcip.annotations.NotThreadSafe;
+import org.apache.usergrid.persistence.model.util.UUIDGenerator;
+import org.apache.usergrid.persistence.token.impl.TokenSerializationImpl;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import org.apache.usergrid.persistence.core.guice.MigrationManagerRule;
+import org.apache.usergrid.persistence.core.test.ITRunner;
+import org.apache.usergrid.persistence.core.test.UseModules;
+
+import com.google.inject.Inject;
+
+import java.nio.ByteBuffer;
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+
+@RunWith( ITRunner.class )
+@UseModules( { TestTokenModule.class } )
+@NotThreadSafe
+public class TokenAccessTimeUpdaterTest {
+
+
+    @Inject
+    @Rule
+    public MigrationManagerRule migrationManagerRule;
+
+    @Inject
+    public TokenSerialization tokenSerialization;
+
+    @Inject
+    public TokenAccessTimeUpdater tokenAccessTimeUpdater;
+
+    @Test
+    public void mergesUpdatesUntilFlushed() {
+
+        UUID uuid = UUIDGenerator.newTimeUUID();
+        Map<String, Object> tokenDetails = new HashMap<>();
+        tokenDetails.put(TokenSerializationImpl.TOKEN_TYPE, "test-token");
+
+        long accessedTime = System.currentTimeMillis()-1000000;
+
+        tokenDetails.put(TokenSerializationImpl.TOKEN_ACCESSED, accessedTime);
+        tokenDetails.put(TokenSerializationImpl.TOKEN_INACTIVE, 0L);
+
+        ByteBuffer principalKeyBuffer = ByteBuffer.wrap("test-principal".getBytes());
+
+        tokenSerialization.putTokenInfo(uuid, tokenDetails, principalKeyBuffer, 60);
+
+        long firstAccess = accessedTime + 1000;
+        long secondAccess = accessedTime + 2000;
+
+        tokenAccessTimeUpdater.updateTokenAccessTime(uuid, firstAccess, 1000, 1200);
+        tokenAccessTimeUpdater.updateTokenAccessTime(uuid, secondAccess, Long.MIN_VALUE, 1200);
+
+        tokenAccessTimeUpdater.flush();
+
+        assertNull(tokenAccessTimeUpdater.getPendingUpdate(uuid));
+
+        Map<String, Object> returnedDetails = tokenSerialization.getTokenInfo(uuid);
+
+        assertEquals(
+            secondAccess,
+            returnedDetails.get(TokenSerializationImpl.TOKEN_ACCESSED)
+        );
+
+        assertEquals(
+            1000L,
+            returnedDetails.get(TokenSerializationImpl.TOKEN_INACTIVE)
+        );
+    }
+
+
+    @Test
+    public void discardDropsPendingUpdate() {
+
+        UUID uuid = UUIDGenerator.newTimeUUID();
+        Map<String, Object> tokenDetails = new HashMap<>();
+        tokenDetails.put(TokenSerializationImpl.TOKEN_TYPE, "test-token");
+
+        long accessedTime = System.currentTimeMillis()-1000000;
+
+        tokenDetails.put(TokenSerializationImpl.TOKEN_ACCESSED, accessedTime);
+        tokenDetails.put(TokenSerializationImpl.TOKEN_INACTIVE, 0L);
+
+        ByteBuffer principalKeyBuffer = ByteBuffer.wrap("test-principal".getBytes());
+
+        tokenSerialization.putTokenInfo(uuid, tokenDetails, principalKeyBuffer, 60);
+
+        tokenAccessTimeUpdater.updateTokenAccessTime(uuid, accessedTime + 1000, 1000, 1200);
+
+        tokenAccessTimeUpdater.discard(uuid);
+
+        assertNull(tokenAccessTimeUpdater.getPendingUpdate(uuid));
+
+        tokenAccessTimeUpdater.flush();
+
+        assertEquals(
+            accessedTime,
+            tokenSerialization.getTokenInfo(uuid).get(TokenSerializationImpl.TOKEN_ACCESSED)
+        );
+    }
+
+
+    @Test
+    public void mergeKeepsLatestAccess() {
+
+        UUID uuid = UUIDGenerator.newTimeUUID();
+
+        TokenAccessUpdate first = new TokenAccessUpdate(uuid, 2000, 500, 100);
+        TokenAccessUpdate second = new TokenAccessUpdate(uuid, 1000, Long.MIN_VALUE, 200);
+
+        TokenAccessUpdate merged = first.merge(second);
+
+        assertEquals(2000, merged.getAccessedTime());
+        assertEquals(500, merged.getInactiveTime());
+        assertEquals(100, merged.getTtl());
+    }
+}
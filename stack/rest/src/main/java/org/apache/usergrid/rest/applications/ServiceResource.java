@@ -878,68 +878,44 @@ public class ServiceResource extends AbstractContextResource {
             }
         }
 
-        boolean range = StringUtils.isNotBlank( rangeHeader );
-        long start = 0, end = 0, contentLength = 0;
-        InputStream inputStream;
-
-        if ( range ) { // honor range request, calculate start & end
+        // honor a satisfiable range request, only the requested bytes are read from the store
+        ByteRange range = parseRange( rangeHeader, fileMetadata );
+        if ( range != null && !range.isSatisfiable() ) {
+            return Response.status( Response.Status.REQUESTED_RANGE_NOT_SATISFIABLE )
+                    .header( "Content-Range", range.toContentRange() ).build();
+        }
 
-            String rangeValue = rangeHeader.trim().substring( "bytes=".length() );
-            contentLength = ( Long ) fileMetadata.get( AssetUtils.CONTENT_LENGTH );
-            end = contentLength - 1;
-            if ( rangeValue.startsWith( "-" ) ) {
-                start = contentLength - 1 - Long.parseLong( rangeValue.substring( "-".length() ) );
+        InputStream inputStream;
+        try {
+            if ( range != null ) {
+                inputStream = binaryStore.read( getApplicationId(), entity, range.getStart(), range.getLength() );
             }
             else {
-                String[] startEnd = rangeValue.split( "-" );
-                long parsedStart = Long.parseLong( startEnd[0] );
-                if ( parsedStart > start && parsedStart < end ) {
-                    start = parsedStart;
-                }
-                if ( startEnd.length > 1 ) {
-                    long parsedEnd = Long.parseLong( startEnd[1] );
-                    if ( parsedEnd > start && parsedEnd < end ) {
-                        end = parsedEnd;
-                    }
-                }
-            }
-            try {
-                inputStream = binaryStore.read( getApplicationId(), entity, start, end - start );
-            }catch(AwsPropertiesNotFoundException apnfe){
-                logger.error( "Amazon Property needed for this operation not found",apnfe );
-                return Response.status(Response.Status.INTERNAL_SERVER_ERROR).build();
-            }catch(RuntimeException re){
-                logger.error(re.getMessage());
-                return Response.status(Response.Status.INTERNAL_SERVER_ERROR).build();
-            }
-        }
-        else { // no range
-            try {
                 inputStream = binaryStore.read( getApplicationId(), entity );
-            }catch(AwsPropertiesNotFoundException apnfe){
-                logger.error( "Amazon Property needed for this operation not found",apnfe );
-                return Response.status(Response.Status.INTERNAL_SERVER_ERROR).build();
-            }
-            catch(AmazonServiceException ase){
-                if( ase.getStatusCode() > 499 ){
-                    logger.error(ase.getMessage());
-                }else if(logger.isDebugEnabled()){
-                    logger.debug(ase.getMessage());
-                }
-                return Response.status(ase.getStatusCode()).build();
             }
-            catch (StorageException se){
-                if( se.getCode() > 499 ){
-                    logger.error(se.getMessage());
-                }else if(logger.isDebugEnabled()){
-                    logger.debug(se.getMessage());
-                }
-                return Response.status(se.getCode()).build();
+        }catch(AwsPropertiesNotFoundException apnfe){
+            logger.error( "Amazon Property needed for this operation not found",apnfe );
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).build();
+        }
+        catch(AmazonServiceException ase){
+            if( ase.getStatusCode() > 499 ){
+                logger.error(ase.getMessage());
+            }else if(logger.isDebugEnabled()){
+                logger.debug(ase.getMessage());
             }
-            catch(RuntimeException re){
-                logger.error(re.getMessage());
-                return Response.status(Response.Status.INTERNAL_SERVER_ERROR).build();
+            return Response.status(ase.getStatusCode()).build();
+        }
+        catch (StorageException se){
+            if( se.getCode() > 499 ){
+                logger.error(se.getMessage());
+            }else if(logger.isDebugEnabled()){
+                logger.debug(se.getMessage());
             }
+            return Response.status(se.getCode()).build();
+        }
+        catch(RuntimeException re){
+            logger.error(re.getMessage());
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).build();
         }
 
         // return 404 if not found
@@ -949,17 +925,42 @@ public class ServiceResource extends AbstractContextResource {
 
         Long lastModified = ( Long ) fileMetadata.get( AssetUtils.LAST_MODIFIED );
         Response.ResponseBuilder responseBuilder =
-                Response.ok( inputStream ).type( ( String ) fileMetadata.get( AssetUtils.CONTENT_TYPE ) )
-                        .lastModified( new Date( lastModified ) );
+                Response.ok( streamAsset( inputStream ) ).type( ( String ) fileMetadata.get( AssetUtils.CONTENT_TYPE ) )
+                        .lastModified( new Date( lastModified ) ).header( "Accept-Ranges", "bytes" );
 
         if ( fileMetadata.get( AssetUtils.E_TAG ) != null ) {
             responseBuilder.tag( ( String ) fileMetadata.get( AssetUtils.E_TAG ) );
         }
 
-        if ( range ) {
-            responseBuilder.header( "Content-Range", "bytes " + start + "-" + end + "/" + contentLength );
+        if ( range != null ) {
+            responseBuilder.status( Response.Status.PARTIAL_CONTENT )
+                    .header( "Content-Range", range.toContentRange() )
+                    .header( "Content-Length", range.getLength() );
         }
 
         return responseBuilder.build();
     }
+
+
+    /**
+     * Parse the range header of an asset request.  Returns null if the whole asset should be returned, including when
+     * the length of the asset isn't known
+     */
+    protected static ByteRange parseRange( String rangeHeader, Map<String, Object> fileMetadata ) {
+        Object contentLength = fileMetadata.get( AssetUtils.CONTENT_LENGTH );
+        if ( !( contentLength instanceof Number ) ) {
+            return null;
+        }
+        return ByteRange.parse( rangeHeader, ( ( Number ) contentLength ).longValue() );
+    }
+
+
+    /** Write asset data to the response, local files are transferred by their channel rather than copied */
+    protected static StreamingOutput streamAsset( final InputStream inputStream ) {
+        return output -> {
+            try ( InputStream in = inputStream ) {
+                AssetUtils.transfer( in, output );
+            }
+        };
+    }
 }
@@ -28,7 +28,6 @@ import org.apache.usergrid.rest.security.annotations.CheckPermissionsForPath;
 import org.apache.usergrid.rest.security.annotations.RequireApplicationAccess;
 import org.apache.usergrid.services.assets.BinaryStoreFactory;
 import org.apache.usergrid.services.assets.data.*;
-import org.apache.usergrid.utils.StringUtils;
 import org.glassfish.jersey.media.multipart.FormDataParam;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -199,13 +198,18 @@ public class AssetsResource extends ServiceResource {
             }
         }
 
+        ByteRange byteRange = parseRange( range, fileMetadata );
+        if ( byteRange != null && !byteRange.isSatisfiable() ) {
+            return Response.status( Response.Status.REQUESTED_RANGE_NOT_SATISFIABLE )
+                    .header( "Content-Range", byteRange.toContentRange() ).build();
+        }
+
         InputStream is;
-        if ( StringUtils.isBlank( range ) ) {
+        if ( byteRange == null ) {
             is = binaryStore.read( getApplicationId(), asset );
         }
         else {
-            // TODO range parser
-            is = binaryStore.read( getApplicationId(), asset );
+            is = binaryStore.read( getApplicationId(), asset, byteRange.getStart(), byteRange.getLength() );
         }
         if ( is == null ) {
             return Response.status( Response.Status.NOT_FOUND ).build();
@@ -215,17 +219,18 @@ public class AssetsResource extends ServiceResource {
             logger.trace("AssetResource.findAsset read inputStream, composing response");
         }
         Response.ResponseBuilder responseBuilder =
-                Response.ok( is ).type( fileMetadata.get( "content-type" ).toString() )
-                        .lastModified( new Date( asset.getModified() ) );
+                Response.ok( streamAsset( is ) ).type( fileMetadata.get( "content-type" ).toString() )
+                        .lastModified( new Date( asset.getModified() ) ).header( "Accept-Ranges", "bytes" );
         if ( fileMetadata.get( AssetUtils.E_TAG ) != null ) {
             responseBuilder.tag( ( String ) fileMetadata.get( AssetUtils.E_TAG ) );
         }
-        if ( StringUtils.isNotBlank( range ) ) {
+        if ( byteRange != null ) {
             if (logger.isTraceEnabled()) {
-                logger.trace("Range header was not blank, sending back Content-Range");
+                logger.trace("Range header was satisfiable, sending back Content-Range {}", byteRange);
             }
-            // TODO build content range header if needed
-            //responseBuilder.header("Content-Range", );
+            responseBuilder.status( Response.Status.PARTIAL_CONTENT )
+                    .header( "Content-Range", byteRange.toContentRange() )
+                    .header( "Content-Length", byteRange.getLength() );
         }
         return responseBuilder.build();
     }
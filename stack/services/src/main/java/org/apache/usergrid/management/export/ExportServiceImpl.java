@@ -17,12 +17,30 @@
 package org.apache.usergrid.management.export;
 
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Properties;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -35,7 +53,6 @@ import org.apache.usergrid.persistence.ConnectionRef;
 import org.apache.usergrid.persistence.Entity;
 import org.apache.usergrid.persistence.EntityManager;
 import org.apache.usergrid.persistence.EntityManagerFactory;
-import org.apache.usergrid.persistence.PagingResultsIterator;
 import org.apache.usergrid.persistence.Results;
 import org.apache.usergrid.persistence.SimpleEntityRef;
 import org.apache.usergrid.persistence.entities.Export;
@@ -46,9 +63,11 @@ import org.apache.usergrid.persistence.Query.Level;
 import com.fasterxml.jackson.core.JsonEncoding;
 import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.util.DefaultPrettyPrinter;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.collect.BiMap;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 
 /**
@@ -76,6 +95,20 @@ public class ExportServiceImpl implements ExportService {
     //Amount of time that has passed before sending another heart beat in millis
     public static final int TIMESTAMP_DELTA = 5000;
 
+    //Number of collections exported concurrently
+    public static final String EXPORT_WORKERS = "usergrid.export.workers";
+    public static final int DEFAULT_EXPORT_WORKERS = 4;
+
+    //Number of concurrent connection and dictionary lookups shared by the collections being exported
+    public static final String EXPORT_LOOKUP_WORKERS = "usergrid.export.lookup.workers";
+    public static final int DEFAULT_EXPORT_LOOKUP_WORKERS = 16;
+
+    private Properties properties;
+
+    //shared by every export on this node, created on first use once the properties are set
+    private ExecutorService partitionExecutor;
+    private ExecutorService lookupExecutor;
+
     private JsonFactory jsonFactory = new JsonFactory();
 
 
@@ -275,6 +308,8 @@ public class ExportServiceImpl implements ExportService {
                 return;
             }
         }
+        //pick up the progress recorded while the collections were exported
+        export.setExportedEntityCount( getExportEntity( jobExecution ).getExportedEntityCount() );
         export.setState( Export.State.FINISHED );
         em.update( export );
     }
@@ -300,6 +335,16 @@ public class ExportServiceImpl implements ExportService {
     }
 
 
+    public Properties getProperties() {
+        return properties;
+    }
+
+
+    public void setProperties( final Properties properties ) {
+        this.properties = properties;
+    }
+
+
     public ManagementService getManagementService() {
 
         return managementService;
@@ -416,59 +461,31 @@ public class ExportServiceImpl implements ExportService {
 
 
     /**
-     * Serialize and save the collection members of this <code>entity</code>
+     * Load everything written alongside an entity: its connections, its dictionaries, and the members of the exported
+     * collection if a single collection is being exported.
      *
      * @param em Entity Manager
      * @param collection Collection Name
      * @param entity entity
      */
-    private void saveCollectionMembers( JsonGenerator jg, EntityManager em, String collection, Entity entity )
-            throws Exception {
-
-        // Write connections
-        saveConnections( entity, em, jg );
-        // Write dictionaries
-        saveDictionaries( entity, em, jg );
-
-        Set<String> collections = em.getCollections( entity );
+    private RelatedData loadRelated( EntityManager em, String collection, Entity entity ) throws Exception {
 
-        // If your application doesn't have any e
-        if ( ( collections == null ) || collections.isEmpty() ) {
-            return;
-        }
-
-        for ( String collectionName : collections ) {
-
-            if ( collectionName.equals( collection ) ) {
-                jg.writeFieldName( collectionName );
-                jg.writeStartArray();
+        RelatedData related = new RelatedData();
 
-                //is 100000 an arbitary number?
-                Results collectionMembers =
-                        em.getCollection( entity, collectionName, null, 100000, Level.IDS, false );
-
-                List<UUID> entityIds = collectionMembers.getIds();
+        Set<String> connectionTypes = em.getConnectionTypes( entity );
+        for ( String connectionType : connectionTypes ) {
 
-                if ( ( entityIds != null ) && !entityIds.isEmpty() ) {
-                    for ( UUID childEntityUUID : entityIds ) {
-                        jg.writeObject( childEntityUUID.toString() );
-                    }
-                }
+            Results results = em.getTargetEntities(
+                new SimpleEntityRef(entity.getType(), entity.getUuid()),
+                connectionType, null, Level.IDS);
 
-                // End collection array.
-                jg.writeEndArray();
+            List<UUID> targets = new ArrayList<>();
+            for ( ConnectionRef connectionRef : results.getConnections() ) {
+                targets.add( connectionRef.getTargetRefs().getUuid() );
             }
-        }
-    }
-
 
-    /**
-     * Persists the connection for this entity.
-     */
-    private void saveDictionaries( Entity entity, EntityManager em, JsonGenerator jg ) throws Exception {
-
-        jg.writeFieldName( "dictionaries" );
-        jg.writeStartObject();
+            related.connections.put( connectionType, targets );
+        }
 
         Set<String> dictionaries = em.getDictionaries( entity );
         for ( String dictionary : dictionaries ) {
@@ -480,48 +497,79 @@ public class ExportServiceImpl implements ExportService {
                 continue;
             }
 
-            jg.writeFieldName( dictionary );
+            related.dictionaries.put( dictionary, dict );
+        }
 
-            jg.writeStartObject();
+        // only a single collection export writes the members of that collection, don't look them up otherwise
+        if ( collection == null ) {
+            return related;
+        }
 
-            for ( Map.Entry<Object, Object> entry : dict.entrySet() ) {
-                jg.writeFieldName( entry.getKey().toString() );
-                jg.writeObject( entry.getValue() );
-            }
+        Set<String> collections = em.getCollections( entity );
 
-            jg.writeEndObject();
+        if ( collections != null && collections.contains( collection ) ) {
+
+            //is 100000 an arbitary number?
+            Results collectionMembers = em.getCollection( entity, collection, null, 100000, Level.IDS, false );
+
+            related.collectionMembers = collectionMembers.getIds();
         }
-        jg.writeEndObject();
+
+        return related;
     }
 
 
     /**
-     * Persists the connection for this entity.
+     * Serialize the connections, dictionaries and collection members of an entity.
      */
-    private void saveConnections( Entity entity, EntityManager em, JsonGenerator jg ) throws Exception {
+    private void writeRelated( JsonGenerator jg, String collection, RelatedData related ) throws IOException {
 
         jg.writeFieldName( "connections" );
         jg.writeStartObject();
 
-        Set<String> connectionTypes = em.getConnectionTypes( entity );
-        for ( String connectionType : connectionTypes ) {
+        for ( Map.Entry<String, List<UUID>> connection : related.connections.entrySet() ) {
 
-            jg.writeFieldName( connectionType );
+            jg.writeFieldName( connection.getKey() );
             jg.writeStartArray();
 
-            Results results = em.getTargetEntities(
-                new SimpleEntityRef(entity.getType(), entity.getUuid()),
-                connectionType, null, Level.IDS);
+            for ( UUID target : connection.getValue() ) {
+                jg.writeObject( target );
+            }
 
-            List<ConnectionRef> connections = results.getConnections();
+            jg.writeEndArray();
+        }
+        jg.writeEndObject();
+
+        jg.writeFieldName( "dictionaries" );
+        jg.writeStartObject();
 
-            for ( ConnectionRef connectionRef : connections ) {
-                jg.writeObject( connectionRef.getTargetRefs().getUuid() );
+        for ( Map.Entry<String, Map<Object, Object>> dictionary : related.dictionaries.entrySet() ) {
+
+            jg.writeFieldName( dictionary.getKey() );
+            jg.writeStartObject();
+
+            for ( Map.Entry<Object, Object> entry : dictionary.getValue().entrySet() ) {
+                jg.writeFieldName( entry.getKey().toString() );
+                jg.writeObject( entry.getValue() );
             }
 
-            jg.writeEndArray();
+            jg.writeEndObject();
         }
         jg.writeEndObject();
+
+        if ( related.collectionMembers == null ) {
+            return;
+        }
+
+        jg.writeFieldName( collection );
+        jg.writeStartArray();
+
+        for ( UUID childEntityUUID : related.collectionMembers ) {
+            jg.writeObject( childEntityUUID.toString() );
+        }
+
+        // End collection array.
+        jg.writeEndArray();
     }
 
 
@@ -556,24 +604,20 @@ public class ExportServiceImpl implements ExportService {
 
 
     /**
-     * handles the query and export of collections
+     * handles the query and export of collections.  Each collection is a partition exported to a compressed temporary
+     * file on the shared partition workers, and the partitions are copied into the export file in order as they
+     * complete.  At most one partition per worker is submitted ahead of the one being copied, so a large export
+     * doesn't queue all of its collections ahead of other exports.
      */
-    //TODO:Needs further refactoring.
     protected File collectionExportAndQuery( UUID applicationUUID, final Map<String, Object> config, Export export,
                                              final JobExecution jobExecution ) throws Exception {
 
         EntityManager em = emf.getEntityManager( applicationUUID );
         Map<String, Object> metadata = em.getApplicationCollectionMetadata();
-        long starting_time = System.currentTimeMillis();
         File ephemeral = new File( "tempExport" + UUID.randomUUID() );
         ephemeral.deleteOnExit();
 
-
-        JsonGenerator jg = getJsonGenerator( ephemeral );
-
-        jg.writeStartObject();
-        jg.writeObjectFieldStart( "collections" );
-
+        List<String> collectionNames = new ArrayList<>();
         for ( String collectionName : metadata.keySet() ) {
 
             if ( collectionName.equals( "exports" ) ) {
@@ -581,54 +625,277 @@ public class ExportServiceImpl implements ExportService {
             }
             //if the collection you are looping through doesn't match the name of the one you want. Don't export it.
             if ( ( config.get( "collectionName" ) == null ) || collectionName.equalsIgnoreCase((String)config.get( "collectionName" ) ) ) {
+                collectionNames.add( collectionName );
+            }
+        }
+
+        //an organization export counts the entities of all its applications
+        final AtomicLong exported = new AtomicLong(
+            export.getExportedEntityCount() == null ? 0 : export.getExportedEntityCount() );
+        final AtomicLong lastHeartbeat = new AtomicLong( System.currentTimeMillis() );
+
+        final ExecutorService partitionExecutor = getPartitionExecutor();
+        final ExecutorService lookupExecutor = getLookupExecutor();
 
-                //write out the collection name at the start of the file
-                jg.writeArrayFieldStart( collectionName.toLowerCase() );
+        List<Future<File>> partitions = new ArrayList<>( collectionNames.size() );
 
-                //Query entity manager for the entities in a collection
-                Query query = null;
-                if ( config.get( "query" ) == null ) {
-                    query = new Query();
+        try {
+            JsonGenerator jg = getJsonGenerator( ephemeral );
+
+            jg.writeStartObject();
+            jg.writeObjectFieldStart( "collections" );
+
+            for ( int i = 0; i < collectionNames.size(); i++ ) {
+
+                //keep the next partitions running while we copy this one
+                while ( partitions.size() < collectionNames.size() && partitions.size() < i + getWorkers() ) {
+                    final String collectionName = collectionNames.get( partitions.size() );
+                    partitions.add( partitionExecutor.submit(
+                        () -> exportPartition( em, collectionName, config, export, lookupExecutor, exported ) ) );
                 }
-                else {
+
+                File partitionFile =
+                    awaitPartition( partitions.get( i ), jobExecution, export, exported, lastHeartbeat );
+
+                try {
+                    //write out the collection name, then copy the entities of the partition
+                    jg.writeFieldName( collectionNames.get( i ).toLowerCase() );
+
+                    try ( JsonParser jp = jsonFactory.createParser(
+                        new GZIPInputStream( new BufferedInputStream( new FileInputStream( partitionFile ) ) ) ) ) {
+                        jp.nextToken();
+                        jg.copyCurrentStructure( jp );
+                    }
+
+                    jg.flush();
+                }
+                finally {
+                    partitionFile.delete();
+                }
+            }
+
+            jg.writeEndObject();
+            jg.writeEndObject();
+            jg.flush();
+            jg.close();
+        }
+        finally {
+            //stop and clean up the partitions of a failed export, the workers are shared with other exports
+            for ( Future<File> partition : partitions ) {
+                partition.cancel( true );
+
+                if ( partition.isDone() && !partition.isCancelled() ) {
                     try {
-                        query = Query.fromQL( ( String ) config.get( "query" ) );
+                        partition.get().delete();
                     }
-                    catch ( Exception e ) {
-                        export.setErrorMessage( e.getMessage() );
+                    catch ( ExecutionException e ) {
+                        //nothing was written
                     }
                 }
-                query.setLimit( MAX_ENTITY_FETCH );
-                query.setResultsLevel( Level.ALL_PROPERTIES );
-                query.setCollection( collectionName );
-
-                Results entities = em.searchCollection( em.getApplicationRef(), collectionName, query );
-
-                //pages through the query and backs up all results.
-                PagingResultsIterator itr = new PagingResultsIterator( entities );
-                for ( Object e : itr ) {
-                    starting_time = checkTimeDelta( starting_time, jobExecution );
-                    Entity entity = ( Entity ) e;
-                    jg.writeStartObject();
-                    jg.writeFieldName( "Metadata" );
-                    jg.writeObject( entity );
-                    saveCollectionMembers( jg, em, ( String ) config.get( "collectionName" ), entity );
-                    jg.writeEndObject();
-                    jg.flush();
+            }
+        }
+
+        reportProgress( jobExecution, export, exported.get() );
+
+        return ephemeral;
+    }
+
+
+    /**
+     * Export a single collection to a compressed partition file.  Entities are read a page at a time, and the
+     * connections and dictionaries of every entity in the page are looked up concurrently before the page is written.
+     */
+    private File exportPartition( EntityManager em, String collectionName, final Map<String, Object> config,
+                                  Export export, ExecutorService lookupExecutor, AtomicLong exported )
+        throws Exception {
+
+        final String collection = ( String ) config.get( "collectionName" );
+
+        //Query entity manager for the entities in a collection
+        Query query = null;
+        if ( config.get( "query" ) == null ) {
+            query = new Query();
+        }
+        else {
+            try {
+                query = Query.fromQL( ( String ) config.get( "query" ) );
+            }
+            catch ( Exception e ) {
+                export.setErrorMessage( e.getMessage() );
+            }
+        }
+        query.setLimit( MAX_ENTITY_FETCH );
+        query.setResultsLevel( Level.ALL_PROPERTIES );
+        query.setCollection( collectionName );
+
+        File partition = File.createTempFile( "tempExport", ".json.gz" );
+        partition.deleteOnExit();
+
+        try ( JsonGenerator jg = jsonFactory.createGenerator(
+            new GZIPOutputStream( new BufferedOutputStream( new FileOutputStream( partition ) ) ),
+            JsonEncoding.UTF8 ) ) {
+
+            jg.setCodec( new ObjectMapper() );
+            jg.writeStartArray();
+
+            Results entities = em.searchCollection( em.getApplicationRef(), collectionName, query );
 
+            //pages through the query and backs up all results.
+            while ( entities != null ) {
+
+                List<Entity> page = entities.getEntities();
+
+                List<Future<RelatedData>> related = new ArrayList<>( page.size() );
+
+                try {
+                    for ( final Entity entity : page ) {
+                        related.add( lookupExecutor.submit( () -> loadRelated( em, collection, entity ) ) );
+                    }
+
+                    for ( int i = 0; i < page.size(); i++ ) {
+                        jg.writeStartObject();
+                        jg.writeFieldName( "Metadata" );
+                        jg.writeObject( page.get( i ) );
+                        writeRelated( jg, collection, getRelated( related.get( i ) ) );
+                        jg.writeEndObject();
+                    }
                 }
+                finally {
+                    //the lookups are shared with other exports, don't leave ours running if we failed
+                    related.forEach( lookup -> lookup.cancel( true ) );
+                }
+
+                exported.addAndGet( page.size() );
+
+                entities = entities.hasCursor() ? entities.getNextPageResults() : null;
+            }
+
+            jg.writeEndArray();
+        }
+        catch ( Exception e ) {
+            partition.delete();
+            throw e;
+        }
+
+        //cancelled while we finished writing, nobody will copy or delete the partition
+        if ( Thread.currentThread().isInterrupted() ) {
+            partition.delete();
+            throw new InterruptedException( "Export of collection " + collectionName + " was cancelled" );
+        }
+
+        return partition;
+    }
+
+
+    private RelatedData getRelated( Future<RelatedData> related ) throws Exception {
+        try {
+            return related.get();
+        }
+        catch ( ExecutionException e ) {
+            throw unwrap( e );
+        }
+    }
 
 
+    /**
+     * Wait for a partition to finish, heart beating and reporting progress every {@link #TIMESTAMP_DELTA} millis
+     * since the last heart beat of the export, however many partitions that spans.
+     */
+    private File awaitPartition( Future<File> partition, final JobExecution jobExecution, Export export,
+                                 AtomicLong exported, AtomicLong lastHeartbeat ) throws Exception {
+        while ( true ) {
+            long wait = lastHeartbeat.get() + TIMESTAMP_DELTA - System.currentTimeMillis();
 
-                //write out the end collection
-                jg.writeEndArray();
+            if ( wait > 0 ) {
+                try {
+                    return partition.get( wait, TimeUnit.MILLISECONDS );
+                }
+                catch ( TimeoutException e ) {
+                    //time to heart beat
+                }
+                catch ( ExecutionException e ) {
+                    throw unwrap( e );
+                }
             }
+
+            lastHeartbeat.set( checkTimeDelta( lastHeartbeat.get(), jobExecution ) );
+            reportProgress( jobExecution, export, exported.get() );
         }
-        jg.writeEndObject();
-        jg.writeEndObject();
-        jg.flush();
-        jg.close();
+    }
 
-        return ephemeral;
+
+    /**
+     * Record the number of entities exported so far on the export entity.
+     */
+    private void reportProgress( final JobExecution jobExecution, Export export, long exportedEntityCount ) {
+
+        logger.info( "Export job {} has exported {} entities", jobExecution.getJobId(), exportedEntityCount );
+
+        export.setExportedEntityCount( exportedEntityCount );
+
+        try {
+            emf.getEntityManager( emf.getManagementAppId() ).update( export );
+        }
+        catch ( Exception e ) {
+            //progress is informational, don't fail the export over it
+            logger.warn( "Unable to update progress of export {}", export.getUuid(), e );
+        }
+    }
+
+
+    private static Exception unwrap( ExecutionException e ) {
+        return e.getCause() instanceof Exception ? ( Exception ) e.getCause() : e;
+    }
+
+
+    private synchronized ExecutorService getPartitionExecutor() {
+        if ( partitionExecutor == null ) {
+            partitionExecutor = new ThreadPoolExecutor( getWorkers(), getWorkers(), 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(),
+                new ThreadFactoryBuilder().setDaemon( true ).setNameFormat( "ExportPartition-%d" ).build() );
+        }
+        return partitionExecutor;
+    }
+
+
+    /**
+     * Lookups are queued up to a page, once the queue is full the partition looks up the entity itself
+     */
+    private synchronized ExecutorService getLookupExecutor() {
+        if ( lookupExecutor == null ) {
+            lookupExecutor = new ThreadPoolExecutor( getLookupWorkers(), getLookupWorkers(), 0L,
+                TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>( MAX_ENTITY_FETCH ),
+                new ThreadFactoryBuilder().setDaemon( true ).setNameFormat( "ExportLookup-%d" ).build(),
+                new ThreadPoolExecutor.CallerRunsPolicy() );
+        }
+        return lookupExecutor;
+    }
+
+
+    private int getWorkers() {
+        return getIntProperty( EXPORT_WORKERS, DEFAULT_EXPORT_WORKERS );
+    }
+
+
+    private int getLookupWorkers() {
+        return getIntProperty( EXPORT_LOOKUP_WORKERS, DEFAULT_EXPORT_LOOKUP_WORKERS );
+    }
+
+
+    private int getIntProperty( String name, int defaultValue ) {
+        if ( properties == null ) {
+            return defaultValue;
+        }
+        return Math.max( 1, Integer.parseInt( properties.getProperty( name, Integer.toString( defaultValue ) ) ) );
+    }
+
+
+    /**
+     * The connections, dictionaries and collection members written with an entity
+     */
+    private static final class RelatedData {
+        private final Map<String, List<UUID>> connections = new LinkedHashMap<>();
+        private final Map<String, Map<Object, Object>> dictionaries = new LinkedHashMap<>();
+        private List<UUID> collectionMembers;
     }
 }
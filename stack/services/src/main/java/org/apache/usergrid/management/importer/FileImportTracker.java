@@ -28,6 +28,8 @@ import org.apache.usergrid.persistence.entities.FailedImportEntity;
 import org.apache.usergrid.persistence.entities.FileImport;
 import org.apache.usergrid.persistence.exceptions.PersistenceException;
 
+import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
@@ -37,6 +39,9 @@ import java.util.concurrent.atomic.AtomicLong;
  * Statistics used to track a file import. Only 1 instance of this class should exist
  * per file imported in the cluster. There is a direct 1-1 mapping of the statistics provided
  * here and the file import status. This class is thread-safe to be used across multiple threads.
+ *
+ * Writes counted in a {@link Batch} are only persisted once every batch begun before it has completed, so the
+ * persisted counts always cover a prefix of the file, which is where a resume skips to.
  */
 public class FileImportTracker {
 
@@ -54,6 +59,18 @@ public class FileImportTracker {
     private final AtomicLong connectionsFailed = new AtomicLong( 0 );
     private final AtomicInteger cachedOperations = new AtomicInteger( 0 );
 
+    /**
+     * Counted in batches that can't be persisted yet
+     */
+    private final AtomicLong uncommittedEntitiesWritten = new AtomicLong( 0 );
+    private final AtomicLong uncommittedEntitiesFailed = new AtomicLong( 0 );
+    private final AtomicLong uncommittedConnectionsWritten = new AtomicLong( 0 );
+    private final AtomicLong uncommittedConnectionsFailed = new AtomicLong( 0 );
+
+    private final Map<Long, Batch> completedBatches = new HashMap<>();
+    private long nextBatch = 0;
+    private long nextCommit = 0;
+
     private final Semaphore writeSemaphore = new Semaphore( 1 );
 
     private final FileImport fileImport;
@@ -147,6 +164,32 @@ public class FileImportTracker {
     }
 
 
+    /**
+     * Begin a batch of writes.  Batches must be begun in the order of the file
+     */
+    public synchronized Batch beginBatch() {
+        return new Batch( nextBatch++ );
+    }
+
+
+    /**
+     * Commit the batch along with the completed batches following it, once every batch before it has completed
+     */
+    private synchronized void commit( final Batch batch ) {
+        completedBatches.put( batch.sequence, batch );
+
+        Batch next;
+
+        while ( ( next = completedBatches.remove( nextCommit ) ) != null ) {
+            uncommittedEntitiesWritten.addAndGet( -next.entitiesWritten );
+            uncommittedEntitiesFailed.addAndGet( -next.entitiesFailed );
+            uncommittedConnectionsWritten.addAndGet( -next.connectionsWritten );
+            uncommittedConnectionsFailed.addAndGet( -next.connectionsFailed );
+            nextCommit++;
+        }
+    }
+
+
     /**
      * Invoke when the file is completed processing
      */
@@ -299,11 +342,13 @@ public class FileImportTracker {
             final long failedConnections = connectionsFailed.get();
 
 
-            fileImport.setImportedEntityCount( writtenEntities );
-            fileImport.setFailedEntityCount( failedEntities );
+            // a batch counts as uncommitted before it counts at all, and the totals were read first, so this
+            // never persists more than the committed prefix
+            fileImport.setImportedEntityCount( writtenEntities - uncommittedEntitiesWritten.get() );
+            fileImport.setFailedEntityCount( failedEntities - uncommittedEntitiesFailed.get() );
 
-            fileImport.setImportedConnectionCount( writtenConnections );
-            fileImport.setFailedConnectionCount( failedConnections );
+            fileImport.setImportedConnectionCount( writtenConnections - uncommittedConnectionsWritten.get() );
+            fileImport.setFailedConnectionCount( failedConnections - uncommittedConnectionsFailed.get() );
 
 
             fileImport.setState( state );
@@ -316,4 +361,59 @@ public class FileImportTracker {
             throw new RuntimeException( "Unable to persist complete state", e );
         }
     }
+
+
+    /**
+     * Writes made together and completed out of order with other batches.  A batch is written by a single thread
+     */
+    public final class Batch {
+
+        private final long sequence;
+
+        private long entitiesWritten;
+        private long entitiesFailed;
+        private long connectionsWritten;
+        private long connectionsFailed;
+
+
+        private Batch( final long sequence ) {
+            this.sequence = sequence;
+        }
+
+
+        public void entityWritten() {
+            entitiesWritten++;
+            uncommittedEntitiesWritten.incrementAndGet();
+            FileImportTracker.this.entityWritten();
+        }
+
+
+        public void entityFailed( final String message ) {
+            entitiesFailed++;
+            uncommittedEntitiesFailed.incrementAndGet();
+            FileImportTracker.this.entityFailed( message );
+        }
+
+
+        public void connectionWritten() {
+            connectionsWritten++;
+            uncommittedConnectionsWritten.incrementAndGet();
+            FileImportTracker.this.connectionWritten();
+        }
+
+
+        public void connectionFailed( final String message ) {
+            connectionsFailed++;
+            uncommittedConnectionsFailed.incrementAndGet();
+            FileImportTracker.this.connectionFailed( message );
+        }
+
+
+        /**
+         * Invoke once every write in the batch has been counted
+         */
+        public void complete() {
+            commit( this );
+        }
+    }
 }
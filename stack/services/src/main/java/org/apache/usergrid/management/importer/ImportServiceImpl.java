@@ -18,6 +18,7 @@
 package org.apache.usergrid.management.importer;
 
 import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.apache.usergrid.batch.JobExecution;
 import org.apache.usergrid.batch.service.SchedulerService;
 import org.apache.usergrid.corepersistence.util.CpNamingUtils;
@@ -39,14 +40,15 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import rx.Observable;
 import rx.Subscriber;
-import rx.functions.Action1;
-import rx.functions.Func2;
-import rx.schedulers.Schedulers;
 
 import javax.annotation.Nullable;
 import javax.annotation.PostConstruct;
 import java.io.File;
 import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 
 public class ImportServiceImpl implements ImportService {
@@ -57,6 +59,21 @@ public class ImportServiceImpl implements ImportService {
     public static final String FILE_IMPORT_JOB_NAME = "fileImportJob";
     public static final int HEARTBEAT_COUNT = 50;
 
+    // how often to heartbeat while waiting for writes to finish, in millis
+    public static final int HEARTBEAT_INTERVAL = 5000;
+
+    // number of threads writing the batches of all file imports on this node
+    public static final String IMPORT_WORKERS = "usergrid.import.workers";
+    public static final int DEFAULT_IMPORT_WORKERS = 8;
+
+    // number of entities, connections or dictionaries in a write batch
+    public static final String IMPORT_BATCH_SIZE = "usergrid.import.batch.size";
+    public static final int DEFAULT_IMPORT_BATCH_SIZE = 100;
+
+    // number of batches parsed ahead of the writers, shared by all file imports on this node
+    public static final String IMPORT_QUEUE_SIZE = "usergrid.import.queue.size";
+    public static final int DEFAULT_IMPORT_QUEUE_SIZE = 16;
+
     public static final String APP_IMPORT_CONNECTION = "imports";
     public static final String IMPORT_FILE_INCLUDES_CONNECTION = "files";
 
@@ -70,6 +87,10 @@ public class ImportServiceImpl implements ImportService {
 
     private ManagementService managementService;
 
+    private Properties properties;
+
+    private ThreadPoolExecutor writers;
+
     private JsonFactory jsonFactory = new JsonFactory();
 
 
@@ -514,6 +535,11 @@ public class ImportServiceImpl implements ImportService {
     }
 
 
+    public void setProperties(final Properties properties) {
+        this.properties = properties;
+    }
+
+
     /**
      * This method creates sub-jobs for each file i.e. File Import Jobs.
      *
@@ -918,30 +944,6 @@ public class ImportServiceImpl implements ImportService {
         final FileImportTracker tracker) throws Exception {
 
 
-        // tracker flushes every 100 entities
-        //final FileImportTracker tracker = new FileImportTracker( emf, fileImport, 100 );
-
-        // function to execute for each write event
-        final Action1<WriteEvent> doWork = new Action1<WriteEvent>() {
-            @Override
-            public void call(WriteEvent writeEvent) {
-                writeEvent.doWrite(em, fileImport, tracker);
-            }
-        };
-
-        // invokes the heartbeat every HEARTBEAT_COUNT operations
-        final Func2<Integer, WriteEvent, Integer> heartbeatReducer = new Func2<Integer, WriteEvent, Integer>() {
-            @Override
-            public Integer call(final Integer integer, final WriteEvent writeEvent) {
-                final int next = integer.intValue() + 1;
-                if (next % HEARTBEAT_COUNT == 0) {
-                    execution.heartbeat();
-                }
-                return next;
-            }
-        };
-
-
         // FIRST PASS: import all entities in the file
 
 
@@ -959,12 +961,9 @@ public class ImportServiceImpl implements ImportService {
         // potentially skip the first n if this is a resume operation
         final int entityNumSkip = (int) tracker.getTotalEntityCount();
 
-
-        entityEventObservable.takeWhile(writeEvent -> !tracker.shouldStopProcessingEntities()).skip(entityNumSkip)
-            .flatMap(writeEvent -> {
-                return Observable.just(writeEvent).doOnNext(doWork);
-            }, 10).reduce(0, heartbeatReducer).toBlocking().last();
-
+        writeInBatches(execution,
+            entityEventObservable.takeWhile(writeEvent -> !tracker.shouldStopProcessingEntities()).skip(entityNumSkip),
+            em, fileImport, tracker);
 
         jp.close();
 
@@ -997,12 +996,10 @@ public class ImportServiceImpl implements ImportService {
         // potentially skip the first n if this is a resume operation
         final int connectionNumSkip = (int) tracker.getTotalConnectionCount();
 
-        // with this code we get asynchronous behavior and testImportWithMultipleFiles will fail
-        final int connectionCount = otherEventObservable.takeWhile(
-            writeEvent -> !tracker.shouldStopProcessingConnections()).skip(connectionNumSkip).flatMap(entityWrapper -> {
-            return Observable.just(entityWrapper).doOnNext(doWork).subscribeOn(Schedulers.io());
-
-        }, 10).reduce(0, heartbeatReducer).toBlocking().last();
+        writeInBatches(execution,
+            otherEventObservable.takeWhile(writeEvent -> !tracker.shouldStopProcessingConnections())
+                .skip(connectionNumSkip),
+            em, fileImport, tracker);
 
         jp.close();
 
@@ -1035,8 +1032,151 @@ public class ImportServiceImpl implements ImportService {
     }
 
 
+    /**
+     * Write the events in batches on the node's bounded pool of writers.  The pool's queue is bounded, and once it's
+     * full the parsing thread writes the next batch itself.  Parsing can only run ahead of the writes by the queue,
+     * and all the imports on the node together never use more than the workers, however large the files.
+     */
+    private void writeInBatches(final JobExecution execution, final Observable<WriteEvent> events,
+                                final EntityManager em, final FileImport fileImport,
+                                final FileImportTracker tracker) throws InterruptedException {
+
+        final ThreadPoolExecutor writers = getWriters();
+
+        // batches of this import not yet written
+        final AtomicInteger writing = new AtomicInteger();
+
+        try {
+            events.buffer(getIntProperty(IMPORT_BATCH_SIZE, DEFAULT_IMPORT_BATCH_SIZE)).reduce(0, (count, batch) -> {
+
+                // batches complete out of order, the tracker only persists the completed prefix
+                final FileImportTracker.Batch counts = tracker.beginBatch();
+
+                writing.incrementAndGet();
+
+                writers.execute(() -> {
+                    try {
+                        writeBatch(batch, em, fileImport, counts);
+                    } finally {
+                        counts.complete();
+
+                        synchronized (writing) {
+                            if (writing.decrementAndGet() == 0) {
+                                writing.notifyAll();
+                            }
+                        }
+                    }
+                });
+
+                // invokes the heartbeat every HEARTBEAT_COUNT operations
+                final int next = count + batch.size();
+                if (next / HEARTBEAT_COUNT > count / HEARTBEAT_COUNT) {
+                    execution.heartbeat();
+                }
+                return next;
+
+            }).toBlocking().last();
+        } finally {
+            // wait for the batches still being written
+            synchronized (writing) {
+                while (writing.get() > 0) {
+                    writing.wait(HEARTBEAT_INTERVAL);
+                    execution.heartbeat();
+                }
+            }
+        }
+    }
+
+
+    private synchronized ThreadPoolExecutor getWriters() {
+        if (writers == null) {
+            final int workers = getIntProperty(IMPORT_WORKERS, DEFAULT_IMPORT_WORKERS);
+
+            writers = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(getIntProperty(IMPORT_QUEUE_SIZE, DEFAULT_IMPORT_QUEUE_SIZE)),
+                new ThreadFactoryBuilder().setDaemon(true).setNameFormat("ImportWriter-%d").build(),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        }
+        return writers;
+    }
+
+
+    /**
+     * Write a batch of events.  Connections of one type from the same entity are written with a single bulk call,
+     * everything else is written an event at a time.
+     */
+    private void writeBatch(final List<WriteEvent> batch, final EntityManager em, final FileImport fileImport,
+                            final FileImportTracker.Batch tracker) {
+
+        // grouped by source and connection type, in the order they were parsed
+        final Map<String, List<ConnectionEvent>> connections = new LinkedHashMap<>();
+
+        for (WriteEvent writeEvent : batch) {
+            if (writeEvent instanceof ConnectionEvent && ((ConnectionEvent) writeEvent).ownerEntityRef != null) {
+                final ConnectionEvent connection = (ConnectionEvent) writeEvent;
+                connections.computeIfAbsent(connection.ownerEntityRef.getUuid() + "/" + connection.connectionType,
+                    key -> new ArrayList<>()).add(connection);
+            } else {
+                writeEvent.doWrite(em, fileImport, tracker);
+            }
+        }
+
+        for (List<ConnectionEvent> group : connections.values()) {
+            writeConnections(group, em, fileImport, tracker);
+        }
+    }
+
+
+    /**
+     * Creates connections of one type from one entity
+     */
+    private void writeConnections(final List<ConnectionEvent> group, final EntityManager em,
+                                  final FileImport fileImport, final FileImportTracker.Batch tracker) {
+
+        final ConnectionEvent first = group.get(0);
+
+        final List<EntityRef> targets = new ArrayList<>(group.size());
+        for (ConnectionEvent connection : group) {
+            targets.add(connection.entityRef);
+        }
+
+        try {
+            if (logger.isTraceEnabled()) {
+                logger.trace("Creating {} connections of type {} from {}:{}", group.size(), first.connectionType,
+                    first.ownerEntityRef.getType(), first.ownerEntityRef.getUuid());
+            }
+
+            final int created = em.createConnections(first.ownerEntityRef, first.connectionType, targets).size();
+
+            for (int i = 0; i < created; i++) {
+                tracker.connectionWritten();
+            }
+
+            // connections to targets that don't exist are skipped
+            for (int i = created; i < group.size(); i++) {
+                tracker.connectionFailed("Connection target does not exist. From file: " + fileImport.getFileName());
+            }
+
+        } catch (Exception e) {
+            logger.error("Error writing connections. From file: {}", fileImport.getFileName(), e);
+
+            for (int i = 0; i < group.size(); i++) {
+                tracker.connectionFailed(e.getMessage() + " From file: " + fileImport.getFileName());
+            }
+        }
+    }
+
+
+    private int getIntProperty(final String name, final int defaultValue) {
+        if (properties == null) {
+            return defaultValue;
+        }
+        return Math.max(1, Integer.parseInt(properties.getProperty(name, Integer.toString(defaultValue))));
+    }
+
+
     private interface WriteEvent {
-        public void doWrite(EntityManager em, FileImport fileImport, FileImportTracker tracker);
+        public void doWrite(EntityManager em, FileImport fileImport, FileImportTracker.Batch tracker);
     }
 
 
@@ -1054,7 +1194,7 @@ public class ImportServiceImpl implements ImportService {
 
         // Creates entities
         @Override
-        public void doWrite(EntityManager em, FileImport fileImport, FileImportTracker tracker) {
+        public void doWrite(EntityManager em, FileImport fileImport, FileImportTracker.Batch tracker) {
             try {
                 if (logger.isTraceEnabled()) {
                     logger.trace("Writing imported entity {}:{} into app {}",
@@ -1087,7 +1227,7 @@ public class ImportServiceImpl implements ImportService {
 
         // creates connections between entities
         @Override
-        public void doWrite(EntityManager em, FileImport fileImport, FileImportTracker tracker) {
+        public void doWrite(EntityManager em, FileImport fileImport, FileImportTracker.Batch tracker) {
 
             try {
                 // TODO: do we need to ensure that all Entity events happen first?
@@ -1095,7 +1235,7 @@ public class ImportServiceImpl implements ImportService {
 
                 // Connections are specified as UUIDs with no type
                 if (entityRef.getType() == null) {
-                    entityRef = em.get(ownerEntityRef.getUuid());
+                    entityRef = em.get(entityRef.getUuid());
                 }
 
                 if (logger.isTraceEnabled()) {
@@ -1131,7 +1271,7 @@ public class ImportServiceImpl implements ImportService {
 
         // adds map to the dictionary
         @Override
-        public void doWrite(EntityManager em, FileImport fileImport, FileImportTracker stats) {
+        public void doWrite(EntityManager em, FileImport fileImport, FileImportTracker.Batch stats) {
             try {
 
                 if (logger.isTraceEnabled()) {
@@ -1321,7 +1461,12 @@ public class ImportServiceImpl implements ImportService {
 
                 // this logic makes it easy to remove Rx for debugging purposes
                 // no Rx, just do it
-                writeEvent.doWrite(em, fileImport, tracker);
+                final FileImportTracker.Batch counts = tracker.beginBatch();
+                try {
+                    writeEvent.doWrite(em, fileImport, counts);
+                } finally {
+                    counts.complete();
+                }
 
             } else {
                 subscriber.onNext(writeEvent);
@@ -0,0 +1,241 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.usergrid.security.shiro;
+
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.shiro.authz.Permission;
+import org.apache.shiro.authz.permission.WildcardPermission;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+
+/**
+ * The permissions held by a subject, compiled so a check only runs {@link Permission#implies(Permission)} for the
+ * permissions that could imply it.
+ *
+ * Permissions are indexed in a trie over their leading parts, for application permissions the domain, the operations
+ * and the application id.  A part made only of plain values is indexed under each value, anything else (wildcards,
+ * patterns, paths, user substitutions) goes under the node's wildcard child.  A check walks the values of the
+ * permission being checked, so a subject with permissions for hundreds of applications only matches the paths of
+ * the application it's using.  Paths are still matched by {@link CustomPermission}.
+ *
+ * Recent decisions are cached.  Instances belong to a single subject's authorization info, and are dropped with it
+ * when it's evicted from the authorization cache after a change to roles or permissions.
+ */
+public class CompiledPermissions {
+
+    /**
+     * Number of leading permission parts indexed, the parts after them are paths
+     */
+    private static final int INDEXED_PARTS = 3;
+
+    public static final int DEFAULT_DECISION_CACHE_SIZE = 1000;
+
+    private final Node root = new Node();
+
+    private final List<Permission> permissions;
+
+    private final Cache<String, Boolean> decisions;
+
+
+    public CompiledPermissions( final Collection<Permission> permissions ) {
+        this( permissions, DEFAULT_DECISION_CACHE_SIZE );
+    }
+
+
+    public CompiledPermissions( final Collection<Permission> permissions, final int decisionCacheSize ) {
+        this.permissions = new ArrayList<>( permissions );
+        this.decisions = CacheBuilder.newBuilder().maximumSize( decisionCacheSize ).build();
+
+        for ( Permission permission : permissions ) {
+            if ( permission instanceof CustomPermission ) {
+                add( root, permission, ( ( CustomPermission ) permission ).getParts(), 0 );
+            }
+            else {
+                // we don't know how anything else matches, so it's checked every time
+                root.permissions.add( permission );
+            }
+        }
+    }
+
+
+    /**
+     * True if any of the permissions implies the given permission
+     */
+    public boolean isPermitted( final Permission permission ) {
+
+        // only wildcard permissions have a string form that identifies them
+        if ( !( permission instanceof WildcardPermission ) ) {
+            return implies( permissions, permission );
+        }
+
+        final String key = permission.toString();
+
+        Boolean decision = decisions.getIfPresent( key );
+
+        if ( decision == null ) {
+            decision = evaluate( permission );
+            decisions.put( key, decision );
+        }
+
+        return decision;
+    }
+
+
+    private boolean evaluate( final Permission permission ) {
+
+        if ( !( permission instanceof CustomPermission ) ) {
+            return implies( permissions, permission );
+        }
+
+        final Set<Permission> candidates = new LinkedHashSet<>();
+
+        collect( root, ( ( CustomPermission ) permission ).getParts(), 0, candidates );
+
+        return implies( candidates, permission );
+    }
+
+
+    private static boolean implies( final Collection<Permission> permissions, final Permission permission ) {
+        for ( Permission held : permissions ) {
+            if ( held.implies( permission ) ) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+
+    /**
+     * Index the permission under the node for the part at depth
+     */
+    private static void add( final Node node, final Permission permission, final List<Set<String>> parts,
+                             final int depth ) {
+
+        // permissions with fewer parts imply everything after them, so they're candidates for anything below
+        if ( depth == INDEXED_PARTS || depth == parts.size() ) {
+            node.permissions.add( permission );
+            return;
+        }
+
+        final Set<String> part = parts.get( depth );
+
+        if ( !isLiteral( part ) ) {
+            if ( node.wildcard == null ) {
+                node.wildcard = new Node();
+            }
+            add( node.wildcard, permission, parts, depth + 1 );
+            return;
+        }
+
+        // implying a part means containing every value of it, so each value leads to the permission
+        for ( String value : part ) {
+            add( node.literals.computeIfAbsent( value.toLowerCase(), key -> new Node() ), permission, parts,
+                depth + 1 );
+        }
+    }
+
+
+    /**
+     * Collect the permissions that could imply a permission with the given parts
+     */
+    private static void collect( final Node node, final List<Set<String>> parts, final int depth,
+                                 final Set<Permission> candidates ) {
+
+        candidates.addAll( node.permissions );
+
+        if ( node.wildcard != null ) {
+            collect( node.wildcard, parts, depth + 1, candidates );
+        }
+
+        if ( node.literals.isEmpty() ) {
+            return;
+        }
+
+        // a missing part is only implied by wildcards, leave that to the permissions themselves
+        if ( depth >= parts.size() ) {
+            for ( Node literal : node.literals.values() ) {
+                collect( literal, parts, depth + 1, candidates );
+            }
+            return;
+        }
+
+        // every value must be contained, so the permissions under any one of them are all we need
+        final Node literal = node.literals.get( literalKey( parts.get( depth ).iterator().next() ) );
+
+        if ( literal != null ) {
+            collect( literal, parts, depth + 1, candidates );
+        }
+    }
+
+
+    /**
+     * True if every value of the part is only ever compared for equality
+     */
+    private static boolean isLiteral( final Set<String> part ) {
+        for ( String value : part ) {
+            if ( value.isEmpty() || value.equals( WildcardPermission.WILDCARD_TOKEN ) ) {
+                return false;
+            }
+
+            for ( int i = 0; i < value.length(); i++ ) {
+                switch ( value.charAt( i ) ) {
+                    case '*':
+                    case '?':
+                    case '{':
+                    case '$':
+                    case '/':
+                        return false;
+                    default:
+                }
+            }
+        }
+        return true;
+    }
+
+
+    /**
+     * The key a value is indexed under.  Values are compared as paths when either is a path, so "/abc" matches a
+     * literal "abc"
+     */
+    private static String literalKey( final String value ) {
+        final String key = value.startsWith( "/" ) ? value.substring( 1 ) : value;
+        return key.toLowerCase();
+    }
+
+
+    private static final class Node {
+
+        /**
+         * The permissions indexed no deeper than this node
+         */
+        private final List<Permission> permissions = new ArrayList<>();
+
+        private final Map<String, Node> literals = new HashMap<>();
+
+        private Node wildcard;
+    }
+}
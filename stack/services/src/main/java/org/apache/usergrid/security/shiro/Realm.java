@@ -22,6 +22,7 @@ import org.apache.shiro.authc.*;
 import org.apache.shiro.authc.credential.AllowAllCredentialsMatcher;
 import org.apache.shiro.authc.credential.CredentialsMatcher;
 import org.apache.shiro.authz.AuthorizationInfo;
+import org.apache.shiro.authz.Permission;
 import org.apache.shiro.authz.permission.PermissionResolver;
 import org.apache.shiro.cache.CacheManager;
 import org.apache.shiro.realm.AuthorizingRealm;
@@ -39,6 +40,10 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
 import static org.apache.usergrid.management.AccountCreationProps.PROPERTIES_SYSADMIN_LOGIN_ALLOWED;
 
 
@@ -154,6 +159,57 @@ public class Realm extends AuthorizingRealm {
     }
 
 
+    /**
+     * Check against the compiled permissions of the authorization info, compiled the first time it's checked.  They
+     * live as long as the info does in the authorization cache.
+     */
+    @Override
+    protected boolean isPermitted( Permission permission, AuthorizationInfo info ) {
+        if ( !( info instanceof UsergridAuthorizationInfo ) ) {
+            return super.isPermitted( permission, info );
+        }
+
+        UsergridAuthorizationInfo usergridInfo = ( UsergridAuthorizationInfo ) info;
+
+        CompiledPermissions compiled = usergridInfo.getCompiledPermissions();
+        if ( compiled == null ) {
+            compiled = new CompiledPermissions( resolveAllPermissions( info ) );
+            usergridInfo.setCompiledPermissions( compiled );
+        }
+
+        return compiled.isPermitted( permission );
+    }
+
+
+    /**
+     * All the permissions of the info, resolved the same way AuthorizingRealm resolves them for a check
+     */
+    private Collection<Permission> resolveAllPermissions( AuthorizationInfo info ) {
+        Set<Permission> permissions = new HashSet<>();
+
+        if ( info.getObjectPermissions() != null ) {
+            permissions.addAll( info.getObjectPermissions() );
+        }
+
+        if ( info.getStringPermissions() != null ) {
+            for ( String permission : info.getStringPermissions() ) {
+                permissions.add( getPermissionResolver().resolvePermission( permission ) );
+            }
+        }
+
+        if ( getRolePermissionResolver() != null && info.getRoles() != null ) {
+            for ( String role : info.getRoles() ) {
+                Collection<Permission> rolePermissions = getRolePermissionResolver().resolvePermissionsInRole( role );
+                if ( rolePermissions != null ) {
+                    permissions.addAll( rolePermissions );
+                }
+            }
+        }
+
+        return permissions;
+    }
+
+
     @Override
     protected AuthenticationInfo doGetAuthenticationInfo( AuthenticationToken token ) throws AuthenticationException {
         PrincipalCredentialsToken pcToken = ( PrincipalCredentialsToken ) token;
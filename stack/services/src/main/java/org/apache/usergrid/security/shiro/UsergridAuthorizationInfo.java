@@ -17,6 +17,7 @@
 
 package org.apache.usergrid.security.shiro;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import org.apache.shiro.authz.SimpleAuthorizationInfo;
 import org.apache.usergrid.management.ApplicationInfo;
 import org.apache.usergrid.management.OrganizationInfo;
@@ -37,6 +38,9 @@ public class UsergridAuthorizationInfo extends SimpleAuthorizationInfo {
     OrganizationInfo organization = null;
     ApplicationInfo application = null;
 
+    // built on first use by the realm, never cached with the rest of the info
+    private transient volatile CompiledPermissions compiledPermissions;
+
 
     /**
      * Default no-argument constructor.
@@ -88,6 +92,16 @@ public class UsergridAuthorizationInfo extends SimpleAuthorizationInfo {
         this.organizationSet.putAll( organizationSet );
     }
 
+    @JsonIgnore
+    public CompiledPermissions getCompiledPermissions() {
+        return compiledPermissions;
+    }
+
+    @JsonIgnore
+    public void setCompiledPermissions(CompiledPermissions compiledPermissions) {
+        this.compiledPermissions = compiledPermissions;
+    }
+
     @Override
     public String toString() {
         String orgName = null;
@@ -26,6 +26,8 @@ import org.apache.usergrid.management.UserInfo;
 import org.apache.usergrid.persistence.EntityManagerFactory;
 import org.apache.usergrid.persistence.core.metrics.MetricsFactory;
 import org.apache.usergrid.persistence.entities.Application;
+import org.apache.usergrid.persistence.token.TokenAccessTimeUpdater;
+import org.apache.usergrid.persistence.token.TokenAccessUpdate;
 import org.apache.usergrid.persistence.token.TokenSerialization;
 import org.apache.usergrid.security.AuthPrincipalInfo;
 import org.apache.usergrid.security.AuthPrincipalType;
@@ -95,6 +97,8 @@ public class TokenServiceImpl implements TokenService {
 
     private TokenSerialization tokenSerialization;
 
+    private TokenAccessTimeUpdater tokenAccessTimeUpdater;
+
 
     public TokenServiceImpl() {
     }
@@ -318,7 +322,8 @@ public class TokenServiceImpl implements TokenService {
                 inactive = Long.MIN_VALUE;
             }
 
-            tokenSerialization.updateTokenAccessTime(uuid, now, inactive, calcTokenTime(tokenInfo.getExpiration(maxTokenTtl)));
+            // written behind and merged with other accesses of this token, see TokenFig
+            tokenAccessTimeUpdater.updateTokenAccessTime(uuid, now, inactive, calcTokenTime(tokenInfo.getExpiration(maxTokenTtl)));
         }
 
         return tokenInfo;
@@ -369,6 +374,10 @@ public class TokenServiceImpl implements TokenService {
     public void removeTokens( AuthPrincipalInfo principal ) throws Exception {
 
         final List<UUID> tokenIds = getTokenUUIDS( principal );
+
+        // pending access times would otherwise be written back onto the deleted tokens
+        tokenIds.forEach( tokenAccessTimeUpdater::discard );
+
         tokenSerialization.deleteTokens(tokenIds, principalKey( principal ));
 
     }
@@ -395,6 +404,8 @@ public class TokenServiceImpl implements TokenService {
 
         final UUID tokenId = info.getUuid();
 
+        tokenAccessTimeUpdater.discard( tokenId );
+
         // clean up the link in the principal -> token index if the principal is
         // on the token
         if ( info.getPrincipal() != null ) {
@@ -463,6 +474,13 @@ public class TokenServiceImpl implements TokenService {
             }
         }
 
+        // accesses on this node may not have been written yet
+        final TokenAccessUpdate pendingAccess = tokenAccessTimeUpdater.getPendingUpdate( uuid );
+        if ( pendingAccess != null ) {
+            accessed = Math.max( accessed, pendingAccess.getAccessedTime() );
+            inactive = Math.max( inactive, pendingAccess.getInactiveTime() );
+        }
+
         return new TokenInfo( uuid, type, created, accessed, inactive, duration, principal, state, workflowOrgId );
     }
 
@@ -601,6 +619,7 @@ public class TokenServiceImpl implements TokenService {
         final Injector injector = ((CpEntityManagerFactory)emf).getApplicationContext().getBean( Injector.class );
         this.metricsFactory = injector.getInstance(MetricsFactory.class);
         this.tokenSerialization = injector.getInstance(TokenSerialization.class);
+        this.tokenAccessTimeUpdater = injector.getInstance(TokenAccessTimeUpdater.class);
     }
 
 
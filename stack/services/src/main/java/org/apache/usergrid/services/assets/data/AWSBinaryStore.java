@@ -52,6 +52,7 @@ import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
 import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
 import com.amazonaws.services.s3.model.CompleteMultipartUploadResult;
 import com.amazonaws.services.s3.model.DeleteObjectRequest;
+import com.amazonaws.services.s3.model.GetObjectRequest;
 import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
 import com.amazonaws.services.s3.model.InitiateMultipartUploadResult;
 import com.amazonaws.services.s3.model.ListMultipartUploadsRequest;
@@ -62,7 +63,6 @@ import com.amazonaws.services.s3.model.PartETag;
 import com.amazonaws.services.s3.model.PutObjectResult;
 import com.amazonaws.services.s3.model.S3Object;
 import com.amazonaws.services.s3.model.UploadPartRequest;
-import com.google.common.primitives.Ints;
 import java.io.ByteArrayInputStream;
 import java.io.FileInputStream;
 import java.io.PushbackInputStream;
@@ -292,24 +292,19 @@ public class AWSBinaryStore implements BinaryStore {
     @Override
     public InputStream read( UUID appId, Entity entity, long offset, long length ) throws Exception {
 
-        S3Object object = getS3Client().getObject( bucketName, AssetUtils.buildAssetKey( appId, entity ) );
-
-        byte data[] = null;
+        // ranged GET, S3 only sends the requested bytes.  The end of the range is inclusive
+        GetObjectRequest request = new GetObjectRequest( bucketName, AssetUtils.buildAssetKey( appId, entity ) )
+            .withRange( offset, offset + length - 1 );
 
-        if ( offset == 0 && length == FIVE_MB ) {
-            return object.getObjectContent();
-        }
-        else {
-            object.getObjectContent().read(data, Ints.checkedCast(offset), Ints.checkedCast(length));
-        }
-
-        return new ByteArrayInputStream(data);
+        return getS3Client().getObject( request ).getObjectContent();
     }
 
 
     @Override
     public InputStream read( UUID appId, Entity entity ) throws Exception {
-        return read( appId, entity, 0, FIVE_MB );
+        S3Object object = getS3Client().getObject( bucketName, AssetUtils.buildAssetKey( appId, entity ) );
+
+        return object.getObjectContent();
     }
 
 
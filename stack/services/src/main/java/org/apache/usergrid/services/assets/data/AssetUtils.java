@@ -17,6 +17,9 @@
 package org.apache.usergrid.services.assets.data;
 
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.text.ParseException;
 import java.util.Date;
 import java.util.HashMap;
@@ -28,6 +31,7 @@ import org.slf4j.LoggerFactory;
 import org.apache.usergrid.persistence.Entity;
 import org.apache.usergrid.utils.StringUtils;
 
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.time.DateUtils;
 
 import com.google.common.base.Preconditions;
@@ -54,6 +58,20 @@ public class AssetUtils {
     }
 
 
+    /**
+     * Copy asset data read from a {@link BinaryStore} to the output stream. Local files are transferred by their
+     * channel rather than copied through a buffer on the heap.
+     *
+     * @return The number of bytes copied
+     */
+    public static long transfer( InputStream in, OutputStream out ) throws IOException {
+        if ( in instanceof FileRangeInputStream ) {
+            return ( ( FileRangeInputStream ) in ).transferTo( out );
+        }
+        return IOUtils.copyLarge( in, out );
+    }
+
+
     /** Attempt to parse the Date from a Date-based header, primarily If-Modified-Since */
     public static Date fromIfModifiedSince( String headerValue ) {
         Date moded = null;
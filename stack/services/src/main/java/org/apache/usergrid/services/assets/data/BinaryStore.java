@@ -36,7 +36,10 @@ public interface BinaryStore {
     /** read the entity's file data from the store */
     InputStream read( UUID appId, Entity entity ) throws Exception;
 
-    /** read partial data from the store */
+    /**
+     * read partial data from the store.  The stream returns the bytes from offset up to offset + length, or fewer if
+     * the data ends first, so a store should only fetch the requested range.
+     */
     InputStream read( UUID appId, Entity entity, long offset, long length ) throws Exception;
 
     /** delete the entity data from the store. */
@@ -0,0 +1,153 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.usergrid.services.assets.data;
+
+
+import org.apache.usergrid.utils.StringUtils;
+
+
+/**
+ * A single byte range of an asset, parsed from an HTTP Range header.  Both start and end are inclusive, as they are in
+ * the header.
+ */
+public class ByteRange {
+
+    private static final String BYTES_UNIT = "bytes=";
+
+    private final long start;
+    private final long end;
+    private final long contentLength;
+
+
+    private ByteRange( long start, long end, long contentLength ) {
+        this.start = start;
+        this.end = end;
+        this.contentLength = contentLength;
+    }
+
+
+    /**
+     * Parse the Range header of a request for an asset of the given length.  Returns null if the header should be
+     * ignored and the whole asset returned: it's blank, malformed, or asks for more than one range.
+     *
+     * @param header The value of the Range header
+     * @param contentLength The length of the asset
+     */
+    public static ByteRange parse( String header, long contentLength ) {
+
+        if ( StringUtils.isBlank( header ) ) {
+            return null;
+        }
+
+        String value = header.trim();
+
+        if ( !value.regionMatches( true, 0, BYTES_UNIT, 0, BYTES_UNIT.length() ) ) {
+            return null;
+        }
+
+        value = value.substring( BYTES_UNIT.length() ).trim();
+
+        // we only serve a single range, the whole asset is an acceptable answer to a multi range request
+        final int dash = value.indexOf( '-' );
+
+        if ( dash < 0 || value.indexOf( ',' ) >= 0 ) {
+            return null;
+        }
+
+        try {
+            final String first = value.substring( 0, dash ).trim();
+            final String last = value.substring( dash + 1 ).trim();
+
+            // suffix range, the final bytes of the asset
+            if ( first.isEmpty() ) {
+                final long suffixLength = Long.parseLong( last );
+
+                if ( suffixLength <= 0 ) {
+                    return new ByteRange( contentLength, contentLength - 1, contentLength );
+                }
+
+                return new ByteRange( Math.max( 0, contentLength - suffixLength ), contentLength - 1, contentLength );
+            }
+
+            final long start = Long.parseLong( first );
+
+            if ( start < 0 ) {
+                return null;
+            }
+
+            // open ended range, from the start to the end of the asset
+            if ( last.isEmpty() ) {
+                return new ByteRange( start, contentLength - 1, contentLength );
+            }
+
+            final long end = Long.parseLong( last );
+
+            if ( end < start ) {
+                return null;
+            }
+
+            return new ByteRange( start, Math.min( end, contentLength - 1 ), contentLength );
+        }
+        catch ( NumberFormatException nfe ) {
+            return null;
+        }
+    }
+
+
+    /** True if at least one byte of the range is within the asset. If not the request should get a 416 */
+    public boolean isSatisfiable() {
+        return start < contentLength && start <= end;
+    }
+
+
+    public long getStart() {
+        return start;
+    }
+
+
+    /** The last byte of the range, inclusive */
+    public long getEnd() {
+        return end;
+    }
+
+
+    /** The number of bytes in the range */
+    public long getLength() {
+        return end - start + 1;
+    }
+
+
+    public long getContentLength() {
+        return contentLength;
+    }
+
+
+    /** The value of the Content-Range header of the response */
+    public String toContentRange() {
+        if ( !isSatisfiable() ) {
+            return "bytes */" + contentLength;
+        }
+
+        return "bytes " + start + "-" + end + "/" + contentLength;
+    }
+
+
+    @Override
+    public String toString() {
+        return toContentRange();
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.usergrid.services.assets.data;
+
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+
+
+/**
+ * Streams a range of a file with positional reads on a {@link FileChannel}, so nothing before the range is read. When
+ * the whole range is written to an output stream, {@link #transferTo(OutputStream)} lets the channel move the bytes
+ * without copying them through the heap.
+ */
+public class FileRangeInputStream extends InputStream {
+
+    private final FileChannel channel;
+
+    private long position;
+    private final long end;
+
+
+    /**
+     * @param file The file to read
+     * @param offset The first byte to read
+     * @param length The max number of bytes to read.  Fewer are read if the file ends first
+     */
+    public FileRangeInputStream( File file, long offset, long length ) throws IOException {
+        this.channel = FileChannel.open( file.toPath(), StandardOpenOption.READ );
+        this.position = offset;
+        // saturate rather than overflow when reading to the end of the file
+        this.end = length > Long.MAX_VALUE - offset ? Long.MAX_VALUE : offset + length;
+    }
+
+
+    @Override
+    public int read() throws IOException {
+        final byte[] single = new byte[1];
+
+        return read( single, 0, 1 ) == -1 ? -1 : single[0] & 0xff;
+    }
+
+
+    @Override
+    public int read( byte[] b, int off, int len ) throws IOException {
+        if ( len == 0 ) {
+            return 0;
+        }
+
+        final long remaining = remaining();
+
+        if ( remaining <= 0 ) {
+            return -1;
+        }
+
+        final int read = channel.read( ByteBuffer.wrap( b, off, ( int ) Math.min( len, remaining ) ), position );
+
+        if ( read > 0 ) {
+            position += read;
+        }
+
+        return read;
+    }
+
+
+    @Override
+    public long skip( long n ) throws IOException {
+        final long skipped = Math.max( 0, Math.min( n, remaining() ) );
+
+        position += skipped;
+
+        return skipped;
+    }
+
+
+    @Override
+    public int available() throws IOException {
+        return ( int ) Math.max( 0, Math.min( Integer.MAX_VALUE, remaining() ) );
+    }
+
+
+    /**
+     * Write the rest of the range to the output stream with {@link FileChannel#transferTo(long, long,
+     * WritableByteChannel)}
+     *
+     * @return The number of bytes written
+     */
+    public long transferTo( OutputStream out ) throws IOException {
+        final WritableByteChannel target = Channels.newChannel( out );
+
+        long transferred = 0;
+        long remaining;
+
+        while ( ( remaining = remaining() ) > 0 ) {
+            final long count = channel.transferTo( position, remaining, target );
+
+            // transferTo returns 0 once we're at the end of the file
+            if ( count <= 0 ) {
+                break;
+            }
+
+            position += count;
+            transferred += count;
+        }
+
+        return transferred;
+    }
+
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+
+    /** Bytes left in the range, bounded by the size of the file */
+    private long remaining() throws IOException {
+        return Math.min( end, channel.size() ) - position;
+    }
+}
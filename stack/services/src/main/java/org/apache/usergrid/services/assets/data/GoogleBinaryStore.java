@@ -20,9 +20,11 @@ package org.apache.usergrid.services.assets.data;
 import com.google.api.services.storage.StorageScopes;
 import com.google.auth.oauth2.GoogleCredentials;
 import com.google.cloud.HttpTransportOptions;
+import com.google.cloud.ReadChannel;
 import com.google.cloud.TransportOptions;
 import com.google.cloud.WriteChannel;
 import com.google.cloud.storage.*;
+import com.google.common.io.ByteStreams;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang.RandomStringUtils;
@@ -35,6 +37,7 @@ import org.slf4j.LoggerFactory;
 
 import java.io.*;
 import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
 import java.security.GeneralSecurityException;
 import java.util.Map;
 import java.util.Properties;
@@ -45,7 +48,6 @@ import java.util.concurrent.atomic.AtomicLong;
 public class GoogleBinaryStore implements BinaryStore {
 
     private static final Logger logger = LoggerFactory.getLogger(GoogleBinaryStore.class);
-    private static final long FIVE_MB = ( FileUtils.ONE_MB * 5 );
 
 
     private EntityManagerFactory entityManagerFactory;
@@ -199,7 +201,10 @@ public class GoogleBinaryStore implements BinaryStore {
     @Override
     public InputStream read(UUID appId, Entity entity) throws Exception {
 
-        return read( appId, entity, 0, FIVE_MB );
+        getService();
+
+        final byte[] content = instance.readAllBytes(BlobId.of(bucketName, AssetUtils.buildAssetKey( appId, entity )));
+        return new ByteArrayInputStream(content);
     }
 
     @Override
@@ -207,8 +212,11 @@ public class GoogleBinaryStore implements BinaryStore {
 
         getService();
 
-        final byte[] content = instance.readAllBytes(BlobId.of(bucketName, AssetUtils.buildAssetKey( appId, entity )));
-        return new ByteArrayInputStream(content);
+        // seek the blob reader so only the requested range is fetched, rather than the whole blob
+        final ReadChannel reader = instance.reader(BlobId.of(bucketName, AssetUtils.buildAssetKey( appId, entity )));
+        reader.seek(offset);
+
+        return ByteStreams.limit(Channels.newInputStream(reader), length);
     }
 
     @Override
@@ -26,8 +26,8 @@ import org.apache.usergrid.utils.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.BufferedInputStream;
 import java.io.File;
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Map;
@@ -42,8 +42,6 @@ public class LocalFileBinaryStore implements BinaryStore {
 
     private String reposLocation = FileUtils.getTempDirectoryPath();
 
-    private static final long FIVE_MB = ( FileUtils.ONE_MB * 5 );
-
     private Properties properties;
 
     private EntityManagerFactory entityManagerFactory;
@@ -133,13 +131,27 @@ public class LocalFileBinaryStore implements BinaryStore {
 
     @Override
     public InputStream read( UUID appId, Entity entity ) throws IOException {
-        return read( appId, entity, 0, FileUtils.ONE_MB * 5 );
+        return read( appId, entity, 0, Long.MAX_VALUE );
     }
 
 
+    /**
+     * Reads only the requested range with positional reads, so nothing before offset is read. The returned stream can
+     * be written to a response with {@link FileRangeInputStream#transferTo(java.io.OutputStream)}
+     */
     @Override
     public InputStream read( UUID appId, Entity entity, long offset, long length ) throws IOException {
-        return new BufferedInputStream( FileUtils.openInputStream( path( appId, entity ) ) );
+        File file = path( appId, entity );
+
+        if ( !file.exists() ) {
+            throw new FileNotFoundException( "File '" + file + "' does not exist" );
+        }
+
+        if ( file.isDirectory() ) {
+            throw new IOException( "File '" + file + "' exists but is a directory" );
+        }
+
+        return new FileRangeInputStream( file, offset, length );
     }
 
 
@@ -37,8 +37,11 @@ import org.apache.usergrid.persistence.EntityManager;
 import org.apache.usergrid.persistence.entities.User;
 import org.apache.usergrid.security.shiro.PrincipalCredentialsToken;
 import org.apache.usergrid.security.shiro.utils.SubjectUtils;
+import org.apache.usergrid.services.roles.RolesService;
 
+import static org.apache.usergrid.security.shiro.utils.SubjectUtils.getPermissionFromPath;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 
 
@@ -96,4 +99,52 @@ public class RoleIT {
 
         logger.info( "Doesn't have role \"logged-in\"" );
     }
+
+
+    @Test
+    public void testRevokedPermissionIsDenied() throws Exception {
+
+        OrganizationOwnerInfo ooi = setup.getMgmtSvc()
+            .createOwnerAndOrganization( "RoleIT2", "edanuff6", "Ed Anuff", "ed@anuff.com6", "test", true, false );
+
+        OrganizationInfo organization = ooi.getOrganization();
+
+        UUID applicationId = setup.getMgmtSvc().createApplication( organization.getUuid(), "test-app" ).getId();
+        EntityManager em = setup.getEmf().getEntityManager( applicationId );
+        setup.getEntityIndex().waitForQueueDrainAndRefresh(em.getApplicationId(), 500);
+
+        Map<String, Object> properties = new LinkedHashMap<String, Object>();
+        properties.put( "username", "edanuff6" );
+        properties.put( "email", "ed@anuff.com6" );
+        properties.put( "activated", true );
+        User user = em.create( User.ENTITY_TYPE, User.class, properties );
+
+        em.createRole( "reader", "Reader", 0 );
+        setup.getEntityIndex().waitForQueueDrainAndRefresh(em.getApplicationId(), 500);
+        em.addUserToRole( user.getUuid(), "reader" );
+
+        RolesService rolesService = ( RolesService ) setup.getSmf().getServiceManager( applicationId )
+            .getService( "/roles" );
+        rolesService.grantApplicationRolePermission( "reader", "get:/widgets/**" );
+
+        String accessToken = setup.getMgmtSvc().getAccessTokenForAppUser( applicationId, user.getUuid(), 0 );
+
+        UserInfo user_info = setup.getMgmtSvc().getAppUserFromAccessToken( accessToken );
+
+        PrincipalCredentialsToken token =
+                PrincipalCredentialsToken.getFromAppUserInfoAndAccessToken( user_info, accessToken );
+
+        Subject subject = SubjectUtils.getSubject();
+        subject.login( token );
+
+        String permission = getPermissionFromPath( applicationId, "get", "/widgets/one" );
+
+        // the first check caches the authorization info, in memory as well as in the scoped cache
+        assertTrue( subject.isPermitted( permission ) );
+        assertTrue( subject.isPermitted( permission ) );
+
+        rolesService.revokeApplicationRolePermission( "reader", "get:/widgets/**" );
+
+        assertFalse( "revoked permission served from cache", subject.isPermitted( permission ) );
+    }
 }
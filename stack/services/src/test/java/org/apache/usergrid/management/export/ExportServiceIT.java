@@ -532,6 +532,84 @@ public class ExportServiceIT {
     }
 
 
+    //Collections are exported in parallel partitions, every collection must still be written whole and in place
+    @Test
+    public void testExportMultipleCollections() throws Exception {
+
+        File f = new File( "exportMultipleCollections.json" );
+        f.deleteOnExit();
+
+        EntityManager em = setup.getEmf().getEntityManager( applicationId );
+
+        String[] types = { "cat", "dog", "bird" };
+        int entitiesPerType = 25;
+
+        for ( String type : types ) {
+            for ( int i = 0; i < entitiesPerType; i++ ) {
+                Map<String, Object> properties = new LinkedHashMap<String, Object>();
+                properties.put( "name", type + i );
+                em.create( type, properties );
+            }
+        }
+
+        setup.getEntityIndex().refresh( applicationId );
+
+        File tempDir = new File( System.getProperty( "java.io.tmpdir" ) );
+        int partitionFilesBefore = countPartitionFiles( tempDir );
+
+        S3Export s3Export = new MockS3ExportImpl( "exportMultipleCollections.json" );
+        ExportService exportService = setup.getExportService();
+
+        String appName = newOrgAppAdminRule.getApplicationInfo().getName();
+        HashMap<String, Object> payload = payloadBuilder( appName );
+
+        payload.put( "organizationId", organization.getUuid() );
+        payload.put( "applicationId", applicationId );
+
+        UUID exportUUID = exportService.schedule( payload );
+
+        JobData jobData = jobDataCreator( payload, exportUUID, s3Export );
+
+        JobExecution jobExecution = mock( JobExecution.class );
+        when( jobExecution.getJobData() ).thenReturn( jobData );
+
+        exportService.doExport( jobExecution );
+
+        assertEquals( "FINISHED", exportService.getState( exportUUID ) );
+
+        TypeReference<HashMap<String, Object>> typeRef = new TypeReference<HashMap<String, Object>>() {};
+
+        ObjectMapper mapper = new ObjectMapper();
+        Map<String, Object> jsonMap = mapper.readValue( new FileReader( f ), typeRef );
+
+        Map collectionsMap = ( Map ) jsonMap.get( "collections" );
+
+        for ( String type : types ) {
+            List collection = ( List ) collectionsMap.get( type + "s" );
+            assertNotNull( "Collection " + type + "s was not exported", collection );
+            assertEquals( entitiesPerType, collection.size() );
+
+            Set<String> names = new HashSet<String>();
+            for ( Object o : collection ) {
+                Map metadataMap = ( Map ) ( ( Map ) o ).get( "Metadata" );
+                assertEquals( type, metadataMap.get( "type" ) );
+                names.add( ( String ) metadataMap.get( "name" ) );
+            }
+            assertEquals( entitiesPerType, names.size() );
+        }
+
+        //partitions are removed once they're copied into the export
+        assertTrue( countPartitionFiles( tempDir ) <= partitionFilesBefore );
+    }
+
+
+    private int countPartitionFiles( File tempDir ) {
+        File[] partitionFiles =
+            tempDir.listFiles( ( dir, name ) -> name.startsWith( "tempExport" ) && name.endsWith( ".json.gz" ) );
+        return partitionFiles == null ? 0 : partitionFiles.length;
+    }
+
+
     @Test
     public void testExportOneCollection() throws Exception {
 
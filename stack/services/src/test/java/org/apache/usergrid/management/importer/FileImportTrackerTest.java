@@ -328,6 +328,42 @@ public class FileImportTrackerTest {
     }
 
 
+    @Test
+    public void batchesPersistCompletedPrefix() throws Exception {
+
+        final EntityManagerFactory emf = mock( EntityManagerFactory.class );
+        final EntityManager em = mock( EntityManager.class );
+        when( emf.getEntityManager( emf.getManagementAppId() ) ).thenReturn( em );
+
+        final FileImport fileImport = new FileImport();
+        fileImport.setUuid( UUIDGenerator.newTimeUUID() );
+
+        //flush on every write
+        final FileImportTracker fileImportTracker = new FileImportTracker( emf, fileImport, 1 );
+
+        final FileImportTracker.Batch first = fileImportTracker.beginBatch();
+        final FileImportTracker.Batch second = fileImportTracker.beginBatch();
+
+        //the second batch completes first
+        second.entityWritten();
+        second.entityWritten();
+        second.complete();
+
+        assertEquals( "Counted in memory", 2, fileImportTracker.getEntitiesWritten() );
+        assertEquals( "Not persisted before the first batch completes", 0, fileImport.getImportedEntityCount() );
+
+        first.entityWritten();
+
+        assertEquals( "Not persisted before the first batch completes", 0, fileImport.getImportedEntityCount() );
+
+        first.complete();
+        fileImportTracker.connectionWritten();
+
+        assertEquals( "Both batches persisted", 3, fileImport.getImportedEntityCount() );
+        assertEquals( "Unbatched writes persisted", 1, fileImport.getImportedConnectionCount() );
+    }
+
+
     @Test
     public void loadingExistingState() throws Exception {
 
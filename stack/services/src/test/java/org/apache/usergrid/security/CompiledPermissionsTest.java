@@ -0,0 +1,141 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.usergrid.security;
+
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import org.apache.usergrid.security.shiro.CompiledPermissions;
+import org.apache.usergrid.security.shiro.CustomPermission;
+
+import org.apache.shiro.authz.Permission;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+
+public class CompiledPermissionsTest {
+
+    private static final String[] HELD = {
+        "applications:get,put:app1:/users/**",
+        "applications:get:app2:/**",
+        "applications:*:app3:/things/**",
+        "applications:post:*:/devices",
+        "applications:delete:app4",
+        "organizations:access:org1",
+        "users:access"
+    };
+
+    private static final String[] CHECKED = {
+        "applications:get:app1:/users/fred",
+        "applications:put:app1:/users/fred/roles",
+        "applications:post:app1:/users/fred",
+        "applications:get,put:app1:/users",
+        "applications:get:app2:/anything/at/all",
+        "applications:put:app2:/anything",
+        "applications:delete:app3:/things/a",
+        "applications:delete:app3:/other",
+        "applications:post:app9:/devices",
+        "applications:post:app9:/devices/1",
+        "applications:delete:app4:/any/path",
+        "applications:get:app4:/any/path",
+        "applications:get:app5:/users",
+        "applications:get",
+        "organizations:access:org1",
+        "organizations:access:/org1",
+        "organizations:access:org2",
+        "users:access:someone",
+        "groups:access:somegroup"
+    };
+
+
+    @Test
+    public void sameDecisionsAsEveryPermission() {
+        List<Permission> held = permissions( HELD );
+
+        CompiledPermissions compiled = new CompiledPermissions( held );
+
+        for ( String checked : CHECKED ) {
+            Permission permission = new CustomPermission( checked );
+
+            boolean expected = false;
+            for ( Permission p : held ) {
+                expected |= p.implies( permission );
+            }
+
+            assertEquals( checked, expected, compiled.isPermitted( permission ) );
+
+            // again, from the decision cache
+            assertEquals( checked, expected, compiled.isPermitted( permission ) );
+        }
+    }
+
+
+    @Test
+    public void indexedPermissions() {
+        CompiledPermissions compiled = new CompiledPermissions( permissions( HELD ) );
+
+        assertTrue( compiled.isPermitted( new CustomPermission( "applications:get:app1:/users/fred" ) ) );
+        assertFalse( compiled.isPermitted( new CustomPermission( "applications:post:app1:/users/fred" ) ) );
+        assertFalse( compiled.isPermitted( new CustomPermission( "applications:get:app5:/users" ) ) );
+
+        // wildcard parts match any value
+        assertTrue( compiled.isPermitted( new CustomPermission( "applications:delete:app3:/things/a" ) ) );
+        assertTrue( compiled.isPermitted( new CustomPermission( "applications:post:app9:/devices" ) ) );
+
+        // fewer parts imply everything after them
+        assertTrue( compiled.isPermitted( new CustomPermission( "applications:delete:app4:/any/path" ) ) );
+    }
+
+
+    @Test
+    public void decisionsCached() {
+        final AtomicInteger checks = new AtomicInteger();
+
+        Permission counting = new Permission() {
+            @Override
+            public boolean implies( final Permission p ) {
+                checks.incrementAndGet();
+                return false;
+            }
+        };
+
+        CompiledPermissions compiled = new CompiledPermissions( Arrays.asList( counting ) );
+
+        Permission permission = new CustomPermission( "applications:get:app1:/users" );
+
+        assertFalse( compiled.isPermitted( permission ) );
+        assertFalse( compiled.isPermitted( new CustomPermission( "applications:get:app1:/users" ) ) );
+
+        assertEquals( 1, checks.get() );
+    }
+
+
+    private static List<Permission> permissions( String... permissions ) {
+        List<Permission> list = new ArrayList<>();
+        for ( String permission : permissions ) {
+            list.add( new CustomPermission( permission ) );
+        }
+        return list;
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.usergrid.services.assets.data;
+
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.InputStream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertTrue;
+
+
+public class ByteRangeTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+
+    @Test
+    public void closedRange() {
+        ByteRange range = ByteRange.parse( "bytes=0-499", 1000 );
+
+        assertTrue( range.isSatisfiable() );
+        assertEquals( 0, range.getStart() );
+        assertEquals( 499, range.getEnd() );
+        assertEquals( 500, range.getLength() );
+        assertEquals( "bytes 0-499/1000", range.toContentRange() );
+    }
+
+
+    @Test
+    public void endClampedToLength() {
+        ByteRange range = ByteRange.parse( "bytes=900-2000", 1000 );
+
+        assertEquals( 900, range.getStart() );
+        assertEquals( 999, range.getEnd() );
+        assertEquals( 100, range.getLength() );
+    }
+
+
+    @Test
+    public void openEndedRange() {
+        ByteRange range = ByteRange.parse( "bytes=100-", 1000 );
+
+        assertEquals( 100, range.getStart() );
+        assertEquals( 999, range.getEnd() );
+        assertEquals( "bytes 100-999/1000", range.toContentRange() );
+    }
+
+
+    @Test
+    public void suffixRange() {
+        ByteRange range = ByteRange.parse( "bytes=-100", 1000 );
+
+        assertEquals( 900, range.getStart() );
+        assertEquals( 999, range.getEnd() );
+
+        range = ByteRange.parse( "bytes=-5000", 1000 );
+
+        assertEquals( 0, range.getStart() );
+        assertEquals( 1000, range.getLength() );
+    }
+
+
+    @Test
+    public void unsatisfiableRange() {
+        ByteRange range = ByteRange.parse( "bytes=1000-", 1000 );
+
+        assertFalse( range.isSatisfiable() );
+        assertEquals( "bytes */1000", range.toContentRange() );
+
+        assertFalse( ByteRange.parse( "bytes=-0", 1000 ).isSatisfiable() );
+    }
+
+
+    @Test
+    public void ignoredHeaders() {
+        assertNull( ByteRange.parse( null, 1000 ) );
+        assertNull( ByteRange.parse( " ", 1000 ) );
+        assertNull( ByteRange.parse( "items=0-10", 1000 ) );
+        assertNull( ByteRange.parse( "bytes=0-10,20-30", 1000 ) );
+        assertNull( ByteRange.parse( "bytes=10-5", 1000 ) );
+        assertNull( ByteRange.parse( "bytes=a-b", 1000 ) );
+    }
+
+
+    @Test
+    public void fileRangeRead() throws Exception {
+        File file = folder.newFile();
+        FileUtils.writeStringToFile( file, "0123456789" );
+
+        try ( InputStream in = new FileRangeInputStream( file, 2, 5 ) ) {
+            assertEquals( "23456", IOUtils.toString( in ) );
+        }
+
+        // the range is cut short at the end of the file
+        try ( FileRangeInputStream in = new FileRangeInputStream( file, 7, 100 ) ) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+            assertEquals( 3, AssetUtils.transfer( in, out ) );
+            assertEquals( "789", out.toString() );
+        }
+    }
+}